@@ -17,11 +17,14 @@
 package org.gradle.internal.cc.impl
 
 
+import org.gradle.integtests.fixtures.BuildOperationsFixture
 import org.gradle.internal.os.OperatingSystem
 import org.gradle.internal.scan.config.fixtures.ApplyDevelocityPluginFixture
 import org.gradle.test.fixtures.file.TestFile
 import spock.lang.Issue
 
+import java.util.regex.Pattern
+
 class ConfigurationCacheCompositeBuildsIntegrationTest extends AbstractConfigurationCacheIntegrationTest {
 
     def "can publish build scan with composite build"() {
@@ -260,6 +263,66 @@ class ConfigurationCacheCompositeBuildsIntegrationTest extends AbstractConfigura
         order << ['lib', 'util'].permutations()
     }
 
+    def "can load the state of several included builds in parallel"() {
+        given:
+        def configurationCache = newConfigurationCacheFixture()
+        def operations = new BuildOperationsFixture(executer, temporaryFolder)
+        def libs = ['lib1', 'lib2', 'lib3', 'lib4']
+        libs.each { lib ->
+            settingsFile "includeBuild '$lib'\n"
+            createDir(lib) {
+                file('settings.gradle') << "rootProject.name = '$lib'"
+                file('build.gradle') << """
+                    plugins { id 'java-library' }
+                    group = 'org.test'
+                    version = '1.0'
+
+                    abstract class CompletionListener implements BuildService<BuildServiceParameters.None>, org.gradle.tooling.events.OperationCompletionListener {
+                        void onFinish(org.gradle.tooling.events.FinishEvent event) {
+                            println '$lib listener received ' + event.descriptor.name
+                        }
+                    }
+
+                    def listener = gradle.sharedServices.registerIfAbsent('listener', CompletionListener) { }
+                    services.get(BuildEventsListenerRegistry).onTaskCompletion(listener)
+                """
+                file("src/main/java/${lib.capitalize()}.java") << """
+                    public class ${lib.capitalize()} { public static String name() { return "$lib"; } }
+                """
+            }
+        }
+        buildFile """
+            plugins { id 'java' }
+            dependencies {
+                ${libs.collect { "implementation 'org.test:$it:1.0'" }.join('\n')}
+            }
+        """
+        file('src/main/java/Main.java') << """
+            class Main { String names() { return ${libs.collect { "${it.capitalize()}.name()" }.join(' + ')}; } }
+        """
+        def parallelLoad = '-Dorg.gradle.configuration-cache.internal.parallel-load=true'
+
+        when:
+        configurationCacheRun 'compileJava', parallelLoad
+
+        then:
+        configurationCache.assertStateStored()
+
+        when:
+        file('build/classes').deleteDir()
+        libs.each { file("$it/build/classes").deleteDir() }
+        configurationCacheRun 'compileJava', parallelLoad
+
+        then:
+        configurationCache.assertStateLoaded()
+        operations.all(Pattern.compile('Load configuration cache state for .*')).size() == libs.size()
+        libs.each { lib ->
+            result.assertTaskExecuted(":$lib:compileJava")
+            outputContains("$lib listener received")
+            result.assertTaskOrder(":$lib:compileJava", ':compileJava')
+        }
+    }
+
     private static withDevelocityPlugin(TestFile settingsDir) {
         ApplyDevelocityPluginFixture.applyDevelocityPlugin(
             settingsDir.file('settings.gradle')
@@ -123,7 +123,8 @@ class ConfigurationCacheEncryptionIntegrationTest extends AbstractConfigurationC
             kind,
             ["useSensitive"],
             ["-Psensitive_property_name=sensitive_property_value",
-             "-Dorg.gradle.configuration-cache.internal.deduplicate-strings=false"],
+             "-Dorg.gradle.configuration-cache.internal.deduplicate-strings=false",
+             "-Dorg.gradle.configuration-cache.internal.compress-state=false"],
             [(ENV_PROJECT_PROPERTIES_PREFIX + 'sensitive_property_name2'): 'sensitive_property_value2',
              "SENSITIVE_ENV_VAR_NAME": 'sensitive_env_var_value']
         )
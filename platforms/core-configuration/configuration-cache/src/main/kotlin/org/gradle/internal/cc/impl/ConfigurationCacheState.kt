@@ -55,6 +55,7 @@ import org.gradle.internal.cc.base.serialize.ProjectProvider
 import org.gradle.internal.cc.base.serialize.service
 import org.gradle.internal.cc.base.serialize.withGradleIsolate
 import org.gradle.internal.cc.base.services.ConfigurationCacheEnvironmentChangeTracker
+import org.gradle.internal.cc.impl.initialization.ConfigurationCacheStartParameter
 import org.gradle.internal.cc.impl.serialize.Codecs
 import org.gradle.internal.configuration.problems.DocumentationSection.NotYetImplementedSourceDependencies
 import org.gradle.internal.enterprise.core.GradleEnterprisePluginAdapter
@@ -64,7 +65,11 @@ import org.gradle.internal.extensions.core.serviceOf
 import org.gradle.internal.extensions.stdlib.uncheckedCast
 import org.gradle.internal.file.FileSystemDefaultExcludesProvider
 import org.gradle.internal.flow.services.BuildFlowScope
+import org.gradle.internal.operations.BuildOperationContext
+import org.gradle.internal.operations.BuildOperationDescriptor
+import org.gradle.internal.operations.BuildOperationExecutor
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter
+import org.gradle.internal.operations.RunnableBuildOperation
 import org.gradle.internal.scopeids.id.BuildInvocationScopeId
 import org.gradle.internal.serialize.graph.MutableReadContext
 import org.gradle.internal.serialize.graph.ReadContext
@@ -294,9 +299,67 @@ class ConfigurationCacheState(
 
     private
     suspend fun MutableReadContext.readBuildsInTree(rootBuild: ConfigurationCacheBuild): List<CachedBuildState> {
-        return readList {
+        val builds = readList {
             readBuildState(rootBuild)
         }
+        // The state of each nested build lives in a file of its own, so it can be decoded independently
+        val nestedBuilds = builds.filterIsInstance<BuildInTree.Nested>().map { it.build }
+        val nestedBuildStates = readNestedBuildStates(nestedBuilds)
+        return builds.map { build ->
+            when (build) {
+                is BuildInTree.Loaded -> build.state
+                is BuildInTree.Nested -> nestedBuildStates.getValue(build.build)
+            }
+        }
+    }
+
+    /**
+     * A build listed in the state of the build tree.
+     */
+    private
+    sealed class BuildInTree {
+        class Loaded(val state: CachedBuildState) : BuildInTree()
+
+        /**
+         * A nested build whose state is yet to be loaded from its own state file.
+         */
+        class Nested(val build: ConfigurationCacheBuild) : BuildInTree()
+    }
+
+    /**
+     * Loads the state of the given nested builds, in parallel when enabled.
+     *
+     * Decoding the builds concurrently is safe because every piece of state they share is either private to one build or thread-safe:
+     * - each build is decoded by its own build scoped [ConfigurationCacheIncludedBuildIO], with its own codecs, read context, identities and class decoder;
+     * - all builds are registered with the build state registry before any of them is decoded, so only their projects are registered concurrently,
+     *   and [org.gradle.api.internal.project.ProjectStateRegistry] does that under its lock;
+     * - class loader scopes are only created as new children, through the synchronized class loader cache and scope registry listeners;
+     * - bean readers, reported problems and build event listener subscriptions go through build tree services that are safe for concurrent use;
+     * - tasks in other builds are resolved lazily, after loading has finished.
+     */
+    private
+    fun readNestedBuildStates(builds: List<ConfigurationCacheBuild>): Map<ConfigurationCacheBuild, CachedBuildState> {
+        if (builds.size < 2 || !host.service<ConfigurationCacheStartParameter>().isParallelLoad) {
+            return builds.associateWith { readNestedBuildState(it) }
+        }
+        val operations = builds.map { ReadNestedBuildStateOperation(it) }
+        host.service<BuildOperationExecutor>().runAllWithAccessToProjectState<ReadNestedBuildStateOperation> { queue ->
+            operations.forEach(queue::add)
+        }
+        return operations.associate { it.build to it.result }
+    }
+
+    private
+    inner class ReadNestedBuildStateOperation(val build: ConfigurationCacheBuild) : RunnableBuildOperation {
+
+        lateinit var result: CachedBuildState
+
+        override fun run(context: BuildOperationContext) {
+            result = readNestedBuildState(build)
+        }
+
+        override fun description(): BuildOperationDescriptor.Builder =
+            BuildOperationDescriptor.displayName("Load configuration cache state for ${build.state.displayName.displayName}")
     }
 
     private
@@ -330,12 +393,12 @@ class ConfigurationCacheState(
     }
 
     private
-    suspend fun MutableReadContext.readBuildState(rootBuild: ConfigurationCacheBuild): CachedBuildState {
+    suspend fun MutableReadContext.readBuildState(rootBuild: ConfigurationCacheBuild): BuildInTree {
         return when (readEnum<BuildType>()) {
-            BuildType.BuildWithNoWork -> readBuildWithNoWork(rootBuild)
-            BuildType.RootBuild -> readBuildContent(rootBuild)
-            BuildType.IncludedBuild -> readIncludedBuild(rootBuild)
-            BuildType.BuildSrcBuild -> readBuildSrcBuild(rootBuild)
+            BuildType.BuildWithNoWork -> BuildInTree.Loaded(readBuildWithNoWork(rootBuild))
+            BuildType.RootBuild -> BuildInTree.Loaded(readBuildContent(rootBuild))
+            BuildType.IncludedBuild -> BuildInTree.Nested(readIncludedBuild(rootBuild))
+            BuildType.BuildSrcBuild -> BuildInTree.Nested(readBuildSrcBuild(rootBuild))
         }
     }
 
@@ -357,14 +420,13 @@ class ConfigurationCacheState(
     }
 
     private
-    suspend fun ReadContext.readIncludedBuild(rootBuild: ConfigurationCacheBuild): CachedBuildState {
-        val build = withGradleIsolate(rootBuild.gradle, userTypesCodec) {
+    suspend fun ReadContext.readIncludedBuild(rootBuild: ConfigurationCacheBuild): ConfigurationCacheBuild {
+        return withGradleIsolate(rootBuild.gradle, userTypesCodec) {
             val settingsFile = read() as File?
             val definition = readIncludedBuildDefinition(rootBuild)
             val buildPath = read() as Path
             rootBuild.addIncludedBuild(definition, settingsFile, buildPath)
         }
-        return readNestedBuildState(build)
     }
 
     private
@@ -392,12 +454,11 @@ class ConfigurationCacheState(
     }
 
     private
-    suspend fun ReadContext.readBuildSrcBuild(rootBuild: ConfigurationCacheBuild): CachedBuildState {
-        val build = withGradleIsolate(rootBuild.gradle, userTypesCodec) {
+    suspend fun ReadContext.readBuildSrcBuild(rootBuild: ConfigurationCacheBuild): ConfigurationCacheBuild {
+        return withGradleIsolate(rootBuild.gradle, userTypesCodec) {
             val ownerIdentifier = readNonNull<BuildIdentifier>()
             rootBuild.getBuildSrcOf(ownerIdentifier)
         }
-        return readNestedBuildState(build)
     }
 
     private
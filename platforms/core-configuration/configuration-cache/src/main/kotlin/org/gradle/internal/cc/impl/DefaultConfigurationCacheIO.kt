@@ -27,11 +27,17 @@ import org.gradle.internal.cc.base.serialize.withGradleIsolate
 import org.gradle.internal.cc.impl.cacheentry.EntryDetails
 import org.gradle.internal.cc.impl.cacheentry.ModelKey
 import org.gradle.internal.cc.impl.initialization.ConfigurationCacheStartParameter
+import org.gradle.internal.cc.impl.io.BlockCompressingOutputStream
+import org.gradle.internal.cc.impl.io.BlockDecompressingInputStream
+import org.gradle.internal.cc.impl.io.maxBlocksInFlight
 import org.gradle.internal.cc.impl.io.safeWrap
 import org.gradle.internal.cc.impl.problems.ConfigurationCacheProblems
 import org.gradle.internal.cc.impl.serialize.Codecs
 import org.gradle.internal.cc.impl.serialize.DefaultClassDecoder
 import org.gradle.internal.cc.impl.serialize.DefaultClassEncoder
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.internal.concurrent.Stoppable
 import org.gradle.internal.encryption.EncryptionService
 import org.gradle.internal.extensions.stdlib.useToRun
 import org.gradle.internal.hash.HashCode
@@ -80,8 +86,9 @@ class DefaultConfigurationCacheIO internal constructor(
     private val scopeRegistryListener: ConfigurationCacheClassLoaderScopeRegistryListener,
     private val beanStateReaderLookup: BeanStateReaderLookup,
     private val beanStateWriterLookup: BeanStateWriterLookup,
-    private val eventEmitter: BuildOperationProgressEventEmitter
-) : ConfigurationCacheBuildTreeIO, ConfigurationCacheIncludedBuildIO {
+    private val eventEmitter: BuildOperationProgressEventEmitter,
+    private val executorFactory: ExecutorFactory
+) : ConfigurationCacheBuildTreeIO, ConfigurationCacheIncludedBuildIO, Stoppable {
 
     private
     val codecs = codecs()
@@ -89,6 +96,23 @@ class DefaultConfigurationCacheIO internal constructor(
     private
     val encryptionService by lazy { service<EncryptionService>() }
 
+    /**
+     * Compresses and decompresses the blocks of the state, only started when the state is compressed.
+     */
+    private
+    val compressionExecutorDelegate = lazy<ManagedExecutor> {
+        executorFactory.create("Configuration cache compression", maxBlocksInFlight)
+    }
+
+    private
+    val compressionExecutor by compressionExecutorDelegate
+
+    override fun stop() {
+        if (compressionExecutorDelegate.isInitialized()) {
+            compressionExecutor.stop()
+        }
+    }
+
     override fun writeCacheEntryDetailsTo(
         buildStateRegistry: BuildStateRegistry,
         intermediateModels: Map<ModelKey, BlockAddress>,
@@ -277,11 +301,19 @@ class DefaultConfigurationCacheIO internal constructor(
 
     private
     fun outputStreamFor(stateType: StateType, outputStream: () -> OutputStream) =
-        maybeEncrypt(stateType, outputStream, encryptionService::outputStream)
+        maybeCompress({ maybeEncrypt(stateType, outputStream, encryptionService::outputStream) }) { BlockCompressingOutputStream(it, compressionExecutor) }
 
     private
     fun inputStreamFor(stateType: StateType, inputStream: () -> InputStream) =
-        maybeEncrypt(stateType, inputStream, encryptionService::inputStream)
+        maybeCompress({ maybeEncrypt(stateType, inputStream, encryptionService::inputStream) }) { BlockDecompressingInputStream(it, compressionExecutor) }
+
+    /**
+     * Compression is applied before encryption, as encrypted bytes do not compress.
+     */
+    private
+    fun <I : Closeable> maybeCompress(inner: () -> I, outer: (I) -> I): I =
+        if (startParameter.isCompressingState) safeWrap(inner, outer)
+        else inner()
 
     private
     fun <I : Closeable, O : I> maybeEncrypt(stateType: StateType, inner: () -> I, outer: (I) -> O): I =
@@ -72,6 +72,21 @@ class ConfigurationCacheStartParameter(
      */
     val isDeduplicatingStrings: Boolean = options.getInternalFlag("org.gradle.configuration-cache.internal.deduplicate-strings", true)
 
+    /**
+     * Whether the state stored to the configuration cache should be compressed
+     * in order to save space on disk and to read less on a cache hit.
+     *
+     * The default is `true`.
+     */
+    val isCompressingState: Boolean = options.getInternalFlag("org.gradle.configuration-cache.internal.compress-state", true)
+
+    /**
+     * Whether the state of included builds should be loaded concurrently on a cache hit.
+     *
+     * The default is `false`.
+     */
+    val isParallelLoad: Boolean = options.getInternalFlag("org.gradle.configuration-cache.internal.parallel-load", false)
+
     val gradleProperties: Map<String, Any?>
         get() = startParameter.projectProperties
             .filterKeys { !Workarounds.isIgnoredStartParameterProperty(it) }
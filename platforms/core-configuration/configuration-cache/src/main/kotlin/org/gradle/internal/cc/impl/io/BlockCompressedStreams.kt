@@ -0,0 +1,311 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.io
+
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.Executor
+import java.util.zip.DataFormatException
+import java.util.zip.Deflater
+import java.util.zip.Inflater
+
+
+/**
+ * The configuration cache state is compressed in blocks of this many bytes.
+ * Each block is deflated independently, so blocks can be compressed and decompressed in parallel.
+ */
+private
+const val BLOCK_SIZE = 512 * 1024
+
+
+/**
+ * How many blocks may be compressed or decompressed ahead of the thread encoding or decoding the state.
+ * The executor that compresses the blocks does not need more threads than this.
+ */
+internal
+val maxBlocksInFlight = Runtime.getRuntime().availableProcessors().coerceIn(2, 8)
+
+
+/**
+ * Marks a block that is stored as is, because deflating it did not make it smaller.
+ */
+private
+const val STORED_BLOCK = -1
+
+
+/**
+ * An output stream that compresses the bytes written to it in independent blocks.
+ *
+ * Full blocks are handed off to the [executor] and written to [out] in order as they complete,
+ * so the calling thread can keep encoding while earlier blocks are being compressed.
+ *
+ * Each block is written as its uncompressed length, its compressed length (or [STORED_BLOCK]) and its bytes.
+ * The stream ends with an empty block.
+ *
+ * Blocks are deflated with the JDK [Deflater], as no faster codec such as LZ4 is a dependency of the configuration cache.
+ */
+internal
+class BlockCompressingOutputStream(
+    out: OutputStream,
+    private val executor: Executor
+) : OutputStream() {
+
+    private
+    val out = DataOutputStream(out)
+
+    private
+    val pending = ArrayDeque<CompletableFuture<CompressedBlock>>()
+
+    private
+    var buffer = ByteArray(BLOCK_SIZE)
+
+    private
+    var count = 0
+
+    private
+    var closed = false
+
+    override fun write(b: Int) {
+        if (count == buffer.size) {
+            submitBlock()
+        }
+        buffer[count++] = b.toByte()
+    }
+
+    override fun write(b: ByteArray, off: Int, len: Int) {
+        var offset = off
+        var remaining = len
+        while (remaining > 0) {
+            if (count == buffer.size) {
+                submitBlock()
+            }
+            val chunk = minOf(remaining, buffer.size - count)
+            System.arraycopy(b, offset, buffer, count, chunk)
+            count += chunk
+            offset += chunk
+            remaining -= chunk
+        }
+    }
+
+    /**
+     * Flushes the blocks that have already been compressed.
+     *
+     * The current block is left open, as flushing it would produce many small, poorly compressed blocks.
+     */
+    override fun flush() {
+        while (pending.isNotEmpty() && pending.first().isDone) {
+            writeNextBlock()
+        }
+        out.flush()
+    }
+
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        try {
+            if (count > 0) {
+                submitBlock()
+            }
+            while (pending.isNotEmpty()) {
+                writeNextBlock()
+            }
+            out.writeInt(0)
+        } catch (e: Throwable) {
+            pending.forEach { it.cancel(false) }
+            try {
+                out.close()
+            } catch (closingException: Throwable) {
+                e.addSuppressed(closingException)
+            }
+            throw e
+        }
+        out.close()
+    }
+
+    private
+    fun submitBlock() {
+        val block = buffer
+        val length = count
+        buffer = ByteArray(BLOCK_SIZE)
+        count = 0
+        pending.addLast(CompletableFuture.supplyAsync({ compress(block, length) }, executor))
+        while (pending.size > maxBlocksInFlight) {
+            writeNextBlock()
+        }
+    }
+
+    private
+    fun writeNextBlock() {
+        val block = await(pending.removeFirst())
+        out.writeInt(block.length)
+        if (block.stored) {
+            out.writeInt(STORED_BLOCK)
+        } else {
+            out.writeInt(block.compressedLength)
+        }
+        out.write(block.bytes, 0, block.compressedLength)
+    }
+
+    private
+    class CompressedBlock(val length: Int, val bytes: ByteArray, val compressedLength: Int, val stored: Boolean)
+
+    private
+    fun compress(block: ByteArray, length: Int): CompressedBlock {
+        val deflater = Deflater(Deflater.BEST_SPEED, true)
+        try {
+            deflater.setInput(block, 0, length)
+            deflater.finish()
+            val compressed = ByteArray(length)
+            var compressedLength = 0
+            while (!deflater.finished() && compressedLength < compressed.size) {
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.size - compressedLength)
+            }
+            return if (deflater.finished()) CompressedBlock(length, compressed, compressedLength, false)
+            else CompressedBlock(length, block, length, true)
+        } finally {
+            deflater.end()
+        }
+    }
+}
+
+
+/**
+ * Reads a stream written by [BlockCompressingOutputStream].
+ *
+ * Blocks are read ahead of the calling thread and decompressed by the [executor],
+ * so the calling thread only waits for the decompression of the block it needs next.
+ */
+internal
+class BlockDecompressingInputStream(
+    input: InputStream,
+    private val executor: Executor
+) : InputStream() {
+
+    private
+    val input = DataInputStream(input)
+
+    private
+    val pending = ArrayDeque<CompletableFuture<ByteArray>>()
+
+    private
+    var block = ByteArray(0)
+
+    private
+    var position = 0
+
+    private
+    var endOfStream = false
+
+    override fun read(): Int {
+        if (position == block.size && !nextBlock()) {
+            return -1
+        }
+        return block[position++].toInt() and 0xff
+    }
+
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+        if (len == 0) {
+            return 0
+        }
+        if (position == block.size && !nextBlock()) {
+            return -1
+        }
+        val chunk = minOf(len, block.size - position)
+        System.arraycopy(block, position, b, off, chunk)
+        position += chunk
+        return chunk
+    }
+
+    override fun available(): Int =
+        block.size - position
+
+    override fun close() {
+        pending.forEach { it.cancel(false) }
+        pending.clear()
+        input.close()
+    }
+
+    private
+    fun nextBlock(): Boolean {
+        while (!endOfStream && pending.size < maxBlocksInFlight) {
+            readBlock()
+        }
+        if (pending.isEmpty()) {
+            return false
+        }
+        block = await(pending.removeFirst())
+        position = 0
+        return true
+    }
+
+    private
+    fun readBlock() {
+        val length = input.readInt()
+        if (length == 0) {
+            endOfStream = true
+            return
+        }
+        val compressedLength = input.readInt()
+        if (compressedLength == STORED_BLOCK) {
+            val bytes = ByteArray(length)
+            input.readFully(bytes)
+            pending.addLast(CompletableFuture.completedFuture(bytes))
+        } else {
+            val compressed = ByteArray(compressedLength)
+            input.readFully(compressed)
+            pending.addLast(CompletableFuture.supplyAsync({ decompress(compressed, length) }, executor))
+        }
+    }
+
+    private
+    fun decompress(compressed: ByteArray, length: Int): ByteArray {
+        val inflater = Inflater(true)
+        try {
+            inflater.setInput(compressed)
+            val bytes = ByteArray(length)
+            var position = 0
+            while (position < length) {
+                val inflated = inflater.inflate(bytes, position, length - position)
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw IOException("Configuration cache state block is truncated, expected $length bytes but got $position.")
+                }
+                position += inflated
+            }
+            return bytes
+        } catch (e: DataFormatException) {
+            throw IOException("Configuration cache state block is corrupt.", e)
+        } finally {
+            inflater.end()
+        }
+    }
+}
+
+
+private
+fun <T> await(future: CompletableFuture<T>): T =
+    try {
+        future.join()
+    } catch (e: CompletionException) {
+        throw e.cause ?: e
+    }
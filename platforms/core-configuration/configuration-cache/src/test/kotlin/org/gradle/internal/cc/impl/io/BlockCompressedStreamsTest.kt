@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.io
+
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.EOFException
+import java.util.concurrent.Executors
+import kotlin.random.Random
+
+
+class BlockCompressedStreamsTest {
+
+    private
+    val executor = Executors.newFixedThreadPool(maxBlocksInFlight)
+
+    @After
+    fun stopExecutor() {
+        executor.shutdownNow()
+    }
+
+    @Test
+    fun `round trips empty stream`() {
+        assertArrayEquals(ByteArray(0), roundTrip(ByteArray(0)))
+    }
+
+    @Test
+    fun `round trips data spanning many blocks`() {
+        val data = compressibleBytes(5_000_000)
+        assertArrayEquals(data, roundTrip(data))
+    }
+
+    @Test
+    fun `round trips data written a byte at a time`() {
+        val data = compressibleBytes(600_000)
+        val compressed = ByteArrayOutputStream()
+        BlockCompressingOutputStream(compressed, executor).use { out ->
+            data.forEach { out.write(it.toInt()) }
+        }
+        assertArrayEquals(data, decompress(compressed.toByteArray()))
+    }
+
+    @Test
+    fun `compresses repetitive data`() {
+        val data = compressibleBytes(2_000_000)
+        assertTrue(compress(data).size < data.size / 2)
+    }
+
+    @Test
+    fun `stores incompressible blocks as is`() {
+        val data = Random(42).nextBytes(1_500_000)
+        val compressed = compress(data)
+        assertTrue(compressed.size < data.size + 64)
+        assertArrayEquals(data, decompress(compressed))
+    }
+
+    @Test(expected = EOFException::class)
+    fun `fails on truncated stream`() {
+        val compressed = compress(compressibleBytes(2_000_000))
+        decompress(compressed.copyOf(compressed.size - 4))
+    }
+
+    private
+    fun roundTrip(data: ByteArray) =
+        decompress(compress(data))
+
+    private
+    fun compress(data: ByteArray): ByteArray {
+        val compressed = ByteArrayOutputStream()
+        BlockCompressingOutputStream(compressed, executor).use { out ->
+            // Write in uneven chunks so writes straddle block boundaries
+            var offset = 0
+            while (offset < data.size) {
+                val length = minOf(70_001, data.size - offset)
+                out.write(data, offset, length)
+                offset += length
+            }
+        }
+        return compressed.toByteArray()
+    }
+
+    private
+    fun decompress(compressed: ByteArray): ByteArray =
+        BlockDecompressingInputStream(ByteArrayInputStream(compressed), executor).use { it.readBytes() }
+
+    private
+    fun compressibleBytes(size: Int): ByteArray {
+        val random = Random(size)
+        return ByteArray(size) { i -> if (i % 16 == 0) random.nextInt().toByte() else (i / 1000).toByte() }
+    }
+}
@@ -13,11 +13,13 @@ dependencies {
     api(libs.jsr305)
 
     api(projects.baseServices)
+    api(projects.buildCache)
     api(projects.buildCacheSpi)
     api(projects.coreApi)
     api(projects.resourcesHttp)
 
     implementation(projects.internalInstrumentationApi)
+    implementation(projects.concurrent)
     implementation(projects.core)
     implementation(projects.logging)
     implementation(projects.resources)
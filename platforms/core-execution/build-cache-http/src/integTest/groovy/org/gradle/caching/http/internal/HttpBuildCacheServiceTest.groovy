@@ -25,6 +25,7 @@ import org.gradle.caching.BuildCacheException
 import org.gradle.caching.BuildCacheServiceFactory
 import org.gradle.caching.http.HttpBuildCache
 import org.gradle.caching.internal.TestBuildCacheKey
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.resource.transport.http.DefaultSslContextFactory
 import org.gradle.internal.resource.transport.http.HttpClientHelper
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -66,7 +67,7 @@ class HttpBuildCacheServiceTest extends Specification {
     HttpBuildCacheService getCache() {
         if (cacheRef == null) {
             buildCacheDescriber = new NoopBuildCacheDescriber()
-            cacheRef = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), { it.addHeader("X-Gradle-Version", "3.0") }, httpClientHelperFactory)
+            cacheRef = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), { it.addHeader("X-Gradle-Version", "3.0") }, httpClientHelperFactory, new DefaultExecutorFactory())
                 .createBuildCacheService(this.config, buildCacheDescriber) as HttpBuildCacheService
         }
         cacheRef
@@ -77,6 +78,10 @@ class HttpBuildCacheServiceTest extends Specification {
         config.url = server.uri.resolve("/cache/")
     }
 
+    def cleanup() {
+        cacheRef?.close()
+    }
+
     def "can cache artifact"() {
         def destFile = tempDir.file("cached.zip")
         def content = "Data".bytes
@@ -159,6 +164,40 @@ class HttpBuildCacheServiceTest extends Specification {
         !fromCache
     }
 
+    def "can check which entries exist in the cache"() {
+        def otherKey = new TestBuildCacheKey(0x76543210fedcba)
+        def srcFile = tempDir.file("cached.zip")
+        srcFile.text = "Data"
+        server.expectHead("/cache/${key.hashCode}", srcFile)
+        server.expectHeadMissing("/cache/${otherKey.hashCode}")
+
+        when:
+        def existing = cache.findExisting([key, otherKey])
+
+        then:
+        existing == [key] as Set
+    }
+
+    def "checking for existing entries does not send requests for no keys"() {
+        expect:
+        cache.findExisting([]).empty
+    }
+
+    def "checking for existing entries reports recoverable error on http code #httpCode"(int httpCode) {
+        expectError(httpCode, 'HEAD')
+
+        when:
+        cache.findExisting([key])
+
+        then:
+        BuildCacheException exception = thrown()
+
+        exception.message == "Checking entry at '${server.uri}/cache/${key.hashCode}' response status ${httpCode}: broken"
+
+        where:
+        httpCode << [HttpStatus.SC_INTERNAL_SERVER_ERROR, HttpStatus.SC_SERVICE_UNAVAILABLE]
+    }
+
     def "load reports recoverable error on http code #httpCode"(int httpCode) {
         expectError(httpCode, 'GET')
 
@@ -24,6 +24,7 @@
 import org.gradle.caching.http.HttpBuildCache;
 import org.gradle.caching.http.HttpBuildCacheCredentials;
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.deprecation.Documentation;
 import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
@@ -48,12 +49,14 @@ public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFac
     private final SslContextFactory sslContextFactory;
     private final HttpBuildCacheRequestCustomizer requestCustomizer;
     private final HttpClientHelper.Factory httpClientHelperFactory;
+    private final ExecutorFactory executorFactory;
 
     @Inject
-    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory, HttpBuildCacheRequestCustomizer requestCustomizer, HttpClientHelper.Factory httpClientHelperFactory) {
+    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory, HttpBuildCacheRequestCustomizer requestCustomizer, HttpClientHelper.Factory httpClientHelperFactory, ExecutorFactory executorFactory) {
         this.sslContextFactory = sslContextFactory;
         this.requestCustomizer = requestCustomizer;
         this.httpClientHelperFactory = httpClientHelperFactory;
+        this.executorFactory = executorFactory;
     }
 
     @Override
@@ -96,7 +99,8 @@ public BuildCacheService createBuildCacheService(HttpBuildCache configuration, D
             builder.withSslContextFactory(sslContextFactory);
         }
 
-        HttpClientHelper httpClientHelper = httpClientHelperFactory.create(builder.build());
+        HttpSettings httpSettings = builder.build();
+        HttpClientHelper httpClientHelper = httpClientHelperFactory.create(httpSettings);
 
         describer.type("HTTP")
             .config("url", noUserInfoUrl.toASCIIString())
@@ -105,7 +109,7 @@ public BuildCacheService createBuildCacheService(HttpBuildCache configuration, D
             .config("allowInsecureProtocol", Boolean.toString(allowInsecureProtocol))
             .config("useExpectContinue", Boolean.toString(useExpectContinue));
 
-        return new HttpBuildCacheService(httpClientHelper, noUserInfoUrl, requestCustomizer, useExpectContinue);
+        return new HttpBuildCacheService(httpClientHelper, noUserInfoUrl, requestCustomizer, useExpectContinue, executorFactory, httpSettings.getMaxConnPerRoute());
     }
 
     private HttpRedirectVerifier createRedirectVerifier(URI url, boolean allowInsecureProtocol) {
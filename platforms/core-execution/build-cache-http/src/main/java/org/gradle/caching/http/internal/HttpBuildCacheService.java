@@ -22,6 +22,7 @@
 import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.AbstractHttpEntity;
@@ -31,8 +32,10 @@
 import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
-import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.BatchLookupBuildCacheService;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
 import org.gradle.internal.resource.transport.http.HttpClientResponse;
 import org.slf4j.Logger;
@@ -43,12 +46,21 @@
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Build cache implementation that delegates to a service accessible via HTTP.
+ *
+ * Existence checks for multiple keys are issued as concurrent {@code HEAD} requests that share the pooled connections of the underlying client.
  */
-public class HttpBuildCacheService implements BuildCacheService {
+public class HttpBuildCacheService implements BatchLookupBuildCacheService {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpBuildCacheService.class);
     static final String BUILD_CACHE_CONTENT_TYPE = "application/vnd.gradle.build-cache-artifact.v2";
 
@@ -67,12 +79,17 @@ public class HttpBuildCacheService implements BuildCacheService {
     private final HttpClientHelper httpClientHelper;
     private final HttpBuildCacheRequestCustomizer requestCustomizer;
     private final boolean useExpectContinue;
+    private final ExecutorFactory executorFactory;
+    private final int maxConcurrentLookups;
+    private ManagedExecutor lookupExecutor;
 
-    public HttpBuildCacheService(HttpClientHelper httpClientHelper, URI url, HttpBuildCacheRequestCustomizer requestCustomizer, boolean useExpectContinue) {
+    public HttpBuildCacheService(HttpClientHelper httpClientHelper, URI url, HttpBuildCacheRequestCustomizer requestCustomizer, boolean useExpectContinue, ExecutorFactory executorFactory, int maxConcurrentLookups) {
         this.requestCustomizer = requestCustomizer;
         this.useExpectContinue = useExpectContinue;
         this.root = withTrailingSlash(url);
         this.httpClientHelper = httpClientHelper;
+        this.executorFactory = executorFactory;
+        this.maxConcurrentLookups = maxConcurrentLookups;
     }
 
     @Override
@@ -102,6 +119,77 @@ public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws Buil
         }
     }
 
+    @Override
+    public Set<BuildCacheKey> findExisting(Collection<BuildCacheKey> keys) throws BuildCacheException {
+        if (keys.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<BuildCacheKey> existing = new LinkedHashSet<>();
+        if (keys.size() == 1 || maxConcurrentLookups <= 1) {
+            for (BuildCacheKey key : keys) {
+                if (contains(key)) {
+                    existing.add(key);
+                }
+            }
+            return existing;
+        }
+
+        ManagedExecutor executor = getLookupExecutor();
+        List<Future<Boolean>> lookups = new ArrayList<>(keys.size());
+        for (BuildCacheKey key : keys) {
+            lookups.add(executor.submit(() -> contains(key)));
+        }
+        try {
+            int index = 0;
+            for (BuildCacheKey key : keys) {
+                if (lookups.get(index++).get()) {
+                    existing.add(key);
+                }
+            }
+            return existing;
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            for (Future<Boolean> lookup : lookups) {
+                lookup.cancel(false);
+            }
+        }
+    }
+
+    private boolean contains(BuildCacheKey key) throws BuildCacheException {
+        final URI uri = root.resolve("./" + key.getHashCode());
+        HttpHead httpHead = new HttpHead(uri);
+        httpHead.addHeader(HttpHeaders.ACCEPT, BUILD_CACHE_CONTENT_TYPE + ", */*");
+        requestCustomizer.customize(httpHead);
+
+        try (HttpClientResponse response = httpClientHelper.performHttpRequest(httpHead)) {
+            StatusLine statusLine = response.getStatusLine();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Response for HEAD {}: {}", safeUri(uri), statusLine);
+            }
+            int statusCode = statusLine.getStatusCode();
+            if (isHttpSuccess(statusCode)) {
+                return true;
+            } else if (statusCode == HttpStatus.SC_NOT_FOUND) {
+                return false;
+            } else {
+                String defaultMessage = String.format("Checking entry at '%s' response status %d: %s", safeUri(uri), statusCode, statusLine.getReasonPhrase());
+                return throwHttpStatusCodeException(statusCode, defaultMessage);
+            }
+        } catch (IOException e) {
+            throw wrap(e);
+        }
+    }
+
+    private synchronized ManagedExecutor getLookupExecutor() {
+        if (lookupExecutor == null) {
+            lookupExecutor = executorFactory.create("HTTP build cache lookups", maxConcurrentLookups);
+        }
+        return lookupExecutor;
+    }
+
     @Override
     public void store(BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException {
         final URI uri = root.resolve(key.getHashCode());
@@ -177,6 +265,12 @@ private boolean throwHttpStatusCodeException(int statusCode, String message) {
 
     @Override
     public void close() throws IOException {
+        synchronized (this) {
+            if (lookupExecutor != null) {
+                lookupExecutor.stop();
+                lookupExecutor = null;
+            }
+        }
         httpClientHelper.close();
     }
 
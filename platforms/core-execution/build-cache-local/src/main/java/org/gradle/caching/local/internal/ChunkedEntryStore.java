@@ -0,0 +1,434 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.api.NonNullApi;
+import org.gradle.cache.CleanableStore;
+import org.gradle.cache.CleanupAction;
+import org.gradle.cache.CleanupProgressMonitor;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.PrimitiveHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Stores cache entries as a manifest that lists content-addressed chunks, so that entries with identical parts share storage.
+ *
+ * <p>Manifests are stored next to the plain entries in the cache directory, named after the entry with the {@value #MANIFEST_SUFFIX} suffix.
+ * Chunks are stored compressed in the {@value #CHUNKS_DIRECTORY} directory, named by the hash of their contents.
+ * Entries compressed with gzip are decompressed before they are split, as compressed data rarely shares chunks, and are read back uncompressed.</p>
+ *
+ * <p>The store keeps count of the manifests known to this process that reference each chunk, so that evicting an entry only needs to read its own manifest.
+ * A chunk is only deleted when its count drops to zero and it has not been touched since this process last saw it,
+ * as manifests written by other processes touch the chunks they reference.</p>
+ */
+@NonNullApi
+class ChunkedEntryStore {
+    static final String CHUNKS_DIRECTORY = "chunks";
+    static final String MANIFEST_SUFFIX = ".chunked";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedEntryStore.class);
+    private static final int MANIFEST_MAGIC = 0x4743484B;
+    private static final int MANIFEST_VERSION = 1;
+
+    private final File baseDir;
+    private final File chunksDir;
+    // Guarded by this
+    private final Map<String, ChunkReferences> references = new HashMap<>();
+    private long chunksSize;
+
+    ChunkedEntryStore(File baseDir) {
+        this.baseDir = baseDir;
+        this.chunksDir = new File(baseDir, CHUNKS_DIRECTORY);
+    }
+
+    File getChunksDir() {
+        return chunksDir;
+    }
+
+    static boolean isManifest(String name) {
+        return name.endsWith(MANIFEST_SUFFIX);
+    }
+
+    /**
+     * Splits the source file into chunks, and writes the manifest and the chunks that are not stored yet to temporary files.
+     * This does the hashing and compressing, so it is done before taking any locks.
+     */
+    PreparedEntry prepare(File source) throws IOException {
+        PreparedEntry entry = new PreparedEntry();
+        try (InputStream input = openUncompressed(source)) {
+            long[] length = new long[1];
+            ContentDefinedChunker.split(input, (buffer, chunkLength) -> {
+                String chunkHash = hash(buffer, chunkLength);
+                if (!entry.newChunks.containsKey(chunkHash) && !getChunkFile(chunkHash).isFile()) {
+                    entry.newChunks.put(chunkHash, writeTempChunk(buffer, chunkLength));
+                }
+                entry.chunks.add(chunkHash);
+                length[0] += chunkLength;
+            });
+            entry.manifest = Files.createTempFile(baseDir.toPath(), "manifest", BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX).toFile();
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(entry.manifest)))) {
+                output.writeInt(MANIFEST_MAGIC);
+                output.writeInt(MANIFEST_VERSION);
+                output.writeLong(length[0]);
+                for (String chunk : entry.chunks) {
+                    output.writeBoolean(true);
+                    output.writeUTF(chunk);
+                }
+                output.writeBoolean(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            entry.close();
+            throw e;
+        }
+        return entry;
+    }
+
+    private static InputStream openUncompressed(File source) throws IOException {
+        InputStream input = new BufferedInputStream(new FileInputStream(source));
+        input.mark(2);
+        boolean gzip = input.read() == 0x1f && input.read() == 0x8b;
+        input.reset();
+        return gzip ? new GZIPInputStream(input, 64 * 1024) : input;
+    }
+
+    private File writeTempChunk(byte[] buffer, int length) throws IOException {
+        File tempFile = Files.createTempFile(baseDir.toPath(), "chunk", BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX).toFile();
+        try (OutputStream output = new DeflaterOutputStream(new FileOutputStream(tempFile), new Deflater(Deflater.BEST_SPEED, true))) {
+            output.write(buffer, 0, length);
+        }
+        return tempFile;
+    }
+
+    /**
+     * An entry whose chunks have been written to temporary files, ready to be moved into the cache.
+     */
+    class PreparedEntry implements Closeable {
+        private final List<String> chunks = new ArrayList<>();
+        private final Map<String, File> newChunks = new LinkedHashMap<>();
+        private File manifest;
+
+        /**
+         * Moves the new chunks and the manifest into the cache, and touches the chunks that were already stored.
+         * Must be called while holding the locks.
+         *
+         * @return false, leaving the cache unchanged, when a chunk that was already stored has been deleted since the entry was prepared
+         */
+        boolean commit(File target) throws IOException {
+            Set<String> distinctChunks = new LinkedHashSet<>(chunks);
+            for (String chunk : distinctChunks) {
+                if (!newChunks.containsKey(chunk) && !getChunkFile(chunk).isFile()) {
+                    return false;
+                }
+            }
+            long now = System.currentTimeMillis();
+            Map<String, Long> addedSizes = new HashMap<>();
+            for (String chunk : distinctChunks) {
+                File chunkFile = getChunkFile(chunk);
+                File newChunk = newChunks.get(chunk);
+                if (newChunk != null && !chunkFile.isFile()) {
+                    Files.createDirectories(chunkFile.getParentFile().toPath());
+                    long size = newChunk.length();
+                    try {
+                        Files.move(newChunk.toPath(), chunkFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                        addedSizes.put(chunk, size);
+                    } catch (FileAlreadyExistsException ignore) {
+                        // Another process added the same chunk
+                    }
+                } else {
+                    //noinspection ResultOfMethodCallIgnored
+                    chunkFile.setLastModified(now);
+                }
+            }
+            Files.move(manifest.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            synchronized (ChunkedEntryStore.this) {
+                for (String chunk : distinctChunks) {
+                    File chunkFile = getChunkFile(chunk);
+                    Long addedSize = addedSizes.get(chunk);
+                    ChunkReferences chunkReferences = references.get(chunk);
+                    if (chunkReferences == null) {
+                        chunkReferences = new ChunkReferences(addedSize != null ? addedSize : chunkFile.length());
+                        references.put(chunk, chunkReferences);
+                        chunksSize += chunkReferences.size;
+                    }
+                    chunkReferences.count++;
+                    chunkReferences.lastModified = chunkFile.lastModified();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (File newChunk : newChunks.values()) {
+                Files.deleteIfExists(newChunk.toPath());
+            }
+            if (manifest != null) {
+                Files.deleteIfExists(manifest.toPath());
+            }
+        }
+    }
+
+    /**
+     * Writes the contents of the entry described by the given manifest to the target file.
+     *
+     * @return false when one of the chunks of the entry is missing
+     */
+    boolean reassemble(File manifest, File target) throws IOException {
+        try (
+            DataInputStream input = openManifest(manifest);
+            OutputStream output = new BufferedOutputStream(new FileOutputStream(target))
+        ) {
+            long expectedLength = input.readLong();
+            long length = 0;
+            byte[] buffer = new byte[64 * 1024];
+            while (input.readBoolean()) {
+                File chunkFile = getChunkFile(input.readUTF());
+                InputStream chunkStream;
+                try {
+                    chunkStream = new FileInputStream(chunkFile);
+                } catch (FileNotFoundException e) {
+                    return false;
+                }
+                try (InputStream chunkInput = new InflaterInputStream(chunkStream, new Inflater(true))) {
+                    int read;
+                    while ((read = chunkInput.read(buffer)) >= 0) {
+                        output.write(buffer, 0, read);
+                        length += read;
+                    }
+                }
+            }
+            if (length != expectedLength) {
+                throw new IOException(String.format("Chunked cache entry %s has %d bytes, expected %d.", manifest, length, expectedLength));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the chunks referenced by the given manifest.
+     */
+    static List<String> readChunks(File manifest) throws IOException {
+        List<String> chunks = new ArrayList<>();
+        try (DataInputStream input = openManifest(manifest)) {
+            input.readLong();
+            while (input.readBoolean()) {
+                chunks.add(input.readUTF());
+            }
+        }
+        return chunks;
+    }
+
+    private static DataInputStream openManifest(File manifest) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)));
+        try {
+            if (input.readInt() != MANIFEST_MAGIC || input.readInt() != MANIFEST_VERSION) {
+                throw new IOException(String.format("%s is not a chunked cache entry.", manifest));
+            }
+            return input;
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Counts the references to the stored chunks from the manifests in the cache directory, and the size of the chunks.
+     * Done once when the cache is opened, afterwards the counts are kept up-to-date as entries are stored and evicted.
+     * Manifests that cannot be read are skipped.
+     */
+    void loadReferences() {
+        File[] chunkDirs = chunksDir.listFiles(File::isDirectory);
+        if (chunkDirs == null) {
+            return;
+        }
+        Map<String, ChunkReferences> loaded = new HashMap<>();
+        for (File chunkDir : chunkDirs) {
+            File[] chunks = chunkDir.listFiles();
+            if (chunks != null) {
+                for (File chunk : chunks) {
+                    ChunkReferences chunkReferences = new ChunkReferences(chunk.length());
+                    chunkReferences.lastModified = chunk.lastModified();
+                    loaded.put(chunk.getName(), chunkReferences);
+                }
+            }
+        }
+        File[] manifests = baseDir.listFiles((dir, name) -> isManifest(name));
+        if (manifests != null) {
+            for (File manifest : manifests) {
+                for (String chunk : readChunksOrSkip(manifest)) {
+                    ChunkReferences chunkReferences = loaded.get(chunk);
+                    if (chunkReferences != null) {
+                        chunkReferences.count++;
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            // Entries stored while loading are already counted, so keep their counts as well.
+            // Counting a reference twice can only delay deleting a chunk, never delete one that is still used.
+            for (Map.Entry<String, ChunkReferences> entry : loaded.entrySet()) {
+                ChunkReferences existing = references.get(entry.getKey());
+                if (existing == null) {
+                    references.put(entry.getKey(), entry.getValue());
+                    chunksSize += entry.getValue().size;
+                } else {
+                    existing.count += entry.getValue().count;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the references from a manifest that has been deleted, and deletes the chunks no longer referenced.
+     * Must be called while holding the locks.
+     */
+    synchronized void release(List<String> chunks) {
+        for (String chunk : new HashSet<>(chunks)) {
+            ChunkReferences chunkReferences = references.get(chunk);
+            if (chunkReferences == null || --chunkReferences.count > 0) {
+                continue;
+            }
+            File chunkFile = getChunkFile(chunk);
+            if (!chunkFile.exists()) {
+                forget(chunk, chunkReferences);
+            } else if (chunkFile.lastModified() == chunkReferences.lastModified) {
+                if (chunkFile.delete()) {
+                    forget(chunk, chunkReferences);
+                }
+            }
+            // Otherwise another process has stored an entry referencing the chunk since this process last saw it
+        }
+    }
+
+    private void forget(String chunk, ChunkReferences chunkReferences) {
+        references.remove(chunk);
+        chunksSize -= chunkReferences.size;
+    }
+
+    /**
+     * The size of the stored chunks known to this process.
+     */
+    synchronized long getChunksSize() {
+        return chunksSize;
+    }
+
+    /**
+     * Deletes all chunks that are not referenced by any of the manifests in the given directory.
+     * Manifests that cannot be read are skipped, so the chunks only referenced by them are deleted.
+     *
+     * @return the number of deleted chunks
+     */
+    int deleteUnreferencedChunks(File baseDir) {
+        File[] chunkDirs = chunksDir.listFiles(File::isDirectory);
+        File[] manifests = baseDir.listFiles((dir, name) -> isManifest(name));
+        if (chunkDirs == null || manifests == null) {
+            return 0;
+        }
+        Set<String> referencedChunks = new HashSet<>();
+        for (File manifest : manifests) {
+            referencedChunks.addAll(readChunksOrSkip(manifest));
+        }
+        int deleted = 0;
+        for (File chunkDir : chunkDirs) {
+            File[] chunks = chunkDir.listFiles();
+            if (chunks == null) {
+                continue;
+            }
+            for (File chunk : chunks) {
+                if (!referencedChunks.contains(chunk.getName()) && chunk.delete()) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private static List<String> readChunksOrSkip(File manifest) {
+        try {
+            return readChunks(manifest);
+        } catch (IOException e) {
+            LOGGER.debug("Could not read chunked cache entry {}", manifest, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Creates a cleanup action that deletes the chunks no longer referenced after entries have been removed from the cache.
+     */
+    static CleanupAction createCleanupAction() {
+        return new CleanupAction() {
+            @Override
+            public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
+                File baseDir = cleanableStore.getBaseDir();
+                int deleted = new ChunkedEntryStore(baseDir).deleteUnreferencedChunks(baseDir);
+                for (int i = 0; i < deleted; i++) {
+                    progressMonitor.incrementDeleted();
+                }
+            }
+        };
+    }
+
+    private File getChunkFile(String chunkHash) {
+        return new File(new File(chunksDir, chunkHash.substring(0, 2)), chunkHash);
+    }
+
+    private static String hash(byte[] buffer, int length) {
+        PrimitiveHasher hasher = Hashing.sha256().newPrimitiveHasher();
+        hasher.putBytes(buffer, 0, length);
+        return hasher.hash().toString();
+    }
+
+    private static class ChunkReferences {
+        private final long size;
+        private int count;
+        private long lastModified;
+
+        ChunkReferences(long size) {
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.api.NonNullApi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * Splits a stream into chunks whose boundaries depend on the content, using a gear-based rolling hash.
+ *
+ * Inserting or removing bytes only changes the chunks around the modification, so near-identical streams produce mostly identical chunks.
+ */
+@NonNullApi
+class ContentDefinedChunker {
+    static final int MIN_CHUNK_SIZE = 16 * 1024;
+    static final int MAX_CHUNK_SIZE = 256 * 1024;
+    // Checking the 16 most significant bits gives an average chunk size of 64 KiB above the minimum
+    private static final long BOUNDARY_MASK = 0xFFFFL << 48;
+    private static final long[] GEAR = createGearTable();
+
+    @FunctionalInterface
+    interface ChunkConsumer {
+        void accept(byte[] buffer, int length) throws IOException;
+    }
+
+    /**
+     * Splits the stream into chunks. The buffer passed to the consumer is reused for the next chunk.
+     */
+    static void split(InputStream input, ChunkConsumer consumer) throws IOException {
+        byte[] buffer = new byte[MAX_CHUNK_SIZE];
+        int length = 0;
+        boolean endOfStream = false;
+        while (true) {
+            while (!endOfStream && length < buffer.length) {
+                int read = input.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    endOfStream = true;
+                } else {
+                    length += read;
+                }
+            }
+            if (length == 0) {
+                return;
+            }
+            int chunkLength = findChunkBoundary(buffer, length);
+            consumer.accept(buffer, chunkLength);
+            System.arraycopy(buffer, chunkLength, buffer, 0, length - chunkLength);
+            length -= chunkLength;
+        }
+    }
+
+    private static int findChunkBoundary(byte[] buffer, int length) {
+        if (length <= MIN_CHUNK_SIZE) {
+            return length;
+        }
+        long hash = 0;
+        for (int i = MIN_CHUNK_SIZE; i < length; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xFF];
+            if ((hash & BOUNDARY_MASK) == 0) {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+
+    private static long[] createGearTable() {
+        // The table must never change, otherwise existing entries would no longer share chunks with new ones.
+        // The sequence produced by java.util.Random for a given seed is fixed by its specification.
+        Random random = new Random(0x6772616463646331L);
+        long[] table = new long[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextLong();
+        }
+        return table;
+    }
+}
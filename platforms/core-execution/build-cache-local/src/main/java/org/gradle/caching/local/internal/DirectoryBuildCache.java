@@ -21,11 +21,19 @@
 import org.gradle.api.NonNullApi;
 import org.gradle.cache.PersistentCache;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.file.FileAccessTracker;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.io.IoConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -36,7 +44,16 @@
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
@@ -44,13 +61,67 @@
 @NonNullApi
 public class DirectoryBuildCache implements BuildCacheTempFileStore, Closeable, LocalBuildCache {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryBuildCache.class);
+
+    /**
+     * Eviction removes entries until the cache is this much smaller than the size limit, so that it does not run again for every stored entry.
+     */
+    private static final double EVICTION_TARGET_RATIO = 0.9;
+
+    /**
+     * Eviction deletes at most this many entries at a time while holding the locks, so that loads and stores are not blocked for long.
+     */
+    private static final int EVICTION_BATCH_SIZE = 100;
+
+    /**
+     * The index of entry sizes is written to this file when the cache is closed, so that the next process using the cache does not need to scan the cache directory.
+     */
+    private static final String INDEX_FILE_NAME = "size-index.bin";
+    private static final int INDEX_FORMAT_VERSION = 1;
+
+    /**
+     * Smaller entries are stored as-is even when chunked storage is enabled, as there is little to share between them.
+     */
+    private static final long MIN_CHUNKED_ENTRY_SIZE = 1024 * 1024;
+
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final FileAccessTracker fileAccessTracker;
+    @Nullable
+    private final FileAccessTimeJournal fileAccessTimeJournal;
     private final String failedFileSuffix;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    private final long maxSizeInBytes;
+    @Nullable
+    private final ExecutorService evictionExecutor;
+    private final LeastRecentlyUsedEntryIndex index = new LeastRecentlyUsedEntryIndex();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    private final AtomicBoolean existingEntriesIndexed = new AtomicBoolean();
+    private final AtomicBoolean closing = new AtomicBoolean();
+    private final AtomicLong evictedEntryCount = new AtomicLong();
+    private final AtomicLong evictedSizeInBytes = new AtomicLong();
+
+    private final ChunkedEntryStore chunkedEntryStore;
+    private final boolean chunkedStorage;
+
     public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
+        this(persistentCache, fileAccessTracker, null, failedFileSuffix, 0, null);
+    }
+
+    /**
+     * Creates a cache that keeps its size below {@code maxSizeInBytes} by evicting the least recently used entries on the given executor.
+     * The size limit is ignored when no executor is given. The executor is shut down when the cache is closed.
+     */
+    public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, @Nullable FileAccessTimeJournal fileAccessTimeJournal, String failedFileSuffix, long maxSizeInBytes, @Nullable ExecutorService evictionExecutor) {
+        this(persistentCache, fileAccessTracker, fileAccessTimeJournal, failedFileSuffix, maxSizeInBytes, evictionExecutor, false);
+    }
+
+    /**
+     * Creates a cache that, when {@code chunkedStorage} is enabled, stores large entries as content-defined chunks shared between entries.
+     * Chunked entries are read back regardless of this setting.
+     */
+    public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, @Nullable FileAccessTimeJournal fileAccessTimeJournal, String failedFileSuffix, long maxSizeInBytes, @Nullable ExecutorService evictionExecutor, boolean chunkedStorage) {
         this.persistentCache = persistentCache;
         // Create temporary files in the cache directory to ensure they are on the same file system,
         // and thus can always be moved into the cache proper atomically
@@ -62,7 +133,15 @@ public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fi
             }
         });
         this.fileAccessTracker = fileAccessTracker;
+        this.fileAccessTimeJournal = fileAccessTimeJournal;
         this.failedFileSuffix = failedFileSuffix;
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.evictionExecutor = maxSizeInBytes > 0 && fileAccessTimeJournal != null ? evictionExecutor : null;
+        this.chunkedEntryStore = new ChunkedEntryStore(persistentCache.getBaseDir());
+        this.chunkedStorage = chunkedStorage;
+        if (this.evictionExecutor != null) {
+            this.evictionExecutor.execute(this::indexExistingEntries);
+        }
     }
 
     @Override
@@ -101,14 +180,43 @@ public void loadLocally(HashCode key, Consumer<? super File> reader) {
 
     private void loadInsideLock(HashCode key, Consumer<? super File> reader) {
         File file = getCacheEntryFile(key);
+        boolean chunked = false;
         if (!file.exists()) {
-            return;
+            file = getManifestFile(key);
+            if (!file.exists()) {
+                return;
+            }
+            chunked = true;
         }
 
         fileAccessTracker.markAccessed(file);
+        if (isSizeLimited()) {
+            index.recordAccess(file.getName());
+        }
 
+        File entryFile = file;
         try {
-            reader.accept(file);
+            if (chunked) {
+                fileAccessTracker.markAccessed(chunkedEntryStore.getChunksDir());
+                tempFileStore.withTempFile(key, reassembledFile -> {
+                    boolean complete;
+                    try {
+                        complete = chunkedEntryStore.reassemble(entryFile, reassembledFile);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (complete) {
+                        reader.accept(reassembledFile);
+                    } else {
+                        // A chunk has been deleted by another process, so treat the entry as missing
+                        //noinspection ResultOfMethodCallIgnored
+                        entryFile.delete();
+                        index.recordRemoval(entryFile.getName());
+                    }
+                });
+            } else {
+                reader.accept(file);
+            }
         } catch (Exception e) {
             // Try to move the file out of the way in case its permanently corrupt
             // Don't delete, so that it can be potentially used for debugging
@@ -143,22 +251,59 @@ public void store(HashCode key, IoConsumer<OutputStream> result) {
 
     @Override
     public void storeLocally(HashCode key, File file) {
-        // We need to lock other processes out here because garbage collection can be under way in another process
-        persistentCache.withFileLock(() -> {
-            // Additional locking necessary because of https://github.com/gradle/gradle/issues/3537
-            lock.writeLock().lock();
-            try {
-                storeInsideLock(key, file);
-            } finally {
-                lock.writeLock().unlock();
+        ChunkedEntryStore.PreparedEntry preparedEntry = prepareChunked(key, file);
+        try {
+            // We need to lock other processes out here because garbage collection can be under way in another process
+            persistentCache.withFileLock(() -> {
+                // Additional locking necessary because of https://github.com/gradle/gradle/issues/3537
+                lock.writeLock().lock();
+                try {
+                    storeInsideLock(key, file, preparedEntry);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } finally {
+            if (preparedEntry != null) {
+                try {
+                    preparedEntry.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Could not delete temporary files for cache entry '{}'", key, e);
+                }
             }
-        });
+        }
+        maybeScheduleEviction();
     }
 
-    private void storeInsideLock(HashCode key, File sourceFile) {
+    /**
+     * Splits large entries into chunks before taking the locks, so that hashing and compressing the chunks does not block other loads and stores.
+     */
+    @Nullable
+    private ChunkedEntryStore.PreparedEntry prepareChunked(HashCode key, File sourceFile) {
+        if (!chunkedStorage || sourceFile.length() < MIN_CHUNKED_ENTRY_SIZE || getCacheEntryFile(key).exists() || getManifestFile(key).exists()) {
+            return null;
+        }
+        try {
+            return chunkedEntryStore.prepare(sourceFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Couldn't split cache entry '%s' into chunks: %s", key, e), e);
+        }
+    }
+
+    private void storeInsideLock(HashCode key, File sourceFile, @Nullable ChunkedEntryStore.PreparedEntry preparedEntry) {
         File targetFile = getCacheEntryFile(key);
+        File manifestFile = getManifestFile(key);
         try {
-            Files.move(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            if (!targetFile.exists() && manifestFile.exists()) {
+                // We already have the entry in the build cache as chunks
+                targetFile = manifestFile;
+            } else if (preparedEntry != null && !targetFile.exists() && preparedEntry.commit(manifestFile)) {
+                targetFile = manifestFile;
+                Files.delete(sourceFile.toPath());
+                fileAccessTracker.markAccessed(chunkedEntryStore.getChunksDir());
+            } else {
+                Files.move(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
         } catch (FileAlreadyExistsException ignore) {
             // We already have the file in the build cache
             // Note that according to the documentation of `Files.move()`, whether this exception is thrown
@@ -168,6 +313,236 @@ private void storeInsideLock(HashCode key, File sourceFile) {
             throw new UncheckedIOException(String.format("Couldn't move cache entry '%s' into local cache: %s", key, e), e);
         }
         fileAccessTracker.markAccessed(targetFile);
+        if (isSizeLimited()) {
+            index.recordStore(targetFile.getName(), targetFile.length());
+        }
+    }
+
+    private boolean isSizeLimited() {
+        return evictionExecutor != null;
+    }
+
+    /**
+     * Adds the entries that are already in the cache to the index, reading them from the index written by the last process to close the cache.
+     * The cache directory is only scanned when there is no such index.
+     * Afterwards the index is kept up-to-date as entries are stored and evicted.
+     */
+    private void indexExistingEntries() {
+        if (closing.get()) {
+            return;
+        }
+        try {
+            Map<String, Long> existingEntries = persistentCache.withFileLock(this::readIndex);
+            if (existingEntries == null) {
+                existingEntries = scanExistingEntries();
+            }
+            index.addExistingEntries(existingEntries);
+            chunkedEntryStore.loadReferences();
+            existingEntriesIndexed.set(true);
+        } catch (Exception e) {
+            LOGGER.debug("Could not index the entries of the build cache in {}", persistentCache.getBaseDir(), e);
+            return;
+        }
+        maybeScheduleEviction();
+    }
+
+    /**
+     * Scans the cache directory for entries, ordered by when they were last accessed according to the file access time journal.
+     */
+    private Map<String, Long> scanExistingEntries() {
+        Map<String, Long> existingEntries = new LinkedHashMap<>();
+        File[] files = persistentCache.getBaseDir().listFiles(DirectoryBuildCache::isCacheEntry);
+        if (files == null) {
+            return existingEntries;
+        }
+        Map<File, Long> lastAccessTimes = new HashMap<>();
+        for (File file : files) {
+            lastAccessTimes.put(file, fileAccessTimeJournal.getLastAccessTime(file));
+        }
+        Arrays.sort(files, Comparator.comparing(lastAccessTimes::get));
+        for (File file : files) {
+            existingEntries.put(file.getName(), file.length());
+        }
+        return existingEntries;
+    }
+
+    @Nullable
+    private Map<String, Long> readIndex() {
+        File indexFile = new File(persistentCache.getBaseDir(), INDEX_FILE_NAME);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (input.readInt() != INDEX_FORMAT_VERSION) {
+                return null;
+            }
+            int entryCount = input.readInt();
+            Map<String, Long> entries = new LinkedHashMap<>();
+            for (int i = 0; i < entryCount; i++) {
+                String name = input.readUTF();
+                entries.put(name, input.readLong());
+            }
+            return entries;
+        } catch (IOException e) {
+            LOGGER.debug("Could not read the index of the build cache in {}", persistentCache.getBaseDir(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index of this process merged with the index on disk, so that the entries tracked by other processes using the cache are not lost.
+     * Must be called while holding the file lock.
+     */
+    private void writeIndex() {
+        if (!existingEntriesIndexed.get()) {
+            // An incomplete index would hide the entries that are missing from it from eviction, let the next process scan the cache directory instead
+            return;
+        }
+        File indexFile = new File(persistentCache.getBaseDir(), INDEX_FILE_NAME);
+        try {
+            File tempFile = Files.createTempFile(persistentCache.getBaseDir().toPath(), INDEX_FILE_NAME, BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX).toFile();
+            try {
+                Map<String, Long> entries = mergeWithIndexOnDisk(index.getEntries());
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                    output.writeInt(INDEX_FORMAT_VERSION);
+                    output.writeInt(entries.size());
+                    for (Map.Entry<String, Long> entry : entries.entrySet()) {
+                        output.writeUTF(entry.getKey());
+                        output.writeLong(entry.getValue());
+                    }
+                }
+                Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not write the index of the build cache in {}", persistentCache.getBaseDir(), e);
+        }
+    }
+
+    /**
+     * Adds the entries only known to the index on disk, which another process has written since this process read it, in front of the entries of this process.
+     * Entries that have been deleted in the meantime, by this process or another one, are left out.
+     */
+    private Map<String, Long> mergeWithIndexOnDisk(Map<String, Long> entries) {
+        Map<String, Long> entriesOnDisk = readIndex();
+        Map<String, Long> merged = new LinkedHashMap<>();
+        if (entriesOnDisk != null) {
+            for (Map.Entry<String, Long> entry : entriesOnDisk.entrySet()) {
+                if (!entries.containsKey(entry.getKey()) && new File(persistentCache.getBaseDir(), entry.getKey()).isFile()) {
+                    merged.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            if (new File(persistentCache.getBaseDir(), entry.getKey()).isFile()) {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    private static boolean isCacheEntry(File file) {
+        String name = file.getName();
+        int keyLength = ChunkedEntryStore.isManifest(name) ? name.length() - ChunkedEntryStore.MANIFEST_SUFFIX.length() : name.length();
+        if (keyLength == 0 || !file.isFile()) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (Character.digit(name.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void maybeScheduleEviction() {
+        if (!isSizeLimited() || getSizeInBytes() <= maxSizeInBytes || !evictionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            evictionExecutor.execute(this::evict);
+        } catch (RuntimeException e) {
+            // The cache is being closed
+            evictionScheduled.set(false);
+        }
+    }
+
+    private void evict() {
+        try {
+            long targetSize = (long) (maxSizeInBytes * EVICTION_TARGET_RATIO);
+            // Chunks are freed as the entries referencing them are evicted, so the selection takes the current size of the chunks into account
+            List<String> batch = index.selectForEviction(targetSize - chunkedEntryStore.getChunksSize(), EVICTION_BATCH_SIZE);
+            while (!batch.isEmpty() && !closing.get() && evictBatch(batch, targetSize)) {
+                batch = index.selectForEviction(targetSize - chunkedEntryStore.getChunksSize(), EVICTION_BATCH_SIZE);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not evict entries from the build cache in {}", persistentCache.getBaseDir(), e);
+        } finally {
+            evictionScheduled.set(false);
+        }
+    }
+
+    /**
+     * Deletes the given entries until the cache is no larger than the target size, returning whether any of them were removed from the index.
+     */
+    private boolean evictBatch(List<String> batch, long targetSize) {
+        // We need to lock other processes out here because garbage collection can be under way in another process
+        return persistentCache.withFileLock(() -> {
+            lock.writeLock().lock();
+            try {
+                if (closing.get()) {
+                    // The remaining entries are evicted by the next process using the cache
+                    return false;
+                }
+                boolean removed = false;
+                for (String name : batch) {
+                    if (getSizeInBytes() <= targetSize) {
+                        break;
+                    }
+                    File file = new File(persistentCache.getBaseDir(), name);
+                    List<String> chunks = ChunkedEntryStore.isManifest(name) ? readChunks(file) : Collections.emptyList();
+                    if (file.delete()) {
+                        long chunksSize = chunkedEntryStore.getChunksSize();
+                        chunkedEntryStore.release(chunks);
+                        evictedEntryCount.incrementAndGet();
+                        evictedSizeInBytes.addAndGet(index.recordRemoval(name) + chunksSize - chunkedEntryStore.getChunksSize());
+                        removed = true;
+                    } else if (!file.exists()) {
+                        // Removed by another process
+                        index.recordRemoval(name);
+                        removed = true;
+                    }
+                }
+                return removed;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private static List<String> readChunks(File manifest) {
+        try {
+            return ChunkedEntryStore.readChunks(manifest);
+        } catch (IOException e) {
+            // The chunks are removed by the next cleanup
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * The size of the entries and chunks in the cache as tracked by this process, or 0 if the cache has no size limit.
+     */
+    public long getSizeInBytes() {
+        return index.getTotalSize() + chunkedEntryStore.getChunksSize();
+    }
+
+    public long getEvictedEntryCount() {
+        return evictedEntryCount.get();
+    }
+
+    public long getEvictedSizeInBytes() {
+        return evictedSizeInBytes.get();
     }
 
     @Override
@@ -175,12 +550,34 @@ public void withTempFile(HashCode key, Consumer<? super File> action) {
         persistentCache.withFileLock(() -> tempFileStore.withTempFile(key, action));
     }
 
+    /**
+     * Closes the cache without waiting for a running eviction to finish. Eviction stops after the batch in progress,
+     * and the index written here lets the next process using the cache pick up where it left off.
+     */
     @Override
     public void close() {
+        if (evictionExecutor != null) {
+            closing.set(true);
+            evictionExecutor.shutdown();
+            persistentCache.withFileLock(() -> {
+                // Waits for the batch being evicted, if any
+                lock.writeLock().lock();
+                try {
+                    writeIndex();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+            LOGGER.info("Build cache in {} is {} bytes in size, evicted {} entries ({} bytes)", persistentCache.getBaseDir(), getSizeInBytes(), getEvictedEntryCount(), getEvictedSizeInBytes());
+        }
         persistentCache.close();
     }
 
     private File getCacheEntryFile(HashCode key) {
         return new File(persistentCache.getBaseDir(), key.toString());
     }
+
+    private File getManifestFile(HashCode key) {
+        return new File(persistentCache.getBaseDir(), key + ChunkedEntryStore.MANIFEST_SUFFIX);
+    }
 }
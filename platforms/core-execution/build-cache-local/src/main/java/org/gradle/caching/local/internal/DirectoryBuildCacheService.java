@@ -17,6 +17,7 @@
 package org.gradle.caching.local.internal;
 
 import org.gradle.api.NonNullApi;
+import org.gradle.cache.CleanupAction;
 import org.gradle.cache.PersistentCache;
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheEntryWriter;
@@ -24,11 +25,14 @@
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.internal.BuildCacheKeyInternal;
+import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.file.FileAccessTracker;
 import org.gradle.internal.hash.HashCode;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
 @NonNullApi
@@ -40,6 +44,21 @@ public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTra
         this.cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, failedFileSuffix);
     }
 
+    public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, FileAccessTimeJournal fileAccessTimeJournal, String failedFileSuffix, long maxSizeInBytes, @Nullable ExecutorService evictionExecutor) {
+        this(persistentCache, fileAccessTracker, fileAccessTimeJournal, failedFileSuffix, maxSizeInBytes, evictionExecutor, false);
+    }
+
+    public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, FileAccessTimeJournal fileAccessTimeJournal, String failedFileSuffix, long maxSizeInBytes, @Nullable ExecutorService evictionExecutor, boolean chunkedStorage) {
+        this.cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, failedFileSuffix, maxSizeInBytes, evictionExecutor, chunkedStorage);
+    }
+
+    /**
+     * Creates a cleanup action that removes the chunks no longer referenced by any entry, to run after entries have been cleaned up.
+     */
+    public static CleanupAction createChunkCleanupAction() {
+        return ChunkedEntryStore.createCleanupAction();
+    }
+
     @Override
     public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
         return cache.load(((BuildCacheKeyInternal) key).getHashCodeInternal(), reader::readFrom);
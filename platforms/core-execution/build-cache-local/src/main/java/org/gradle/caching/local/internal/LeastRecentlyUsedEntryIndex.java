@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.api.NonNullApi;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the sizes of cache entries in the order they were last accessed.
+ *
+ * The index is maintained incrementally as entries are stored, loaded and evicted, so the size of the cache is known without scanning the cache directory.
+ */
+@NonNullApi
+class LeastRecentlyUsedEntryIndex {
+    // Ordered from least recently to most recently accessed
+    private LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+
+    /**
+     * Adds entries that already existed before the index was created, ordered from least recently to most recently accessed.
+     *
+     * Entries that have been recorded since the index was created are considered more recently accessed than any of the given entries.
+     */
+    public synchronized void addExistingEntries(Map<String, Long> existingEntries) {
+        LinkedHashMap<String, Long> merged = new LinkedHashMap<>(existingEntries.size() + entries.size(), 0.75f, true);
+        for (Map.Entry<String, Long> entry : existingEntries.entrySet()) {
+            if (!entries.containsKey(entry.getKey())) {
+                merged.put(entry.getKey(), entry.getValue());
+                totalSize += entry.getValue();
+            }
+        }
+        merged.putAll(entries);
+        entries = merged;
+    }
+
+    public synchronized void recordAccess(String name) {
+        entries.get(name);
+    }
+
+    public synchronized void recordStore(String name, long size) {
+        Long previousSize = entries.put(name, size);
+        totalSize += size - (previousSize == null ? 0 : previousSize);
+    }
+
+    /**
+     * Removes the entry from the index, returning its size.
+     */
+    public synchronized long recordRemoval(String name) {
+        Long size = entries.remove(name);
+        if (size == null) {
+            return 0;
+        }
+        totalSize -= size;
+        return size;
+    }
+
+    /**
+     * Returns up to {@code maxCount} of the least recently used entries that need to be removed to bring the total size down to the given target size.
+     */
+    public synchronized List<String> selectForEviction(long targetSize, int maxCount) {
+        List<String> selected = new ArrayList<>();
+        long remainingSize = totalSize;
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (remainingSize > targetSize && selected.size() < maxCount && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            selected.add(entry.getKey());
+            remainingSize -= entry.getValue();
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the sizes of the entries, ordered from least recently to most recently accessed.
+     */
+    public synchronized Map<String, Long> getEntries() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+}
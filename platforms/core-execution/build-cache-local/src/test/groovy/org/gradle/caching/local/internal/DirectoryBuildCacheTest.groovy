@@ -16,7 +16,9 @@
 
 package org.gradle.caching.local.internal
 
+import com.google.common.util.concurrent.MoreExecutors
 import org.gradle.cache.PersistentCache
+import org.gradle.internal.file.FileAccessTimeJournal
 import org.gradle.internal.file.FileAccessTracker
 import org.gradle.internal.hash.TestHashCodes
 import org.gradle.test.fixtures.file.CleanupTestDirectory
@@ -25,6 +27,8 @@ import org.gradle.util.UsesNativeServices
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.zip.GZIPOutputStream
+
 @UsesNativeServices
 @CleanupTestDirectory
 class DirectoryBuildCacheTest extends Specification {
@@ -36,6 +40,7 @@ class DirectoryBuildCacheTest extends Specification {
         withFileLock(_) >> { Runnable r -> r.run() }
     }
     def fileAccessTracker = Mock(FileAccessTracker)
+    def fileAccessTimeJournal = Mock(FileAccessTimeJournal)
     def cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, ".failed")
     def key = TestHashCodes.hashCodeFrom(12345678)
     def hashCode = key.toString()
@@ -136,4 +141,251 @@ class DirectoryBuildCacheTest extends Specification {
         // as `Files.move()` and `File.renameTo()` can either fail or replace the
         // already existing file; it's up to the implementation.
     }
+
+    def "evicts least recently used entries when the size limit is exceeded"() {
+        def sizeLimitedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 10, MoreExecutors.newDirectExecutorService())
+        def firstKey = TestHashCodes.hashCodeFrom(1)
+        def secondKey = TestHashCodes.hashCodeFrom(2)
+        def thirdKey = TestHashCodes.hashCodeFrom(3)
+
+        when:
+        sizeLimitedCache.store(firstKey) { output -> output.write("aaaa".bytes) }
+        sizeLimitedCache.store(secondKey) { output -> output.write("bbbb".bytes) }
+        sizeLimitedCache.loadLocally(firstKey) {}
+        sizeLimitedCache.store(thirdKey) { output -> output.write("cccc".bytes) }
+
+        then:
+        new File(cacheDir, firstKey.toString()).file
+        !new File(cacheDir, secondKey.toString()).exists()
+        new File(cacheDir, thirdKey.toString()).file
+        sizeLimitedCache.sizeInBytes == 8
+        sizeLimitedCache.evictedEntryCount == 1
+        sizeLimitedCache.evictedSizeInBytes == 4
+    }
+
+    def "evicts entries that existed before the cache was opened in the order they were last accessed"() {
+        def olderEntry = new File(cacheDir, TestHashCodes.hashCodeFrom(1).toString())
+        olderEntry.text = "aaaaaa"
+        olderEntry.lastModified = 2000
+        def newerEntry = new File(cacheDir, TestHashCodes.hashCodeFrom(2).toString())
+        newerEntry.text = "bbbbbb"
+        newerEntry.lastModified = 1000
+        def unrelatedFile = new File(cacheDir, "gc.properties")
+        unrelatedFile.text = "unrelated content"
+        fileAccessTimeJournal.getLastAccessTime(olderEntry) >> 1000
+        fileAccessTimeJournal.getLastAccessTime(newerEntry) >> 2000
+
+        when:
+        def sizeLimitedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 10, MoreExecutors.newDirectExecutorService())
+
+        then:
+        !olderEntry.exists()
+        newerEntry.file
+        unrelatedFile.file
+        sizeLimitedCache.sizeInBytes == 6
+        sizeLimitedCache.evictedEntryCount == 1
+    }
+
+    def "reads the index written when the cache was last closed instead of scanning the cache directory"() {
+        def firstKey = TestHashCodes.hashCodeFrom(1)
+        def secondKey = TestHashCodes.hashCodeFrom(2)
+        def sizeLimitedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 100, MoreExecutors.newDirectExecutorService())
+        sizeLimitedCache.store(firstKey) { output -> output.write("aaaa".bytes) }
+        sizeLimitedCache.store(secondKey) { output -> output.write("bbbb".bytes) }
+        sizeLimitedCache.loadLocally(firstKey) {}
+        sizeLimitedCache.close()
+
+        when:
+        def reopenedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 6, MoreExecutors.newDirectExecutorService())
+
+        then:
+        0 * fileAccessTimeJournal.getLastAccessTime(_)
+        new File(cacheDir, firstKey.toString()).file
+        !new File(cacheDir, secondKey.toString()).exists()
+        reopenedCache.sizeInBytes == 4
+    }
+
+    def "keeps the entries of other processes when writing the index"() {
+        def firstKey = TestHashCodes.hashCodeFrom(1)
+        def secondKey = TestHashCodes.hashCodeFrom(2)
+        def thirdKey = TestHashCodes.hashCodeFrom(3)
+        def firstCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 100, MoreExecutors.newDirectExecutorService())
+        def secondCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 100, MoreExecutors.newDirectExecutorService())
+        firstCache.store(firstKey) { output -> output.write("aaaa".bytes) }
+        secondCache.store(secondKey) { output -> output.write("bbbb".bytes) }
+        secondCache.store(thirdKey) { output -> output.write("cccc".bytes) }
+        new File(cacheDir, thirdKey.toString()).delete()
+        secondCache.close()
+        firstCache.close()
+
+        when:
+        def reopenedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 100, MoreExecutors.newDirectExecutorService())
+
+        then:
+        0 * fileAccessTimeJournal.getLastAccessTime(_)
+        reopenedCache.sizeInBytes == 8
+    }
+
+    def "evicts entries in batches"() {
+        def sizeLimitedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 1000, MoreExecutors.newDirectExecutorService())
+        def keys = (1..250).collect { TestHashCodes.hashCodeFrom(it) }
+
+        when:
+        keys.each { key -> sizeLimitedCache.store(key) { output -> output.write("a".bytes) } }
+        sizeLimitedCache.store(TestHashCodes.hashCodeFrom(1000)) { output -> output.write(new byte[900]) }
+
+        then:
+        sizeLimitedCache.evictedEntryCount == 250
+        sizeLimitedCache.sizeInBytes == 900
+    }
+
+    def "does not track entry sizes without a size limit"() {
+        when:
+        cache.store(key) { output -> output.write("foo".bytes) }
+
+        then:
+        cache.sizeInBytes == 0
+        cache.evictedEntryCount == 0
+    }
+
+    def "stores large entries as chunks shared between entries"() {
+        def chunkedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 0, null, true)
+        def content = new byte[2 * 1024 * 1024]
+        new Random(1234).nextBytes(content)
+        def changedContent = content.clone()
+        changedContent[content.length - 1]++
+        def otherKey = TestHashCodes.hashCodeFrom(87654321)
+
+        when:
+        chunkedCache.store(key) { output -> output.write(content) }
+        def chunkCount = chunkFiles().size()
+        chunkedCache.store(otherKey) { output -> output.write(changedContent) }
+
+        then:
+        chunkCount > 1
+        chunkFiles().size() == chunkCount + 1
+        !new File(cacheDir, hashCode).exists()
+        new File(cacheDir, hashCode + ChunkedEntryStore.MANIFEST_SUFFIX).length() < 4096
+
+        when:
+        byte[] loaded = null
+        byte[] otherLoaded = null
+        chunkedCache.load(key) { input -> loaded = input.bytes }
+        chunkedCache.load(otherKey) { input -> otherLoaded = input.bytes }
+
+        then:
+        loaded == content
+        otherLoaded == changedContent
+    }
+
+    def "stores gzip compressed entries as uncompressed chunks"() {
+        def chunkedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 0, null, true)
+        def content = new byte[2 * 1024 * 1024]
+        new Random(1234).nextBytes(content)
+        def changedContent = content.clone()
+        changedContent[content.length - 1]++
+        def otherKey = TestHashCodes.hashCodeFrom(87654321)
+
+        when:
+        chunkedCache.store(key) { output -> new GZIPOutputStream(output).withStream { it.write(content) } }
+        def chunkCount = chunkFiles().size()
+        chunkedCache.store(otherKey) { output -> new GZIPOutputStream(output).withStream { it.write(changedContent) } }
+
+        then:
+        chunkFiles().size() == chunkCount + 1
+
+        when:
+        byte[] loaded = null
+        chunkedCache.load(otherKey) { input -> loaded = input.bytes }
+
+        then:
+        loaded == changedContent
+    }
+
+    def "treats chunked entry with a missing chunk as missing"() {
+        def chunkedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 0, null, true)
+        def content = new byte[2 * 1024 * 1024]
+        new Random(1234).nextBytes(content)
+        chunkedCache.store(key) { output -> output.write(content) }
+        chunkFiles().first().delete()
+
+        when:
+        def loaded = chunkedCache.load(key) { input -> throw new IllegalStateException() }
+
+        then:
+        !loaded
+        !new File(cacheDir, hashCode + ChunkedEntryStore.MANIFEST_SUFFIX).exists()
+    }
+
+    def "evicting chunked entries deletes the chunks no longer referenced"() {
+        def sizeLimitedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 3 * 1024 * 1024, MoreExecutors.newDirectExecutorService(), true)
+        def content = new byte[2 * 1024 * 1024]
+        new Random(1234).nextBytes(content)
+        def changedContent = content.clone()
+        changedContent[content.length - 1]++
+        def otherContent = new byte[2 * 1024 * 1024]
+        new Random(5678).nextBytes(otherContent)
+        def changedKey = TestHashCodes.hashCodeFrom(2)
+        def otherKey = TestHashCodes.hashCodeFrom(3)
+
+        when:
+        sizeLimitedCache.store(key) { output -> output.write(content) }
+        sizeLimitedCache.store(changedKey) { output -> output.write(changedContent) }
+
+        then:
+        sizeLimitedCache.evictedEntryCount == 0
+        sizeLimitedCache.sizeInBytes == chunkFiles().sum { it.length() } + manifestFiles().sum { it.length() }
+
+        when:
+        sizeLimitedCache.store(otherKey) { output -> output.write(otherContent) }
+
+        then:
+        sizeLimitedCache.evictedEntryCount == 2
+        manifestFiles()*.name == [otherKey.toString() + ChunkedEntryStore.MANIFEST_SUFFIX]
+        sizeLimitedCache.sizeInBytes == chunkFiles().sum { it.length() } + manifestFiles().sum { it.length() }
+        sizeLimitedCache.sizeInBytes < 3 * 1024 * 1024
+        sizeLimitedCache.load(otherKey) { input -> assert input.bytes == otherContent }
+    }
+
+    def "stores small entries as-is with chunked storage"() {
+        def chunkedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 0, null, true)
+
+        when:
+        chunkedCache.store(key) { output -> output.write("foo".bytes) }
+
+        then:
+        new File(cacheDir, hashCode).text == "foo"
+        chunkFiles().empty
+    }
+
+    def "deletes chunks no longer referenced by any readable entry"() {
+        def chunkedCache = new DirectoryBuildCache(persistentCache, fileAccessTracker, fileAccessTimeJournal, ".failed", 0, null, true)
+        def content = new byte[2 * 1024 * 1024]
+        new Random(1234).nextBytes(content)
+        def otherContent = new byte[2 * 1024 * 1024]
+        new Random(5678).nextBytes(otherContent)
+        def otherKey = TestHashCodes.hashCodeFrom(87654321)
+        chunkedCache.store(key) { output -> output.write(content) }
+        def chunkCount = chunkFiles().size()
+        chunkedCache.store(otherKey) { output -> output.write(otherContent) }
+
+        when:
+        new File(cacheDir, otherKey.toString() + ChunkedEntryStore.MANIFEST_SUFFIX).delete()
+        new File(cacheDir, "1234" + ChunkedEntryStore.MANIFEST_SUFFIX).text = "corrupt"
+        def deleted = new ChunkedEntryStore(cacheDir).deleteUnreferencedChunks(cacheDir)
+
+        then:
+        chunkFiles().size() == chunkCount
+        deleted > 0
+        chunkedCache.load(key) { input -> assert input.bytes == content }
+    }
+
+    private List<File> manifestFiles() {
+        return cacheDir.listFiles().findAll { it.name.endsWith(ChunkedEntryStore.MANIFEST_SUFFIX) }
+    }
+
+    private List<File> chunkFiles() {
+        def chunksDir = new File(cacheDir, ChunkedEntryStore.CHUNKS_DIRECTORY)
+        return chunksDir.exists() ? chunksDir.listFiles().collectMany { it.listFiles() as List } : []
+    }
 }
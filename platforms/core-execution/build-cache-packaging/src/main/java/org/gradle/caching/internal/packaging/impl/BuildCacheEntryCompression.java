@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression formats supported for build cache entries.
+ *
+ * <p>Each format is identified by the magic bytes at the start of its stream, so the format does not need to be known in advance to read an entry.</p>
+ */
+public enum BuildCacheEntryCompression {
+    GZIP(new byte[]{(byte) 0x1f, (byte) 0x8b}) {
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new GZIPOutputStream(output);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return new GZIPInputStream(input);
+        }
+    },
+    LZ4(new byte[]{(byte) 0x04, (byte) 0x22, (byte) 0x4d, (byte) 0x18}) {
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new FramedLZ4CompressorOutputStream(output);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return new FramedLZ4CompressorInputStream(input);
+        }
+    },
+    /**
+     * Uncompressed entries start with the tar header of the metadata entry, which is always written first.
+     * The local build cache also hands out chunked entries in this form, whatever compression they were stored with.
+     */
+    NONE(new byte[]{'M', 'E', 'T', 'A', 'D', 'A', 'T', 'A', 0}) {
+        @Override
+        public OutputStream compress(OutputStream output) {
+            return output;
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) {
+            return input;
+        }
+    };
+
+    static final int MAX_SIGNATURE_LENGTH = 9;
+
+    private final byte[] signature;
+
+    BuildCacheEntryCompression(byte[] signature) {
+        this.signature = signature;
+    }
+
+    public abstract OutputStream compress(OutputStream output) throws IOException;
+
+    public abstract InputStream decompress(InputStream input) throws IOException;
+
+    boolean matches(byte[] header, int length) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (header[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the format with the given name, ignoring case.
+     */
+    public static BuildCacheEntryCompression forName(String name) {
+        for (BuildCacheEntryCompression compression : values()) {
+            if (compression.name().equalsIgnoreCase(name)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown build cache entry compression '%s', supported values are: gzip, lz4, none.", name.toLowerCase(Locale.ROOT)));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Compresses packed entries with a configurable format.
+ *
+ * <p>Entries are unpacked with the format detected from their content, so a cache can contain entries packed with different formats.</p>
+ */
+public class CompressingBuildCacheEntryPacker implements BuildCacheEntryPacker {
+    private final BuildCacheEntryPacker delegate;
+    private final BuildCacheEntryCompression compression;
+
+    public CompressingBuildCacheEntryPacker(BuildCacheEntryPacker delegate, BuildCacheEntryCompression compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        try (OutputStream compressedOutput = compression.compress(output)) {
+            return delegate.pack(entity, snapshots, compressedOutput, writeOrigin);
+        }
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(input);
+        try (InputStream decompressedInput = detectCompression(bufferedInput).decompress(bufferedInput)) {
+            return delegate.unpack(entity, decompressedInput, readOrigin);
+        }
+    }
+
+    private static BuildCacheEntryCompression detectCompression(BufferedInputStream input) throws IOException {
+        byte[] header = new byte[BuildCacheEntryCompression.MAX_SIGNATURE_LENGTH];
+        input.mark(header.length);
+        int length = 0;
+        while (length < header.length) {
+            int read = input.read(header, length, header.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        input.reset();
+        for (BuildCacheEntryCompression compression : BuildCacheEntryCompression.values()) {
+            if (compression.matches(header, length)) {
+                return compression;
+            }
+        }
+        throw new IllegalStateException("Cached entry format error, unknown compression format.");
+    }
+}
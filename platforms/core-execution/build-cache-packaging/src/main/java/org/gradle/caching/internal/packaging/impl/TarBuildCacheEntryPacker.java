@@ -20,6 +20,9 @@
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Interner;
 import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
@@ -32,6 +35,7 @@
 import org.gradle.caching.internal.origin.OriginWriter;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.internal.RelativePathSupplier;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.file.BufferProvider;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.file.PathTraversalChecker;
@@ -53,6 +57,7 @@
 
 import javax.annotation.Nullable;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -66,9 +71,17 @@
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -77,6 +90,9 @@
 
 /**
  * Packages build cache entries to a POSIX TAR file.
+ *
+ * <p>When an executor for file writes is provided, regular files of directory trees that are small enough are read from the archive into memory
+ * and written and hashed on the executor, while the archive continues to be decompressed on the calling thread.</p>
  */
 public class TarBuildCacheEntryPacker implements BuildCacheEntryPacker {
 
@@ -92,12 +108,16 @@ private interface UnixPermissions {
     private static final Charset ENCODING = StandardCharsets.UTF_8;
     private static final String METADATA_PATH = "METADATA";
     private static final Pattern TREE_PATH = Pattern.compile("(missing-)?tree-([^/]+)(?:/(.*))?");
+    private static final int MAX_PARALLEL_WRITE_FILE_SIZE = 1024 * 1024;
 
     private final TarPackerFileSystemSupport fileSystemSupport;
     private final FilePermissionAccess filePermissionAccess;
     private final StreamHasher streamHasher;
     private final Interner<String> stringInterner;
     private final BufferProvider bufferProvider;
+    private final Executor fileWriteExecutor;
+    private final boolean writeFilesInParallel;
+    private final Semaphore pendingFileWriteBytes;
 
     public TarBuildCacheEntryPacker(
         TarPackerFileSystemSupport fileSystemSupport,
@@ -105,12 +125,32 @@ public TarBuildCacheEntryPacker(
         StreamHasher streamHasher,
         Interner<String> stringInterner,
         BufferProvider bufferProvider
+    ) {
+        this(fileSystemSupport, filePermissionAccess, streamHasher, stringInterner, bufferProvider, MoreExecutors.directExecutor(), new Semaphore(MAX_PARALLEL_WRITE_FILE_SIZE));
+    }
+
+    /**
+     * @param fileWriteExecutor the executor used to write and hash unpacked files
+     * @param pendingFileWriteBytes bounds the number of bytes read into memory and waiting to be written by the executor, shared by all unpack operations.
+     * Must have at least 1 MiB of permits, the largest file that is written on the executor.
+     */
+    public TarBuildCacheEntryPacker(
+        TarPackerFileSystemSupport fileSystemSupport,
+        FilePermissionAccess filePermissionAccess,
+        StreamHasher streamHasher,
+        Interner<String> stringInterner,
+        BufferProvider bufferProvider,
+        Executor fileWriteExecutor,
+        Semaphore pendingFileWriteBytes
     ) {
         this.fileSystemSupport = fileSystemSupport;
         this.filePermissionAccess = filePermissionAccess;
         this.streamHasher = streamHasher;
         this.stringInterner = stringInterner;
         this.bufferProvider = bufferProvider;
+        this.fileWriteExecutor = fileWriteExecutor;
+        this.writeFilesInParallel = fileWriteExecutor != MoreExecutors.directExecutor();
+        this.pendingFileWriteBytes = pendingFileWriteBytes;
     }
 
     @Override
@@ -266,7 +306,7 @@ private TarArchiveEntry unpackTree(String treeName, TreeType treeType, File tree
         return unpackDirectoryTree(input, rootEntry, snapshots, entries, treeRoot, treeName);
     }
 
-    private RegularFileSnapshot unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+    private RegularFileSnapshot unpackFile(InputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
         try (CountingOutputStream output = new CountingOutputStream(new FileOutputStream(file))) {
             HashCode hash = streamHasher.hashCopy(input, output);
             chmodUnpackedFile(entry, file);
@@ -280,32 +320,44 @@ private RegularFileSnapshot unpackFile(TarArchiveInputStream input, TarArchiveEn
     private TarArchiveEntry unpackDirectoryTree(TarArchiveInputStream input, TarArchiveEntry rootEntry, Map<String, FileSystemLocationSnapshot> snapshots, AtomicLong entries, File treeRoot, String treeName) throws IOException {
         RelativePathParser parser = new RelativePathParser(safeEntryName(rootEntry));
 
-        DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
-        builder.enterDirectory(DIRECT, stringInterner.intern(treeRoot.getAbsolutePath()), stringInterner.intern(treeRoot.getName()), INCLUDE_EMPTY_DIRS);
+        // Files may be written on other threads, so the visits to the snapshot builder are recorded and replayed once all the files have been written
+        List<Consumer<DirectorySnapshotBuilder>> builderActions = new ArrayList<>();
+        Runnable leaveDirectory = () -> builderActions.add(DirectorySnapshotBuilder::leaveDirectory);
+        FileWrites fileWrites = new FileWrites();
 
         TarArchiveEntry entry;
 
-        while ((entry = input.getNextEntry()) != null) {
-            boolean isDir = entry.isDirectory();
-            boolean outsideOfRoot = parser.nextPath(safeEntryName(entry), isDir, builder::leaveDirectory);
-            if (outsideOfRoot) {
-                break;
-            }
-            entries.incrementAndGet();
-
-            File file = new File(treeRoot, parser.getRelativePath());
-            if (isDir) {
-                FileUtils.forceMkdir(file);
-                chmodUnpackedFile(entry, file);
-                String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
-                String internedName = stringInterner.intern(parser.getName());
-                builder.enterDirectory(DIRECT, internedAbsolutePath, internedName, INCLUDE_EMPTY_DIRS);
-            } else {
-                RegularFileSnapshot fileSnapshot = unpackFile(input, entry, file, parser.getName());
-                builder.visitLeafElement(fileSnapshot);
+        try {
+            while ((entry = input.getNextEntry()) != null) {
+                boolean isDir = entry.isDirectory();
+                boolean outsideOfRoot = parser.nextPath(safeEntryName(entry), isDir, leaveDirectory);
+                if (outsideOfRoot) {
+                    break;
+                }
+                entries.incrementAndGet();
+
+                File file = new File(treeRoot, parser.getRelativePath());
+                if (isDir) {
+                    FileUtils.forceMkdir(file);
+                    chmodUnpackedFile(entry, file);
+                    String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
+                    String internedName = stringInterner.intern(parser.getName());
+                    builderActions.add(builder -> builder.enterDirectory(DIRECT, internedAbsolutePath, internedName, INCLUDE_EMPTY_DIRS));
+                } else {
+                    Future<RegularFileSnapshot> fileSnapshot = fileWrites.write(input, entry, file, parser.getName());
+                    builderActions.add(builder -> builder.visitLeafElement(getUninterruptibly(fileSnapshot)));
+                }
             }
+            fileWrites.awaitAll();
+        } finally {
+            fileWrites.awaitAllQuietly();
         }
 
+        DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+        builder.enterDirectory(DIRECT, stringInterner.intern(treeRoot.getAbsolutePath()), stringInterner.intern(treeRoot.getName()), INCLUDE_EMPTY_DIRS);
+        for (Consumer<DirectorySnapshotBuilder> builderAction : builderActions) {
+            builderAction.accept(builder);
+        }
         parser.exitToRoot(builder::leaveDirectory);
         builder.leaveDirectory();
 
@@ -313,6 +365,77 @@ private TarArchiveEntry unpackDirectoryTree(TarArchiveInputStream input, TarArch
         return entry;
     }
 
+    private static <T> T getUninterruptibly(Future<T> future) {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    /**
+     * Writes unpacked files, either directly or on the file write executor.
+     */
+    private class FileWrites {
+        private final List<Future<RegularFileSnapshot>> writes = new ArrayList<>();
+
+        public Future<RegularFileSnapshot> write(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+            if (!writeFilesInParallel || entry.getSize() > MAX_PARALLEL_WRITE_FILE_SIZE) {
+                return Futures.immediateFuture(unpackFile(input, entry, file, fileName));
+            }
+            int size = (int) entry.getSize();
+            // Reserve the memory before reading the file, so that the contents held by all unpack operations together stay within the bound
+            pendingFileWriteBytes.acquireUninterruptibly(size);
+            FutureTask<RegularFileSnapshot> write;
+            try {
+                byte[] content = IOUtils.toByteArray(input, size);
+                write = new FutureTask<>(() -> {
+                    try {
+                        return unpackFile(new ByteArrayInputStream(content), entry, file, fileName);
+                    } finally {
+                        pendingFileWriteBytes.release(size);
+                    }
+                });
+                fileWriteExecutor.execute(write);
+            } catch (IOException | RuntimeException e) {
+                pendingFileWriteBytes.release(size);
+                throw e;
+            }
+            writes.add(write);
+            return write;
+        }
+
+        /**
+         * Waits for all writes to finish, rethrowing the first failure.
+         */
+        public void awaitAll() throws IOException {
+            for (Future<RegularFileSnapshot> write : writes) {
+                try {
+                    Uninterruptibles.getUninterruptibly(write);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw UncheckedException.throwAsUncheckedException(cause);
+                }
+            }
+        }
+
+        /**
+         * Waits for all writes to finish, ignoring failures. Makes sure no file is still being written when unpacking fails.
+         */
+        public void awaitAllQuietly() {
+            for (Future<RegularFileSnapshot> write : writes) {
+                try {
+                    Uninterruptibles.getUninterruptibly(write);
+                } catch (ExecutionException e) {
+                    // Reported by awaitAll()
+                }
+            }
+        }
+    }
+
     /**
      * Returns a safe name for the name of a tar archive entry.
      *
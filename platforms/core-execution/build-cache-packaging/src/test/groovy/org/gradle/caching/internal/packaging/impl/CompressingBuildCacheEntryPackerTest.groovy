@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.origin.OriginReader
+import org.gradle.caching.internal.origin.OriginWriter
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import spock.lang.Specification
+
+import java.util.zip.GZIPInputStream
+
+class CompressingBuildCacheEntryPackerTest extends Specification {
+    def delegate = Mock(BuildCacheEntryPacker)
+    def entity = Stub(CacheableEntity)
+    def writeOrigin = Stub(OriginWriter)
+    def readOrigin = Stub(OriginReader)
+
+    def "unpacks entry packed with #packedWith when packing with #packingWith"() {
+        def packed = new ByteArrayOutputStream()
+        def content = ("content" * 100).bytes
+
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, packedWith).pack(entity, [:], packed, writeOrigin)
+
+        then:
+        1 * delegate.pack(entity, [:], _, writeOrigin) >> { args ->
+            args[2].write(content)
+            new BuildCacheEntryPacker.PackResult(1)
+        }
+
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, packingWith).unpack(entity, new ByteArrayInputStream(packed.toByteArray()), readOrigin)
+
+        then:
+        1 * delegate.unpack(entity, _, readOrigin) >> { args ->
+            assert args[1].bytes == content
+            new BuildCacheEntryPacker.UnpackResult(null, 1, [:])
+        }
+
+        where:
+        packedWith                      | packingWith
+        BuildCacheEntryCompression.GZIP | BuildCacheEntryCompression.GZIP
+        BuildCacheEntryCompression.GZIP | BuildCacheEntryCompression.LZ4
+        BuildCacheEntryCompression.LZ4  | BuildCacheEntryCompression.GZIP
+        BuildCacheEntryCompression.LZ4  | BuildCacheEntryCompression.LZ4
+    }
+
+    def "packs with gzip compatible format"() {
+        def packed = new ByteArrayOutputStream()
+
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, BuildCacheEntryCompression.GZIP).pack(entity, [:], packed, writeOrigin)
+
+        then:
+        1 * delegate.pack(entity, [:], _, writeOrigin) >> { args ->
+            args[2].write("content".bytes)
+            new BuildCacheEntryPacker.PackResult(1)
+        }
+        new GZIPInputStream(new ByteArrayInputStream(packed.toByteArray())).text == "content"
+    }
+
+    def "unpacks uncompressed entry starting with metadata"() {
+        def packed = new ByteArrayOutputStream()
+        def content = "METADATA\0${"content" * 100}".bytes
+
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, BuildCacheEntryCompression.NONE).pack(entity, [:], packed, writeOrigin)
+
+        then:
+        1 * delegate.pack(entity, [:], _, writeOrigin) >> { args ->
+            args[2].write(content)
+            new BuildCacheEntryPacker.PackResult(1)
+        }
+        packed.toByteArray() == content
+
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, BuildCacheEntryCompression.GZIP).unpack(entity, new ByteArrayInputStream(packed.toByteArray()), readOrigin)
+
+        then:
+        1 * delegate.unpack(entity, _, readOrigin) >> { args ->
+            assert args[1].bytes == content
+            new BuildCacheEntryPacker.UnpackResult(null, 1, [:])
+        }
+    }
+
+    def "fails to unpack entry with unknown compression"() {
+        when:
+        new CompressingBuildCacheEntryPacker(delegate, BuildCacheEntryCompression.LZ4).unpack(entity, new ByteArrayInputStream("not compressed".bytes), readOrigin)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == "Cached entry format error, unknown compression format."
+        0 * delegate._
+    }
+
+    def "can select compression by name"() {
+        expect:
+        BuildCacheEntryCompression.forName("gzip") == BuildCacheEntryCompression.GZIP
+        BuildCacheEntryCompression.forName("LZ4") == BuildCacheEntryCompression.LZ4
+        BuildCacheEntryCompression.forName("none") == BuildCacheEntryCompression.NONE
+
+        when:
+        BuildCacheEntryCompression.forName("brotli")
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unknown build cache entry compression 'brotli', supported values are: gzip, lz4, none."
+    }
+}
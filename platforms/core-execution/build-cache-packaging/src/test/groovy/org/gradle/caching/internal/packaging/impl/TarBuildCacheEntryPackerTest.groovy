@@ -19,11 +19,15 @@ package org.gradle.caching.internal.packaging.impl
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
 import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.file.BufferProvider
 import org.gradle.internal.file.Deleter
 import org.gradle.internal.nativeintegration.filesystem.FileSystem
 import org.gradle.test.precondition.Requires
 import org.gradle.test.preconditions.UnitTestPreconditions
 
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
+
 import static org.gradle.internal.file.TreeType.DIRECTORY
 import static org.gradle.internal.file.TreeType.FILE
 
@@ -65,6 +69,36 @@ class TarBuildCacheEntryPackerTest extends AbstractTarBuildCacheEntryPackerSpec
         result.entries == 4
     }
 
+    def "unpacks the same snapshot when writing files in parallel"() {
+        def sourceOutputDir = temporaryFolder.file("source").createDir()
+        (1..20).each { dirIndex ->
+            def dir = sourceOutputDir.file("dir-$dirIndex").createDir()
+            (1..10).each { fileIndex ->
+                dir.file("file-${fileIndex}.txt") << "content $dirIndex $fileIndex"
+            }
+            dir.file("nested").createDir().file("data.txt") << "nested $dirIndex"
+        }
+        def sequentialTargetDir = temporaryFolder.file("sequential")
+        def parallelTargetDir = temporaryFolder.file("parallel")
+        def output = new ByteArrayOutputStream()
+        def executor = Executors.newFixedThreadPool(4)
+        def parallelPacker = new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, streamHasher, stringInterner, { new byte[4096] } as BufferProvider, executor, new Semaphore(1024 * 1024))
+        pack output, prop(DIRECTORY, sourceOutputDir)
+
+        when:
+        def sequentialResult = unpack new ByteArrayInputStream(output.toByteArray()), prop(DIRECTORY, sequentialTargetDir)
+        def parallelResult = parallelPacker.unpack(entity(prop(DIRECTORY, parallelTargetDir)), new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        parallelResult.entries == sequentialResult.entries
+        parallelResult.snapshots["test"].hash == sequentialResult.snapshots["test"].hash
+        parallelTargetDir.file("dir-7/file-3.txt").text == "content 7 3"
+        parallelTargetDir.file("dir-20/nested/data.txt").text == "nested 20"
+
+        cleanup:
+        executor.shutdown()
+    }
+
     def "can pack tree with missing #type (pre-existing as: #preExistsAs)"() {
         def sourceOutput = temporaryFolder.file("source")
         def targetOutput = temporaryFolder.file("target")
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal;
+
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * A {@link BuildCacheService} that can check for the existence of many entries at once.
+ *
+ * Backends implement this when an existence check is considerably cheaper than loading the entry,
+ * so that the build can find out which entries are available as soon as their cache keys are known.
+ */
+public interface BatchLookupBuildCacheService extends BuildCacheService {
+    /**
+     * Returns the subset of the given keys that have an entry in the cache.
+     *
+     * @param keys the cache keys to look up.
+     * @return the keys that were found in the cache.
+     * @throws BuildCacheException if the cache could not be queried.
+     */
+    Set<BuildCacheKey> findExisting(Collection<BuildCacheKey> keys) throws BuildCacheException;
+}
@@ -25,6 +25,7 @@
 
 import java.io.Closeable;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
@@ -40,5 +41,13 @@ public interface BuildCacheController extends Closeable {
 
     Optional<BuildCacheLoadResult> load(BuildCacheKey cacheKey, CacheableEntity cacheableEntity);
 
+    /**
+     * Starts downloading the entries for the given keys from the remote cache into the local cache in the background,
+     * so that a later {@link #load(BuildCacheKey, CacheableEntity)} can be served locally.
+     *
+     * Does nothing if prefetching is not enabled.
+     */
+    void prefetch(Collection<BuildCacheKey> cacheKeys);
+
     void store(BuildCacheKey cacheKey, CacheableEntity entity, Map<String, FileSystemSnapshot> snapshots, Duration executionTime);
 }
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller;
+
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.internal.BuildCacheKeyInternal;
+import org.gradle.caching.internal.controller.operations.PrefetchOperationDetails;
+import org.gradle.caching.internal.controller.operations.PrefetchOperationResult;
+import org.gradle.caching.internal.controller.service.LocalBuildCacheServiceHandle;
+import org.gradle.caching.internal.controller.service.RemoteBuildCacheServiceHandle;
+import org.gradle.caching.local.internal.BuildCacheTempFileStore;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Downloads entries from the remote build cache into the local build cache in the background,
+ * so that a later load of the same entry only needs to unpack it from local disk.
+ *
+ * <p>Requested keys are queued and looked up together. Remote caches that support batch lookups are asked which of the queued keys exist,
+ * so that missing entries cost no download. Keys requested while a lookup is running are picked up by the next one.</p>
+ *
+ * <p>The number of bytes downloaded ahead of time is bounded by a budget.
+ * Downloads that are already running when the budget is used up are allowed to finish, so the budget can be exceeded by at most the size of those entries.</p>
+ */
+class BuildCachePrefetcher implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildCachePrefetcher.class);
+
+    private enum State {
+        QUEUED, RUNNING, ABANDONED, DOWNLOADED, MISSING, SKIPPED, FAILED
+    }
+
+    private final RemoteBuildCacheServiceHandle remote;
+    private final LocalBuildCacheServiceHandle local;
+    private final BuildCacheTempFileStore tmp;
+    private final ExecutorService executor;
+    private final long budgetInBytes;
+    private final BuildOperationRunner buildOperationRunner;
+
+    private final ConcurrentMap<BuildCacheKey, Prefetch> prefetches = new ConcurrentHashMap<>();
+    private final Queue<BuildCacheKey> pendingLookups = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean lookupScheduled = new AtomicBoolean();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    BuildCachePrefetcher(
+        RemoteBuildCacheServiceHandle remote,
+        LocalBuildCacheServiceHandle local,
+        BuildCacheTempFileStore tmp,
+        ExecutorService executor,
+        long budgetInBytes,
+        BuildOperationRunner buildOperationRunner
+    ) {
+        this.remote = remote;
+        this.local = local;
+        this.tmp = tmp;
+        this.executor = executor;
+        this.budgetInBytes = budgetInBytes;
+        this.buildOperationRunner = buildOperationRunner;
+    }
+
+    /**
+     * Schedules the entries for the given keys to be downloaded, unless they have been requested before.
+     */
+    public void prefetch(Collection<BuildCacheKey> keys) {
+        if (closed.get() || !remote.canLoad() || !local.canStore() || downloadedBytes.get() >= budgetInBytes) {
+            return;
+        }
+        boolean added = false;
+        for (BuildCacheKey key : keys) {
+            if (prefetches.putIfAbsent(key, new Prefetch()) == null) {
+                pendingLookups.add(key);
+                added = true;
+            }
+        }
+        if (added && lookupScheduled.compareAndSet(false, true)) {
+            submit(this::lookUpPendingKeys);
+        }
+    }
+
+    private void lookUpPendingKeys() {
+        lookupScheduled.set(false);
+        List<BuildCacheKey> keys = new ArrayList<>();
+        BuildCacheKey key;
+        while ((key = pendingLookups.poll()) != null) {
+            keys.add(key);
+        }
+        if (keys.isEmpty() || closed.get()) {
+            return;
+        }
+
+        // For a single key, loading the entry answers the same question with one request less
+        Optional<Set<BuildCacheKey>> existing = keys.size() > 1
+            ? remote.maybeFindExisting(keys)
+            : Optional.empty();
+        for (BuildCacheKey candidate : keys) {
+            Prefetch prefetch = prefetches.get(candidate);
+            if (existing.isPresent() && !existing.get().contains(candidate)) {
+                if (prefetch.state.compareAndSet(State.QUEUED, State.MISSING)) {
+                    prefetch.done.countDown();
+                }
+            } else {
+                submit(() -> download(candidate, prefetch));
+            }
+        }
+    }
+
+    private void download(BuildCacheKey key, Prefetch prefetch) {
+        if (!prefetch.state.compareAndSet(State.QUEUED, State.RUNNING)) {
+            // The entry has been requested by a load in the meantime
+            return;
+        }
+        if (closed.get() || downloadedBytes.get() >= budgetInBytes) {
+            prefetch.finish(State.SKIPPED);
+            return;
+        }
+        AtomicReference<State> result = new AtomicReference<>();
+        try {
+            tmp.withTempFile(((BuildCacheKeyInternal) key).getHashCodeInternal(), file -> {
+                remote.maybeLoad(key, file, loadedFile -> {
+                    downloadedBytes.addAndGet(loadedFile.length());
+                    result.set(local.maybeStore(key, loadedFile) ? State.DOWNLOADED : State.FAILED);
+                    return null;
+                });
+            });
+            if (result.get() == null) {
+                // The remote handle reports its own failures and stops loading after one, anything else means the entry does not exist
+                result.set(remote.canLoad() ? State.MISSING : State.FAILED);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not prefetch build cache entry {}", key.getHashCode(), e);
+            result.set(State.FAILED);
+        } finally {
+            prefetch.finish(result.get() == null ? State.FAILED : result.get());
+        }
+    }
+
+    /**
+     * Runs prefetch work outside of the build operation that requested it.
+     * Downloads can outlive that operation, and their own build operations must not be attached to a finished parent.
+     */
+    private void submit(Runnable action) {
+        try {
+            executor.execute(() -> CurrentBuildOperationRef.instance().with(null, action));
+        } catch (RejectedExecutionException e) {
+            // The prefetcher has been closed concurrently, the entries are counted as skipped
+        }
+    }
+
+    /**
+     * Waits for a running download of the given entry to finish.
+     *
+     * Downloads that have not been started yet are abandoned, so the caller can load the entry itself.
+     */
+    public void awaitPrefetch(BuildCacheKey key) {
+        Prefetch prefetch = prefetches.get(key);
+        if (prefetch == null || prefetch.state.compareAndSet(State.QUEUED, State.ABANDONED)) {
+            return;
+        }
+        try {
+            prefetch.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (prefetch.state.compareAndSet(State.DOWNLOADED, State.ABANDONED)) {
+            hitCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Skips the downloads that have not started yet and waits for the running ones, which use the local and remote caches, to finish.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        // Queued work sees that the prefetcher is closed and finishes right away
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (prefetches.isEmpty()) {
+            return;
+        }
+        buildOperationRunner.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                long missCount = 0;
+                long wastedCount = 0;
+                long skippedCount = 0;
+                long failedCount = 0;
+                for (Prefetch prefetch : prefetches.values()) {
+                    switch (prefetch.state.get()) {
+                        case MISSING:
+                            missCount++;
+                            break;
+                        case DOWNLOADED:
+                            wastedCount++;
+                            break;
+                        case QUEUED:
+                        case SKIPPED:
+                            skippedCount++;
+                            break;
+                        case FAILED:
+                            failedCount++;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                context.setResult(new PrefetchOperationResult(prefetches.size(), hitCount.get(), missCount, wastedCount, skippedCount, failedCount, downloadedBytes.get()));
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Prefetch build cache entries")
+                    .details(new PrefetchOperationDetails(budgetInBytes));
+            }
+        });
+    }
+
+    private static class Prefetch {
+        private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        void finish(State finalState) {
+            state.set(finalState);
+            done.countDown();
+        }
+    }
+}
@@ -66,8 +66,10 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class DefaultBuildCacheController implements BuildCacheController {
@@ -80,6 +82,8 @@ public class DefaultBuildCacheController implements BuildCacheController {
 
     private final BuildCacheTempFileStore tmp;
     private final PackOperationExecutor packExecutor;
+    @Nullable
+    private final BuildCachePrefetcher prefetcher;
 
     private boolean closed;
 
@@ -93,6 +97,26 @@ public DefaultBuildCacheController(
         BuildCacheEntryPacker packer,
         OriginMetadataFactory originMetadataFactory,
         Interner<String> stringInterner
+    ) {
+        this(config, buildOperationRunner, buildOperationProgressEventEmitter, temporaryFileFactory, logStackTraces, disableRemoteOnError, packer, originMetadataFactory, stringInterner, null, 0);
+    }
+
+    /**
+     * Creates a controller that downloads requested entries ahead of time using the given executor, until {@code prefetchBudgetInBytes} have been downloaded.
+     * The executor is shut down when the controller is closed.
+     */
+    public DefaultBuildCacheController(
+        BuildCacheServicesConfiguration config,
+        BuildOperationRunner buildOperationRunner,
+        BuildOperationProgressEventEmitter buildOperationProgressEventEmitter,
+        TemporaryFileFactory temporaryFileFactory,
+        boolean logStackTraces,
+        boolean disableRemoteOnError,
+        BuildCacheEntryPacker packer,
+        OriginMetadataFactory originMetadataFactory,
+        Interner<String> stringInterner,
+        @Nullable ExecutorService prefetchExecutor,
+        long prefetchBudgetInBytes
     ) {
         this.local = toLocalHandle(config.getLocal(), config.isLocalPush(), buildOperationRunner);
         this.remote = toRemoteHandle(config.getBuildPath(), config.getRemote(), config.isRemotePush(), buildOperationRunner, buildOperationProgressEventEmitter, logStackTraces, disableRemoteOnError);
@@ -103,6 +127,9 @@ public DefaultBuildCacheController(
             originMetadataFactory,
             stringInterner
         );
+        this.prefetcher = prefetchExecutor == null
+            ? null
+            : new BuildCachePrefetcher(remote, local, tmp, prefetchExecutor, prefetchBudgetInBytes, buildOperationRunner);
     }
 
     @Override
@@ -112,6 +139,9 @@ public boolean isEnabled() {
 
     @Override
     public Optional<BuildCacheLoadResult> load(BuildCacheKey key, CacheableEntity entity) {
+        if (prefetcher != null) {
+            prefetcher.awaitPrefetch(key);
+        }
         Optional<BuildCacheLoadResult> result = loadLocal(key, entity);
         if (result.isPresent()) {
             return result;
@@ -147,6 +177,13 @@ private Optional<BuildCacheLoadResult> loadRemoteAndStoreResultLocally(BuildCach
         return result.get();
     }
 
+    @Override
+    public void prefetch(Collection<BuildCacheKey> keys) {
+        if (prefetcher != null) {
+            prefetcher.prefetch(keys);
+        }
+    }
+
     @Override
     public void store(BuildCacheKey key, CacheableEntity entity, Map<String, FileSystemSnapshot> snapshots, Duration executionTime) {
         if (!local.canStore() && !remote.canStore()) {
@@ -166,6 +203,10 @@ public void close() throws IOException {
             Closer closer = Closer.create();
             closer.register(local);
             closer.register(remote);
+            if (prefetcher != null) {
+                // Stop prefetching before closing the services it uses
+                closer.register(prefetcher);
+            }
             closer.close();
         }
     }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.operations;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Summarizes the entries that were downloaded ahead of time from the remote build cache into the local build cache.
+ */
+public final class PrefetchBuildOperationType implements BuildOperationType<PrefetchBuildOperationType.Details, PrefetchBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The maximum number of bytes that may be downloaded ahead of time.
+         */
+        long getBudgetInBytes();
+
+    }
+
+    public interface Result {
+
+        /**
+         * The number of cache keys that were requested to be prefetched.
+         */
+        long getRequestedCount();
+
+        /**
+         * The number of prefetched entries that were later loaded from the local cache.
+         */
+        long getHitCount();
+
+        /**
+         * The number of requested entries that did not exist in the remote cache.
+         */
+        long getMissCount();
+
+        /**
+         * The number of prefetched entries that were never loaded.
+         */
+        long getWastedCount();
+
+        /**
+         * The number of requested entries that were not prefetched because the budget was used up or the build finished first.
+         */
+        long getSkippedCount();
+
+        /**
+         * The number of requested entries that could not be downloaded or stored in the local cache.
+         */
+        long getFailedCount();
+
+        /**
+         * The number of bytes downloaded ahead of time.
+         */
+        long getDownloadedBytes();
+
+    }
+
+    private PrefetchBuildOperationType() {
+    }
+}
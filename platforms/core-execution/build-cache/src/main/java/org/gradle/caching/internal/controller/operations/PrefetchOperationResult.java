@@ -0,0 +1,73 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.operations;
+
+public class PrefetchOperationResult implements PrefetchBuildOperationType.Result {
+
+    private final long requestedCount;
+    private final long hitCount;
+    private final long missCount;
+    private final long wastedCount;
+    private final long skippedCount;
+    private final long failedCount;
+    private final long downloadedBytes;
+
+    public PrefetchOperationResult(long requestedCount, long hitCount, long missCount, long wastedCount, long skippedCount, long failedCount, long downloadedBytes) {
+        this.requestedCount = requestedCount;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.wastedCount = wastedCount;
+        this.skippedCount = skippedCount;
+        this.failedCount = failedCount;
+        this.downloadedBytes = downloadedBytes;
+    }
+
+    @Override
+    public long getRequestedCount() {
+        return requestedCount;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public long getWastedCount() {
+        return wastedCount;
+    }
+
+    @Override
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public long getDownloadedBytes() {
+        return downloadedBytes;
+    }
+}
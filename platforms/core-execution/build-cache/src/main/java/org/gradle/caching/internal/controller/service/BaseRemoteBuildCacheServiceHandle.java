@@ -19,13 +19,16 @@
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.BatchLookupBuildCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.util.Collection;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 public class BaseRemoteBuildCacheServiceHandle implements RemoteBuildCacheServiceHandle {
@@ -120,6 +123,22 @@ private static Optional<BuildCacheLoadResult> maybeUnpack(LoadTarget loadTarget,
         return Optional.empty();
     }
 
+    @Override
+    public final Optional<Set<BuildCacheKey>> maybeFindExisting(Collection<BuildCacheKey> keys) {
+        if (!canLoad() || !(service instanceof BatchLookupBuildCacheService)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(((BatchLookupBuildCacheService) service).findExisting(keys));
+        } catch (Exception e) {
+            // A failed lookup is only an optimization that did not work out, the subsequent loads report any real problem
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Could not look up {} entries in {} build cache", keys.size(), role.getDisplayName(), e);
+            }
+            return Optional.empty();
+        }
+    }
+
     @Override
     public boolean canStore() {
         return pushEnabled && !disabled;
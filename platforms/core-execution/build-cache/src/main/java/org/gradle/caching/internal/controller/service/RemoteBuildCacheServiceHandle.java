@@ -23,7 +23,9 @@
 import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.File;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 public interface RemoteBuildCacheServiceHandle extends Closeable {
@@ -41,6 +43,13 @@ public interface RemoteBuildCacheServiceHandle extends Closeable {
      */
     Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, File toFile, Function<File, BuildCacheLoadResult> unpackFunction);
 
+    /**
+     * Checks which of the given cache keys have an entry in the remote cache.
+     *
+     * Returns empty result if canLoad() returns false, if the service does not support batch lookups or if the lookup failed.
+     */
+    Optional<Set<BuildCacheKey>> maybeFindExisting(Collection<BuildCacheKey> keys);
+
     boolean canStore();
 
     /**
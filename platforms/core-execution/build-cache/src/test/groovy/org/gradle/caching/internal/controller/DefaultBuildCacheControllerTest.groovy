@@ -17,12 +17,15 @@
 package org.gradle.caching.internal.controller
 
 import com.google.common.collect.Interner
+import com.google.common.util.concurrent.MoreExecutors
 import org.gradle.caching.BuildCacheEntryReader
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
+import org.gradle.caching.internal.BatchLookupBuildCacheService
 import org.gradle.caching.internal.CacheableEntity
 import org.gradle.caching.internal.TestBuildCacheKey
+import org.gradle.caching.internal.controller.operations.PrefetchBuildOperationType
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration
 import org.gradle.caching.internal.origin.OriginMetadataFactory
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
@@ -39,6 +42,7 @@ import spock.lang.Specification
 
 import java.nio.file.Files
 import java.time.Duration
+import java.util.concurrent.ExecutorService
 import java.util.function.Consumer
 
 class DefaultBuildCacheControllerTest extends Specification {
@@ -72,7 +76,7 @@ class DefaultBuildCacheControllerTest extends Specification {
 
     interface Local extends BuildCacheService, LocalBuildCacheService {}
 
-    BuildCacheController getController(boolean disableRemoteOnError = true) {
+    BuildCacheController getController(boolean disableRemoteOnError = true, ExecutorService prefetchExecutor = null, long prefetchBudgetInBytes = 0) {
         new DefaultBuildCacheController(
             new BuildCacheServicesConfiguration(
                 Path.ROOT.path,
@@ -88,7 +92,9 @@ class DefaultBuildCacheControllerTest extends Specification {
             disableRemoteOnError,
             packer,
             originMetadataFactory,
-            stringInterner
+            stringInterner,
+            prefetchExecutor,
+            prefetchBudgetInBytes
         )
     }
 
@@ -170,6 +176,103 @@ class DefaultBuildCacheControllerTest extends Specification {
         1 * local.storeLocally(key, _)
     }
 
+    def "prefetched entries are loaded from local"() {
+        given:
+        def controller = getController(true, MoreExecutors.newDirectExecutorService(), 1024)
+
+        when:
+        controller.prefetch([key])
+
+        then:
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("foo".bytes))
+            true
+        }
+        1 * local.storeLocally(key, _)
+
+        when:
+        controller.load(key, cacheableEntity)
+        controller.close()
+
+        then:
+        1 * local.loadLocally(key, _) >> { BuildCacheKey key, Consumer<File> action ->
+            def file = tmpDir.file("file")
+            file.text = "foo"
+            action.accept(file)
+        }
+        0 * remote.load(key, _)
+
+        and:
+        with(operations.log.mostRecentResult(PrefetchBuildOperationType)) {
+            requestedCount == 1
+            hitCount == 1
+            wastedCount == 0
+            downloadedBytes == 3
+        }
+    }
+
+    def "stops prefetching when the budget is used up"() {
+        given:
+        def otherKey = new TestBuildCacheKey(0x87654321)
+        def controller = getController(true, MoreExecutors.newDirectExecutorService(), 3)
+
+        when:
+        controller.prefetch([key, otherKey])
+        controller.close()
+
+        then:
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("foo".bytes))
+            true
+        }
+        0 * remote.load(otherKey, _)
+
+        and:
+        with(operations.log.mostRecentResult(PrefetchBuildOperationType)) {
+            requestedCount == 2
+            hitCount == 0
+            wastedCount == 1
+            skippedCount == 1
+            downloadedBytes == 3
+        }
+    }
+
+    def "only downloads the entries that a batch lookup finds"() {
+        given:
+        def otherKey = new TestBuildCacheKey(0x87654321)
+        remote = Mock(BatchLookupBuildCacheService)
+        def controller = getController(true, MoreExecutors.newDirectExecutorService(), 1024)
+
+        when:
+        controller.prefetch([key, otherKey])
+        controller.close()
+
+        then:
+        1 * remote.findExisting([key, otherKey]) >> ([key] as Set)
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("foo".bytes))
+            true
+        }
+        0 * remote.load(otherKey, _)
+
+        and:
+        with(operations.log.mostRecentResult(PrefetchBuildOperationType)) {
+            requestedCount == 2
+            missCount == 1
+            wastedCount == 1
+            failedCount == 0
+        }
+    }
+
+    def "does not prefetch when prefetching is disabled"() {
+        when:
+        controller.prefetch([key])
+
+        then:
+        0 * remote.load(_, _)
+        0 * local.storeLocally(_, _)
+    }
+
     def "remote load does not store to local if local is disabled"() {
         given:
         local = null
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.caching.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.execution.InputFingerprinter;
+import org.gradle.internal.execution.UnitOfWork;
+import org.gradle.internal.execution.history.BeforeExecutionState;
+import org.gradle.internal.execution.history.impl.DefaultBeforeExecutionState;
+import org.gradle.internal.file.TreeType;
+import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
+import org.slf4j.helpers.NOPLogger;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Optional;
+
+/**
+ * Calculates the build cache key of work before the work is executed, the same way the execution engine calculates it when the work runs.
+ *
+ * <p>The result is a prediction. Inputs can still change before the work runs, and caching can still be disabled,
+ * for example because of overlapping outputs or validation problems. Only use the key for optimizations that tolerate a wrong key,
+ * like downloading cache entries ahead of time.</p>
+ */
+public class SpeculativeCacheKeyCalculator {
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+
+    public SpeculativeCacheKeyCalculator(ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+    }
+
+    /**
+     * Returns the cache key the work is expected to have, or {@link Optional#empty()} if the work is already known not to be cacheable.
+     */
+    public Optional<BuildCacheKey> calculateCacheKey(UnitOfWork work, @Nullable File workspace) {
+        if (work.shouldDisableCaching(null).isPresent()) {
+            return Optional.empty();
+        }
+
+        InputFingerprinter inputFingerprinter = work.getInputFingerprinter();
+        InputFingerprinter.Result identityInputs = inputFingerprinter.fingerprintInputProperties(
+            ImmutableSortedMap.of(),
+            ImmutableSortedMap.of(),
+            ImmutableSortedMap.of(),
+            ImmutableSortedMap.of(),
+            work::visitIdentityInputs
+        );
+        InputFingerprinter.Result inputs = inputFingerprinter.fingerprintInputProperties(
+            ImmutableSortedMap.of(),
+            ImmutableSortedMap.of(),
+            identityInputs.getValueSnapshots(),
+            identityInputs.getFileFingerprints(),
+            work::visitRegularInputs
+        );
+
+        ImmutableList.Builder<ImplementationSnapshot> implementations = ImmutableList.builder();
+        work.visitImplementations(new UnitOfWork.ImplementationVisitor() {
+            @Override
+            public void visitImplementation(Class<?> implementation) {
+                visitImplementation(ImplementationSnapshot.of(implementation, classLoaderHierarchyHasher));
+            }
+
+            @Override
+            public void visitImplementation(ImplementationSnapshot implementation) {
+                implementations.add(implementation);
+            }
+        });
+        ImmutableList<ImplementationSnapshot> allImplementations = implementations.build();
+        if (allImplementations.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Only the names of the outputs are part of the cache key
+        ImmutableSortedMap.Builder<String, FileSystemSnapshot> outputs = ImmutableSortedMap.naturalOrder();
+        work.visitOutputs(workspace, new UnitOfWork.OutputVisitor() {
+            @Override
+            public void visitOutputProperty(String propertyName, TreeType type, UnitOfWork.OutputFileValueSupplier value) {
+                outputs.put(propertyName, FileSystemSnapshot.EMPTY);
+            }
+        });
+
+        BeforeExecutionState beforeExecutionState = new DefaultBeforeExecutionState(
+            allImplementations.get(0),
+            allImplementations.subList(1, allImplementations.size()),
+            inputs.getAllValueSnapshots(),
+            inputs.getAllFileFingerprints(),
+            outputs.build(),
+            null
+        );
+        return Optional.of(new DefaultBuildCacheKey(new DefaultCachingStateFactory(NOPLogger.NOP_LOGGER).calculateCacheKey(beforeExecutionState)));
+    }
+}
@@ -18,6 +18,7 @@
 
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Interner;
+import com.google.common.util.concurrent.Striped;
 import org.gradle.cache.CacheDecorator;
 import org.gradle.cache.IndexedCache;
 import org.gradle.cache.IndexedCacheParameters;
@@ -29,9 +30,18 @@
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
 import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.BaseSerializerFactory;
 import org.gradle.internal.serialize.HashCodeSerializer;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Supplier;
 
 import static com.google.common.collect.ImmutableSortedMap.copyOfSorted;
@@ -39,7 +49,16 @@
 
 public class DefaultExecutionHistoryStore implements ExecutionHistoryStore {
 
+    /**
+     * Input file fingerprints with fewer entries than this are stored inline with the execution history entry.
+     */
+    private static final int MIN_SHARED_FINGERPRINT_SIZE = 4;
+
     private final IndexedCache<String, PreviousExecutionState> store;
+    private final IndexedCache<HashCode, FileCollectionFingerprint> sharedFingerprints;
+    private final IndexedCache<HashCode, Integer> sharedFingerprintReferences;
+    private final Striped<Lock> entryLocks = Striped.lock(Runtime.getRuntime().availableProcessors() * 4);
+    private final Striped<Lock> sharedFingerprintLocks = Striped.lock(Runtime.getRuntime().availableProcessors() * 4);
 
     public DefaultExecutionHistoryStore(
         Supplier<PersistentCache> cache,
@@ -47,15 +66,26 @@ public DefaultExecutionHistoryStore(
         Interner<String> stringInterner,
         ClassLoaderHierarchyHasher classLoaderHasher
     ) {
+        PersistentCache persistentCache = cache.get();
+        FileCollectionFingerprintSerializer fingerprintSerializer = new FileCollectionFingerprintSerializer(stringInterner);
+        this.sharedFingerprints = persistentCache.createIndexedCache(
+            IndexedCacheParameters.of("executionHistoryFingerprints", HashCode.class, fingerprintSerializer)
+            .withCacheDecorator(inMemoryCacheDecoratorFactory.decorator(2000, false))
+        );
+        this.sharedFingerprintReferences = persistentCache.createIndexedCache(
+            IndexedCacheParameters.of("executionHistoryFingerprintReferences", HashCode.class, BaseSerializerFactory.INTEGER_SERIALIZER)
+            .withCacheDecorator(inMemoryCacheDecoratorFactory.decorator(2000, false))
+        );
+
         DefaultPreviousExecutionStateSerializer serializer = new DefaultPreviousExecutionStateSerializer(
-            new FileCollectionFingerprintSerializer(stringInterner),
+            new FileCollectionFingerprintReferenceSerializer(fingerprintSerializer, this::loadSharedFingerprint),
             new FileSystemSnapshotSerializer(stringInterner),
             classLoaderHasher,
             new HashCodeSerializer()
         );
 
         CacheDecorator inMemoryCacheDecorator = inMemoryCacheDecoratorFactory.decorator(10000, false);
-        this.store = cache.get().createIndexedCache(
+        this.store = persistentCache.createIndexedCache(
             IndexedCacheParameters.of("executionHistory", String.class, serializer)
             .withCacheDecorator(inMemoryCacheDecorator)
         );
@@ -63,12 +93,29 @@ public DefaultExecutionHistoryStore(
 
     @Override
     public Optional<PreviousExecutionState> load(String key) {
-        return Optional.ofNullable(store.getIfPresent(key));
+        PreviousExecutionState state = store.getIfPresent(key);
+        if (state == null || !hasAllSharedFingerprints(state)) {
+            return Optional.empty();
+        }
+        return Optional.of(state);
+    }
+
+    /**
+     * A shared fingerprint can be lost, for example when the process stopped while it was being written.
+     * The history entry then cannot tell what the inputs were, so the work is treated as if it had no history.
+     */
+    private static boolean hasAllSharedFingerprints(PreviousExecutionState state) {
+        for (SharedFileCollectionFingerprint fingerprint : sharedFingerprintsOf(state)) {
+            if (fingerprint.getDelegate() == null) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public void store(String key, AfterExecutionState executionState) {
-        store.put(key, new DefaultPreviousExecutionState(
+        replace(key, new DefaultPreviousExecutionState(
             executionState.getOriginMetadata(),
             executionState.getCacheKey(),
             executionState.getImplementation(),
@@ -82,13 +129,115 @@ public void store(String key, AfterExecutionState executionState) {
 
     @Override
     public void remove(String key) {
-        store.remove(key);
+        replace(key, null);
+    }
+
+    /**
+     * Replaces the history entry for the given key, keeping track of how many entries refer to each shared fingerprint.
+     * Shared fingerprints are added when the first entry refers to them and removed when the last entry referring to them goes away.
+     *
+     * <p>Entries with different keys are replaced concurrently. Only the reference count of a shared fingerprint is updated under a lock for that fingerprint.</p>
+     */
+    private void replace(String key, @Nullable PreviousExecutionState newState) {
+        Lock entryLock = entryLocks.get(key);
+        entryLock.lock();
+        try {
+            PreviousExecutionState oldState = store.getIfPresent(key);
+            for (SharedFileCollectionFingerprint fingerprint : sharedFingerprintsOf(newState)) {
+                addReference(fingerprint);
+            }
+            if (newState == null) {
+                store.remove(key);
+            } else {
+                store.put(key, newState);
+            }
+            for (SharedFileCollectionFingerprint fingerprint : sharedFingerprintsOf(oldState)) {
+                removeReference(fingerprint.getContentHash());
+            }
+        } finally {
+            entryLock.unlock();
+        }
+    }
+
+    private void addReference(SharedFileCollectionFingerprint fingerprint) {
+        HashCode contentHash = fingerprint.getContentHash();
+        Lock fingerprintLock = sharedFingerprintLocks.get(contentHash);
+        fingerprintLock.lock();
+        try {
+            Integer references = sharedFingerprintReferences.getIfPresent(contentHash);
+            if (references == null) {
+                sharedFingerprints.put(contentHash, fingerprint.getDelegate());
+                references = 0;
+            }
+            sharedFingerprintReferences.put(contentHash, references + 1);
+        } finally {
+            fingerprintLock.unlock();
+        }
     }
 
-    private static ImmutableSortedMap<String, FileCollectionFingerprint> prepareForSerialization(ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprints) {
+    private void removeReference(HashCode contentHash) {
+        Lock fingerprintLock = sharedFingerprintLocks.get(contentHash);
+        fingerprintLock.lock();
+        try {
+            Integer references = sharedFingerprintReferences.getIfPresent(contentHash);
+            if (references == null || references <= 1) {
+                sharedFingerprintReferences.remove(contentHash);
+                sharedFingerprints.remove(contentHash);
+            } else {
+                sharedFingerprintReferences.put(contentHash, references - 1);
+            }
+        } finally {
+            fingerprintLock.unlock();
+        }
+    }
+
+    private static List<SharedFileCollectionFingerprint> sharedFingerprintsOf(@Nullable PreviousExecutionState state) {
+        List<SharedFileCollectionFingerprint> result = new ArrayList<>();
+        if (state != null) {
+            for (FileCollectionFingerprint fingerprint : state.getInputFileProperties().values()) {
+                if (fingerprint instanceof SharedFileCollectionFingerprint) {
+                    result.add((SharedFileCollectionFingerprint) fingerprint);
+                }
+            }
+        }
+        return result;
+    }
+
+    private ImmutableSortedMap<String, FileCollectionFingerprint> prepareForSerialization(ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprints) {
         return copyOfSorted(transformValues(
             fingerprints,
-            value -> value.archive(SerializableFileCollectionFingerprint::new)
+            DefaultExecutionHistoryStore::share
         ));
     }
+
+    /**
+     * Larger fingerprints are stored once in the shared fingerprint store, keyed by a hash of their contents.
+     */
+    private static FileCollectionFingerprint share(CurrentFileCollectionFingerprint fingerprint) {
+        FileCollectionFingerprint archived = fingerprint.archive(SerializableFileCollectionFingerprint::new);
+        if (!(archived instanceof SerializableFileCollectionFingerprint) || archived.getFingerprints().size() < MIN_SHARED_FINGERPRINT_SIZE) {
+            return archived;
+        }
+        return new SharedFileCollectionFingerprint(contentHashOf(fingerprint.getHash(), (SerializableFileCollectionFingerprint) archived), archived);
+    }
+
+    /**
+     * The fingerprint's own hash only covers the normalized paths and contents of the files,
+     * so the strategy and the absolute locations of the roots are added to it.
+     */
+    private static HashCode contentHashOf(HashCode fingerprintHash, SerializableFileCollectionFingerprint fingerprint) {
+        Hasher hasher = Hashing.newHasher();
+        hasher.putHash(fingerprintHash);
+        hasher.putHash(fingerprint.getStrategyConfigurationHash());
+        for (Map.Entry<String, HashCode> rootHash : fingerprint.getRootHashes().entries()) {
+            hasher.putString(rootHash.getKey());
+            hasher.putHash(rootHash.getValue());
+        }
+        return hasher.hash();
+    }
+
+    @Nullable
+    private FileCollectionFingerprint loadSharedFingerprint(HashCode contentHash) {
+        return sharedFingerprints.getIfPresent(contentHash);
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.serialize.Serializer;
+
+import java.util.function.Function;
+
+/**
+ * Serializes {@link SharedFileCollectionFingerprint}s as a reference to the shared fingerprint store,
+ * and any other fingerprint inline.
+ */
+public class FileCollectionFingerprintReferenceSerializer implements Serializer<FileCollectionFingerprint> {
+    private static final byte INLINE = 1;
+    private static final byte REFERENCE = 2;
+
+    private final Serializer<FileCollectionFingerprint> inlineSerializer;
+    private final Function<HashCode, FileCollectionFingerprint> sharedFingerprintLoader;
+    private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
+
+    public FileCollectionFingerprintReferenceSerializer(
+        Serializer<FileCollectionFingerprint> inlineSerializer,
+        Function<HashCode, FileCollectionFingerprint> sharedFingerprintLoader
+    ) {
+        this.inlineSerializer = inlineSerializer;
+        this.sharedFingerprintLoader = sharedFingerprintLoader;
+    }
+
+    @Override
+    public FileCollectionFingerprint read(Decoder decoder) throws Exception {
+        byte kind = decoder.readByte();
+        switch (kind) {
+            case INLINE:
+                return inlineSerializer.read(decoder);
+            case REFERENCE:
+                return new SharedFileCollectionFingerprint(hashCodeSerializer.read(decoder), sharedFingerprintLoader);
+            default:
+                throw new RuntimeException("Unable to read serialized file collection fingerprint. Unrecognized value found in the data stream.");
+        }
+    }
+
+    @Override
+    public void write(Encoder encoder, FileCollectionFingerprint value) throws Exception {
+        if (value instanceof SharedFileCollectionFingerprint) {
+            encoder.writeByte(REFERENCE);
+            hashCodeSerializer.write(encoder, ((SharedFileCollectionFingerprint) value).getContentHash());
+        } else {
+            encoder.writeByte(INLINE);
+            inlineSerializer.write(encoder, value);
+        }
+    }
+}
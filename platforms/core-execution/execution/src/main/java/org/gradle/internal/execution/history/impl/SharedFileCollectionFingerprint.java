@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.collect.ImmutableMultimap;
+import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.fingerprint.FingerprintingStrategy;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A file collection fingerprint that is stored once in the shared fingerprint store
+ * and referenced by its content hash from execution history entries.
+ *
+ * <p>When read back from the history, the fingerprint is only loaded from the shared store when it is first accessed.</p>
+ */
+public class SharedFileCollectionFingerprint implements FileCollectionFingerprint {
+    private final HashCode contentHash;
+    private final Function<HashCode, FileCollectionFingerprint> loader;
+    @Nullable
+    private volatile FileCollectionFingerprint delegate;
+
+    public SharedFileCollectionFingerprint(HashCode contentHash, FileCollectionFingerprint delegate) {
+        this.contentHash = contentHash;
+        this.loader = hash -> delegate;
+        this.delegate = delegate;
+    }
+
+    public SharedFileCollectionFingerprint(HashCode contentHash, Function<HashCode, FileCollectionFingerprint> loader) {
+        this.contentHash = contentHash;
+        this.loader = loader;
+    }
+
+    public HashCode getContentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public Map<String, FileSystemLocationFingerprint> getFingerprints() {
+        return loadedDelegate().getFingerprints();
+    }
+
+    @Override
+    public ImmutableMultimap<String, HashCode> getRootHashes() {
+        return loadedDelegate().getRootHashes();
+    }
+
+    @Override
+    public boolean wasCreatedWithStrategy(FingerprintingStrategy strategy) {
+        return loadedDelegate().wasCreatedWithStrategy(strategy);
+    }
+
+    /**
+     * Returns the fingerprint, or {@code null} if it is missing from the shared fingerprint store.
+     */
+    @Nullable
+    public FileCollectionFingerprint getDelegate() {
+        FileCollectionFingerprint result = delegate;
+        if (result == null) {
+            result = loader.apply(contentHash);
+            delegate = result;
+        }
+        return result;
+    }
+
+    private FileCollectionFingerprint loadedDelegate() {
+        FileCollectionFingerprint result = getDelegate();
+        if (result == null) {
+            throw new IllegalStateException("The " + this + " is missing from the shared fingerprint store.");
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "shared fingerprint " + contentHash;
+    }
+}
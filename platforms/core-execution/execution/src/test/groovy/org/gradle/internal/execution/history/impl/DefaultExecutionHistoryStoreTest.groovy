@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl
+
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSortedMap
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.cache.PersistentCache
+import org.gradle.cache.internal.InMemoryCacheDecoratorFactory
+import org.gradle.caching.internal.origin.OriginMetadata
+import org.gradle.internal.execution.history.AfterExecutionState
+import org.gradle.internal.file.FileMetadata.AccessType
+import org.gradle.internal.file.impl.DefaultFileMetadata
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint
+import org.gradle.internal.fingerprint.impl.AbsolutePathFingerprintingStrategy
+import org.gradle.internal.fingerprint.impl.DefaultCurrentFileCollectionFingerprint
+import org.gradle.internal.hash.ClassLoaderHierarchyHasher
+import org.gradle.internal.hash.TestHashCodes
+import org.gradle.internal.snapshot.CompositeFileSystemSnapshot
+import org.gradle.internal.snapshot.RegularFileSnapshot
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot
+import org.gradle.testfixtures.internal.TestInMemoryIndexedCache
+import spock.lang.Specification
+
+import java.time.Duration
+
+class DefaultExecutionHistoryStoreTest extends Specification {
+    def caches = [:]
+    def persistentCache = Stub(PersistentCache) {
+        createIndexedCache(_) >> { args ->
+            def cache = new TestInMemoryIndexedCache(args[0].valueSerializer)
+            caches[args[0].cacheName] = cache
+            return cache
+        }
+    }
+    def store = new DefaultExecutionHistoryStore({ persistentCache }, Stub(InMemoryCacheDecoratorFactory), new StringInterner(), Stub(ClassLoaderHierarchyHasher))
+
+    def "stores shared fingerprints once and removes them with the last entry referring to them"() {
+        def classpath = fingerprint(1, 2, 3, 4)
+
+        when:
+        store.store("a", executionState(classpath))
+        store.store("b", executionState(classpath))
+
+        then:
+        sharedFingerprints.keySet().size() == 1
+        references.getIfPresent(sharedHash) == 2
+        store.load("a").get().inputFileProperties["classpath"].fingerprints.keySet() == classpath.fingerprints.keySet()
+
+        when:
+        store.remove("a")
+
+        then:
+        sharedFingerprints.keySet().size() == 1
+        references.getIfPresent(sharedHash) == 1
+
+        when:
+        def previousHash = sharedHash
+        store.store("b", executionState(fingerprint(5, 6, 7, 8)))
+
+        then:
+        sharedFingerprints.keySet().size() == 1
+        sharedHash != previousHash
+        references.getIfPresent(previousHash) == null
+    }
+
+    def "stores small fingerprints inline"() {
+        when:
+        store.store("a", executionState(fingerprint(1, 2)))
+
+        then:
+        sharedFingerprints.keySet().empty
+        references.keySet().empty
+    }
+
+    def "shares fingerprints only when they cover the same locations"() {
+        when:
+        store.store("a", executionState(fingerprint(1, 2, 3, 4)))
+        store.store("b", executionState(fingerprint("/other", 1, 2, 3, 4)))
+
+        then:
+        sharedFingerprints.keySet().size() == 2
+    }
+
+    def "has no history when a shared fingerprint is missing"() {
+        store.store("a", executionState(fingerprint(1, 2, 3, 4)))
+
+        when:
+        sharedFingerprints.remove(sharedHash)
+
+        then:
+        !store.load("a").present
+    }
+
+    private TestInMemoryIndexedCache getSharedFingerprints() {
+        caches["executionHistoryFingerprints"]
+    }
+
+    private TestInMemoryIndexedCache getReferences() {
+        caches["executionHistoryFingerprintReferences"]
+    }
+
+    private getSharedHash() {
+        sharedFingerprints.keySet().first()
+    }
+
+    private static CurrentFileCollectionFingerprint fingerprint(String dir = "/dir", int... contents) {
+        def snapshots = contents.collect {
+            new RegularFileSnapshot("$dir/file$it", "file$it", TestHashCodes.hashCodeFrom(it), DefaultFileMetadata.file(4, 5, AccessType.DIRECT))
+        }
+        DefaultCurrentFileCollectionFingerprint.from(CompositeFileSystemSnapshot.of(snapshots), AbsolutePathFingerprintingStrategy.DEFAULT, null)
+    }
+
+    private AfterExecutionState executionState(CurrentFileCollectionFingerprint classpath) {
+        Stub(AfterExecutionState) {
+            originMetadata >> new OriginMetadata("build", TestHashCodes.hashCodeFrom(1), Duration.ofSeconds(1))
+            cacheKey >> TestHashCodes.hashCodeFrom(2)
+            implementation >> ImplementationSnapshot.of("MyWorkClass", TestHashCodes.hashCodeFrom(3))
+            additionalImplementations >> ImmutableList.of()
+            inputProperties >> ImmutableSortedMap.of()
+            inputFileProperties >> ImmutableSortedMap.of("classpath", classpath)
+            outputFilesProducedByWork >> ImmutableSortedMap.of()
+            successful >> true
+        }
+    }
+}
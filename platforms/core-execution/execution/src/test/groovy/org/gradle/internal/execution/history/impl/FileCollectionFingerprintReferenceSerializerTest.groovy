@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl
+
+import com.google.common.collect.ImmutableMultimap
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.internal.file.FileType
+import org.gradle.internal.fingerprint.FileCollectionFingerprint
+import org.gradle.internal.fingerprint.impl.DefaultFileSystemLocationFingerprint
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.TestHashCodes
+import org.gradle.internal.serialize.SerializerSpec
+
+import java.util.function.Function
+
+class FileCollectionFingerprintReferenceSerializerTest extends SerializerSpec {
+
+    def loader = Mock(Function)
+    def serializer = new FileCollectionFingerprintReferenceSerializer(new FileCollectionFingerprintSerializer(new StringInterner()), loader)
+    def fingerprint = new SerializableFileCollectionFingerprint(
+        '/1': new DefaultFileSystemLocationFingerprint("1", FileType.RegularFile, TestHashCodes.hashCodeFrom(1234)),
+        ImmutableMultimap.of("/1", TestHashCodes.hashCodeFrom(1234)),
+        TestHashCodes.hashCodeFrom(5678)
+    )
+
+    def "writes other fingerprints inline"() {
+        when:
+        def out = serialize(fingerprint, serializer)
+
+        then:
+        out instanceof SerializableFileCollectionFingerprint
+        out.fingerprints.keySet() == ['/1'] as Set
+        0 * loader._
+    }
+
+    def "writes shared fingerprints as a reference and loads them lazily"() {
+        def contentHash = TestHashCodes.hashCodeFrom(4321)
+
+        when:
+        def out = serialize(new SharedFileCollectionFingerprint(contentHash, fingerprint as FileCollectionFingerprint), serializer)
+
+        then:
+        out instanceof SharedFileCollectionFingerprint
+        out.contentHash == contentHash
+        0 * loader._
+
+        when:
+        def fingerprints = out.fingerprints
+        def rootHashes = out.rootHashes
+
+        then:
+        1 * loader.apply(contentHash) >> fingerprint
+        0 * loader._
+        fingerprints.keySet() == ['/1'] as Set
+        rootHashes == fingerprint.rootHashes
+    }
+
+    def "reference is much smaller than the fingerprint"() {
+        def contentHash = HashCode.fromBytes(new byte[16])
+        def large = new SerializableFileCollectionFingerprint(
+            (1..100).collectEntries { ["/jar$it".toString(), new DefaultFileSystemLocationFingerprint("jar$it", FileType.RegularFile, TestHashCodes.hashCodeFrom(it))] },
+            ImmutableMultimap.of(),
+            TestHashCodes.hashCodeFrom(5678)
+        )
+
+        expect:
+        toBytes(new SharedFileCollectionFingerprint(contentHash, large as FileCollectionFingerprint), serializer).length < 32
+        toBytes(large, serializer).length > 1000
+    }
+}
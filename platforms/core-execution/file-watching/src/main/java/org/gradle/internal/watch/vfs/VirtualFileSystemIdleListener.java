@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs;
+
+import org.gradle.internal.service.scopes.EventScope;
+import org.gradle.internal.service.scopes.Scope;
+
+/**
+ * Notified while the watched virtual file system is retained between builds.
+ */
+@EventScope(Scope.UserHome.class)
+public interface VirtualFileSystemIdleListener {
+    /**
+     * Called after the virtual file system has been cleaned up after a build.
+     */
+    void idleStarted();
+
+    /**
+     * Called when a change on the file system removed content from the virtual file system while no build was running.
+     *
+     * The location is the changed location, not the possibly larger snapshot that has been removed because of the change.
+     */
+    void locationInvalidatedWhileIdle(String absolutePath);
+
+    /**
+     * Called when the next build starts using the virtual file system.
+     */
+    void idleFinished();
+}
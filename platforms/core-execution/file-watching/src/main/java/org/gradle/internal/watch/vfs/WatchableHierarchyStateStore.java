@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs;
+
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the content of the virtual file system for watchable hierarchies across daemons.
+ */
+public interface WatchableHierarchyStateStore {
+    WatchableHierarchyStateStore NONE = new WatchableHierarchyStateStore() {
+        @Override
+        public Optional<StoredState> load(File watchableHierarchy) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void store(File watchableHierarchy, Collection<FileSystemLocationSnapshot> rootSnapshots, Map<DirectorySnapshot, Long> directoryTimestamps) {
+        }
+    };
+
+    /**
+     * Loads the snapshots last stored for the watchable hierarchy, if there are any.
+     */
+    Optional<StoredState> load(File watchableHierarchy);
+
+    /**
+     * Replaces the stored snapshots for the watchable hierarchy. The snapshots may be written after this method returns.
+     *
+     * @param directoryTimestamps the modification times of the snapshotted directories at the time they were snapshotted.
+     * Directories without a modification time are considered changed when the snapshots are loaded again.
+     */
+    void store(File watchableHierarchy, Collection<FileSystemLocationSnapshot> rootSnapshots, Map<DirectorySnapshot, Long> directoryTimestamps);
+
+    interface StoredState {
+        List<FileSystemLocationSnapshot> getRootSnapshots();
+
+        /**
+         * Checks the stored snapshots against the file system and returns the locations which changed since they have been stored.
+         *
+         * This should be called after the snapshots have been added to the watched virtual file system,
+         * so changes happening while checking are not lost.
+         */
+        List<String> findChangedLocations();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl;
+
+import org.gradle.internal.vfs.FileSystemAccess;
+import org.gradle.internal.watch.vfs.VirtualFileSystemIdleListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshots the locations invalidated between builds in the background, so the next build finds them in the virtual file system.
+ *
+ * Only the changed locations are snapshotted again, not the whole directories that contained them,
+ * so warming stays cheap when single files in large directories change.
+ *
+ * Warming starts once the file system has been quiet for a short while, runs on the given executor,
+ * and stops after the current location as soon as the next build starts.
+ * The executor should run its tasks at a low priority, so warming does not compete with the work the user is doing between builds.
+ */
+public class BackgroundVirtualFileSystemWarmer implements VirtualFileSystemIdleListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundVirtualFileSystemWarmer.class);
+    private static final long QUIET_PERIOD_MILLIS = 500;
+
+    private final FileSystemAccess fileSystemAccess;
+    private final ScheduledExecutorService executor;
+
+    // Mutable state, guarded by this
+    private final Set<String> pendingLocations = new LinkedHashSet<>();
+    private boolean idle;
+    private ScheduledFuture<?> scheduledWarming;
+    private int warmedLocations;
+    private int failedLocations;
+
+    public BackgroundVirtualFileSystemWarmer(FileSystemAccess fileSystemAccess, ScheduledExecutorService executor) {
+        this.fileSystemAccess = fileSystemAccess;
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized void idleStarted() {
+        idle = true;
+        pendingLocations.clear();
+        warmedLocations = 0;
+        failedLocations = 0;
+    }
+
+    @Override
+    public synchronized void locationInvalidatedWhileIdle(String absolutePath) {
+        if (!idle) {
+            return;
+        }
+        pendingLocations.add(absolutePath);
+        if (scheduledWarming != null) {
+            // Restart the quiet period, changes usually come in bursts
+            scheduledWarming.cancel(false);
+        }
+        scheduledWarming = executor.schedule(this::warmPendingLocations, QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void idleFinished() {
+        int warmed;
+        int failed;
+        int remaining;
+        synchronized (this) {
+            if (!idle) {
+                return;
+            }
+            idle = false;
+            if (scheduledWarming != null) {
+                scheduledWarming.cancel(false);
+                scheduledWarming = null;
+            }
+            warmed = warmedLocations;
+            failed = failedLocations;
+            remaining = pendingLocations.size();
+            pendingLocations.clear();
+        }
+        if (warmed + failed + remaining > 0) {
+            LOGGER.info("Snapshotted {} locations changed since the last build in the background, {} could not be snapshotted and {} were left to the build",
+                warmed, failed, remaining);
+        }
+    }
+
+    private void warmPendingLocations() {
+        String location;
+        while ((location = nextPendingLocation()) != null) {
+            try {
+                fileSystemAccess.read(location);
+                locationWarmed(true);
+            } catch (Exception e) {
+                // The build will snapshot the location again and report the problem if there still is one
+                LOGGER.debug("Unable to snapshot {} in the background", location, e);
+                locationWarmed(false);
+            }
+        }
+    }
+
+    @Nullable
+    private synchronized String nextPendingLocation() {
+        if (!idle) {
+            return null;
+        }
+        Iterator<String> iterator = pendingLocations.iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        String location = iterator.next();
+        iterator.remove();
+        return location;
+    }
+
+    private synchronized void locationWarmed(boolean successful) {
+        if (successful) {
+            warmedLocations++;
+        } else {
+            failedLocations++;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.FileMetadataAccessor;
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MissingFileSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.watch.vfs.WatchableHierarchyStateStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stores the snapshots of each watchable hierarchy in a binary file in the given directory.
+ *
+ * Only the names of files are stored, their absolute paths are derived from the path of the parent directory.
+ * Since directory snapshots don't carry a timestamp, the modification time each directory had when it was snapshotted is stored alongside it,
+ * so added or removed children can be detected without listing the directory again.
+ *
+ * The state files are written on the given executor, so storing the state does not hold up the end of the build.
+ *
+ * State files which have been neither loaded nor stored for {@value #MAX_UNUSED_DAYS} days are deleted
+ * the first time a daemon stores the state of a hierarchy.
+ */
+public class PersistentWatchableHierarchyStateStore implements WatchableHierarchyStateStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentWatchableHierarchyStateStore.class);
+
+    private static final int FORMAT_VERSION = 2;
+    private static final byte DIRECTORY = 1;
+    private static final byte REGULAR_FILE = 2;
+    private static final byte MISSING = 3;
+
+    /**
+     * Directories modified this close to storing the state may have changed again without an observable change in their timestamp.
+     */
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
+    private static final int MAX_UNUSED_DAYS = 7;
+
+    /**
+     * Recorded for directories whose modification time at the time they were snapshotted is not known, so that they are always considered changed.
+     */
+    private static final long UNKNOWN_TIMESTAMP = -1;
+
+    private final File stateDir;
+    private final FileMetadataAccessor metadataAccessor;
+    private final Executor writeExecutor;
+    private final AtomicBoolean cleanedUp = new AtomicBoolean();
+
+    public PersistentWatchableHierarchyStateStore(File stateDir, FileMetadataAccessor metadataAccessor) {
+        this(stateDir, metadataAccessor, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * @param writeExecutor writes the state files, in the order they have been stored
+     */
+    public PersistentWatchableHierarchyStateStore(File stateDir, FileMetadataAccessor metadataAccessor, Executor writeExecutor) {
+        this.stateDir = stateDir;
+        this.metadataAccessor = metadataAccessor;
+        this.writeExecutor = writeExecutor;
+    }
+
+    @Override
+    public Optional<StoredState> load(File watchableHierarchy) {
+        File stateFile = stateFileFor(watchableHierarchy);
+        if (!stateFile.isFile()) {
+            return Optional.empty();
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile.toPath())))) {
+            if (input.readInt() != FORMAT_VERSION || !input.readUTF().equals(watchableHierarchy.getAbsolutePath())) {
+                return Optional.empty();
+            }
+            long storedAt = input.readLong();
+            Map<String, Long> directoryTimestamps = new HashMap<>();
+            int rootCount = input.readInt();
+            ImmutableList.Builder<FileSystemLocationSnapshot> rootSnapshots = ImmutableList.builderWithExpectedSize(rootCount);
+            for (int i = 0; i < rootCount; i++) {
+                String absolutePath = input.readUTF();
+                rootSnapshots.add(readSnapshot(input, absolutePath, input.readUTF(), directoryTimestamps));
+            }
+            markUsed(stateFile);
+            return Optional.of(new DefaultStoredState(rootSnapshots.build(), directoryTimestamps, storedAt));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Unable to load the file system state for {}, ignoring it", watchableHierarchy, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void store(File watchableHierarchy, Collection<FileSystemLocationSnapshot> rootSnapshots, Map<DirectorySnapshot, Long> directoryTimestamps) {
+        // The snapshots are still valid now, since the watchers didn't report any change for them
+        long storedAt = System.currentTimeMillis();
+        try {
+            writeExecutor.execute(() -> write(watchableHierarchy, rootSnapshots, directoryTimestamps, storedAt));
+        } catch (RuntimeException e) {
+            LOGGER.info("Unable to store the file system state for {}", watchableHierarchy, e);
+        }
+    }
+
+    private void write(File watchableHierarchy, Collection<FileSystemLocationSnapshot> rootSnapshots, Map<DirectorySnapshot, Long> directoryTimestamps, long storedAt) {
+        File stateFile = stateFileFor(watchableHierarchy);
+        File tempFile = new File(stateFile.getParentFile(), stateFile.getName() + ".tmp");
+        if (cleanedUp.compareAndSet(false, true)) {
+            deleteUnusedStateFiles();
+        }
+        try {
+            Files.createDirectories(stateDir.toPath());
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
+                output.writeInt(FORMAT_VERSION);
+                output.writeUTF(watchableHierarchy.getAbsolutePath());
+                output.writeLong(storedAt);
+                output.writeInt(rootSnapshots.size());
+                for (FileSystemLocationSnapshot rootSnapshot : rootSnapshots) {
+                    output.writeUTF(rootSnapshot.getAbsolutePath());
+                    output.writeUTF(rootSnapshot.getName());
+                    writeSnapshot(output, rootSnapshot, directoryTimestamps);
+                }
+            }
+            Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("Unable to store the file system state for {}", watchableHierarchy, e);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * The modification time of a state file records when it has been used last.
+     */
+    private static void markUsed(File stateFile) {
+        if (!stateFile.setLastModified(System.currentTimeMillis())) {
+            LOGGER.debug("Unable to update the modification time of {}", stateFile);
+        }
+    }
+
+    private void deleteUnusedStateFiles() {
+        File[] stateFiles = stateDir.listFiles();
+        if (stateFiles == null) {
+            return;
+        }
+        long minimumTimestamp = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_UNUSED_DAYS);
+        for (File stateFile : stateFiles) {
+            // Also remove temporary files left behind by daemons which stopped while storing
+            if (stateFile.isFile() && stateFile.lastModified() < minimumTimestamp && !stateFile.delete()) {
+                LOGGER.debug("Unable to delete unused file system state {}", stateFile);
+            }
+        }
+    }
+
+    private File stateFileFor(File watchableHierarchy) {
+        return new File(stateDir, Hashing.hashString(watchableHierarchy.getAbsolutePath()).toCompactString() + ".bin");
+    }
+
+    private static void writeSnapshot(DataOutputStream output, FileSystemLocationSnapshot snapshot, Map<DirectorySnapshot, Long> directoryTimestamps) throws IOException {
+        switch (snapshot.getType()) {
+            case Directory:
+                DirectorySnapshot directorySnapshot = (DirectorySnapshot) snapshot;
+                output.writeByte(DIRECTORY);
+                output.writeBoolean(snapshot.getAccessType() == AccessType.VIA_SYMLINK);
+                writeHash(output, snapshot.getHash());
+                output.writeLong(directoryTimestamps.getOrDefault(directorySnapshot, UNKNOWN_TIMESTAMP));
+                List<FileSystemLocationSnapshot> children = directorySnapshot.getChildren();
+                output.writeInt(children.size());
+                for (FileSystemLocationSnapshot child : children) {
+                    output.writeUTF(child.getName());
+                    writeSnapshot(output, child, directoryTimestamps);
+                }
+                break;
+            case RegularFile:
+                FileMetadata metadata = ((RegularFileSnapshot) snapshot).getMetadata();
+                output.writeByte(REGULAR_FILE);
+                output.writeBoolean(snapshot.getAccessType() == AccessType.VIA_SYMLINK);
+                writeHash(output, snapshot.getHash());
+                output.writeLong(metadata.getLastModified());
+                output.writeLong(metadata.getLength());
+                break;
+            case Missing:
+                output.writeByte(MISSING);
+                output.writeBoolean(snapshot.getAccessType() == AccessType.VIA_SYMLINK);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown file type: " + snapshot.getType());
+        }
+    }
+
+    private static FileSystemLocationSnapshot readSnapshot(DataInputStream input, String absolutePath, String name, Map<String, Long> directoryTimestamps) throws IOException {
+        byte kind = input.readByte();
+        AccessType accessType = AccessType.viaSymlink(input.readBoolean());
+        switch (kind) {
+            case DIRECTORY:
+                HashCode contentHash = readHash(input);
+                directoryTimestamps.put(absolutePath, input.readLong());
+                int childCount = input.readInt();
+                List<FileSystemLocationSnapshot> children = new ArrayList<>(childCount);
+                for (int i = 0; i < childCount; i++) {
+                    String childName = input.readUTF();
+                    children.add(readSnapshot(input, childPath(absolutePath, childName), childName, directoryTimestamps));
+                }
+                return new DirectorySnapshot(absolutePath, name, accessType, contentHash, children);
+            case REGULAR_FILE:
+                HashCode fileHash = readHash(input);
+                long lastModified = input.readLong();
+                long length = input.readLong();
+                return new RegularFileSnapshot(absolutePath, name, fileHash, DefaultFileMetadata.file(lastModified, length, accessType));
+            case MISSING:
+                return new MissingFileSnapshot(absolutePath, name, accessType);
+            default:
+                throw new IOException("Unknown snapshot kind: " + kind);
+        }
+    }
+
+    private static String childPath(String parentPath, String childName) {
+        return parentPath.endsWith(File.separator)
+            ? parentPath + childName
+            : parentPath + File.separatorChar + childName;
+    }
+
+    private static void writeHash(DataOutputStream output, HashCode hash) throws IOException {
+        byte[] bytes = hash.toByteArray();
+        output.writeByte(bytes.length);
+        output.write(bytes);
+    }
+
+    private static HashCode readHash(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readUnsignedByte()];
+        input.readFully(bytes);
+        return HashCode.fromBytes(bytes);
+    }
+
+    private class DefaultStoredState implements StoredState {
+        private final List<FileSystemLocationSnapshot> rootSnapshots;
+        private final Map<String, Long> directoryTimestamps;
+        private final long storedAt;
+
+        public DefaultStoredState(List<FileSystemLocationSnapshot> rootSnapshots, Map<String, Long> directoryTimestamps, long storedAt) {
+            this.rootSnapshots = rootSnapshots;
+            this.directoryTimestamps = directoryTimestamps;
+            this.storedAt = storedAt;
+        }
+
+        @Override
+        public List<FileSystemLocationSnapshot> getRootSnapshots() {
+            return rootSnapshots;
+        }
+
+        @Override
+        public List<String> findChangedLocations() {
+            List<String> changedLocations = new ArrayList<>();
+            rootSnapshots.forEach(rootSnapshot -> collectChangedLocations(rootSnapshot, changedLocations));
+            return changedLocations;
+        }
+
+        private void collectChangedLocations(FileSystemLocationSnapshot snapshot, List<String> changedLocations) {
+            String absolutePath = snapshot.getAbsolutePath();
+            if (!isUnchanged(snapshot)) {
+                changedLocations.add(absolutePath);
+            } else if (snapshot.getType() == FileType.Directory) {
+                ((DirectorySnapshot) snapshot).getChildren().forEach(child -> collectChangedLocations(child, changedLocations));
+            }
+        }
+
+        private boolean isUnchanged(FileSystemLocationSnapshot snapshot) {
+            File file = new File(snapshot.getAbsolutePath());
+            FileMetadata metadata;
+            try {
+                metadata = metadataAccessor.stat(file);
+            } catch (RuntimeException e) {
+                return false;
+            }
+            if (metadata.getType() != snapshot.getType() || metadata.getAccessType() != snapshot.getAccessType()) {
+                return false;
+            }
+            switch (snapshot.getType()) {
+                case Directory:
+                    long lastModified = directoryTimestamps.get(snapshot.getAbsolutePath());
+                    return lastModified != UNKNOWN_TIMESTAMP && lastModified == file.lastModified() && lastModified < storedAt - TIMESTAMP_GRANULARITY_MILLIS;
+                case RegularFile:
+                    FileMetadata storedMetadata = ((RegularFileSnapshot) snapshot).getMetadata();
+                    return storedMetadata.getLastModified() == metadata.getLastModified() && storedMetadata.getLength() == metadata.getLength();
+                default:
+                    return true;
+            }
+        }
+    }
+}
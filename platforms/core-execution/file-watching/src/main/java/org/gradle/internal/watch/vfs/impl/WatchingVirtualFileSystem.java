@@ -17,6 +17,7 @@
 package org.gradle.internal.watch.vfs.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
 import net.rubygrapefruit.platform.NativeException;
 import net.rubygrapefruit.platform.internal.jni.InotifyInstanceLimitTooLowException;
 import net.rubygrapefruit.platform.internal.jni.InotifyWatchesLimitTooLowException;
@@ -24,6 +25,8 @@
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemNode;
 import org.gradle.internal.snapshot.SnapshotHierarchy;
 import org.gradle.internal.vfs.impl.AbstractVirtualFileSystem;
@@ -39,8 +42,10 @@
 import org.gradle.internal.watch.vfs.FileChangeListeners;
 import org.gradle.internal.watch.vfs.FileSystemWatchingStatistics;
 import org.gradle.internal.watch.vfs.VfsLogging;
+import org.gradle.internal.watch.vfs.VirtualFileSystemIdleListener;
 import org.gradle.internal.watch.vfs.WatchLogging;
 import org.gradle.internal.watch.vfs.WatchableFileSystemDetector;
+import org.gradle.internal.watch.vfs.WatchableHierarchyStateStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,21 +55,42 @@
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.function.Supplier;
 
 public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem implements BuildLifecycleAwareVirtualFileSystem, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(WatchingVirtualFileSystem.class);
     private static final String FILE_WATCHING_ERROR_MESSAGE_DURING_BUILD = "Unable to watch the file system for changes";
     private static final String FILE_WATCHING_ERROR_MESSAGE_AT_END_OF_BUILD = "Gradle was unable to watch the file system for changes";
+    private static final VirtualFileSystemIdleListener NO_IDLE_LISTENER = new VirtualFileSystemIdleListener() {
+        @Override
+        public void idleStarted() {
+        }
+
+        @Override
+        public void locationInvalidatedWhileIdle(String absolutePath) {
+        }
+
+        @Override
+        public void idleFinished() {
+        }
+    };
 
     private final FileWatcherRegistryFactory watcherRegistryFactory;
     private final FileSystemWatchingDocumentationIndex fileSystemWatchingDocumentationIndex;
     private final FileWatchingFilter locationsWrittenByCurrentBuild;
     private final WatchableFileSystemDetector watchableFileSystemDetector;
     private final FileChangeListeners fileChangeListeners;
+    private final WatchableHierarchyStateStore stateStore;
+    private final VirtualFileSystemIdleListener idleListener;
     private final List<File> unsupportedFileSystems = new ArrayList<>();
     private Logger warningLogger = LOGGER;
 
@@ -73,9 +99,31 @@ public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem impleme
      */
     private final Set<File> watchableHierarchiesRegisteredEarly = new LinkedHashSet<>();
 
+    /**
+     * The root snapshots last written to the {@link WatchableHierarchyStateStore}, or restored from it, by watchable hierarchy.
+     */
+    private final Map<File, List<FileSystemLocationSnapshot>> storedSnapshots = new HashMap<>();
+
+    /**
+     * Watchable hierarchies whose stored state should be restored once the VFS lock has been released.
+     */
+    private final List<File> hierarchiesToRestore = new ArrayList<>();
+
+    /**
+     * The locations reported as changed by the watchers while the stored state of a watchable hierarchy is loaded and checked, by watchable hierarchy.
+     */
+    private final Map<File, Set<String>> changesWhileRestoring = new HashMap<>();
+
+    /**
+     * The modification times of the directories in watchable hierarchies, recorded when their snapshots are added to the VFS.
+     * Keyed by snapshot instance, so the entries go away together with the snapshots.
+     */
+    private final Map<DirectorySnapshot, Long> directoryTimestamps = new MapMaker().weakKeys().makeMap();
+
     private FileWatcherRegistry watchRegistry;
     private Exception reasonForNotWatchingFiles;
     private boolean stateInvalidatedAtStartOfBuild;
+    private volatile boolean idle;
 
     public WatchingVirtualFileSystem(
         FileWatcherRegistryFactory watcherRegistryFactory,
@@ -84,6 +132,19 @@ public WatchingVirtualFileSystem(
         FileWatchingFilter locationsWrittenByCurrentBuild,
         WatchableFileSystemDetector watchableFileSystemDetector,
         FileChangeListeners fileChangeListeners
+    ) {
+        this(watcherRegistryFactory, root, fileSystemWatchingDocumentationIndex, locationsWrittenByCurrentBuild, watchableFileSystemDetector, fileChangeListeners, WatchableHierarchyStateStore.NONE, NO_IDLE_LISTENER);
+    }
+
+    public WatchingVirtualFileSystem(
+        FileWatcherRegistryFactory watcherRegistryFactory,
+        SnapshotHierarchy root,
+        FileSystemWatchingDocumentationIndex fileSystemWatchingDocumentationIndex,
+        FileWatchingFilter locationsWrittenByCurrentBuild,
+        WatchableFileSystemDetector watchableFileSystemDetector,
+        FileChangeListeners fileChangeListeners,
+        WatchableHierarchyStateStore stateStore,
+        VirtualFileSystemIdleListener idleListener
     ) {
         super(root);
         this.watcherRegistryFactory = watcherRegistryFactory;
@@ -91,6 +152,8 @@ public WatchingVirtualFileSystem(
         this.locationsWrittenByCurrentBuild = locationsWrittenByCurrentBuild;
         this.watchableFileSystemDetector = watchableFileSystemDetector;
         this.fileChangeListeners = fileChangeListeners;
+        this.stateStore = stateStore;
+        this.idleListener = idleListener;
     }
 
     @Override
@@ -100,12 +163,51 @@ protected SnapshotHierarchy updateNotifyingListeners(UpdateFunction updateFuncti
         } else {
             SnapshotCollectingDiffListener diffListener = new SnapshotCollectingDiffListener();
             SnapshotHierarchy newRoot = updateFunction.update(diffListener);
-            return withWatcherChangeErrorHandling(newRoot, () -> diffListener.publishSnapshotDiff((removedSnapshots, addedSnapshots) ->
-                watchRegistry.virtualFileSystemContentsChanged(removedSnapshots, addedSnapshots, newRoot)
-            ));
+            return withWatcherChangeErrorHandling(newRoot, () -> diffListener.publishSnapshotDiff((removedSnapshots, addedSnapshots) -> {
+                recordDirectoryTimestamps(addedSnapshots);
+                watchRegistry.virtualFileSystemContentsChanged(removedSnapshots, addedSnapshots, newRoot);
+            }));
         }
     }
 
+    /**
+     * Records the modification times of the directories added to watchable hierarchies whose state is stored.
+     * Directories re-added to the VFS keep the modification time they had when they were snapshotted.
+     */
+    private void recordDirectoryTimestamps(Collection<FileSystemLocationSnapshot> addedSnapshots) {
+        if (stateStore == WatchableHierarchyStateStore.NONE) {
+            return;
+        }
+        for (FileSystemLocationSnapshot snapshot : addedSnapshots) {
+            if (snapshot instanceof DirectorySnapshot && isInStoredHierarchy(snapshot.getAbsolutePath())) {
+                recordDirectoryTimestamps((DirectorySnapshot) snapshot);
+            }
+        }
+    }
+
+    private void recordDirectoryTimestamps(DirectorySnapshot directory) {
+        if (directoryTimestamps.containsKey(directory)) {
+            return;
+        }
+        directoryTimestamps.put(directory, new File(directory.getAbsolutePath()).lastModified());
+        for (FileSystemLocationSnapshot child : directory.getChildren()) {
+            if (child instanceof DirectorySnapshot) {
+                recordDirectoryTimestamps((DirectorySnapshot) child);
+            }
+        }
+    }
+
+    private boolean isInStoredHierarchy(String absolutePath) {
+        for (File watchableHierarchy : storedSnapshots.keySet()) {
+            String hierarchyPath = watchableHierarchy.getAbsolutePath();
+            if (absolutePath.startsWith(hierarchyPath)
+                && (absolutePath.length() == hierarchyPath.length() || absolutePath.charAt(hierarchyPath.length()) == File.separatorChar)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean afterBuildStarted(
         WatchMode watchMode,
@@ -113,6 +215,10 @@ public boolean afterBuildStarted(
         WatchLogging watchLogging,
         BuildOperationRunner buildOperationRunner
     ) {
+        if (idle) {
+            idle = false;
+            idleListener.idleFinished();
+        }
         warningLogger = watchMode.loggerForWarnings(LOGGER);
         stateInvalidatedAtStartOfBuild = false;
         reasonForNotWatchingFiles = null;
@@ -197,6 +303,7 @@ public BuildOperationDescriptor.Builder description() {
                     .details(BuildStartedFileSystemWatchingBuildOperationType.Details.INSTANCE);
             }
         }));
+        restoreScheduledStoredStates();
         return watchRegistry != null;
     }
 
@@ -207,10 +314,83 @@ public void registerWatchableHierarchy(File watchableHierarchy) {
                 watchableHierarchiesRegisteredEarly.add(watchableHierarchy);
                 return currentRoot;
             }
-            return withWatcherChangeErrorHandling(
+            SnapshotHierarchy newRoot = withWatcherChangeErrorHandling(
                 currentRoot,
                 () -> watchRegistry.registerWatchableHierarchy(watchableHierarchy, currentRoot)
             );
+            scheduleRestoringStoredState(watchableHierarchy, newRoot);
+            return newRoot;
+        });
+        restoreScheduledStoredStates();
+    }
+
+    /**
+     * Schedules restoring the stored snapshots of a newly registered watchable hierarchy, if the VFS doesn't know anything about it yet.
+     *
+     * Needs to be called under the VFS lock.
+     */
+    private void scheduleRestoringStoredState(File watchableHierarchy, SnapshotHierarchy currentRoot) {
+        if (watchRegistry == null || storedSnapshots.containsKey(watchableHierarchy)) {
+            return;
+        }
+        storedSnapshots.put(watchableHierarchy, ImmutableList.of());
+        if (currentRoot.hasDescendantsUnder(watchableHierarchy.getAbsolutePath())) {
+            return;
+        }
+        changesWhileRestoring.put(watchableHierarchy, new HashSet<>());
+        hierarchiesToRestore.add(watchableHierarchy);
+    }
+
+    private void restoreScheduledStoredStates() {
+        List<File> toRestore = new ArrayList<>();
+        underLock(() -> {
+            toRestore.addAll(hierarchiesToRestore);
+            hierarchiesToRestore.clear();
+        });
+        toRestore.forEach(this::restoreStoredState);
+    }
+
+    /**
+     * Adds the stored snapshots of a newly registered watchable hierarchy to the VFS.
+     *
+     * Loading the snapshots and checking them against the file system happens without holding the VFS lock.
+     * The watchers already watch the hierarchy while checking, so locations they report as changed in the meantime
+     * are invalidated together with the locations found to be changed, when the snapshots are added under the lock.
+     * The snapshots are dropped when the VFS received other snapshots for the hierarchy in the meantime.
+     */
+    private void restoreStoredState(File watchableHierarchy) {
+        WatchableHierarchyStateStore.StoredState storedState = stateStore.load(watchableHierarchy).orElse(null);
+        List<String> changedLocations = storedState == null
+            ? ImmutableList.of()
+            : storedState.findChangedLocations();
+        updateRootUnderLock(currentRoot -> {
+            Set<String> changesReportedByWatchers = changesWhileRestoring.remove(watchableHierarchy);
+            if (storedState == null
+                || changesReportedByWatchers == null
+                || watchRegistry == null
+                || currentRoot.hasDescendantsUnder(watchableHierarchy.getAbsolutePath())) {
+                return currentRoot;
+            }
+            List<FileSystemLocationSnapshot> rootSnapshots = storedState.getRootSnapshots();
+            SnapshotHierarchy newRoot = updateNotifyingListeners(diffListener -> {
+                SnapshotHierarchy result = currentRoot;
+                for (FileSystemLocationSnapshot rootSnapshot : rootSnapshots) {
+                    result = result.store(rootSnapshot.getAbsolutePath(), rootSnapshot, diffListener);
+                }
+                for (String changedLocation : changedLocations) {
+                    result = result.invalidate(changedLocation, diffListener);
+                }
+                for (String changedLocation : changesReportedByWatchers) {
+                    result = result.invalidate(changedLocation, diffListener);
+                }
+                return result;
+            });
+            if (changedLocations.isEmpty() && changesReportedByWatchers.isEmpty()) {
+                storedSnapshots.put(watchableHierarchy, rootSnapshots);
+            }
+            LOGGER.info("Restored the virtual file system state for {}, {} locations changed since it has been stored",
+                watchableHierarchy, changedLocations.size() + changesReportedByWatchers.size());
+            return newRoot;
         });
     }
 
@@ -314,6 +494,50 @@ public void afterBuildFinished() {
                     return currentRoot.empty();
                 }
             }));
+        Map<File, List<FileSystemLocationSnapshot>> hierarchiesToStore = new LinkedHashMap<>();
+        underLock(() -> {
+            collectChangedWatchableHierarchies(hierarchiesToStore);
+            if (watchRegistry != null) {
+                idle = true;
+                idleListener.idleStarted();
+            }
+        });
+        // Snapshots are immutable, so they can be written without holding the VFS lock
+        hierarchiesToStore.forEach((watchableHierarchy, rootSnapshots) -> stateStore.store(watchableHierarchy, rootSnapshots, directoryTimestamps));
+    }
+
+    /**
+     * Collects the retained snapshots of the watchable hierarchies which changed since they have been stored last.
+     *
+     * Needs to be called under the VFS lock.
+     */
+    private void collectChangedWatchableHierarchies(Map<File, List<FileSystemLocationSnapshot>> hierarchiesToStore) {
+        if (watchRegistry == null) {
+            return;
+        }
+        SnapshotHierarchy currentRoot = root;
+        storedSnapshots.replaceAll((watchableHierarchy, previouslyStored) -> {
+            List<FileSystemLocationSnapshot> rootSnapshots = currentRoot.rootSnapshotsUnder(watchableHierarchy.getAbsolutePath())
+                .collect(Collectors.toList());
+            if (rootSnapshots.isEmpty() || isSameSnapshots(rootSnapshots, previouslyStored)) {
+                return previouslyStored;
+            }
+            hierarchiesToStore.put(watchableHierarchy, rootSnapshots);
+            return rootSnapshots;
+        });
+    }
+
+    private static boolean isSameSnapshots(List<FileSystemLocationSnapshot> snapshots, List<FileSystemLocationSnapshot> otherSnapshots) {
+        if (snapshots.size() != otherSnapshots.size()) {
+            return false;
+        }
+        for (int i = 0; i < snapshots.size(); i++) {
+            // Snapshots are immutable, so an unchanged part of the VFS still has the same instances
+            if (snapshots.get(i) != otherSnapshots.get(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -329,6 +553,7 @@ private SnapshotHierarchy startWatching(SnapshotHierarchy currentRoot, WatchMode
                 )));
             SnapshotHierarchy newRoot = watchRegistry.updateVfsOnBuildStarted(currentRoot.empty(), watchMode, unsupportedFileSystems);
             watchableHierarchiesRegisteredEarly.forEach(watchableHierarchy -> watchRegistry.registerWatchableHierarchy(watchableHierarchy, newRoot));
+            watchableHierarchiesRegisteredEarly.forEach(watchableHierarchy -> scheduleRestoringStoredState(watchableHierarchy, newRoot));
             watchableHierarchiesRegisteredEarly.clear();
             return newRoot;
         } catch (Exception ex) {
@@ -372,9 +597,16 @@ public void stopWatchingAfterError() {
     private class InvalidateVfsChangeHandler implements FileWatcherRegistry.ChangeHandler {
         @Override
         public void handleChange(FileWatcherRegistry.Type type, Path path) {
-            updateRootUnderLock(root -> updateNotifyingListeners(
-                diffListener -> root.invalidate(path.toString(), new VfsChangeLoggingNodeDiffListener(type, path, diffListener))
-            ));
+            updateRootUnderLock(root -> updateNotifyingListeners(diffListener -> {
+                // The stored state being restored may contain any location, so remember all of them
+                changesWhileRestoring.values().forEach(changes -> changes.add(path.toString()));
+                VfsChangeLoggingNodeDiffListener changeListener = new VfsChangeLoggingNodeDiffListener(type, path, diffListener);
+                SnapshotHierarchy newRoot = root.invalidate(path.toString(), changeListener);
+                if (idle && !changeListener.getRemovedLocations().isEmpty()) {
+                    idleListener.locationInvalidatedWhileIdle(path.toString());
+                }
+                return newRoot;
+            }));
         }
 
         @Override
@@ -417,6 +649,7 @@ private static class VfsChangeLoggingNodeDiffListener implements SnapshotHierarc
         private final FileWatcherRegistry.Type type;
         private final Path path;
         private final SnapshotHierarchy.NodeDiffListener delegate;
+        private final List<String> removedLocations = new ArrayList<>();
         private boolean alreadyLogged;
 
         public VfsChangeLoggingNodeDiffListener(FileWatcherRegistry.Type type, Path path, SnapshotHierarchy.NodeDiffListener delegate) {
@@ -428,9 +661,17 @@ public VfsChangeLoggingNodeDiffListener(FileWatcherRegistry.Type type, Path path
         @Override
         public void nodeRemoved(FileSystemNode node) {
             maybeLogVfsChangeMessage();
+            // A change below a complete directory snapshot removes the whole directory snapshot
+            node.rootSnapshots()
+                .map(FileSystemLocationSnapshot::getAbsolutePath)
+                .forEach(removedLocations::add);
             delegate.nodeRemoved(node);
         }
 
+        public List<String> getRemovedLocations() {
+            return removedLocations;
+        }
+
         @Override
         public void nodeAdded(FileSystemNode node) {
             maybeLogVfsChangeMessage();
@@ -492,6 +733,7 @@ private SnapshotHierarchy stopWatchingAndInvalidateHierarchyAfterError(SnapshotH
     }
 
     private SnapshotHierarchy stopWatchingAndInvalidateHierarchy(SnapshotHierarchy currentRoot) {
+        changesWhileRestoring.clear();
         if (watchRegistry != null) {
             try {
                 FileWatcherRegistry toBeClosed = watchRegistry;
@@ -519,6 +761,10 @@ private boolean hasDroppedStateBecauseOfErrorsReceivedWhileWatching(FileWatcherR
     @Override
     public void close() {
         LOGGER.debug("Closing VFS, dropping state");
+        if (idle) {
+            idle = false;
+            idleListener.idleFinished();
+        }
         updateRootUnderLock(currentRoot -> {
             closeUnderLock();
             return currentRoot.empty();
@@ -526,6 +772,7 @@ public void close() {
     }
 
     private void closeUnderLock() {
+        changesWhileRestoring.clear();
         if (watchRegistry != null) {
             try {
                 watchRegistry.close();
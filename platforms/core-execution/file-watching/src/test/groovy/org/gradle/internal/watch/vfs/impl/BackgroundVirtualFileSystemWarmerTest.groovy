@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl
+
+import org.gradle.internal.vfs.FileSystemAccess
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+class BackgroundVirtualFileSystemWarmerTest extends Specification {
+    def readLocations = new ConcurrentLinkedQueue<String>()
+    def fileSystemAccess = Stub(FileSystemAccess) {
+        read(_ as String) >> { String location -> readLocations.add(location); null }
+    }
+    def executor = Executors.newSingleThreadScheduledExecutor()
+    def warmer = new BackgroundVirtualFileSystemWarmer(fileSystemAccess, executor)
+    def conditions = new PollingConditions(timeout: 5)
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "snapshots locations invalidated while idle"() {
+        when:
+        warmer.idleStarted()
+        warmer.locationInvalidatedWhileIdle("/project/a.txt")
+        warmer.locationInvalidatedWhileIdle("/project/b.txt")
+        warmer.locationInvalidatedWhileIdle("/project/a.txt")
+
+        then:
+        conditions.eventually {
+            assert readLocations as List == ["/project/a.txt", "/project/b.txt"]
+        }
+
+        cleanup:
+        warmer.idleFinished()
+    }
+
+    def "ignores locations invalidated during a build"() {
+        when:
+        warmer.locationInvalidatedWhileIdle("/project/a.txt")
+        warmer.idleStarted()
+        warmer.idleFinished()
+        warmer.locationInvalidatedWhileIdle("/project/b.txt")
+        Thread.sleep(1000)
+
+        then:
+        readLocations.empty
+    }
+
+    def "stops snapshotting when the next build starts"() {
+        def firstReadStarted = new CountDownLatch(1)
+        def continueReading = new CountDownLatch(1)
+        def blockingFileSystemAccess = Stub(FileSystemAccess) {
+            read(_ as String) >> { String location ->
+                readLocations.add(location)
+                firstReadStarted.countDown()
+                continueReading.await()
+                null
+            }
+        }
+        def warmer = new BackgroundVirtualFileSystemWarmer(blockingFileSystemAccess, executor)
+
+        when:
+        warmer.idleStarted()
+        warmer.locationInvalidatedWhileIdle("/project/a.txt")
+        warmer.locationInvalidatedWhileIdle("/project/b.txt")
+        firstReadStarted.await()
+        warmer.idleFinished()
+        continueReading.countDown()
+        Thread.sleep(1000)
+
+        then:
+        readLocations as List == ["/project/a.txt"]
+    }
+}
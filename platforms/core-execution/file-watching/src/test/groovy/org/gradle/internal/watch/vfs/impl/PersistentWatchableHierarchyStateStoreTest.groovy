@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.file.nio.NioFileMetadataAccessor
+import org.gradle.internal.snapshot.DirectorySnapshot
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot
+import org.gradle.internal.snapshot.impl.DirectorySnapshotter
+import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+@CleanupTestDirectory
+class PersistentWatchableHierarchyStateStoreTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def directorySnapshotter = new DirectorySnapshotter(TestFiles.fileHasher(), new StringInterner(), [], Stub(DirectorySnapshotterStatistics.Collector))
+    def stateStore = new PersistentWatchableHierarchyStateStore(temporaryFolder.file("state"), new NioFileMetadataAccessor())
+    def hierarchy = temporaryFolder.createDir("project")
+
+    def "restores stored snapshots"() {
+        def root = createTree()
+        def snapshot = snapshotDirectory(root)
+
+        when:
+        store(snapshot)
+        def storedState = stateStore.load(hierarchy).get()
+
+        then:
+        storedState.rootSnapshots == [snapshot]
+        flatten(storedState.rootSnapshots[0]) == flatten(snapshot)
+        storedState.findChangedLocations().empty
+    }
+
+    def "reports changed files"() {
+        def root = createTree()
+        store(snapshotDirectory(root))
+
+        when:
+        root.file("src/a.txt").text = "changed content"
+        def storedState = stateStore.load(hierarchy).get()
+
+        then:
+        storedState.findChangedLocations() == [root.file("src/a.txt").absolutePath]
+    }
+
+    def "reports directories with added or removed children"() {
+        def root = createTree()
+        store(snapshotDirectory(root))
+
+        when:
+        root.file("src/c.txt").text = "new"
+        def storedState = stateStore.load(hierarchy).get()
+
+        then:
+        storedState.findChangedLocations() == [root.file("src").absolutePath]
+    }
+
+    def "reports directories modified shortly before storing"() {
+        def root = createTree()
+        root.file("src/c.txt").text = "new"
+
+        when:
+        store(snapshotDirectory(root))
+        def storedState = stateStore.load(hierarchy).get()
+
+        then:
+        storedState.findChangedLocations() == [root.file("src").absolutePath]
+    }
+
+    def "reports directories changed between snapshotting and storing"() {
+        def root = createTree()
+        def snapshot = snapshotDirectory(root)
+        def directoryTimestamps = directoryTimestamps(snapshot)
+        root.file("src/c.txt").text = "new"
+        root.file("src").lastModified = System.currentTimeMillis() - 5_000
+
+        when:
+        stateStore.store(hierarchy, [snapshot], directoryTimestamps)
+        def storedState = stateStore.load(hierarchy).get()
+
+        then:
+        storedState.findChangedLocations() == [root.file("src").absolutePath]
+    }
+
+    def "reports directories without a timestamp"() {
+        def root = createTree()
+        def snapshot = snapshotDirectory(root)
+        def directoryTimestamps = directoryTimestamps(snapshot)
+        directoryTimestamps.remove(snapshot.children.find { it.name == "src" })
+
+        when:
+        stateStore.store(hierarchy, [snapshot], directoryTimestamps)
+        def storedState = stateStore.load(hierarchy).get()
+
+        then:
+        storedState.findChangedLocations() == [root.file("src").absolutePath]
+    }
+
+    def "does not load state of other hierarchies"() {
+        def root = createTree()
+        store(snapshotDirectory(root))
+
+        expect:
+        !stateStore.load(temporaryFolder.createDir("other")).present
+    }
+
+    def "ignores corrupt state"() {
+        def root = createTree()
+        store(snapshotDirectory(root))
+        def stateFile = temporaryFolder.file("state").listFiles().find { it.name.endsWith(".bin") }
+
+        when:
+        stateFile.bytes = Arrays.copyOf(stateFile.bytes, (int) (stateFile.length() / 2))
+
+        then:
+        !stateStore.load(hierarchy).present
+    }
+
+    def "deletes state files unused for a week when storing"() {
+        def root = createTree()
+        def unusedStateFile = temporaryFolder.file("state/unused.bin").createFile()
+        def recentlyUsedStateFile = temporaryFolder.file("state/used.bin").createFile()
+        unusedStateFile.lastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8)
+        recentlyUsedStateFile.lastModified = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(6)
+
+        when:
+        store(snapshotDirectory(root))
+
+        then:
+        !unusedStateFile.exists()
+        recentlyUsedStateFile.exists()
+        stateStore.load(hierarchy).present
+    }
+
+    private TestFile createTree() {
+        def root = hierarchy.file("root")
+        root.file("src/a.txt").text = "a"
+        root.file("src/b.txt").text = "b"
+        root.file("build.gradle").text = "plugins {}"
+        def pastTimestamp = System.currentTimeMillis() - 10_000
+        [root.file("src"), root].each { it.lastModified = pastTimestamp }
+        return root
+    }
+
+    private void store(DirectorySnapshot snapshot) {
+        stateStore.store(hierarchy, [snapshot], directoryTimestamps(snapshot))
+    }
+
+    private static Map<DirectorySnapshot, Long> directoryTimestamps(FileSystemLocationSnapshot snapshot) {
+        Map<DirectorySnapshot, Long> result = [:]
+        if (snapshot instanceof DirectorySnapshot) {
+            result[snapshot] = new File(snapshot.absolutePath).lastModified()
+            snapshot.children.each { result.putAll(directoryTimestamps(it)) }
+        }
+        return result
+    }
+
+    private DirectorySnapshot snapshotDirectory(File directory) {
+        directorySnapshotter.snapshot(directory.absolutePath, null, [:]) {} as DirectorySnapshot
+    }
+
+    private static List<String> flatten(FileSystemLocationSnapshot snapshot) {
+        def result = ["${snapshot.absolutePath}:${snapshot.type}:${snapshot.hash}:${snapshot.accessType}".toString()]
+        if (snapshot instanceof DirectorySnapshot) {
+            snapshot.children.each { result.addAll(flatten(it)) }
+        }
+        return result
+    }
+}
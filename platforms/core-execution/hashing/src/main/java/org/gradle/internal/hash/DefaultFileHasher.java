@@ -21,12 +21,26 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 
 public class DefaultFileHasher implements FileHasher {
+    /**
+     * Files of at least this size are read through a channel into direct buffers instead of through a stream into the heap.
+     */
+    public static final long DEFAULT_CHANNEL_THRESHOLD = 1024 * 1024;
+
     private final StreamHasher streamHasher;
+    private final long channelThreshold;
 
     public DefaultFileHasher(StreamHasher streamHasher) {
+        this(streamHasher, DEFAULT_CHANNEL_THRESHOLD);
+    }
+
+    public DefaultFileHasher(StreamHasher streamHasher, long channelThreshold) {
         this.streamHasher = streamHasher;
+        this.channelThreshold = channelThreshold;
     }
 
     @Override
@@ -50,6 +64,19 @@ public HashCode hash(File file) {
 
     @Override
     public HashCode hash(File file, long length, long lastModified) {
+        if (length >= channelThreshold) {
+            return hashUsingChannel(file);
+        }
         return hash(file);
     }
+
+    private HashCode hashUsingChannel(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return streamHasher.hash(channel);
+        } catch (NoSuchFileException e) {
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s' as it does not exist.", streamHasher.getHashAlgorithm(), file), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s'.", streamHasher.getHashAlgorithm(), file), e);
+        }
+    }
 }
@@ -21,20 +21,46 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
 public class DefaultStreamHasher implements StreamHasher {
     private static final HashCode SIGNATURE = Hashing.signature(DefaultStreamHasher.class);
 
+    /**
+     * Channels are used for large files, so they are read in larger chunks to reduce the number of reads.
+     */
+    private static final int CHANNEL_BUFFER_SIZE = 64 * 1024;
+
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final Queue<byte[]> channelBuffers = new ArrayBlockingQueue<byte[]>(16);
+    private final HashFunction hashFunction;
+    private final HashCode signature;
+
+    public DefaultStreamHasher() {
+        this(Hashing.defaultFunction());
+    }
+
+    /**
+     * Creates a stream hasher using the given hash function.
+     * The algorithm of the hash function is part of the signature mixed into every hash,
+     * so the same content hashed with different functions never produces the same hash.
+     */
+    public DefaultStreamHasher(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+        this.signature = hashFunction == Hashing.defaultFunction()
+            ? SIGNATURE
+            : Hashing.signature("CLASS:" + DefaultStreamHasher.class.getName() + ":" + hashFunction.getAlgorithm());
+    }
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
             return doHash(inputStream, ByteStreams.nullOutputStream());
         } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file content.", hashFunction.getAlgorithm()), e);
         }
     }
 
@@ -43,11 +69,41 @@ public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) thr
         return doHash(inputStream, outputStream);
     }
 
+    @Override
+    public HashCode hash(ReadableByteChannel channel) throws IOException {
+        byte[] buffer = channelBuffers.poll();
+        if (buffer == null) {
+            buffer = new byte[CHANNEL_BUFFER_SIZE];
+        }
+        try {
+            return doHash(channel, ByteBuffer.wrap(buffer));
+        } finally {
+            // Retain buffer if there is capacity in the queue, otherwise discard
+            channelBuffers.offer(buffer);
+        }
+    }
+
+    private HashCode doHash(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+        hasher.putHash(signature);
+        while (channel.read(buffer) >= 0) {
+            Hashing.castBuffer(buffer).flip();
+            hasher.putBytes(buffer);
+            Hashing.castBuffer(buffer).clear();
+        }
+        return hasher.hash();
+    }
+
+    @Override
+    public String getHashAlgorithm() {
+        return hashFunction.getAlgorithm();
+    }
+
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
-            PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
-            hasher.putHash(SIGNATURE);
+            PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+            hasher.putHash(signature);
             while (true) {
                 int nread = inputStream.read(buffer);
                 if (nread < 0) {
@@ -47,6 +47,8 @@ private Hashing() {
 
     private static final HashFunction SHA512 = MessageDigestHashFunction.of("SHA-512");
 
+    private static final HashFunction MURMUR3_128 = new Murmur3HashFunction();
+
     private static final HashFunction DEFAULT = MD5;
 
     /**
@@ -152,33 +154,30 @@ public static HashFunction sha512() {
         return SHA512;
     }
 
-    private static abstract class MessageDigestHashFunction implements HashFunction {
-        private final int hexDigits;
+    /**
+     * 128-bit MurmurHash3 (x64 variant) hashing function.
+     *
+     * Much faster than {@link #md5()}, but not cryptographically secure.
+     * Only use it for content that is not crafted to produce collisions.
+     */
+    public static HashFunction murmur3_128() {
+        return MURMUR3_128;
+    }
 
-        public MessageDigestHashFunction(int hashBits) {
-            this.hexDigits = hashBits / 4;
-        }
+    /**
+     * Without this cast, when the code compiled by Java 9+ is executed on Java 8, it will throw
+     * java.lang.NoSuchMethodError: Method flip()Ljava/nio/ByteBuffer; does not exist in class java.nio.ByteBuffer
+     */
+    @SuppressWarnings("RedundantCast")
+    static <T extends Buffer> Buffer castBuffer(T byteBuffer) {
+        return (Buffer) byteBuffer;
+    }
 
-        public static MessageDigestHashFunction of(String algorithm) {
-            MessageDigest prototype;
-            try {
-                prototype = MessageDigest.getInstance(algorithm);
-            } catch (NoSuchAlgorithmException e) {
-                throw new IllegalArgumentException("Cannot instantiate digest algorithm: " + algorithm);
-            }
-            int hashBits = prototype.getDigestLength() * 8;
-            try {
-                Object ignored = prototype.clone();
-                return new CloningMessageDigestHashFunction(prototype, hashBits);
-            } catch (CloneNotSupportedException e) {
-                return new RegularMessageDigestHashFunction(algorithm, hashBits);
-            }
-        }
+    private static abstract class AbstractHashFunction implements HashFunction {
+        private final int hexDigits;
 
-        @Override
-        public PrimitiveHasher newPrimitiveHasher() {
-            MessageDigest digest = createDigest();
-            return new MessageDigestHasher(digest);
+        public AbstractHashFunction(int hashBits) {
+            this.hexDigits = hashBits / 4;
         }
 
         @Override
@@ -218,8 +217,6 @@ private HashingOutputStream primitiveStreamHasher() {
             return new HashingOutputStream(this, ByteStreams.nullOutputStream());
         }
 
-        protected abstract MessageDigest createDigest();
-
         @Override
         public int getHexDigits() {
             return hexDigits;
@@ -231,6 +228,37 @@ public String toString() {
         }
     }
 
+    private static abstract class MessageDigestHashFunction extends AbstractHashFunction {
+
+        public MessageDigestHashFunction(int hashBits) {
+            super(hashBits);
+        }
+
+        public static MessageDigestHashFunction of(String algorithm) {
+            MessageDigest prototype;
+            try {
+                prototype = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Cannot instantiate digest algorithm: " + algorithm);
+            }
+            int hashBits = prototype.getDigestLength() * 8;
+            try {
+                Object ignored = prototype.clone();
+                return new CloningMessageDigestHashFunction(prototype, hashBits);
+            } catch (CloneNotSupportedException e) {
+                return new RegularMessageDigestHashFunction(algorithm, hashBits);
+            }
+        }
+
+        @Override
+        public PrimitiveHasher newPrimitiveHasher() {
+            MessageDigest digest = createDigest();
+            return new MessageDigestHasher(digest);
+        }
+
+        protected abstract MessageDigest createDigest();
+    }
+
     private static class CloningMessageDigestHashFunction extends MessageDigestHashFunction {
         private final MessageDigest prototype;
 
@@ -307,20 +335,16 @@ public void putBytes(byte[] bytes, int off, int len) {
             getDigest().update(bytes, off, len);
         }
 
+        @Override
+        public void putBytes(ByteBuffer buffer) {
+            getDigest().update(buffer);
+        }
+
         private void update(int length) {
             getDigest().update(buffer.array(), 0, length);
             castBuffer(buffer).clear();
         }
 
-        /**
-         * Without this cast, when the code compiled by Java 9+ is executed on Java 8, it will throw
-         * java.lang.NoSuchMethodError: Method flip()Ljava/nio/ByteBuffer; does not exist in class java.nio.ByteBuffer
-         */
-        @SuppressWarnings("RedundantCast")
-        private static <T extends Buffer> Buffer castBuffer(T byteBuffer) {
-            return (Buffer) byteBuffer;
-        }
-
         @Override
         public void putInt(int value) {
             buffer.putInt(value);
@@ -362,6 +386,228 @@ public HashCode hash() {
         }
     }
 
+    private static class Murmur3HashFunction extends AbstractHashFunction {
+        public Murmur3HashFunction() {
+            super(128);
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return "MURMUR3-128";
+        }
+
+        @Override
+        public PrimitiveHasher newPrimitiveHasher() {
+            return new Murmur3Hasher();
+        }
+    }
+
+    /**
+     * Streaming implementation of the x64 128-bit variant of MurmurHash3 with a seed of 0.
+     * Produces the same hashes as Guava's {@code Hashing.murmur3_128()}.
+     */
+    private static class Murmur3Hasher implements PrimitiveHasher {
+        private static final int BLOCK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final byte[] tail = new byte[BLOCK_SIZE];
+        private final ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        private int tailLength;
+        private long h1;
+        private long h2;
+        private long length;
+        private boolean done;
+
+        @Override
+        public void putByte(byte b) {
+            checkNotDone();
+            length++;
+            tail[tailLength++] = b;
+            if (tailLength == BLOCK_SIZE) {
+                processBlock(tail, 0);
+                tailLength = 0;
+            }
+        }
+
+        @Override
+        public void putBytes(byte[] bytes) {
+            putBytes(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void putBytes(byte[] bytes, int off, int len) {
+            checkNotDone();
+            length += len;
+            if (tailLength > 0) {
+                int count = Math.min(BLOCK_SIZE - tailLength, len);
+                System.arraycopy(bytes, off, tail, tailLength, count);
+                tailLength += count;
+                off += count;
+                len -= count;
+                if (tailLength < BLOCK_SIZE) {
+                    return;
+                }
+                processBlock(tail, 0);
+                tailLength = 0;
+            }
+            while (len >= BLOCK_SIZE) {
+                processBlock(bytes, off);
+                off += BLOCK_SIZE;
+                len -= BLOCK_SIZE;
+            }
+            System.arraycopy(bytes, off, tail, 0, len);
+            tailLength = len;
+        }
+
+        @Override
+        public void putBytes(ByteBuffer buffer) {
+            checkNotDone();
+            if (buffer.hasArray()) {
+                putBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                castBuffer(buffer).position(buffer.limit());
+                return;
+            }
+            // Read the blocks straight from the buffer, so direct buffers are not copied to the heap
+            while (tailLength > 0 && buffer.hasRemaining()) {
+                putByte(buffer.get());
+            }
+            ByteBuffer littleEndian = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            int blocksEnd = littleEndian.remaining() - littleEndian.remaining() % BLOCK_SIZE;
+            for (int off = 0; off < blocksEnd; off += BLOCK_SIZE) {
+                processBlock(littleEndian.getLong(off), littleEndian.getLong(off + 8));
+            }
+            length += blocksEnd;
+            castBuffer(buffer).position(buffer.position() + blocksEnd);
+            while (buffer.hasRemaining()) {
+                putByte(buffer.get());
+            }
+        }
+
+        private void processBlock(byte[] bytes, int off) {
+            processBlock(getLongLittleEndian(bytes, off), getLongLittleEndian(bytes, off + 8));
+        }
+
+        private void processBlock(long k1, long k2) {
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private static long getLongLittleEndian(byte[] bytes, int off) {
+            return (bytes[off] & 0xFFL)
+                | (bytes[off + 1] & 0xFFL) << 8
+                | (bytes[off + 2] & 0xFFL) << 16
+                | (bytes[off + 3] & 0xFFL) << 24
+                | (bytes[off + 4] & 0xFFL) << 32
+                | (bytes[off + 5] & 0xFFL) << 40
+                | (bytes[off + 6] & 0xFFL) << 48
+                | (bytes[off + 7] & 0xFFL) << 56;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+        private void update(int count) {
+            putBytes(buffer.array(), 0, count);
+            castBuffer(buffer).clear();
+        }
+
+        @Override
+        public void putInt(int value) {
+            buffer.putInt(value);
+            update(4);
+        }
+
+        @Override
+        public void putLong(long value) {
+            buffer.putLong(value);
+            update(8);
+        }
+
+        @Override
+        public void putDouble(double value) {
+            putLong(Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        public void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void putString(CharSequence value) {
+            putBytes(value.toString().getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void putHash(HashCode hashCode) {
+            hashCode.appendToHasher(this);
+        }
+
+        private void checkNotDone() {
+            if (done) {
+                throw new IllegalStateException("Cannot reuse hasher!");
+            }
+        }
+
+        @Override
+        public HashCode hash() {
+            checkNotDone();
+            done = true;
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = tailLength - 1; i >= 8; i--) {
+                k2 |= (tail[i] & 0xFFL) << ((i - 8) * 8);
+            }
+            for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+                k1 |= (tail[i] & 0xFFL) << (i * 8);
+            }
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            ByteBuffer result = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            result.putLong(h1);
+            result.putLong(h2);
+            return HashCode.fromBytes(result.array(), SAFE_TO_REUSE_BYTES);
+        }
+    }
+
     private static class DefaultHasher implements Hasher {
         private final PrimitiveHasher hasher;
 
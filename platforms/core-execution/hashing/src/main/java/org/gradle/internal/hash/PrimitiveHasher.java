@@ -16,6 +16,8 @@
 
 package org.gradle.internal.hash;
 
+import java.nio.ByteBuffer;
+
 /**
  * Hasher abstraction that can be fed different kinds of primitives that it then forwards directly to the hash function.
  * Inspired by the Google Guava project – https://github.com/google/guava.
@@ -31,6 +33,23 @@ public interface PrimitiveHasher {
      */
     void putBytes(byte[] bytes, int off, int len);
 
+    /**
+     * Feed the remaining bytes of the given buffer into the hasher, leaving the buffer at its limit.
+     */
+    default void putBytes(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            putBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            Hashing.castBuffer(buffer).position(buffer.limit());
+        } else {
+            byte[] bytes = new byte[Math.min(buffer.remaining(), 8192)];
+            while (buffer.hasRemaining()) {
+                int count = Math.min(buffer.remaining(), bytes.length);
+                buffer.get(bytes, 0, count);
+                putBytes(bytes, 0, count);
+            }
+        }
+    }
+
     /**
      * Feed a single byte into the hasher.
      */
@@ -21,6 +21,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
 
 @ServiceScope(Scope.Global.class)
 public interface StreamHasher {
@@ -34,4 +35,16 @@ public interface StreamHasher {
      * The method will not close either stream.
      */
     HashCode hashCopy(InputStream inputStream, OutputStream outputStream) throws IOException;
+
+    /**
+     * Returns the hash of the remaining content of the given channel, the same as {@link #hash(InputStream)} would for the same content.
+     * The content is read into direct buffers, so it is not copied into the heap. The channel will not be closed by the method.
+     */
+    HashCode hash(ReadableByteChannel channel) throws IOException;
+
+    /**
+     * Returns the algorithm of the hash function used to hash the content.
+     * Hashes created by stream hashers with different algorithms never match, so they should not be stored together.
+     */
+    String getHashAlgorithm();
 }
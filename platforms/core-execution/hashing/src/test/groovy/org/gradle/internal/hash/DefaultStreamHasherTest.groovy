@@ -18,6 +18,14 @@ package org.gradle.internal.hash
 
 import spock.lang.Specification
 
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.channels.ReadableByteChannel
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
 class DefaultStreamHasherTest extends Specification {
     def "can hash input"() {
         def input = new ByteArrayInputStream("hello".bytes)
@@ -36,4 +44,82 @@ class DefaultStreamHasherTest extends Specification {
         hash.toString() == "af67a92e9f73b51572e9b94e343d2840"
         output.toByteArray() == "hello".bytes
     }
+
+    def "mixes hash function into hash"() {
+        when:
+        def md5Hash = new DefaultStreamHasher().hash(new ByteArrayInputStream("hello".bytes))
+        def murmur3Hasher = new DefaultStreamHasher(Hashing.murmur3_128())
+        def murmur3Hash = murmur3Hasher.hash(new ByteArrayInputStream("hello".bytes))
+
+        then:
+        murmur3Hasher.hashAlgorithm == "MURMUR3-128"
+        murmur3Hash != md5Hash
+        murmur3Hash != Hashing.murmur3_128().hashString("hello")
+        murmur3Hash == murmur3Hasher.hash(new ByteArrayInputStream("hello".bytes))
+    }
+
+    def "hashes channel the same as stream"() {
+        given:
+        def content = new byte[3 * 1024 * 1024 + 7]
+        new Random(1234).nextBytes(content)
+        def hasher = new DefaultStreamHasher(hashFunction)
+
+        expect:
+        hasher.hash(Channels.newChannel(new ByteArrayInputStream(content))) == hasher.hash(new ByteArrayInputStream(content))
+
+        where:
+        hashFunction << [Hashing.md5(), Hashing.murmur3_128()]
+    }
+
+    def "hashes more channels at the same time than there are pooled buffers"() {
+        given:
+        def content = new byte[1024 * 1024 + 7]
+        new Random(1234).nextBytes(content)
+        def hasher = new DefaultStreamHasher()
+        def expectedHash = hasher.hash(new ByteArrayInputStream(content))
+        def channelCount = 17
+        def allReading = new CountDownLatch(channelCount)
+        def executor = Executors.newFixedThreadPool(channelCount)
+
+        when:
+        def hashes = (1..channelCount).collect {
+            executor.submit({ hasher.hash(new WaitingChannel(content, allReading)) } as Callable<HashCode>)
+        }*.get()
+
+        then:
+        hashes.every { it == expectedHash }
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    /**
+     * Waits for all channels to be read before returning any content, so all of them are hashed at the same time.
+     */
+    private static class WaitingChannel implements ReadableByteChannel {
+        private final ReadableByteChannel delegate
+        private final CountDownLatch allReading
+
+        WaitingChannel(byte[] content, CountDownLatch allReading) {
+            this.delegate = Channels.newChannel(new ByteArrayInputStream(content))
+            this.allReading = allReading
+        }
+
+        @Override
+        int read(ByteBuffer dst) {
+            allReading.countDown()
+            allReading.await(10, TimeUnit.SECONDS)
+            return delegate.read(dst)
+        }
+
+        @Override
+        boolean isOpen() {
+            return delegate.open
+        }
+
+        @Override
+        void close() {
+            delegate.close()
+        }
+    }
 }
@@ -18,6 +18,8 @@ package org.gradle.internal.hash
 
 import spock.lang.Specification
 
+import java.nio.ByteBuffer
+
 import static java.lang.Thread.currentThread
 import static java.util.concurrent.CompletableFuture.supplyAsync
 import static java.util.concurrent.Executors.newFixedThreadPool
@@ -109,6 +111,51 @@ class HashingTest extends Specification {
         hashStrings(["abc", "de"]) != hashStrings(["ab", "cde"])
     }
 
+    def 'murmur3 produces reference hashes'() {
+        expect:
+        Hashing.murmur3_128().hashString(input).toString() == expected
+
+        where:
+        input                                         | expected
+        ""                                            | "00000000000000000000000000000000"
+        "hello"                                       | "029bbd41b3a7d8cb191dae486a901e5b"
+        "The quick brown fox jumps over the lazy dog" | "6c1b07bc7bbc4be347939ac4a93c437a"
+    }
+
+    def 'murmur3 hash does not depend on how input is split'() {
+        given:
+        def bytes = (0..<100).collect { it as byte } as byte[]
+
+        when:
+        def hasher = Hashing.murmur3_128().newPrimitiveHasher()
+        hasher.putBytes(bytes, 0, 7)
+        hasher.putByte(bytes[7])
+        hasher.putBytes(bytes, 8, 30)
+        hasher.putBytes(bytes, 38, 62)
+
+        then:
+        hasher.hash() == Hashing.murmur3_128().hashBytes(bytes)
+    }
+
+    def '#hashFunction hashes direct buffers the same as arrays'() {
+        given:
+        def bytes = (0..<100).collect { it as byte } as byte[]
+        def buffer = ByteBuffer.allocateDirect(bytes.length)
+        buffer.put(bytes).flip()
+
+        when:
+        def hasher = hashFunction.newPrimitiveHasher()
+        hasher.putBytes(bytes, 0, 5)
+        hasher.putBytes(buffer.position(5))
+
+        then:
+        hasher.hash() == hashFunction.hashBytes(bytes)
+        !buffer.hasRemaining()
+
+        where:
+        hashFunction << [Hashing.md5(), Hashing.murmur3_128()]
+    }
+
     def hashStrings(List<String> strings) {
         def hasher = Hashing.newHasher()
         strings.each { hasher.putString(it) }
@@ -17,6 +17,7 @@ dependencies {
 
     api(libs.jsr305)
 
+    implementation(projects.buildOption)
     implementation(projects.io)
     implementation(projects.time)
 
@@ -34,6 +34,7 @@
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.internal.Cast;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.serialize.Serializer;
@@ -60,10 +61,17 @@
 public class DefaultCacheCoordinator implements CacheCreationCoordinator, ExclusiveCacheAccessCoordinator {
     private final static Logger LOG = LoggerFactory.getLogger(DefaultCacheCoordinator.class);
 
+    /**
+     * When set, indexed caches read their blocks through a memory mapping of the cache file.
+     * Not used on Windows, where a mapped file cannot be truncated or deleted until the mapping is garbage collected.
+     */
+    public static final InternalFlag MEMORY_MAPPED_READS = new InternalFlag("org.gradle.internal.cache.memory-mapped-reads");
+
     private final String cacheDisplayName;
     private final File baseDir;
     private final CacheCleanupExecutor cleanupAction;
     private final ExecutorFactory executorFactory;
+    private final boolean memoryMappedReads;
     private final FileAccess fileAccess;
     private final Map<String, IndexedCacheEntry<?, ?>> caches = new HashMap<>();
     private final AbstractCrossProcessCacheAccess crossProcessCacheAccess;
@@ -83,10 +91,18 @@ public class DefaultCacheCoordinator implements CacheCreationCoordinator, Exclus
     private boolean alreadyCleaned;
 
     public DefaultCacheCoordinator(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupExecutor cleanupAction, ExecutorFactory executorFactory) {
+        this(cacheDisplayName, lockTarget, lockOptions, baseDir, lockManager, initializationAction, cleanupAction, executorFactory, false);
+    }
+
+    /**
+     * @param memoryMappedReads whether indexed caches read their blocks through a memory mapping of the cache file, see {@link #MEMORY_MAPPED_READS}
+     */
+    public DefaultCacheCoordinator(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupExecutor cleanupAction, ExecutorFactory executorFactory, boolean memoryMappedReads) {
         this.cacheDisplayName = cacheDisplayName;
         this.baseDir = baseDir;
         this.cleanupAction = cleanupAction;
         this.executorFactory = executorFactory;
+        this.memoryMappedReads = memoryMappedReads;
         this.operations = new CacheAccessOperationsStack();
 
         Consumer<FileLock> onFileLockAcquireAction = this::afterLockAcquire;
@@ -347,7 +363,7 @@ public <K, V> boolean cacheExists(IndexedCacheParameters<K, V> parameters) {
     }
 
     <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer);
+        return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer, memoryMappedReads);
     }
 
     /**
@@ -45,12 +45,21 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
     private final FileLockManager lockManager;
     private final ExecutorFactory executorFactory;
     private final BuildOperationRunner buildOperationRunner;
+    private final boolean memoryMappedReads;
     private final Lock lock = new ReentrantLock();
 
     public DefaultCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner) {
+        this(fileLockManager, executorFactory, buildOperationRunner, false);
+    }
+
+    /**
+     * @param memoryMappedReads whether the indexed caches of the opened caches read their blocks through a memory mapping of the cache file
+     */
+    public DefaultCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner, boolean memoryMappedReads) {
         this.lockManager = fileLockManager;
         this.executorFactory = executorFactory;
         this.buildOperationRunner = buildOperationRunner;
+        this.memoryMappedReads = memoryMappedReads;
     }
 
     void onOpen(Object cache) {
@@ -98,9 +107,9 @@ private PersistentCache doOpen(
             ReferencablePersistentCache cache;
             if (!properties.isEmpty() || initializer != null) {
                 Consumer<? super PersistentCache> initAction = initializer != null ? initializer : __ -> {};
-                cache = new DefaultPersistentDirectoryCache(cacheDir, displayName, properties, lockOptions, initAction, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner);
+                cache = new DefaultPersistentDirectoryCache(cacheDir, displayName, properties, lockOptions, initAction, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner, memoryMappedReads);
             } else {
-                cache = new DefaultPersistentDirectoryStore(cacheDir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner);
+                cache = new DefaultPersistentDirectoryStore(cacheDir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner, memoryMappedReads);
             }
             cache.open();
             dirCacheReference = new DirCacheReference(cache, properties, lockOptions);
@@ -54,7 +54,22 @@ public DefaultPersistentDirectoryCache(
         ExecutorFactory executorFactory,
         BuildOperationRunner buildOperationRunner
     ) {
-        super(dir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner);
+        this(dir, displayName, properties, lockOptions, initAction, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner, false);
+    }
+
+    public DefaultPersistentDirectoryCache(
+        File dir,
+        String displayName,
+        Map<String, ?> properties,
+        LockOptions lockOptions,
+        Consumer<? super PersistentCache> initAction,
+        CacheCleanupStrategy cacheCleanupStrategy,
+        FileLockManager lockManager,
+        ExecutorFactory executorFactory,
+        BuildOperationRunner buildOperationRunner,
+        boolean memoryMappedReads
+    ) {
+        super(dir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner, memoryMappedReads);
         this.initAction = initAction;
         this.properties.putAll(properties);
     }
@@ -42,6 +42,7 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
     private final LockOptions lockOptions;
     private final FileLockManager lockManager;
     private final ExecutorFactory executorFactory;
+    private final boolean memoryMappedReads;
     private final String displayName;
 
     protected final File propertiesFile;
@@ -58,11 +59,25 @@ public DefaultPersistentDirectoryStore(
         FileLockManager fileLockManager,
         ExecutorFactory executorFactory,
         BuildOperationRunner buildOperationRunner
+    ) {
+        this(dir, displayName, lockOptions, cacheCleanupStrategy, fileLockManager, executorFactory, buildOperationRunner, false);
+    }
+
+    public DefaultPersistentDirectoryStore(
+        File dir,
+        @Nullable String displayName,
+        LockOptions lockOptions,
+        CacheCleanupStrategy cacheCleanupStrategy,
+        FileLockManager fileLockManager,
+        ExecutorFactory executorFactory,
+        BuildOperationRunner buildOperationRunner,
+        boolean memoryMappedReads
     ) {
         this.dir = dir;
         this.lockOptions = lockOptions;
         this.lockManager = fileLockManager;
         this.executorFactory = executorFactory;
+        this.memoryMappedReads = memoryMappedReads;
         this.propertiesFile = new File(dir, "cache.properties");
         this.gcFile = new File(dir, "gc.properties");
         this.displayName = displayName != null ? (displayName + " (" + dir + ")") : ("cache directory " + dir.getName() + " (" + dir + ")");
@@ -83,7 +98,7 @@ public DefaultPersistentDirectoryStore open() {
     }
 
     private DefaultCacheCoordinator createCacheAccess() {
-        return new DefaultCacheCoordinator(displayName, getLockTarget(), lockOptions, dir, lockManager, getInitAction(), cleanupExecutor, executorFactory);
+        return new DefaultCacheCoordinator(displayName, getLockTarget(), lockOptions, dir, lockManager, getInitAction(), cleanupExecutor, executorFactory, memoryMappedReads);
     }
 
     private File getLockTarget() {
@@ -26,15 +26,24 @@
 
 public class FileBackedBlockStore implements BlockStore {
     private final File cacheFile;
+    private final boolean memoryMappedReads;
     private RandomAccessFile file;
     private ByteOutput output;
-    private ByteInput input;
+    private BlockInput input;
     private long nextBlock;
     private Factory factory;
     private long currentFileSize;
 
     public FileBackedBlockStore(File cacheFile) {
+        this(cacheFile, false);
+    }
+
+    /**
+     * @param memoryMappedReads when true, blocks are read through a read-only memory mapping of the cache file instead of seeking and reading the file.
+     */
+    public FileBackedBlockStore(File cacheFile, boolean memoryMappedReads) {
         this.cacheFile = cacheFile;
+        this.memoryMappedReads = memoryMappedReads;
     }
 
     @Override
@@ -49,7 +58,7 @@ public void open(Runnable runnable, Factory factory) {
             cacheFile.getParentFile().mkdirs();
             file = openRandomAccessFile();
             output = new ByteOutput(file);
-            input = new ByteInput(file);
+            input = memoryMappedReads ? new MappedByteInput(file, () -> currentFileSize) : new ByteInput(file);
             currentFileSize = file.length();
             nextBlock = currentFileSize;
             if (currentFileSize == 0) {
@@ -75,6 +84,9 @@ private RandomAccessFile randomAccessFile(String mode) throws FileNotFoundExcept
     @Override
     public void close() {
         try {
+            if (input instanceof MappedByteInput) {
+                ((MappedByteInput) input).reset();
+            }
             file.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -84,6 +96,9 @@ public void close() {
     @Override
     public void clear() {
         try {
+            if (input instanceof MappedByteInput) {
+                ((MappedByteInput) input).reset();
+            }
             file.setLength(0);
             currentFileSize = 0;
         } catch (IOException e) {
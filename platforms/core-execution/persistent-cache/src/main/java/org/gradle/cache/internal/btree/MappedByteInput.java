@@ -0,0 +1,176 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal.btree;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Allows a stream of bytes to be read from a particular location of a file, through read-only memory mappings of the file.
+ *
+ * <p>The file is mapped lazily in chunks of a fixed size. When the file grows, only the last chunk, which ended at the previous end of the file,
+ * is mapped again, so growing the file never maps the whole file again and at most one chunk's worth of old mappings waits to be garbage collected.</p>
+ *
+ * <p>Reads never go beyond the length of the file as known by the caller, which only shrinks the file after calling {@link #reset()}.
+ * If the file is truncated behind the caller's back anyway, the JVM reports the access to an unmapped page as an {@link InternalError},
+ * which is reported as an {@link IOException} instead.</p>
+ */
+class MappedByteInput implements BlockInput {
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final LongSupplier fileLength;
+    private final int chunkSize;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private ChunkedInputStream inputStream;
+
+    public MappedByteInput(RandomAccessFile file, LongSupplier fileLength) {
+        this(file, fileLength, DEFAULT_CHUNK_SIZE);
+    }
+
+    MappedByteInput(RandomAccessFile file, LongSupplier fileLength, int chunkSize) {
+        this.file = file;
+        this.fileLength = fileLength;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public DataInputStream start(long offset) throws IOException {
+        long length = fileLength.getAsLong();
+        if (offset > length) {
+            throw new EOFException();
+        }
+        inputStream = new ChunkedInputStream(offset, length);
+        return new DataInputStream(inputStream);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return inputStream.getBytesRead();
+    }
+
+    @Override
+    public void done() {
+        inputStream = null;
+    }
+
+    /**
+     * Discards the current mappings. Must be called before the file is truncated.
+     */
+    public void reset() {
+        chunks.clear();
+    }
+
+    /**
+     * Returns the chunk containing the given position, mapping it if it has not been mapped yet or does not extend to the given end of the file.
+     */
+    private MappedByteBuffer chunkFor(long position, long length) throws IOException {
+        int index = (int) (position / chunkSize);
+        while (chunks.size() <= index) {
+            chunks.add(null);
+        }
+        long chunkStart = (long) index * chunkSize;
+        int requiredSize = (int) Math.min(chunkSize, length - chunkStart);
+        MappedByteBuffer chunk = chunks.get(index);
+        if (chunk == null || chunk.capacity() < requiredSize) {
+            chunk = file.getChannel().map(FileChannel.MapMode.READ_ONLY, chunkStart, requiredSize);
+            chunks.set(index, chunk);
+        }
+        return chunk;
+    }
+
+    private class ChunkedInputStream extends InputStream {
+        private final long start;
+        private final long length;
+        private long position;
+
+        ChunkedInputStream(long start, long length) {
+            this.start = start;
+            this.length = length;
+            this.position = start;
+        }
+
+        long getBytesRead() {
+            return position - start;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position >= length) {
+                return -1;
+            }
+            MappedByteBuffer chunk = chunkFor(position, length);
+            try {
+                int value = chunk.get((int) (position % chunkSize)) & 0xFF;
+                position++;
+                return value;
+            } catch (InternalError e) {
+                throw truncated(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) throws IOException {
+            if (count == 0) {
+                return 0;
+            }
+            if (position >= length) {
+                return -1;
+            }
+            MappedByteBuffer chunk = chunkFor(position, length);
+            int positionInChunk = (int) (position % chunkSize);
+            int available = (int) Math.min(count, Math.min(chunk.capacity() - positionInChunk, length - position));
+            try {
+                // Read from a duplicate, so that the position of the shared chunk is left alone
+                ByteBuffer view = chunk.duplicate();
+                view.position(positionInChunk);
+                view.get(bytes, offset, available);
+            } catch (InternalError e) {
+                throw truncated(e);
+            }
+            position += available;
+            return available;
+        }
+
+        @Override
+        public long skip(long n) {
+            long count = Math.max(0, Math.min(n, length - position));
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, length - position);
+        }
+
+        private IOException truncated(InternalError e) {
+            MappedByteInput.this.reset();
+            return new IOException("Cache file was truncated while it was being read.", e);
+        }
+    }
+}
@@ -97,6 +97,17 @@ public void persistsUpdates() {
         verifyAndCloseCache();
     }
 
+    @Test
+    public void persistsUpdatesWhenReadingThroughMemoryMapping() {
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100, true);
+        checkUpdates(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0);
+        verifyAndCloseCache();
+
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100, true);
+        assertThat(cache.get("key_11"), equalTo(911));
+        verifyAndCloseCache();
+    }
+
     @Test
     public void handlesUpdatesWhenBlockSizeDecreases() {
         BTreePersistentIndexedCache<String, List<Integer>> cache = new BTreePersistentIndexedCache<String, List<Integer>>(tmpDir.file("listcache.bin"), stringSerializer, new DefaultSerializer<List<Integer>>(), (short) 4, 100);
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedByteInputTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    RandomAccessFile file
+    MappedByteInput input
+
+    def setup() {
+        file = new RandomAccessFile(tmpDir.file("test.bin"), "rw")
+        input = new MappedByteInput(file, { file.length() })
+    }
+
+    def cleanup() {
+        file.close()
+    }
+
+    def "can reuse to read from multiple locations in file"() {
+        given:
+        file.seek(0)
+        file.writeInt(123)
+        file.writeInt(321)
+        file.writeInt(456)
+
+        expect:
+        def stream = input.start(0)
+        stream.readInt() == 123
+        stream.readInt() == 321
+        input.bytesRead == 8
+        input.done()
+
+        def stream2 = input.start(4)
+        stream2.readInt() == 321
+        stream2.readInt() == 456
+        input.bytesRead == 8
+        input.done()
+
+        def stream3 = input.start(0)
+        stream3.readInt() == 123
+        input.bytesRead == 4
+        input.done()
+    }
+
+    def "sees content written after the file has been mapped"() {
+        given:
+        file.seek(0)
+        file.writeInt(123)
+
+        expect:
+        input.start(0).readInt() == 123
+        input.done()
+
+        when:
+        file.seek(0)
+        file.writeInt(456)
+        file.writeInt(789)
+
+        then:
+        def stream = input.start(0)
+        stream.readInt() == 456
+        stream.readInt() == 789
+        input.done()
+    }
+
+    def "cannot read beyond end of file"() {
+        when:
+        input.start(123).readInt()
+
+        then:
+        EOFException e = thrown()
+    }
+
+    def "can read across chunk boundaries"() {
+        given:
+        def chunkedInput = new MappedByteInput(file, { file.length() }, 6)
+        file.seek(0)
+        file.writeInt(123)
+        file.writeInt(321)
+        file.writeInt(456)
+        file.writeLong(789)
+
+        expect:
+        def stream = chunkedInput.start(2)
+        stream.readShort() == 123
+        stream.readInt() == 321
+        stream.readInt() == 456
+        stream.readLong() == 789
+        chunkedInput.bytesRead == 18
+        stream.read() == -1
+        chunkedInput.done()
+    }
+
+    def "sees content appended after the file has been mapped in chunks"() {
+        given:
+        def chunkedInput = new MappedByteInput(file, { file.length() }, 6)
+        file.seek(0)
+        file.writeInt(123)
+
+        expect:
+        chunkedInput.start(0).readInt() == 123
+        chunkedInput.done()
+
+        when:
+        file.writeInt(456)
+        file.writeInt(789)
+
+        then:
+        def stream = chunkedInput.start(4)
+        stream.readInt() == 456
+        stream.readInt() == 789
+        chunkedInput.done()
+    }
+}
@@ -1,6 +1,7 @@
 plugins {
     id("gradlebuild.distribution.implementation-java")
     id("gradlebuild.publish-public-libraries")
+    id("gradlebuild.jmh")
 }
 
 description = "Tools to take immutable, comparable snapshots of files and other things"
@@ -16,6 +17,8 @@ dependencies {
 
     implementation(libs.slf4jApi)
 
+    jmhImplementation(libs.commonsIo)
+
     testImplementation(projects.processServices)
     testImplementation(projects.resources)
     testImplementation(projects.native)
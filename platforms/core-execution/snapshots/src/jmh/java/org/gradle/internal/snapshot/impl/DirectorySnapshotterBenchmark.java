@@ -0,0 +1,142 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interners;
+import org.apache.commons.io.FileUtils;
+import org.gradle.internal.hash.DefaultFileHasher;
+import org.gradle.internal.hash.DefaultStreamHasher;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Measures snapshotting a directory from disk, including hashing the file contents and building the Merkle tree.
+ *
+ * Run with {@code -prof gc} to see the allocation rate.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class DirectorySnapshotterBenchmark {
+
+    @Param({"DEEP", "WIDE", "MANY_SMALL_FILES", "FEW_LARGE_FILES"})
+    TreeShape shape;
+
+    Path root;
+    DirectorySnapshotter snapshotter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("directory-snapshotter");
+        shape.generate(root, new Random(1234));
+        FileHasher hasher = new DefaultFileHasher(new DefaultStreamHasher());
+        snapshotter = new DirectorySnapshotter(hasher, Interners.newWeakInterner(), ImmutableList.of(), new DirectorySnapshotterStatistics.Collector());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.forceDelete(root.toFile());
+    }
+
+    @Benchmark
+    public void snapshot(Blackhole blackhole) {
+        FileSystemLocationSnapshot snapshot = snapshotter.snapshot(root.toString(), null, ImmutableMap.of(), blackhole::consume);
+        blackhole.consume(snapshot);
+    }
+
+    public enum TreeShape {
+        /**
+         * A single chain of nested directories with a few files on each level.
+         */
+        DEEP {
+            @Override
+            void generate(Path root, Random random) throws IOException {
+                Path dir = root;
+                for (int level = 0; level < 40; level++) {
+                    dir = Files.createDirectory(dir.resolve("level" + level));
+                    createFiles(dir, 5, 1024, random);
+                }
+            }
+        },
+        /**
+         * A single directory with many files.
+         */
+        WIDE {
+            @Override
+            void generate(Path root, Random random) throws IOException {
+                createFiles(root, 10_000, 1024, random);
+            }
+        },
+        /**
+         * A balanced tree of small files, like generated sources.
+         */
+        MANY_SMALL_FILES {
+            @Override
+            void generate(Path root, Random random) throws IOException {
+                createTree(root, 3, 10, random);
+            }
+
+            private void createTree(Path dir, int depth, int width, Random random) throws IOException {
+                if (depth == 0) {
+                    createFiles(dir, 20, 128, random);
+                    return;
+                }
+                for (int i = 0; i < width; i++) {
+                    createTree(Files.createDirectory(dir.resolve("dir" + i)), depth - 1, width, random);
+                }
+            }
+        },
+        /**
+         * A few large files, like archives.
+         */
+        FEW_LARGE_FILES {
+            @Override
+            void generate(Path root, Random random) throws IOException {
+                createFiles(root, 4, 32 * 1024 * 1024, random);
+            }
+        };
+
+        abstract void generate(Path root, Random random) throws IOException;
+
+        private static void createFiles(Path dir, int count, int size, Random random) throws IOException {
+            byte[] content = new byte[size];
+            for (int i = 0; i < count; i++) {
+                random.nextBytes(content);
+                Files.write(dir.resolve("file" + i + ".txt"), content);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.vfs.impl;
+
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.snapshot.CaseSensitivity;
+import org.gradle.internal.snapshot.DirectorySnapshotBuilder;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MerkleDirectorySnapshotBuilder;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.snapshot.SnapshotHierarchy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.gradle.internal.snapshot.DirectorySnapshotBuilder.EmptyDirectoryHandlingStrategy.INCLUDE_EMPTY_DIRS;
+
+/**
+ * Measures building Merkle trees and storing them in and invalidating them from the virtual file system, without touching the disk.
+ *
+ * The number of children per directory selects which {@link org.gradle.internal.snapshot.ChildMap} implementation is used.
+ * The trees are at most {@value #MAX_DEPTH} levels deep, and shallower for many children, so each tree has at most {@value #MAX_FILES_PER_TREE} files.
+ * Run with {@code -prof gc} to see the allocation rate.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class SnapshotHierarchyBenchmark {
+    private static final String ROOT = "/root";
+    private static final int MAX_DEPTH = 4;
+    private static final int MAX_FILES_PER_TREE = 10_000;
+
+    @Param({"1", "5", "50"})
+    int childCount;
+
+    int depth;
+    HashCode[] contentHashes;
+    FileSystemLocationSnapshot rootSnapshot;
+    List<FileSystemLocationSnapshot> siblingSnapshots;
+    SnapshotHierarchy populatedHierarchy;
+    String deepFilePath;
+    String deepDirectoryPath;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        depth = depthFor(childCount);
+        contentHashes = new HashCode[childCount];
+        for (int i = 0; i < childCount; i++) {
+            contentHashes[i] = Hashing.hashString("content" + i);
+        }
+        rootSnapshot = buildTree(ROOT, childCount);
+        siblingSnapshots = new ArrayList<>();
+        for (int i = 0; i < childCount; i++) {
+            siblingSnapshots.add(buildTree(ROOT + "/sibling" + i, childCount));
+        }
+        populatedHierarchy = DefaultSnapshotHierarchy.empty(CaseSensitivity.CASE_SENSITIVE)
+            .store(ROOT, rootSnapshot, SnapshotHierarchy.NodeDiffListener.NOOP);
+        StringBuilder path = new StringBuilder(ROOT);
+        for (int level = 0; level < depth; level++) {
+            path.append("/dir").append(childCount - 1);
+        }
+        deepDirectoryPath = path.toString();
+        deepFilePath = deepDirectoryPath + "/file" + (childCount - 1) + ".txt";
+    }
+
+    @Benchmark
+    public void buildMerkleTree(Blackhole blackhole) {
+        blackhole.consume(buildTree(ROOT, childCount));
+    }
+
+    @Benchmark
+    public void storeRoot(Blackhole blackhole) {
+        blackhole.consume(DefaultSnapshotHierarchy.empty(CaseSensitivity.CASE_SENSITIVE)
+            .store(ROOT, rootSnapshot, SnapshotHierarchy.NodeDiffListener.NOOP));
+    }
+
+    @Benchmark
+    public void storeSiblings(Blackhole blackhole) {
+        SnapshotHierarchy hierarchy = DefaultSnapshotHierarchy.empty(CaseSensitivity.CASE_SENSITIVE);
+        for (FileSystemLocationSnapshot sibling : siblingSnapshots) {
+            hierarchy = hierarchy.store(sibling.getAbsolutePath(), sibling, SnapshotHierarchy.NodeDiffListener.NOOP);
+        }
+        blackhole.consume(hierarchy);
+    }
+
+    @Benchmark
+    public void findDeepFile(Blackhole blackhole) {
+        blackhole.consume(populatedHierarchy.findMetadata(deepFilePath));
+    }
+
+    @Benchmark
+    public void invalidateDeepFile(Blackhole blackhole) {
+        blackhole.consume(populatedHierarchy.invalidate(deepFilePath, SnapshotHierarchy.NodeDiffListener.NOOP));
+    }
+
+    @Benchmark
+    public void invalidateDeepDirectory(Blackhole blackhole) {
+        blackhole.consume(populatedHierarchy.invalidate(deepDirectoryPath, SnapshotHierarchy.NodeDiffListener.NOOP));
+    }
+
+    /**
+     * The deepest tree with {@code childCount} children per directory which has no more than {@link #MAX_FILES_PER_TREE} files.
+     */
+    private static int depthFor(int childCount) {
+        int depth = 0;
+        long fileCount = childCount;
+        while (depth < MAX_DEPTH && fileCount * childCount <= MAX_FILES_PER_TREE) {
+            depth++;
+            fileCount *= childCount;
+        }
+        return depth;
+    }
+
+    private FileSystemLocationSnapshot buildTree(String rootPath, int childCount) {
+        DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+        builder.enterDirectory(AccessType.DIRECT, rootPath, rootPath.substring(rootPath.lastIndexOf('/') + 1), INCLUDE_EMPTY_DIRS);
+        visitChildren(builder, rootPath, depth, childCount);
+        builder.leaveDirectory();
+        return builder.getResult();
+    }
+
+    private void visitChildren(DirectorySnapshotBuilder builder, String path, int depth, int childCount) {
+        if (depth == 0) {
+            for (int i = 0; i < childCount; i++) {
+                String name = "file" + i + ".txt";
+                builder.visitLeafElement(new RegularFileSnapshot(path + "/" + name, name, contentHashes[i], DefaultFileMetadata.file(i, i, AccessType.DIRECT)));
+            }
+            return;
+        }
+        for (int i = 0; i < childCount; i++) {
+            String name = "dir" + i;
+            String childPath = path + "/" + name;
+            builder.enterDirectory(AccessType.DIRECT, childPath, name, INCLUDE_EMPTY_DIRS);
+            visitChildren(builder, childPath, depth - 1, childCount);
+            builder.leaveDirectory();
+        }
+    }
+}
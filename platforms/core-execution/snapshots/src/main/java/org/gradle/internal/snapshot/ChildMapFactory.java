@@ -30,7 +30,7 @@ public class ChildMapFactory {
      * is about twice as slow as {@link VfsRelativePath#hasPrefix(String, CaseSensitivity)},
      * so comparing the searched path to all of the children is actually faster than doing a binary search.
      */
-    private static final int MINIMUM_CHILD_COUNT_FOR_BINARY_SEARCH = 10;
+    static final int MINIMUM_CHILD_COUNT_FOR_BINARY_SEARCH = 10;
 
     public static <T> ChildMap<T> childMap(CaseSensitivity caseSensitivity, Collection<ChildMap.Entry<T>> entries) {
         List<ChildMap.Entry<T>> sortedEntries = new ArrayList<>(entries);
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot;
+
+import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Collectors;
+
+/**
+ * The children of a large directory, keeping regular files in a columnar form instead of one object graph per file.
+ *
+ * The names of all children share a single string, and the hashes and metadata of regular files are kept in primitive arrays.
+ * Snapshots of regular files are only created when they are visited or looked up.
+ * Children which aren't regular files accessed directly are kept as they are.
+ *
+ * Changing the children results in a regular {@link ChildMap}, so the compact form is only kept for immutable directory snapshots.
+ */
+class CompactChildMap extends LargeChildMap<FileSystemLocationSnapshot> {
+    private final CompactEntries compactEntries;
+
+    private CompactChildMap(CompactEntries compactEntries) {
+        super(compactEntries);
+        this.compactEntries = compactEntries;
+    }
+
+    /**
+     * Creates the child map of a directory from its children, sorted by name.
+     *
+     * Directories with at least {@code minimumFileCount} regular files use the compact form, 0 disables it.
+     */
+    static ChildMap<FileSystemLocationSnapshot> childMapFromSortedChildren(String directoryPath, List<FileSystemLocationSnapshot> sortedChildren, int minimumFileCount) {
+        if (minimumFileCount > 0 && countCompactableFiles(directoryPath, sortedChildren) >= Math.max(minimumFileCount, ChildMapFactory.MINIMUM_CHILD_COUNT_FOR_BINARY_SEARCH)) {
+            return new CompactChildMap(new CompactEntries(directoryPath, sortedChildren));
+        }
+        return ChildMapFactory.childMapFromSorted(sortedChildren.stream()
+            .map(child -> new Entry<>(child.getName(), child))
+            .collect(Collectors.toList()));
+    }
+
+    @Override
+    protected int findChildIndexWithCommonPrefix(VfsRelativePath targetPath, CaseSensitivity caseSensitivity) {
+        // Only compare the names, without creating snapshots for the probed children
+        return SearchUtil.binarySearch(
+            compactEntries.names(),
+            candidate -> targetPath.compareToFirstSegment(candidate, caseSensitivity)
+        );
+    }
+
+    private static int countCompactableFiles(String directoryPath, List<FileSystemLocationSnapshot> children) {
+        int hashLength = -1;
+        int count = 0;
+        for (FileSystemLocationSnapshot child : children) {
+            if (isCompactable(directoryPath, child)) {
+                int childHashLength = child.getHash().length();
+                if (hashLength == -1) {
+                    hashLength = childHashLength;
+                }
+                if (childHashLength == hashLength) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean isCompactable(String directoryPath, FileSystemLocationSnapshot child) {
+        if (child.getType() != FileType.RegularFile || child.getAccessType() != AccessType.DIRECT) {
+            return false;
+        }
+        // The absolute path of the child is derived from the directory path when creating the snapshot again
+        String absolutePath = child.getAbsolutePath();
+        String name = child.getName();
+        int separatorIndex = absolutePath.length() - name.length() - 1;
+        return separatorIndex == childPathSeparatorIndex(directoryPath)
+            && absolutePath.charAt(separatorIndex) == File.separatorChar
+            && absolutePath.startsWith(directoryPath)
+            && absolutePath.endsWith(name);
+    }
+
+    private static int childPathSeparatorIndex(String directoryPath) {
+        return directoryPath.endsWith(File.separator)
+            ? directoryPath.length() - 1
+            : directoryPath.length();
+    }
+
+    private static class CompactEntries extends AbstractList<Entry<FileSystemLocationSnapshot>> implements RandomAccess {
+        private final String directoryPath;
+        private final String names;
+        private final int[] nameEnds;
+        private final int hashLength;
+        private final byte[] hashes;
+        private final long[] lastModifiedTimes;
+        private final long[] lengths;
+        /**
+         * The children not kept in the compact form by index, or {@code null} if all children are compact.
+         */
+        @Nullable
+        private final FileSystemLocationSnapshot[] otherChildren;
+
+        CompactEntries(String directoryPath, List<FileSystemLocationSnapshot> sortedChildren) {
+            int size = sortedChildren.size();
+            this.directoryPath = directoryPath;
+            this.nameEnds = new int[size];
+            this.lastModifiedTimes = new long[size];
+            this.lengths = new long[size];
+            int hashLength = -1;
+            StringBuilder names = new StringBuilder();
+            byte[] hashes = null;
+            FileSystemLocationSnapshot[] otherChildren = null;
+            for (int i = 0; i < size; i++) {
+                FileSystemLocationSnapshot child = sortedChildren.get(i);
+                names.append(child.getName());
+                nameEnds[i] = names.length();
+                if (hashLength == -1 && isCompactable(directoryPath, child)) {
+                    hashLength = child.getHash().length();
+                    hashes = new byte[size * hashLength];
+                }
+                if (isCompactable(directoryPath, child) && child.getHash().length() == hashLength) {
+                    FileMetadata metadata = ((RegularFileSnapshot) child).getMetadata();
+                    System.arraycopy(child.getHash().toByteArray(), 0, hashes, i * hashLength, hashLength);
+                    lastModifiedTimes[i] = metadata.getLastModified();
+                    lengths[i] = metadata.getLength();
+                } else {
+                    if (otherChildren == null) {
+                        otherChildren = new FileSystemLocationSnapshot[size];
+                    }
+                    otherChildren[i] = child;
+                }
+            }
+            this.names = names.toString();
+            this.hashLength = hashLength;
+            this.hashes = hashes;
+            this.otherChildren = otherChildren;
+        }
+
+        @Override
+        public Entry<FileSystemLocationSnapshot> get(int index) {
+            String name = name(index);
+            return new Entry<>(name, snapshot(index, name));
+        }
+
+        @Override
+        public int size() {
+            return nameEnds.length;
+        }
+
+        List<String> names() {
+            return new NameList();
+        }
+
+        private String name(int index) {
+            int start = index == 0 ? 0 : nameEnds[index - 1];
+            return names.substring(start, nameEnds[index]);
+        }
+
+        private FileSystemLocationSnapshot snapshot(int index, String name) {
+            if (otherChildren != null && otherChildren[index] != null) {
+                return otherChildren[index];
+            }
+            String absolutePath = directoryPath.substring(0, childPathSeparatorIndex(directoryPath)) + File.separatorChar + name;
+            int hashStart = index * hashLength;
+            HashCode hash = HashCode.fromBytes(Arrays.copyOfRange(hashes, hashStart, hashStart + hashLength));
+            return new RegularFileSnapshot(absolutePath, name, hash, DefaultFileMetadata.file(lastModifiedTimes[index], lengths[index], AccessType.DIRECT));
+        }
+
+        private class NameList extends AbstractList<String> implements RandomAccess {
+            @Override
+            public String get(int index) {
+                return name(index);
+            }
+
+            @Override
+            public int size() {
+                return nameEnds.length;
+            }
+        }
+    }
+}
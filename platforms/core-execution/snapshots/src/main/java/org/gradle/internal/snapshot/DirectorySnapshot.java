@@ -27,7 +27,6 @@
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 
 import static org.gradle.internal.snapshot.ChildMapFactory.childMapFromSorted;
 import static org.gradle.internal.snapshot.SnapshotVisitResult.CONTINUE;
@@ -42,9 +41,15 @@ public class DirectorySnapshot extends AbstractFileSystemLocationSnapshot {
     private final HashCode contentHash;
 
     public DirectorySnapshot(String absolutePath, String name, AccessType accessType, HashCode contentHash, List<FileSystemLocationSnapshot> children) {
-        this(absolutePath, name, accessType, contentHash, childMapFromSorted(children.stream()
-            .map(it -> new ChildMap.Entry<>(it.getName(), it))
-            .collect(Collectors.toList())));
+        this(absolutePath, name, accessType, contentHash, children, 0);
+    }
+
+    /**
+     * Creates a snapshot which keeps its regular files in a compact form when it has at least {@code compactChildrenThreshold} of them.
+     * A threshold of 0 disables the compact form.
+     */
+    public DirectorySnapshot(String absolutePath, String name, AccessType accessType, HashCode contentHash, List<FileSystemLocationSnapshot> children, int compactChildrenThreshold) {
+        this(absolutePath, name, accessType, contentHash, CompactChildMap.childMapFromSortedChildren(absolutePath, children, compactChildrenThreshold));
     }
 
     public DirectorySnapshot(String absolutePath, String name, AccessType accessType, HashCode contentHash, ChildMap<FileSystemLocationSnapshot> children) {
@@ -189,9 +194,10 @@ public void nodeAdded(FileSystemNode node) {
                         diffListener.nodeAdded(node);
                     }
                 });
+                // Compare by name, since compact children are created again on each access
                 children.stream()
                     .map(ChildMap.Entry::getValue)
-                    .filter(existingChild -> existingChild != child)
+                    .filter(existingChild -> !existingChild.getName().equals(child.getName()))
                     .forEach(diffListener::nodeAdded);
                 return invalidated;
             }
@@ -206,7 +212,7 @@ public void handleExactMatchWithChild(FileSystemLocationSnapshot child) {
                 diffListener.nodeRemoved(DirectorySnapshot.this);
                 children.stream()
                     .map(ChildMap.Entry::getValue)
-                    .filter(existingChild -> existingChild != child)
+                    .filter(existingChild -> !existingChild.getName().equals(child.getName()))
                     .forEach(diffListener::nodeAdded);
             }
 
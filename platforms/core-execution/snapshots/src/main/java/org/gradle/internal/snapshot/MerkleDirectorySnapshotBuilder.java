@@ -42,18 +42,32 @@ public class MerkleDirectorySnapshotBuilder implements DirectorySnapshotBuilder
 
     private final Deque<Directory> directoryStack = new ArrayDeque<>();
     private final boolean sortingRequired;
+    private final int compactChildrenThreshold;
     private FileSystemLocationSnapshot result;
 
     public static DirectorySnapshotBuilder sortingRequired() {
         return new MerkleDirectorySnapshotBuilder(true);
     }
 
+    /**
+     * Creates a builder for directory snapshots which keep their regular files in a compact form
+     * when they have at least {@code compactChildrenThreshold} of them, see {@link DirectorySnapshot}.
+     */
+    public static DirectorySnapshotBuilder sortingRequired(int compactChildrenThreshold) {
+        return new MerkleDirectorySnapshotBuilder(true, compactChildrenThreshold);
+    }
+
     public static DirectorySnapshotBuilder noSortingRequired() {
         return new MerkleDirectorySnapshotBuilder(false);
     }
 
     protected MerkleDirectorySnapshotBuilder(boolean sortingRequired) {
+        this(sortingRequired, 0);
+    }
+
+    protected MerkleDirectorySnapshotBuilder(boolean sortingRequired, int compactChildrenThreshold) {
         this.sortingRequired = sortingRequired;
+        this.compactChildrenThreshold = compactChildrenThreshold;
     }
 
     @Override
@@ -128,7 +142,7 @@ public DirectorySnapshot fold() {
                 hasher.putString(child.getName());
                 hasher.putHash(child.getHash());
             }
-            return new DirectorySnapshot(absolutePath, name, accessType, hasher.hash(), children);
+            return new DirectorySnapshot(absolutePath, name, accessType, hasher.hash(), children, compactChildrenThreshold);
         }
     }
 }
@@ -17,6 +17,7 @@
 package org.gradle.internal.snapshot.impl;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Interner;
@@ -55,7 +56,11 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -89,12 +94,39 @@ public Iterable<String> getRemappedSegments(Iterable<String> segments) {
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
     private final DirectorySnapshotterStatistics.Collector collector;
+    private final int parallelSnapshotDepth;
+    @Nullable
+    private final Executor executor;
+    private final int compactChildrenThreshold;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector) {
+        this(hasher, stringInterner, defaultExcludes, collector, 0, null, 0);
+    }
+
+    /**
+     * Creates a snapshotter that snapshots the subdirectories up to {@code parallelSnapshotDepth} levels below the snapshotted directory
+     * as separate tasks on the given executor, and merges the results into the snapshot of the directory.
+     * Only unfiltered snapshots are taken in parallel.
+     * A depth of 0 disables parallel snapshotting.
+     *
+     * Directories with at least {@code compactChildrenThreshold} regular files keep them in a compact form, 0 disables the compact form.
+     */
+    public DirectorySnapshotter(
+        FileHasher hasher,
+        Interner<String> stringInterner,
+        Collection<String> defaultExcludes,
+        DirectorySnapshotterStatistics.Collector collector,
+        int parallelSnapshotDepth,
+        @Nullable Executor executor,
+        int compactChildrenThreshold
+    ) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
         this.collector = collector;
+        this.parallelSnapshotDepth = executor == null ? 0 : parallelSnapshotDepth;
+        this.executor = executor;
+        this.compactChildrenThreshold = compactChildrenThreshold;
     }
 
     /**
@@ -122,7 +154,9 @@ public FileSystemLocationSnapshot snapshot(
         try {
             AtomicBoolean hasBeenFiltered = new AtomicBoolean();
             Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, previouslyKnownSnapshots, unfilteredSnapshotRecorder);
+            // Filtered snapshots report unfiltered parts while walking, so they are always taken on the current thread
+            int forkDepth = predicate == null ? parallelSnapshotDepth : 0;
+            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, previouslyKnownSnapshots, unfilteredSnapshotRecorder, ImmutableList.of(), executor, forkDepth, compactChildrenThreshold, true);
             Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
             FileSystemLocationSnapshot result = visitor.getResult();
             if (!hasBeenFiltered.get()) {
@@ -262,7 +296,13 @@ private static class PathVisitor extends DirectorySnapshotterStatistics.Collecti
         private final Interner<String> stringInterner;
         private final DefaultExcludes defaultExcludes;
         private final SymbolicLinkMapping symbolicLinkMapping;
-        private final Deque<String> parentDirectories = new ArrayDeque<>();
+        private final Deque<String> parentDirectories;
+        private final int ancestorCount;
+        @Nullable
+        private final Executor executor;
+        private final int forkDepth;
+        private final int compactChildrenThreshold;
+        private final Deque<List<SubtreeSnapshotTask>> forkedSubtrees = new ArrayDeque<>();
         private final Set<FileSystemLocationSnapshot> filteredDirectorySnapshots = new HashSet<>();
         private final ImmutableMap<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots;
         private final Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder;
@@ -276,10 +316,16 @@ public PathVisitor(
             DirectorySnapshotterStatistics.Collector statisticsCollector,
             SymbolicLinkMapping symbolicLinkMapping,
             Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
-            Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder
+            Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder,
+            Collection<String> ancestorDirectories,
+            @Nullable Executor executor,
+            int forkDepth,
+            int compactChildrenThreshold,
+            boolean newHierarchy
         ) {
-            super(statisticsCollector);
-            this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(this::recordUnfilteredSnapshot);
+            super(statisticsCollector, newHierarchy);
+            this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(this::recordUnfilteredSnapshot, compactChildrenThreshold);
+            this.compactChildrenThreshold = compactChildrenThreshold;
             this.predicate = predicate;
             this.hasBeenFiltered = hasBeenFiltered;
             this.hasher = hasher;
@@ -288,6 +334,10 @@ public PathVisitor(
             this.symbolicLinkMapping = symbolicLinkMapping;
             this.previouslyKnownSnapshots = ImmutableMap.copyOf(previouslyKnownSnapshots);
             this.unfilteredSnapshotRecorder = unfilteredSnapshotRecorder;
+            this.parentDirectories = new ArrayDeque<>(ancestorDirectories);
+            this.ancestorCount = ancestorDirectories.size();
+            this.executor = executor;
+            this.forkDepth = forkDepth;
         }
 
         private void recordUnfilteredSnapshot(FileSystemLocationSnapshot snapshot) {
@@ -315,8 +365,16 @@ protected FileVisitResult doPreVisitDirectory(Path dir, BasicFileAttributes attr
                     }
                 }
 
+                int depth = parentDirectories.size() - ancestorCount;
+                if (depth > 0 && depth <= forkDepth) {
+                    forkSubtree(dir, depth);
+                    pathTracker.leave();
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
                 builder.enterDirectory(AccessType.DIRECT, internedRemappedAbsolutePath, fileName, INCLUDE_EMPTY_DIRS);
                 parentDirectories.addFirst(dir.toString());
+                forkedSubtrees.addFirst(new ArrayList<>());
                 return FileVisitResult.CONTINUE;
             } else {
                 pathTracker.leave();
@@ -333,6 +391,10 @@ protected FileVisitResult doPostVisitDirectory(Path dir, IOException exc) {
             if (isNotFileSystemLoopException(exc)) {
                 throw new UncheckedIOException(String.format("Could not read directory path '%s'.", dir), exc);
             }
+            for (SubtreeSnapshotTask subtree : forkedSubtrees.removeFirst()) {
+                // The builder sorts the children, so the order in which the subtrees are added doesn't matter
+                builder.visitDirectory(subtree.join());
+            }
             boolean currentLevelComplete = builder.isCurrentLevelUnfiltered();
             FileSystemLocationSnapshot currentLevel = builder.leaveDirectory();
             if (!currentLevelComplete) {
@@ -395,7 +457,12 @@ private DirectorySnapshot followSymlink(Path file, String internedFileName, Atom
                         collector,
                         symbolicLinkMapping.withNewMapping(file.toString(), targetDirString, pathTracker),
                         previouslyKnownSnapshots,
-                        unfilteredSnapshotRecorder);
+                        unfilteredSnapshotRecorder,
+                        ImmutableList.of(),
+                        null,
+                        0,
+                        compactChildrenThreshold,
+                        true);
                     Files.walkFileTree(targetDir, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, subtreeVisitor);
                     return (DirectorySnapshot) subtreeVisitor.getResult();
                 } else {
@@ -406,6 +473,31 @@ private DirectorySnapshot followSymlink(Path file, String internedFileName, Atom
             }
         }
 
+        /**
+         * Snapshots the given directory in a separate task, which is joined when leaving the parent directory.
+         */
+        private void forkSubtree(Path dir, int depth) {
+            PathVisitor subtreeVisitor = new PathVisitor(
+                predicate,
+                hasBeenFiltered,
+                hasher,
+                stringInterner,
+                defaultExcludes,
+                collector,
+                symbolicLinkMapping,
+                previouslyKnownSnapshots,
+                unfilteredSnapshotRecorder,
+                parentDirectories,
+                executor,
+                forkDepth - depth,
+                compactChildrenThreshold,
+                false);
+            SubtreeSnapshotTask task = new SubtreeSnapshotTask(dir, subtreeVisitor, collector);
+            // Only visitors with a fork depth above 0 fork subtrees, and those always have an executor
+            Objects.requireNonNull(executor).execute(task);
+            forkedSubtrees.getFirst().add(task);
+        }
+
         private boolean introducesCycle(String targetDirString) {
             return parentDirectories.contains(targetDirString);
         }
@@ -521,4 +613,48 @@ public FileSystemLocationSnapshot getResult() {
             return builder.getResult();
         }
     }
+
+    private static class SubtreeSnapshotTask extends FutureTask<DirectorySnapshot> {
+        private final Path dir;
+
+        public SubtreeSnapshotTask(Path dir, PathVisitor visitor, DirectorySnapshotterStatistics.Collector collector) {
+            super(() -> {
+                collector.recordParallelSubtreeStarted();
+                try {
+                    Files.walkFileTree(dir, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
+                    return (DirectorySnapshot) visitor.getResult();
+                } finally {
+                    collector.recordParallelSubtreeFinished();
+                }
+            });
+            this.dir = dir;
+        }
+
+        /**
+         * Waits for the snapshot of the subtree.
+         *
+         * Runs the task on the current thread when no worker has started it yet, so that waiting for a subtree never needs a free worker.
+         */
+        public DirectorySnapshot join() {
+            run();
+            try {
+                return get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(String.format("Interrupted while snapshotting directory '%s'.", dir), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", dir), (IOException) cause);
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
 }
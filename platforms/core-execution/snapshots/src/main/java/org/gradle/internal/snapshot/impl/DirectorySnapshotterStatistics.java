@@ -25,6 +25,7 @@
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 public interface DirectorySnapshotterStatistics {
@@ -48,12 +49,25 @@ public interface DirectorySnapshotterStatistics {
      */
     long getFailedFiles();
 
+    /**
+     * The number of subdirectories snapshotted as separate parallel tasks.
+     */
+    long getParallelSubtreeCount();
+
+    /**
+     * The highest number of subdirectories that were being snapshotted at the same time.
+     */
+    int getMaxParallelism();
+
     @ServiceScope(Scope.Global.class)
     class Collector {
         private final AtomicLong hierarchyCount = new AtomicLong();
         private final AtomicLong directoryCount = new AtomicLong();
         private final AtomicLong fileCount = new AtomicLong();
         private final AtomicLong failedFileCount = new AtomicLong();
+        private final AtomicLong parallelSubtreeCount = new AtomicLong();
+        private final AtomicInteger runningSubtreeCount = new AtomicInteger();
+        private final AtomicInteger maxParallelism = new AtomicInteger();
 
         public void recordVisitHierarchy() {
             hierarchyCount.incrementAndGet();
@@ -71,11 +85,23 @@ public void recordVisitFileFailed() {
             failedFileCount.incrementAndGet();
         }
 
+        public void recordParallelSubtreeStarted() {
+            parallelSubtreeCount.incrementAndGet();
+            int running = runningSubtreeCount.incrementAndGet();
+            maxParallelism.accumulateAndGet(running, Math::max);
+        }
+
+        public void recordParallelSubtreeFinished() {
+            runningSubtreeCount.decrementAndGet();
+        }
+
         public DirectorySnapshotterStatistics collect() {
             long hierarchyCount = this.hierarchyCount.getAndSet(0);
             long directoryCount = this.directoryCount.getAndSet(0);
             long fileCount = this.fileCount.getAndSet(0);
             long failedFileCount = this.failedFileCount.getAndSet(0);
+            long parallelSubtreeCount = this.parallelSubtreeCount.getAndSet(0);
+            int maxParallelism = this.maxParallelism.getAndSet(0);
 
             return new DirectorySnapshotterStatistics() {
                 @Override
@@ -98,10 +124,24 @@ public long getFailedFiles() {
                     return failedFileCount;
                 }
 
+                @Override
+                public long getParallelSubtreeCount() {
+                    return parallelSubtreeCount;
+                }
+
+                @Override
+                public int getMaxParallelism() {
+                    return maxParallelism;
+                }
+
                 @Override
                 public String toString() {
-                    return MessageFormat.format("Snapshot {0,number,integer} directory hierarchies (visited {1,number,integer} directories, {2,number,integer} files and {3,number,integer} failed files)",
+                    String summary = MessageFormat.format("Snapshot {0,number,integer} directory hierarchies (visited {1,number,integer} directories, {2,number,integer} files and {3,number,integer} failed files)",
                         hierarchyCount, directoryCount, fileCount, failedFileCount);
+                    if (parallelSubtreeCount == 0) {
+                        return summary;
+                    }
+                    return summary + MessageFormat.format(", {0,number,integer} subtrees in parallel (at most {1,number,integer} at a time)", parallelSubtreeCount, maxParallelism);
                 }
             };
         }
@@ -109,15 +149,31 @@ public String toString() {
 
     abstract class CollectingFileVisitor implements FileVisitor<Path> {
         protected final Collector collector;
+        private boolean skipRecordingRootDirectory;
 
         public CollectingFileVisitor(Collector collector) {
+            this(collector, true);
+        }
+
+        /**
+         * @param newHierarchy whether the visited tree is a new hierarchy, or a subdirectory of a hierarchy that is visited in parallel.
+         * In the latter case the subdirectory itself has already been recorded by the visitor of the parent directory.
+         */
+        protected CollectingFileVisitor(Collector collector, boolean newHierarchy) {
             this.collector = collector;
-            collector.recordVisitHierarchy();
+            this.skipRecordingRootDirectory = !newHierarchy;
+            if (newHierarchy) {
+                collector.recordVisitHierarchy();
+            }
         }
 
         @Override
         public final FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-            collector.recordVisitDirectory();
+            if (skipRecordingRootDirectory) {
+                skipRecordingRootDirectory = false;
+            } else {
+                collector.recordVisitDirectory();
+            }
             return doPreVisitDirectory(dir, attrs);
         }
 
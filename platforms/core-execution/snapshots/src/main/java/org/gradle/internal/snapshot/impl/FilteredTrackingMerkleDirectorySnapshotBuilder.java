@@ -44,12 +44,12 @@ public class FilteredTrackingMerkleDirectorySnapshotBuilder implements Directory
     private final Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder;
     private final DirectorySnapshotBuilder delegate;
 
-    public static FilteredTrackingMerkleDirectorySnapshotBuilder sortingRequired(Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer) {
-        return new FilteredTrackingMerkleDirectorySnapshotBuilder(unfilteredSnapshotConsumer);
+    public static FilteredTrackingMerkleDirectorySnapshotBuilder sortingRequired(Consumer<FileSystemLocationSnapshot> unfilteredSnapshotConsumer, int compactChildrenThreshold) {
+        return new FilteredTrackingMerkleDirectorySnapshotBuilder(unfilteredSnapshotConsumer, compactChildrenThreshold);
     }
 
-    private FilteredTrackingMerkleDirectorySnapshotBuilder(Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder) {
-        this.delegate = MerkleDirectorySnapshotBuilder.sortingRequired();
+    private FilteredTrackingMerkleDirectorySnapshotBuilder(Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder, int compactChildrenThreshold) {
+        this.delegate = MerkleDirectorySnapshotBuilder.sortingRequired(compactChildrenThreshold);
         this.unfilteredSnapshotRecorder = unfilteredSnapshotRecorder;
         // The root starts out as unfiltered.
         isCurrentLevelUnfiltered.addLast(true);
@@ -38,12 +38,14 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -59,6 +61,10 @@ public class DefaultFileSystemAccess implements FileSystemAccess, FileSystemDefa
     private final Interner<String> stringInterner;
     private final WriteListener writeListener;
     private final DirectorySnapshotterStatistics.Collector statisticsCollector;
+    private final int parallelSnapshotDepth;
+    @Nullable
+    private final Executor snapshotExecutor;
+    private final int compactChildrenThreshold;
     private ImmutableList<String> defaultExcludes;
     private DirectorySnapshotter directorySnapshotter;
     private final FileHasher hasher;
@@ -72,13 +78,36 @@ public DefaultFileSystemAccess(
         WriteListener writeListener,
         DirectorySnapshotterStatistics.Collector statisticsCollector,
         String... defaultExcludes
+    ) {
+        this(hasher, stringInterner, stat, virtualFileSystem, writeListener, statisticsCollector, 0, null, 0, defaultExcludes);
+    }
+
+    /**
+     * @param parallelSnapshotDepth how many levels of subdirectories to snapshot in parallel, see {@link DirectorySnapshotter}.
+     * @param snapshotExecutor the executor to snapshot subdirectories on, or {@code null} to snapshot sequentially.
+     * @param compactChildrenThreshold the number of regular files from which directory snapshots keep them in a compact form, or 0 to never do so.
+     */
+    public DefaultFileSystemAccess(
+        FileHasher hasher,
+        Interner<String> stringInterner,
+        FileMetadataAccessor stat,
+        VirtualFileSystem virtualFileSystem,
+        WriteListener writeListener,
+        DirectorySnapshotterStatistics.Collector statisticsCollector,
+        int parallelSnapshotDepth,
+        @Nullable Executor snapshotExecutor,
+        int compactChildrenThreshold,
+        String... defaultExcludes
     ) {
         this.stringInterner = stringInterner;
         this.stat = stat;
         this.writeListener = writeListener;
         this.statisticsCollector = statisticsCollector;
         this.defaultExcludes = ImmutableList.copyOf(defaultExcludes);
-        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, statisticsCollector);
+        this.parallelSnapshotDepth = parallelSnapshotDepth;
+        this.snapshotExecutor = snapshotExecutor;
+        this.compactChildrenThreshold = compactChildrenThreshold;
+        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, statisticsCollector, parallelSnapshotDepth, snapshotExecutor, compactChildrenThreshold);
         this.hasher = hasher;
         this.virtualFileSystem = virtualFileSystem;
     }
@@ -238,7 +267,7 @@ public void onDefaultExcludesChanged(List<String> excludes) {
         if (!defaultExcludes.equals(newDefaultExcludes)) {
             LOGGER.debug("Default excludes changes from {} to {}", defaultExcludes, newDefaultExcludes);
             defaultExcludes = newDefaultExcludes;
-            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, statisticsCollector);
+            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, statisticsCollector, parallelSnapshotDepth, snapshotExecutor, compactChildrenThreshold);
             virtualFileSystem.invalidateAll();
         }
     }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot
+
+import org.gradle.internal.file.FileMetadata.AccessType
+import org.gradle.internal.file.FileType
+import org.gradle.internal.file.impl.DefaultFileMetadata
+import org.gradle.internal.hash.TestHashCodes
+import org.gradle.internal.vfs.impl.DefaultSnapshotHierarchy
+import spock.lang.Specification
+
+class CompactChildMapTest extends Specification {
+    def directoryPath = "${File.separator}project${File.separator}dir".toString()
+
+    def "keeps regular files in compact form"() {
+        def children = createChildren(20)
+
+        when:
+        def childMap = CompactChildMap.childMapFromSortedChildren(directoryPath, children, 10)
+
+        then:
+        childMap instanceof CompactChildMap
+        childMap.size() == children.size()
+        def restoredChildren = childMap.stream().map { it.value }.collect()
+        restoredChildren == children
+        restoredChildren.collect { (it as RegularFileSnapshot).metadata } == children.collect { (it as RegularFileSnapshot).metadata }
+        childMap.stream().map { it.path }.collect() == children*.name
+    }
+
+    def "keeps other children as they are"() {
+        def missingChild = new MissingFileSnapshot(childPath("missing"), "missing", AccessType.DIRECT)
+        def symlinkedChild = new RegularFileSnapshot(childPath("symlinked"), "symlinked", TestHashCodes.hashCodeFrom(1), DefaultFileMetadata.file(1, 2, AccessType.VIA_SYMLINK))
+        def children = (createChildren(20) + [missingChild, symlinkedChild]).sort { it.name }
+
+        when:
+        def childMap = CompactChildMap.childMapFromSortedChildren(directoryPath, children, 10)
+
+        then:
+        childMap instanceof CompactChildMap
+        def restoredChildren = childMap.stream().map { it.value }.collect()
+        restoredChildren == children
+        restoredChildren.find { it.name == "missing" }.is(missingChild)
+        restoredChildren.find { it.name == "symlinked" }.is(symlinkedChild)
+    }
+
+    def "uses regular child map for directories with fewer files"() {
+        expect:
+        !(CompactChildMap.childMapFromSortedChildren(directoryPath, createChildren(5), 10) instanceof CompactChildMap)
+        !(CompactChildMap.childMapFromSortedChildren(directoryPath, createChildren(20), 0) instanceof CompactChildMap)
+    }
+
+    def "finds and invalidates compact children"() {
+        def children = createChildren(20)
+        def directory = new DirectorySnapshot(directoryPath, "dir", AccessType.DIRECT, TestHashCodes.hashCodeFrom(1234), CompactChildMap.childMapFromSortedChildren(directoryPath, children, 10))
+        def hierarchy = DefaultSnapshotHierarchy.empty(CaseSensitivity.CASE_SENSITIVE).store(directoryPath, directory, SnapshotHierarchy.NodeDiffListener.NOOP)
+        def removed = []
+        def added = []
+        def diffListener = new SnapshotHierarchy.NodeDiffListener() {
+            @Override
+            void nodeRemoved(FileSystemNode node) {
+                removed.addAll(node.rootSnapshots().collect { it.absolutePath })
+            }
+
+            @Override
+            void nodeAdded(FileSystemNode node) {
+                added.addAll(node.rootSnapshots().collect { it.absolutePath })
+            }
+        }
+
+        expect:
+        hierarchy.findSnapshot(childPath("file07.txt")).get() == children[7]
+        hierarchy.findSnapshot(childPath("unknown.txt")).get().type == FileType.Missing
+
+        when:
+        def invalidated = hierarchy.invalidate(childPath("file07.txt"), diffListener)
+
+        then:
+        removed == [directoryPath]
+        added as Set == (children - children[7])*.absolutePath as Set
+        !invalidated.findSnapshot(childPath("file07.txt")).present
+        invalidated.findSnapshot(childPath("file08.txt")).get() == children[8]
+    }
+
+    private List<FileSystemLocationSnapshot> createChildren(int count) {
+        (0..<count).collect { index ->
+            def name = String.format("file%02d.txt", index)
+            new RegularFileSnapshot(childPath(name), name, TestHashCodes.hashCodeFrom(index), DefaultFileMetadata.file(1000 + index, 10 * index, AccessType.DIRECT))
+        } as List<FileSystemLocationSnapshot>
+    }
+
+    private String childPath(String name) {
+        directoryPath + File.separator + name
+    }
+}
@@ -27,6 +27,7 @@ import org.junit.Rule
 import spock.lang.Specification
 
 import java.nio.file.NoSuchFileException
+import java.util.concurrent.Executors
 
 @UsesNativeServices
 @CleanupTestDirectory(fieldName = "tmpDir")
@@ -167,6 +168,28 @@ class DirectorySnapshotterStatisticsTest extends Specification {
         "file" | "java.io.FileNotFoundException: %s (Permission denied)"
     }
 
+    def "records subtrees snapshotted in parallel"() {
+        given:
+        def collector = new DirectorySnapshotterStatistics.Collector()
+        def executor = Executors.newFixedThreadPool(2)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], collector, 1, executor, 0)
+        def rootDir = tmpDir.createDir("root")
+        rootDir.file("a/file.txt").createFile()
+        rootDir.file("b/c/file.txt").createFile()
+
+        when:
+        parallelSnapshotter.snapshot(rootDir.absolutePath, null, [:], {})
+        executor.shutdown()
+        def statistics = collector.collect()
+
+        then:
+        statistics.visitedHierarchyCount == 1
+        statistics.visitedDirectoryCount == 4
+        statistics.visitedFiles == 2
+        statistics.parallelSubtreeCount == 2
+        statistics.maxParallelism >= 1
+    }
+
     private snapshot(File root) {
         directorySnapshotter.snapshot(root.absolutePath, null, [:]) {}
     }
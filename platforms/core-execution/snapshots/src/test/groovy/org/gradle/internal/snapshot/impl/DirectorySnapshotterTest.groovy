@@ -42,6 +42,8 @@ import spock.lang.Issue
 import spock.lang.Specification
 
 import java.nio.file.Paths
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 import java.util.function.Consumer
 
 @UsesNativeServices
@@ -57,6 +59,11 @@ class DirectorySnapshotterTest extends Specification {
     Consumer<FileSystemLocationSnapshot> unfilteredSubSnapshotsCollector = { FileSystemLocationSnapshot snapshot ->
         unfilteredSubsnapshots.add(snapshot)
     }
+    ExecutorService executor
+
+    def cleanup() {
+        executor?.shutdownNow()
+    }
 
     def "should snapshot without filters"() {
         given:
@@ -484,6 +491,81 @@ class DirectorySnapshotterTest extends Specification {
         0 * _
     }
 
+    def "parallel snapshot of depth #parallelSnapshotDepth with #threads threads is the same as a sequential snapshot"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        rootDir.file("root.txt").text = "root"
+        ["a", "b", "c"].each { first ->
+            ["d", "e"].each { second ->
+                rootDir.file("$first/$second/f/file.txt").text = "$first$second"
+                rootDir.file("$first/$second/other.txt").text = "other $first$second"
+            }
+        }
+        rootDir.file("empty").createDir()
+        executor = Executors.newFixedThreadPool(threads)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, parallelSnapshotDepth, executor, 0)
+
+        when:
+        def sequentialSnapshot = directorySnapshotter.snapshot(rootDir.absolutePath, null, [:], {})
+        def parallelSnapshot = parallelSnapshotter.snapshot(rootDir.absolutePath, null, [:], unfilteredSubSnapshotsCollector)
+
+        then:
+        parallelSnapshot.hash == sequentialSnapshot.hash
+        SnapshotVisitorUtil.getAbsolutePaths(parallelSnapshot, true) == SnapshotVisitorUtil.getAbsolutePaths(sequentialSnapshot, true)
+        unfilteredSubsnapshots == [parallelSnapshot]
+
+        where:
+        parallelSnapshotDepth | threads
+        1                     | 2
+        2                     | 2
+        10                    | 2
+        // Subtrees waiting for their own subtrees must not exhaust the executor
+        10                    | 1
+    }
+
+    def "keeps regular files of directories with at least #threshold files in a compact form"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        (1..20).each { rootDir.file("file${it}.txt").text = "content ${it}" }
+        rootDir.file("sub/nested.txt").text = "nested"
+        def compactingSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, 0, null, threshold)
+
+        when:
+        def snapshot = compactingSnapshotter.snapshot(rootDir.absolutePath, null, [:], {}) as DirectorySnapshot
+        def regularSnapshot = directorySnapshotter.snapshot(rootDir.absolutePath, null, [:], {})
+
+        then:
+        snapshot.@children.getClass().simpleName == expectedChildMap
+        snapshot.hash == regularSnapshot.hash
+        SnapshotVisitorUtil.getAbsolutePaths(snapshot, true) == SnapshotVisitorUtil.getAbsolutePaths(regularSnapshot, true)
+
+        where:
+        threshold | expectedChildMap
+        0         | "LargeChildMap"
+        15        | "CompactChildMap"
+        30        | "LargeChildMap"
+    }
+
+    @Requires(UnitTestPreconditions.Symlinks)
+    def "parallel snapshot handles symlink cycles like a sequential snapshot"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        def dir = rootDir.file("dir").createDir()
+        dir.file("nested/file.txt").text = "content"
+        dir.file("nested/loop").createLink(dir)
+        rootDir.file("link").createLink(dir.file("nested"))
+        executor = Executors.newFixedThreadPool(2)
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, 3, executor, 0)
+
+        when:
+        def sequentialSnapshot = directorySnapshotter.snapshot(rootDir.absolutePath, null, [:], {})
+        def parallelSnapshot = parallelSnapshotter.snapshot(rootDir.absolutePath, null, [:], {})
+
+        then:
+        parallelSnapshot.hash == sequentialSnapshot.hash
+        SnapshotVisitorUtil.getRelativePaths(parallelSnapshot, true) == SnapshotVisitorUtil.getRelativePaths(sequentialSnapshot, true)
+    }
+
     @Requires(UnitTestPreconditions.FilePermissions)
     def "snapshotting unreadable #type fails"() {
         given:
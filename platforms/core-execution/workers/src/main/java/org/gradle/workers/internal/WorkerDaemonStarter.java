@@ -22,6 +22,8 @@
 import org.gradle.api.logging.LoggingManager;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.classloader.VisitableURLClassLoader;
+import org.gradle.internal.hash.StreamHasher;
+import org.gradle.internal.service.scopes.WorkerSharedGlobalScopeServices;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
 import org.gradle.process.internal.JavaExecHandleBuilder;
@@ -40,12 +42,14 @@ public class WorkerDaemonStarter {
     private final LoggingManager loggingManager;
     private final ClassPathRegistry classPathRegistry;
     private final ActionExecutionSpecFactory actionExecutionSpecFactory;
+    private final StreamHasher streamHasher;
 
-    public WorkerDaemonStarter(WorkerProcessFactory workerDaemonProcessFactory, LoggingManager loggingManager, ClassPathRegistry classPathRegistry, ActionExecutionSpecFactory actionExecutionSpecFactory) {
+    public WorkerDaemonStarter(WorkerProcessFactory workerDaemonProcessFactory, LoggingManager loggingManager, ClassPathRegistry classPathRegistry, ActionExecutionSpecFactory actionExecutionSpecFactory, StreamHasher streamHasher) {
         this.workerDaemonProcessFactory = workerDaemonProcessFactory;
         this.loggingManager = loggingManager;
         this.classPathRegistry = classPathRegistry;
         this.actionExecutionSpecFactory = actionExecutionSpecFactory;
+        this.streamHasher = streamHasher;
     }
 
     public WorkerDaemonClient startDaemon(DaemonForkOptions forkOptions) {
@@ -65,6 +69,8 @@ public WorkerDaemonClient startDaemon(DaemonForkOptions forkOptions) {
         }
         JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
         forkOptions.getJavaForkOptions().copyTo(javaCommand);
+        // Hash file contents the same way as this process
+        javaCommand.systemProperty(WorkerSharedGlobalScopeServices.CONTENT_HASH_FUNCTION.getSystemPropertyName(), WorkerSharedGlobalScopeServices.contentHashFunctionName(streamHasher));
         builder.registerArgumentSerializer(TransportableActionExecutionSpec.class, new TransportableActionExecutionSpecSerializer());
         MultiRequestClient<TransportableActionExecutionSpec, DefaultWorkResult> workerDaemonProcess = builder.build();
         WorkerProcess workerProcess = workerDaemonProcess.start();
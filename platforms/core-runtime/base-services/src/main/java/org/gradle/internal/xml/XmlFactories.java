@@ -24,6 +24,7 @@
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.xpath.XPathFactory;
@@ -59,6 +60,20 @@ public static SAXParserFactory newSAXParserFactory() {
         }
     }
 
+    /**
+     * Creates a {@link XMLInputFactory} that neither processes DTDs nor resolves external entities.
+     */
+    public static XMLInputFactory newXMLInputFactory() {
+        try {
+            XMLInputFactory xif = XMLInputFactory.newInstance();
+            xif.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            xif.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return xif;
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException(errorMessageFor("XMLInputFactory"), e);
+        }
+    }
+
     public static XPathFactory newXPathFactory() {
         try {
             XPathFactory xpf = XPathFactory.newInstance();
@@ -22,7 +22,7 @@
 /**
  * A service that determines the value for an {@link InternalOption}.
  */
-@ServiceScope(Scope.BuildTree.class)
+@ServiceScope({Scope.Global.class, Scope.BuildTree.class})
 public interface InternalOptions {
     /**
      * Lookup the value for an {@link InternalOption}.
@@ -22,7 +22,7 @@
 import java.util.concurrent.TimeUnit;
 
 public class ManagedScheduledExecutorImpl extends AbstractManagedExecutor<ScheduledExecutorService> implements ManagedScheduledExecutor {
-    ManagedScheduledExecutorImpl(ScheduledExecutorService delegate, ExecutorPolicy executorPolicy) {
+    public ManagedScheduledExecutorImpl(ScheduledExecutorService delegate, ExecutorPolicy executorPolicy) {
         super(delegate, executorPolicy);
     }
 
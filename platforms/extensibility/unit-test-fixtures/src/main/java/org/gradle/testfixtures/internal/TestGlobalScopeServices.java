@@ -18,6 +18,7 @@
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.internal.CacheFactory;
 import org.gradle.internal.Factory;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.instrumentation.agent.AgentStatus;
 import org.gradle.internal.logging.LoggingManagerInternal;
@@ -37,7 +38,7 @@ public TestGlobalScopeServices() {
 
     @Provides
     @Override
-    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner) {
+    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner, InternalOptions internalOptions) {
         return new TestInMemoryCacheFactory();
     }
 
@@ -23,6 +23,8 @@
 import org.gradle.util.Path;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 @UsedByScanPlugin("test-distribution, test-retry")
@@ -40,8 +42,13 @@ public class JvmTestExecutionSpec implements TestExecutionSpec {
     private final int maxParallelForks;
     private final Set<String> previousFailedTestClasses;
     private final boolean testIsModule;
+    private final Map<String, Long> previousTestClassDurations;
 
     public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, Iterable<? extends File>  modulePath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses, boolean testIsModule) {
+        this(testFramework, classpath, modulePath, candidateClassFiles, scanForTestClasses, testClassesDirs, path, identityPath, forkEvery, javaForkOptions, maxParallelForks, previousFailedTestClasses, testIsModule, Collections.<String, Long>emptyMap());
+    }
+
+    public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, Iterable<? extends File>  modulePath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses, boolean testIsModule, Map<String, Long> previousTestClassDurations) {
         this.testFramework = testFramework;
         this.classpath = classpath;
         this.modulePath = modulePath;
@@ -55,6 +62,7 @@ public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File
         this.maxParallelForks = maxParallelForks;
         this.previousFailedTestClasses = previousFailedTestClasses;
         this.testIsModule = testIsModule;
+        this.previousTestClassDurations = previousTestClassDurations;
     }
 
     @SuppressWarnings("unused")
@@ -62,7 +70,7 @@ public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File
     public JvmTestExecutionSpec copyWithTestFramework(TestFramework testFramework) {
         return new JvmTestExecutionSpec(testFramework, this.classpath, this.modulePath, this.candidateClassFiles,
             this.scanForTestClasses, this.testClassesDirs, this.path, this.identityPath, this.forkEvery,
-            this.javaForkOptions, this.maxParallelForks, this.previousFailedTestClasses, this.testIsModule
+            this.javaForkOptions, this.maxParallelForks, this.previousFailedTestClasses, this.testIsModule, this.previousTestClassDurations
         );
     }
 
@@ -119,4 +127,12 @@ public Set<String> getPreviousFailedTestClasses() {
     public boolean getTestIsModule() {
         return testIsModule;
     }
+
+    /**
+     * Durations of the test classes executed by the previous run of the task, keyed by class name.
+     * Empty when the forks should not be balanced by duration.
+     */
+    public Map<String, Long> getPreviousTestClassDurations() {
+        return previousTestClassDurations;
+    }
 }
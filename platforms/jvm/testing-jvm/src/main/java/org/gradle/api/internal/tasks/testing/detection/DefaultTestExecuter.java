@@ -102,7 +102,7 @@ public TestClassProcessor create() {
         processor =
             new PatternMatchTestClassProcessor(testFilter,
                 new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
-                    new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory)));
+                    new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory, testExecutionSpec.getPreviousTestClassDurations())));
 
         final FileTree testClassFiles = testExecutionSpec.getCandidateClassFiles();
 
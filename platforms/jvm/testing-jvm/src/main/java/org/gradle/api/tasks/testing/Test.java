@@ -69,6 +69,8 @@
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factory;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.deprecation.DeprecationLogger;
 import org.gradle.internal.instrumentation.api.annotations.ToBeReplacedByLazyProperty;
@@ -94,7 +96,7 @@
 import javax.inject.Inject;
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -168,6 +170,8 @@
 @CacheableTask
 public abstract class Test extends AbstractTestTask implements JavaForkOptions, PatternFilterable {
 
+    private static final InternalFlag BALANCE_FORKS_BY_DURATION = new InternalFlag("org.gradle.internal.testing.balance-forks-by-duration");
+
     private final JavaForkOptions forkOptions;
     private final ModularitySpec modularity;
     private final Property<JavaLauncher> javaLauncher;
@@ -675,7 +679,8 @@ protected JvmTestExecutionSpec createTestExecutionSpec() {
         boolean testIsModule = javaModuleDetector.isModule(modularity.getInferModulePath().get(), getTestClassesDirs());
         FileCollection classpath = javaModuleDetector.inferClasspath(testIsModule, stableClasspath);
         FileCollection modulePath = javaModuleDetector.inferModulePath(testIsModule, stableClasspath);
-        return new JvmTestExecutionSpec(getTestFramework(), classpath, modulePath, getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), getPreviousFailedTestClasses(), testIsModule);
+        PreviousTestClassResults previousResults = readPreviousTestClassResults();
+        return new JvmTestExecutionSpec(getTestFramework(), classpath, modulePath, getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), previousResults.failedTestClasses, testIsModule, previousResults.testClassDurations);
     }
 
     private void validateExecutableMatchesToolchain() {
@@ -686,24 +691,33 @@ private void validateExecutableMatchesToolchain() {
                 toolchainExecutable, "toolchain from `javaLauncher` property");
     }
 
-    private Set<String> getPreviousFailedTestClasses() {
+    private PreviousTestClassResults readPreviousTestClassResults() {
         TestResultSerializer serializer = new TestResultSerializer(getBinaryResultsDirectory().getAsFile().get());
         if (serializer.isHasResults()) {
-            final Set<String> previousFailedTestClasses = new HashSet<String>();
+            final boolean balanceForks = getMaxParallelForks() > 1 && getServices().get(InternalOptions.class).getOption(BALANCE_FORKS_BY_DURATION).get();
+            final PreviousTestClassResults previousResults = new PreviousTestClassResults();
             serializer.read(new Action<TestClassResult>() {
                 @Override
                 public void execute(TestClassResult testClassResult) {
                     if (testClassResult.getFailuresCount() > 0) {
-                        previousFailedTestClasses.add(testClassResult.getClassName());
+                        previousResults.failedTestClasses.add(testClassResult.getClassName());
+                    }
+                    if (balanceForks) {
+                        previousResults.testClassDurations.put(testClassResult.getClassName(), testClassResult.getDuration());
                     }
                 }
             });
-            return previousFailedTestClasses;
+            return previousResults;
         } else {
-            return Collections.emptySet();
+            return new PreviousTestClassResults();
         }
     }
 
+    private static class PreviousTestClassResults {
+        private final Set<String> failedTestClasses = new HashSet<String>();
+        private final Map<String, Long> testClassDurations = new HashMap<String, Long>();
+    }
+
     @Override
     @TaskAction
     public void executeTests() {
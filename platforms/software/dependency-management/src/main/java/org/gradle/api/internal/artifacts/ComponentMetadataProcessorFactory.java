@@ -16,6 +16,10 @@
 
 package org.gradle.api.internal.artifacts;
 
+import org.gradle.internal.component.external.model.VariantDerivationStrategy;
+
+import javax.annotation.Nullable;
+
 /**
  * A factory for {@link ComponentMetadataProcessor}.
  * <p>
@@ -34,4 +38,21 @@ public interface ComponentMetadataProcessorFactory {
      * @return a {@code ComponentMetadataProcessor}
      */
     ComponentMetadataProcessor createComponentMetadataProcessor(MetadataResolutionContext resolutionContext);
+
+    /**
+     * Returns true if the processors created by this factory may apply component metadata rules.
+     * Implementations that cannot tell must return true.
+     */
+    default boolean hasRules() {
+        return true;
+    }
+
+    /**
+     * Returns the strategy used by the processors created by this factory to derive variants from metadata that does not declare any,
+     * or {@code null} when it is not known.
+     */
+    @Nullable
+    default VariantDerivationStrategy getVariantDerivationStrategy() {
+        return null;
+    }
 }
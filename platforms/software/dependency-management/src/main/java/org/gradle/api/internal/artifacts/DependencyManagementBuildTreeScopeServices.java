@@ -33,6 +33,7 @@
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleSourcesSerializer;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.PersistentModuleMetadataCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ReadOnlyModuleMetadataCache;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.TwoStageModuleMetadataCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts.AbstractArtifactsCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.artifacts.DefaultModuleArtifactCache;
@@ -52,6 +53,7 @@
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.DefaultProjectLocalComponentProvider;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectArtifactResolver;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectionDescriptorFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ThisBuildOnlyComponentDetailsSerializer;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ThisBuildOnlySelectedVariantSerializer;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
@@ -70,6 +72,7 @@
 import org.gradle.internal.component.local.model.LocalComponentGraphResolveStateFactory;
 import org.gradle.internal.component.model.ComponentIdGenerator;
 import org.gradle.internal.component.model.PersistentModuleSource;
+import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.hash.ChecksumService;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.CachedExternalResourceIndex;
@@ -163,6 +166,17 @@ ModuleDescriptorHashModuleSource.CODEC_ID, new ModuleDescriptorHashCodec()
         return new ModuleSourcesSerializer(codecs);
     }
 
+    @Provides
+    ResolvedGraphCache createResolvedGraphCache(
+        ArtifactCachesProvider artifactCaches,
+        FileAccessTimeJournal fileAccessTimeJournal,
+        ImmutableModuleIdentifierFactory moduleIdentifierFactory,
+        AttributeContainerSerializer attributeContainerSerializer,
+        ComponentSelectionDescriptorFactory componentSelectionDescriptorFactory
+    ) {
+        return artifactCaches.withWritableCache((md, manager) -> new ResolvedGraphCache(md.getResolvedGraphStoreDirectory(), manager, fileAccessTimeJournal, moduleIdentifierFactory, attributeContainerSerializer, componentSelectionDescriptorFactory));
+    }
+
     @Provides
     StartParameterResolutionOverride createStartParameterResolutionOverride(StartParameter startParameter, BuildLayout buildLayout) {
         File rootDirectory = buildLayout.getRootDirectory();
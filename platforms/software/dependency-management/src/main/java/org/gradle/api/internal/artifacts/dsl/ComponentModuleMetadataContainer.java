@@ -84,6 +84,11 @@ public boolean participatesInReplacements(ModuleIdentifier moduleId) {
         return targets.contains(moduleId) || replacements.containsKey(moduleId);
     }
 
+    @Override
+    public boolean isEmpty() {
+        return replacements.isEmpty();
+    }
+
     private static void detectCycles(Map<ModuleIdentifier, Replacement> replacements, ModuleIdentifier source, ModuleIdentifier target) {
         if (source.equals(target)) {
             throw new InvalidUserDataException(String.format("Cannot declare module replacement that replaces self: %s->%s", source, target));
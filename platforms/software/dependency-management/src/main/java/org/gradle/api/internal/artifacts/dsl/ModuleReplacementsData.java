@@ -32,12 +32,22 @@ public Replacement getReplacementFor(ModuleIdentifier sourceModule) {
         public boolean participatesInReplacements(ModuleIdentifier moduleId) {
             return false;
         }
+
+        @Override
+        public boolean isEmpty() {
+            return true;
+        }
     };
 
     @Nullable Replacement getReplacementFor(ModuleIdentifier sourceModule);
 
     boolean participatesInReplacements(ModuleIdentifier moduleId);
 
+    /**
+     * Returns true if no module replacements have been declared.
+     */
+    boolean isEmpty();
+
     class Replacement {
         private final ModuleIdentifier target;
         private final String reason;
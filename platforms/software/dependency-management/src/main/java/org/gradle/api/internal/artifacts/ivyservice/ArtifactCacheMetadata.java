@@ -43,4 +43,11 @@ public interface ArtifactCacheMetadata {
      * @return Metadata store location
      */
     File getMetaDataStoreDirectory();
+
+    /**
+     * Returns the root directory for the resolved dependency graph store.
+     *
+     * @return Resolved graph store location
+     */
+    File getResolvedGraphStoreDirectory();
 }
@@ -0,0 +1,551 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ResolveException;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentSelector;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.capabilities.Capability;
+import org.gradle.api.internal.artifacts.ConfigurationResolver;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.ResolverResults;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dependencies.DefaultResolvedVersionConstraint;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ResolvedGraphCache;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.RootComponentMetadataBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.projectmodule.LocalComponentRegistry;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.results.VisitedGraphResults;
+import org.gradle.api.internal.artifacts.repositories.ContentFilteringRepository;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.api.internal.artifacts.result.ResolvedComponentResultInternal;
+import org.gradle.api.internal.attributes.AttributeContainerInternal;
+import org.gradle.api.internal.attributes.AttributesSchemaInternal;
+import org.gradle.api.internal.attributes.CompatibilityRule;
+import org.gradle.api.internal.attributes.DefaultCompatibilityRuleChain;
+import org.gradle.api.internal.attributes.DefaultDisambiguationRuleChain;
+import org.gradle.api.internal.attributes.DefaultOrderedCompatibilityRule;
+import org.gradle.api.internal.attributes.DefaultOrderedDisambiguationRule;
+import org.gradle.api.internal.attributes.DisambiguationRule;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.internal.Actions;
+import org.gradle.internal.action.ConfigurableRule;
+import org.gradle.internal.action.InstantiatingAction;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.component.external.model.AbstractStatelessDerivationStrategy;
+import org.gradle.internal.component.external.model.VariantDerivationStrategy;
+import org.gradle.internal.component.local.model.DefaultProjectComponentSelector;
+import org.gradle.internal.component.local.model.LocalComponentGraphResolveState;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.gradle.internal.component.model.ForcingDependencyMetadata;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.component.model.LocalOriginDependencyMetadata;
+import org.gradle.internal.component.model.VariantGraphResolveMetadata;
+import org.gradle.internal.component.model.VariantGraphResolveState;
+import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.util.GradleVersion;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link ConfigurationResolver} that reuses the dependency graph resolved by a previous build, when the graph
+ * was resolved from exactly the same inputs.
+ *
+ * <p>Only graphs whose shape cannot change between builds are cached: every module must be requested with a static,
+ * non-changing version from a remote repository, no module of the graph may be changing, and the build must not declare any rule that can influence
+ * graph resolution other than attribute schema rules, which are part of the key together with the classpath they
+ * were loaded from. Project dependencies are part of the key through the variants of the target projects.
+ * All other configurations are resolved by the delegate.</p>
+ *
+ * <p>The key is calculated before the graph is resolved, so it cannot cover the metadata of the modules in the graph.
+ * Instead, each cached graph records the descriptor of each of its modules and the repository it was found in.</p>
+ *
+ * <p>On a cache hit, the cached graph is replayed against the current metadata of its components to calculate the
+ * artifacts and the legacy resolution results. The graph is resolved again when it cannot be replayed, or when the
+ * recorded metadata no longer matches the module cache, for example because the metadata was refreshed or a module
+ * that was missing from a repository earlier in the chain is now found there.</p>
+ */
+public class CachingConfigurationResolver implements ConfigurationResolver {
+    /**
+     * Enables the reuse of dependency graphs resolved by previous builds.
+     */
+    public static final InternalFlag GRAPH_CACHE = new InternalFlag("org.gradle.internal.dependency-resolution.graph-cache");
+
+    private static final int FORMAT_VERSION = 3;
+
+    private final DefaultConfigurationResolver delegate;
+    private final ResolvedGraphCache cache;
+    private final GlobalDependencyResolutionRules metadataHandler;
+    private final AttributesSchemaInternal consumerSchema;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final StartParameter startParameter;
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private final LocalComponentRegistry localComponentRegistry;
+
+    public CachingConfigurationResolver(
+        DefaultConfigurationResolver delegate,
+        ResolvedGraphCache cache,
+        GlobalDependencyResolutionRules metadataHandler,
+        AttributesSchemaInternal consumerSchema,
+        VersionSelectorScheme versionSelectorScheme,
+        StartParameter startParameter,
+        ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
+        LocalComponentRegistry localComponentRegistry
+    ) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.metadataHandler = metadataHandler;
+        this.consumerSchema = consumerSchema;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.startParameter = startParameter;
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+        this.localComponentRegistry = localComponentRegistry;
+    }
+
+    @Override
+    public List<ResolutionAwareRepository> getAllRepositories() {
+        return delegate.getAllRepositories();
+    }
+
+    @Override
+    public ResolverResults resolveBuildDependencies(ResolveContext resolveContext) {
+        return delegate.resolveBuildDependencies(resolveContext);
+    }
+
+    @Override
+    public ResolverResults resolveGraph(ResolveContext resolveContext) throws ResolveException {
+        HashCode key = fingerprint(resolveContext);
+        if (key == null) {
+            return delegate.resolveGraph(resolveContext);
+        }
+
+        if (!startParameter.isRefreshDependencies()) {
+            ResolvedGraphCache.CachedGraph cachedGraph = cache.get(key);
+            if (cachedGraph != null) {
+                ResolverResults results = delegate.resolveCachedGraph(resolveContext, cachedGraph.getRoot(), cachedGraph.getMetadataState());
+                if (results != null) {
+                    return results;
+                }
+            }
+        }
+
+        ResolverResults results = delegate.resolveGraph(resolveContext);
+        VisitedGraphResults graph = results.getVisitedGraph();
+        if (!graph.hasAnyFailure()) {
+            ResolvedComponentResult root = graph.getResolutionResult().getRootSource().get();
+            if (isCacheable(root)) {
+                HashCode metadataState = delegate.calculateMetadataState(resolveContext, root);
+                if (metadataState != null) {
+                    cache.put(key, root, metadataState);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Calculates the cache key for the given configuration, or returns {@code null} when its graph may not be cached.
+     */
+    @Nullable
+    private HashCode fingerprint(ResolveContext resolveContext) {
+        ResolutionStrategyInternal resolutionStrategy = resolveContext.getResolutionStrategy();
+        if (startParameter.isWriteDependencyLocks()
+            || resolutionStrategy.isDependencyLockingEnabled()
+            || resolutionStrategy.isDependencyVerificationEnabled()
+            || !resolutionStrategy.getDependencySubstitutionRule().isEmpty()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || !resolutionStrategy.getCapabilitiesResolutionRules().isEmpty()
+            || metadataHandler.getComponentMetadataProcessorFactory().hasRules()
+            || !metadataHandler.getModuleMetadataProcessor().getModuleReplacements().isEmpty()) {
+            return null;
+        }
+
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(GradleVersion.current().getVersion());
+        hasher.putInt(FORMAT_VERSION);
+        hasher.putString(resolveContext.getName());
+        // Offline builds only see the modules that are already in the module cache
+        hasher.putBoolean(startParameter.isOffline());
+        hasher.putString(resolutionStrategy.getConflictResolution().name());
+        hasher.putBoolean(resolutionStrategy.isFailingOnDynamicVersions());
+        hasher.putBoolean(resolutionStrategy.isFailingOnChangingVersions());
+        hasher.putBoolean(resolutionStrategy.getIncludeAllSelectableVariantResults());
+
+        for (ResolutionAwareRepository repository : delegate.getAllRepositories()) {
+            if (repository instanceof ContentFilteringRepository) {
+                ContentFilteringRepository filteringRepository = (ContentFilteringRepository) repository;
+                if (filteringRepository.getContentFilter() != Actions.doNothing()
+                    || filteringRepository.getIncludedConfigurations() != null
+                    || filteringRepository.getExcludedConfigurations() != null
+                    || filteringRepository.getRequiredAttributes() != null) {
+                    return null;
+                }
+            }
+            ConfiguredModuleComponentRepository resolver = repository.createResolver();
+            if (resolver.isLocal() || resolver.getComponentMetadataSupplier() != null) {
+                return null;
+            }
+            hasher.putString(resolver.getId());
+        }
+
+        if (!hashSchema(hasher, consumerSchema)) {
+            return null;
+        }
+        VariantDerivationStrategy derivationStrategy = metadataHandler.getComponentMetadataProcessorFactory().getVariantDerivationStrategy();
+        if (!(derivationStrategy instanceof AbstractStatelessDerivationStrategy) || !hashImplementation(hasher, derivationStrategy.getClass())) {
+            return null;
+        }
+
+        RootComponentMetadataBuilder.RootComponentState root = resolveContext.toRootComponent();
+        hasher.putString(root.getComponentIdentifier().getDisplayName());
+        hasher.putString(root.getModuleVersionIdentifier().toString());
+        VariantGraphResolveState rootVariant = root.getRootVariant();
+        Set<ComponentIdentifier> hashedProjects = new HashSet<>();
+        if (!hashVariant(hasher, rootVariant, hashedProjects) || !hashDependencies(hasher, resolveContext.getSyntheticDependencies(), hashedProjects)) {
+            return null;
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Hashes the attributes of a schema together with the rules declared for them. Rules are identified by their
+     * implementation and parameters, so the schema can only be hashed when all its rules are known.
+     */
+    private boolean hashSchema(Hasher hasher, AttributesSchemaInternal schema) {
+        List<Attribute<?>> attributes = new ArrayList<>(schema.getAttributes());
+        attributes.sort(Comparator.comparing(Attribute::getName));
+        hasher.putInt(attributes.size());
+        for (Attribute<?> attribute : attributes) {
+            hasher.putString(attribute.getName());
+            hasher.putString(attribute.getType().getName());
+            if (!hashCompatibilityRules(hasher, schema.compatibilityRules(attribute)) || !hashDisambiguationRules(hasher, schema.disambiguationRules(attribute))) {
+                return false;
+            }
+        }
+        List<Attribute<?>> precedence = schema.getAttributeDisambiguationPrecedence();
+        hasher.putInt(precedence.size());
+        for (Attribute<?> attribute : precedence) {
+            hasher.putString(attribute.getName());
+        }
+        return true;
+    }
+
+    private boolean hashCompatibilityRules(Hasher hasher, CompatibilityRule<Object> rules) {
+        if (!rules.doesSomething()) {
+            hasher.putInt(0);
+            return true;
+        }
+        return rules instanceof DefaultCompatibilityRuleChain && hashRules(hasher, ((DefaultCompatibilityRuleChain<Object>) rules).getRules());
+    }
+
+    private boolean hashDisambiguationRules(Hasher hasher, DisambiguationRule<Object> rules) {
+        if (!rules.doesSomething()) {
+            hasher.putInt(0);
+            return true;
+        }
+        return rules instanceof DefaultDisambiguationRuleChain && hashRules(hasher, ((DefaultDisambiguationRuleChain<Object>) rules).getRules());
+    }
+
+    private boolean hashRules(Hasher hasher, List<? extends Action<?>> rules) {
+        hasher.putInt(rules.size());
+        for (Action<?> rule : rules) {
+            if (rule instanceof InstantiatingAction) {
+                List<? extends ConfigurableRule<?>> configurableRules = ((InstantiatingAction<?>) rule).getRules().getConfigurableRules();
+                hasher.putInt(configurableRules.size());
+                for (ConfigurableRule<?> configurableRule : configurableRules) {
+                    if (!hashImplementation(hasher, configurableRule.getRuleClass())) {
+                        return false;
+                    }
+                    configurableRule.getRuleParams().appendToHasher(hasher);
+                }
+            } else if (rule instanceof DefaultOrderedCompatibilityRule) {
+                DefaultOrderedCompatibilityRule<?> orderedRule = (DefaultOrderedCompatibilityRule<?>) rule;
+                hasher.putBoolean(orderedRule.isReverse());
+                if (!hashStatelessInstance(hasher, orderedRule.getComparator())) {
+                    return false;
+                }
+            } else if (rule instanceof DefaultOrderedDisambiguationRule) {
+                DefaultOrderedDisambiguationRule<?> orderedRule = (DefaultOrderedDisambiguationRule<?>) rule;
+                hasher.putBoolean(orderedRule.isPickFirst());
+                if (!hashStatelessInstance(hasher, orderedRule.getComparator())) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes an object by its implementation. This is only possible for objects without any state, such as a comparator
+     * that is not a lambda or a closure.
+     */
+    private boolean hashStatelessInstance(Hasher hasher, Object instance) {
+        Class<?> type = instance.getClass();
+        if (type.isSynthetic() || type.getName().contains("$$Lambda")) {
+            // The name of a lambda class is not stable across builds
+            return false;
+        }
+        for (Class<?> current = type; current != Object.class && current != Enum.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return false;
+                }
+            }
+        }
+        return hashImplementation(hasher, type);
+    }
+
+    private boolean hashImplementation(Hasher hasher, Class<?> type) {
+        hasher.putString(type.getName());
+        ClassLoader classLoader = type.getClassLoader();
+        if (classLoader != null) {
+            HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(classLoader);
+            if (classLoaderHash == null) {
+                return false;
+            }
+            hasher.putHash(classLoaderHash);
+        }
+        return true;
+    }
+
+    private boolean hashVariant(Hasher hasher, VariantGraphResolveState variant, Set<ComponentIdentifier> hashedProjects) {
+        hasher.putString(variant.getName());
+        hashAttributes(hasher, variant.getAttributes());
+        hashCapabilities(hasher, variant.getCapabilities().asSet());
+        VariantGraphResolveMetadata metadata = variant.getMetadata();
+        hasher.putBoolean(metadata.isTransitive());
+        return hashExcludes(hasher, metadata.getExcludes()) && hashDependencies(hasher, metadata.getDependencies(), hashedProjects);
+    }
+
+    private boolean hashDependencies(Hasher hasher, List<? extends DependencyMetadata> dependencies, Set<ComponentIdentifier> hashedProjects) {
+        hasher.putInt(dependencies.size());
+        for (DependencyMetadata dependency : dependencies) {
+            if (dependency.isChanging() || DefaultComponentOverrideMetadata.extractClientModule(dependency) != null) {
+                return false;
+            }
+            ComponentSelector selector = dependency.getSelector();
+            if (selector instanceof ModuleComponentSelector) {
+                if (!hashModuleSelector(hasher, (ModuleComponentSelector) selector)) {
+                    return false;
+                }
+            } else if (selector instanceof DefaultProjectComponentSelector) {
+                if (dependency instanceof LocalOriginDependencyMetadata && ((LocalOriginDependencyMetadata) dependency).getDependencyConfiguration() != null) {
+                    // The variants of the target project are only hashed when they are selected using attribute matching
+                    return false;
+                }
+                DefaultProjectComponentSelector projectSelector = (DefaultProjectComponentSelector) selector;
+                hasher.putString(projectSelector.getIdentityPath().toString());
+                hashAttributes(hasher, projectSelector.getAttributes());
+                hashCapabilities(hasher, projectSelector.getRequestedCapabilities());
+                if (!hashProject(hasher, projectSelector.toIdentifier(), hashedProjects)) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+            hasher.putBoolean(dependency.isConstraint());
+            hasher.putBoolean(dependency.isTransitive());
+            hasher.putBoolean(dependency instanceof ForcingDependencyMetadata && ((ForcingDependencyMetadata) dependency).isForce());
+            hasher.putBoolean(dependency.isEndorsingStrictVersions());
+            hashNullableString(hasher, dependency.getReason());
+            if (!hashExcludes(hasher, dependency.getExcludes())) {
+                return false;
+            }
+            hasher.putInt(dependency.getArtifacts().size());
+            for (IvyArtifactName artifact : dependency.getArtifacts()) {
+                hashArtifact(hasher, artifact);
+            }
+        }
+        return true;
+    }
+
+    private boolean hashModuleSelector(Hasher hasher, ModuleComponentSelector moduleSelector) {
+        VersionConstraint versionConstraint = moduleSelector.getVersionConstraint();
+        if (!isStatic(versionConstraint)) {
+            return false;
+        }
+        hasher.putString(moduleSelector.getGroup());
+        hasher.putString(moduleSelector.getModule());
+        hasher.putString(versionConstraint.getRequiredVersion());
+        hasher.putString(versionConstraint.getPreferredVersion());
+        hasher.putString(versionConstraint.getStrictVersion());
+        hashNullableString(hasher, versionConstraint.getBranch());
+        hasher.putInt(versionConstraint.getRejectedVersions().size());
+        for (String rejectedVersion : versionConstraint.getRejectedVersions()) {
+            hasher.putString(rejectedVersion);
+        }
+        hashAttributes(hasher, ((AttributeContainerInternal) moduleSelector.getAttributes()).asImmutable());
+        hashCapabilities(hasher, moduleSelector.getRequestedCapabilities());
+        return true;
+    }
+
+    /**
+     * Hashes the variants of a project that can be selected by a project dependency. Each project is only hashed
+     * once, which also stops the recursion when projects depend on each other.
+     */
+    private boolean hashProject(Hasher hasher, ProjectComponentIdentifier projectId, Set<ComponentIdentifier> hashedProjects) {
+        if (!hashedProjects.add(projectId)) {
+            return true;
+        }
+        LocalComponentGraphResolveState component = localComponentRegistry.getComponent(projectId);
+        hasher.putString(component.getMetadata().getModuleVersionId().toString());
+        if (!hashSchema(hasher, component.getMetadata().getAttributesSchema())) {
+            return false;
+        }
+        List<? extends VariantGraphResolveState> variants = component.getCandidatesForGraphVariantSelection().getVariantsForAttributeMatching();
+        hasher.putInt(variants.size());
+        for (VariantGraphResolveState variant : variants) {
+            if (!hashVariant(hasher, variant, hashedProjects)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isStatic(VersionConstraint versionConstraint) {
+        if (new DefaultResolvedVersionConstraint(versionConstraint, versionSelectorScheme).isDynamic()) {
+            return false;
+        }
+        String version = versionConstraint.getStrictVersion().isEmpty() ? versionConstraint.getRequiredVersion() : versionConstraint.getStrictVersion();
+        return !version.isEmpty() && !version.endsWith("-SNAPSHOT") && versionConstraint.getBranch() == null;
+    }
+
+    /**
+     * A graph is only worth caching when resolving it again would produce the same result, provided the
+     * inputs captured by the fingerprint did not change.
+     */
+    private boolean isCacheable(ResolvedComponentResult root) {
+        Set<ComponentIdentifier> seen = new HashSet<>();
+        Deque<ResolvedComponentResult> queue = new ArrayDeque<>();
+        seen.add(root.getId());
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            ResolvedComponentResult component = queue.removeFirst();
+            ComponentIdentifier id = component.getId();
+            if (component != root && !(id instanceof ProjectComponentIdentifier)) {
+                if (!(id instanceof ModuleComponentIdentifier)
+                    || ((ModuleComponentIdentifier) id).getVersion().endsWith("-SNAPSHOT")
+                    || !(component instanceof ResolvedComponentResultInternal)
+                    || ((ResolvedComponentResultInternal) component).getRepositoryId() == null) {
+                    return false;
+                }
+            }
+            for (DependencyResult dependency : component.getDependencies()) {
+                if (!(dependency instanceof ResolvedDependencyResult)) {
+                    return false;
+                }
+                ComponentSelector requested = dependency.getRequested();
+                if (dependency.isConstraint() && !requested.getAttributes().isEmpty()) {
+                    // Attributes of constraints are merged into the attributes of the edges, which the cached graph cannot restore
+                    return false;
+                }
+                if (requested instanceof ModuleComponentSelector) {
+                    if (!isStatic(((ModuleComponentSelector) requested).getVersionConstraint())) {
+                        return false;
+                    }
+                } else if (!(requested instanceof ProjectComponentSelector)) {
+                    return false;
+                }
+                ResolvedComponentResult selected = ((ResolvedDependencyResult) dependency).getSelected();
+                if (seen.add(selected.getId())) {
+                    queue.add(selected);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void hashAttributes(Hasher hasher, ImmutableAttributes attributes) {
+        List<Attribute<?>> keys = new ArrayList<>(attributes.keySet());
+        keys.sort(Comparator.comparing(Attribute::getName));
+        hasher.putInt(keys.size());
+        for (Attribute<?> key : keys) {
+            hasher.putString(key.getName());
+            hasher.putString(String.valueOf(attributes.findEntry(key.getName()).get()));
+        }
+    }
+
+    private static void hashCapabilities(Hasher hasher, Collection<? extends Capability> capabilities) {
+        hasher.putInt(capabilities.size());
+        for (Capability capability : capabilities) {
+            hasher.putString(capability.getGroup());
+            hasher.putString(capability.getName());
+            hashNullableString(hasher, capability.getVersion());
+        }
+    }
+
+    private static boolean hashExcludes(Hasher hasher, List<? extends ExcludeMetadata> excludes) {
+        hasher.putInt(excludes.size());
+        for (ExcludeMetadata exclude : excludes) {
+            if (exclude.getArtifact() != null) {
+                // Artifact excludes are applied to the artifacts of a graph, which are not part of the cached graph
+                return false;
+            }
+            ModuleIdentifier moduleId = exclude.getModuleId();
+            hasher.putString(moduleId.getGroup());
+            hasher.putString(moduleId.getName());
+            hashNullableString(hasher, exclude.getMatcher());
+        }
+        return true;
+    }
+
+    private static void hashArtifact(Hasher hasher, IvyArtifactName artifact) {
+        hasher.putString(artifact.getName());
+        hasher.putString(artifact.getType());
+        hashNullableString(hasher, artifact.getExtension());
+        hashNullableString(hasher, artifact.getClassifier());
+    }
+
+    private static void hashNullableString(Hasher hasher, @Nullable String value) {
+        if (value == null) {
+            hasher.putNull();
+        } else {
+            hasher.putString(value);
+        }
+    }
+}
@@ -58,6 +58,11 @@ public File getMetaDataStoreDirectory() {
         return new File(createCacheRelativeDir(CacheLayout.META_DATA), "descriptors");
     }
 
+    @Override
+    public File getResolvedGraphStoreDirectory() {
+        return new File(createCacheRelativeDir(CacheLayout.META_DATA), "resolved-graphs");
+    }
+
     private File createCacheRelativeDir(CacheLayout cacheLayout) {
         return cacheLayout.getPath(getCacheDir());
     }
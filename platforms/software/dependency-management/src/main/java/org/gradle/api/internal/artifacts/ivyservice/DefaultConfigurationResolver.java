@@ -58,6 +58,8 @@
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.VisitedArtifactResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.VisitedArtifactSet;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.VisitedFileDependencyResults;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CachedGraphReplay;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyArtifactsVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
@@ -98,6 +100,7 @@
 import org.gradle.internal.build.BuildState;
 import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.internal.component.model.GraphVariantSelector;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.locking.DependencyLockingGraphVisitor;
 import org.gradle.internal.model.CalculatedValueContainerFactory;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -139,6 +142,7 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
     private final ExternalModuleComponentResolverFactory externalResolverFactory;
     private final ProjectDependencyResolver projectDependencyResolver;
     private final DependencyLockingProvider dependencyLockingProvider;
+    private final ModuleExclusions moduleExclusions;
 
     public DefaultConfigurationResolver(
         DependencyGraphResolver dependencyGraphResolver,
@@ -166,7 +170,8 @@ public DefaultConfigurationResolver(
         List<ResolverProviderFactory> resolverFactories,
         ExternalModuleComponentResolverFactory externalResolverFactory,
         ProjectDependencyResolver projectDependencyResolver,
-        DependencyLockingProvider dependencyLockingProvider
+        DependencyLockingProvider dependencyLockingProvider,
+        ModuleExclusions moduleExclusions
     ) {
         this.dependencyGraphResolver = dependencyGraphResolver;
         this.repositoriesSupplier = repositoriesSupplier;
@@ -194,6 +199,7 @@ public DefaultConfigurationResolver(
         this.externalResolverFactory = externalResolverFactory;
         this.projectDependencyResolver = projectDependencyResolver;
         this.dependencyLockingProvider = dependencyLockingProvider;
+        this.moduleExclusions = moduleExclusions;
     }
 
     @Override
@@ -309,6 +315,66 @@ public ResolverResults resolveGraph(ResolveContext resolveContext) {
             lockingVisitor.writeLocks();
         }
 
+        return graphResolved(resolveContext, graphResults, artifactsResults, fileDependencyResults, oldTransientModelBuilder, legacyGraphResults);
+    }
+
+    /**
+     * Calculates the results of a configuration from a graph resolved by a previous build, without resolving the graph again.
+     *
+     * @return {@code null} when the cached graph does not match the current metadata of its components, and must be resolved again.
+     */
+    @Nullable
+    public ResolverResults resolveCachedGraph(ResolveContext resolveContext, ResolvedComponentResult cachedRoot, HashCode metadataState) {
+        StoreSet stores = storeFactory.createStoreSet();
+
+        BinaryStore oldModelStore = stores.nextBinaryStore();
+        Store<TransientConfigurationResults> oldModelCache = stores.oldModelCache();
+        TransientConfigurationResultsBuilder oldTransientModelBuilder = new TransientConfigurationResultsBuilder(oldModelStore, oldModelCache, moduleIdentifierFactory, buildOperationExecutor);
+        DefaultResolvedConfigurationBuilder oldModelBuilder = new DefaultResolvedConfigurationBuilder(oldTransientModelBuilder);
+        ResolvedConfigurationDependencyGraphVisitor oldModelVisitor = new ResolvedConfigurationDependencyGraphVisitor(oldModelBuilder);
+
+        ResolvedLocalComponentsResultGraphVisitor localComponentsVisitor = new ResolvedLocalComponentsResultGraphVisitor(currentBuild, projectStateRegistry);
+        DefaultResolvedArtifactsBuilder artifactsBuilder = new DefaultResolvedArtifactsBuilder(buildProjectDependencies);
+        FileDependencyCollectingGraphVisitor fileDependencyVisitor = new FileDependencyCollectingGraphVisitor();
+
+        ComponentResolvers resolvers = getResolvers(resolveContext, getFilteredRepositories(resolveContext));
+        CompositeDependencyArtifactsVisitor artifactVisitors = new CompositeDependencyArtifactsVisitor(ImmutableList.of(
+            oldModelVisitor, fileDependencyVisitor, artifactsBuilder
+        ));
+        DependencyGraphVisitor graphVisitor = new CompositeDependencyGraphVisitor(ImmutableList.of(localComponentsVisitor, artifactVisitorFor(artifactVisitors, resolvers)));
+
+        CachedGraphReplay replay = new CachedGraphReplay(resolvers.getComponentResolver(), moduleExclusions);
+        if (!replay.replay(resolveContext.toRootComponent(), resolveContext.getSyntheticDependencies(), cachedRoot, metadataState, graphVisitor)) {
+            return null;
+        }
+        dependencyLockingProvider.confirmNotLocked(resolveContext.getDependencyLockingId());
+        localComponentsVisitor.complete(ConfigurationInternal.InternalState.GRAPH_RESOLVED);
+
+        MinimalResolutionResult resolutionResult = new MinimalResolutionResult(() -> cachedRoot, resolveContext.getAttributes().asImmutable());
+        VisitedGraphResults graphResults = new DefaultVisitedGraphResults(resolutionResult, Collections.emptySet(), null);
+        return graphResolved(resolveContext, graphResults, artifactsBuilder.complete(), fileDependencyVisitor.complete(), oldTransientModelBuilder, oldModelBuilder.complete());
+    }
+
+    /**
+     * Calculates the state of the module metadata that the components of a resolved graph were resolved from.
+     *
+     * @return {@code null} when the graph must not be cached.
+     */
+    @Nullable
+    public HashCode calculateMetadataState(ResolveContext resolveContext, ResolvedComponentResult root) {
+        ComponentResolvers resolvers = getResolvers(resolveContext, getFilteredRepositories(resolveContext));
+        return new CachedGraphReplay(resolvers.getComponentResolver(), moduleExclusions).calculateMetadataState(root);
+    }
+
+    private ResolverResults graphResolved(
+        ResolveContext resolveContext,
+        VisitedGraphResults graphResults,
+        VisitedArtifactResults artifactsResults,
+        VisitedFileDependencyResults fileDependencyResults,
+        TransientConfigurationResultsBuilder oldTransientModelBuilder,
+        ResolvedGraphResults legacyGraphResults
+    ) {
+        ResolutionHost resolutionHost = resolveContext.getResolutionHost();
         ArtifactVariantSelector artifactVariantSelector = variantSelectorFactory.create(resolveContext.getDependenciesResolverFactory());
         VisitedArtifactSet visitedArtifacts = new DefaultVisitedArtifactSet(graphResults, resolutionHost, artifactsResults, artifactSetResolver, artifactVariantSelector);
 
@@ -34,6 +34,8 @@ class ComponentMetaDataResolveState {
 
     private boolean searchedLocally;
     private boolean searchedRemotely;
+    private boolean probedRemotely;
+    private RuntimeException probeFailure;
 
     public ComponentMetaDataResolveState(ModuleComponentIdentifier componentIdentifier, ComponentOverrideMetadata componentOverrideMetadata, ModuleComponentRepository<ModuleComponentGraphResolveState> repository, VersionedComponentChooser versionedComponentChooser) {
         this.componentOverrideMetadata = componentOverrideMetadata;
@@ -59,13 +61,34 @@ BuildableModuleComponentMetaDataResolveResult<ModuleComponentGraphResolveState>
 
         if (!searchedRemotely) {
             searchedRemotely = true;
-            process(repository.getRemoteAccess());
+            if (probedRemotely) {
+                if (probeFailure != null) {
+                    throw probeFailure;
+                }
+            } else {
+                process(repository.getRemoteAccess());
+            }
             return resolveResult;
         }
 
         throw new IllegalStateException();
     }
 
+    /**
+     * Searches the repository remotely ahead of the next call to {@link #resolve()}, which then uses the result of this search.
+     */
+    void probeRemotely() {
+        if (!searchedLocally || searchedRemotely || probedRemotely) {
+            throw new IllegalStateException();
+        }
+        probedRemotely = true;
+        try {
+            process(repository.getRemoteAccess());
+        } catch (RuntimeException e) {
+            probeFailure = e;
+        }
+    }
+
     protected void process(ModuleComponentRepositoryAccess<ModuleComponentGraphResolveState> moduleAccess) {
         moduleAccess.resolveComponentMetaData(componentIdentifier, componentOverrideMetadata, resolveResult);
         if (resolveResult.getState() == BuildableModuleComponentMetaDataResolveResult.State.Resolved) {
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import org.gradle.internal.operations.BuildOperationConstraint;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Searches the remote repositories of a repository chain concurrently, ahead of the chain consulting them in declaration order.
+ *
+ * <p>The chain still selects a result the same way as when the repositories are searched one at a time, so the first declared
+ * repository that has a match wins. Searching a repository must not throw: failures have to be kept and reported when the
+ * chain consults that repository.</p>
+ *
+ * <p>Each search runs as a separate build operation, which records how long the repository took to answer.</p>
+ */
+class ConcurrentRepositoryProber {
+    private final BuildOperationExecutor buildOperationExecutor;
+
+    ConcurrentRepositoryProber(BuildOperationExecutor buildOperationExecutor) {
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    /**
+     * Runs the given search for each of the given requests and waits for all of them to complete.
+     */
+    <T> void probe(Collection<T> requests, Function<? super T, String> repositoryName, String target, Consumer<? super T> search) {
+        buildOperationExecutor.runAll(queue -> {
+            for (T request : requests) {
+                queue.add(new ProbeRepositoryOperation<>(request, repositoryName.apply(request), target, search));
+            }
+        }, BuildOperationConstraint.UNCONSTRAINED);
+    }
+
+    private static class ProbeRepositoryOperation<T> implements RunnableBuildOperation {
+        private final T request;
+        private final String repositoryName;
+        private final String target;
+        private final Consumer<? super T> search;
+
+        ProbeRepositoryOperation(T request, String repositoryName, String target, Consumer<? super T> search) {
+            this.request = request;
+            this.repositoryName = repositoryName;
+            this.target = target;
+            this.search = search;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            search.accept(request);
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Search " + repositoryName + " for " + target);
+        }
+    }
+}
@@ -82,11 +82,25 @@ public class DynamicVersionResolver {
     private final ComponentMetadataProcessorFactory componentMetadataProcessor;
     private final ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor;
     private final CachePolicy cachePolicy;
+    @Nullable
+    private final ConcurrentRepositoryProber repositoryProber;
 
     public DynamicVersionResolver(
         VersionedComponentChooser versionedComponentChooser, VersionParser versionParser,
         ImmutableAttributesFactory attributesFactory, ComponentMetadataProcessorFactory componentMetadataProcessor,
         ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor, CachePolicy cachePolicy
+    ) {
+        this(versionedComponentChooser, versionParser, attributesFactory, componentMetadataProcessor, componentMetadataSupplierRuleExecutor, cachePolicy, null);
+    }
+
+    /**
+     * @param repositoryProber when not null, used to list the versions of all repositories remotely at the same time when nothing was found locally.
+     */
+    DynamicVersionResolver(
+        VersionedComponentChooser versionedComponentChooser, VersionParser versionParser,
+        ImmutableAttributesFactory attributesFactory, ComponentMetadataProcessorFactory componentMetadataProcessor,
+        ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor, CachePolicy cachePolicy,
+        @Nullable ConcurrentRepositoryProber repositoryProber
     ) {
         this.versionedComponentChooser = versionedComponentChooser;
         this.versionParser = versionParser;
@@ -94,6 +108,7 @@ public DynamicVersionResolver(
         this.componentMetadataProcessor = componentMetadataProcessor;
         this.componentMetadataSupplierRuleExecutor = componentMetadataSupplierRuleExecutor;
         this.cachePolicy = cachePolicy;
+        this.repositoryProber = repositoryProber;
     }
 
     public void add(ModuleComponentRepository<ModuleComponentGraphResolveState> repository) {
@@ -111,7 +126,7 @@ public void resolve(ModuleDependencyMetadata dependency, VersionSelector version
             resolveStates.add(new RepositoryResolveState(versionedComponentChooser, dependency, repository, versionSelector, rejectedVersionSelector, versionParser, consumerAttributes, attributesFactory, componentMetadataProcessor, componentMetadataSupplierRuleExecutor, cachePolicy));
         }
 
-        final RepositoryChainModuleResolution latestResolved = findLatestModule(resolveStates, errors);
+        final RepositoryChainModuleResolution latestResolved = findLatestModule(requested, resolveStates, errors);
         if (latestResolved != null) {
             LOGGER.debug("Using {} from {}", latestResolved.component.getId(), latestResolved.repository);
             for (Throwable error : errors) {
@@ -148,7 +163,7 @@ private void notFound(BuildableComponentIdResolveResult result, ModuleComponentS
     }
 
     @Nullable
-    private RepositoryChainModuleResolution findLatestModule(List<RepositoryResolveState> resolveStates, Collection<Throwable> failures) {
+    private RepositoryChainModuleResolution findLatestModule(ModuleComponentSelector requested, List<RepositoryResolveState> resolveStates, Collection<Throwable> failures) {
         LinkedList<RepositoryResolveState> queue = new LinkedList<>(resolveStates);
 
         LinkedList<RepositoryResolveState> missing = new LinkedList<>();
@@ -165,6 +180,10 @@ private RepositoryChainModuleResolution findLatestModule(List<RepositoryResolveS
         // Nothing found - do a second pass
         queue.addAll(missing);
         missing.clear();
+        if (repositoryProber != null && queue.size() > 1) {
+            // List versions from all repositories at once, versions are still selected one repository at a time
+            repositoryProber.probe(queue, state -> state.repository.getName(), requested.getDisplayName(), state -> state.versionListingResult.probeRemotely());
+        }
         return findLatestModule(queue, failures, missing);
     }
 
@@ -514,6 +533,7 @@ private static class VersionListResult {
 
         private boolean searchedLocally;
         private boolean searchedRemotely;
+        private RuntimeException probeFailure;
 
         public VersionListResult(ModuleDependencyMetadata dependency, ModuleComponentRepository<?> repository) {
             this.dependency = dependency;
@@ -536,11 +556,30 @@ void resolve() {
             if (!searchedRemotely) {
                 searchedRemotely = true;
                 process(dependency, repository.getRemoteAccess());
+            } else if (probeFailure != null) {
+                RuntimeException failure = probeFailure;
+                probeFailure = null;
+                throw failure;
             }
 
             // Otherwise, just reuse previous result
         }
 
+        /**
+         * Lists the versions from the repository remotely ahead of the next call to {@link #resolve()}, which then uses the result of this search.
+         */
+        void probeRemotely() {
+            if (!searchedLocally || searchedRemotely) {
+                throw new IllegalStateException();
+            }
+            searchedRemotely = true;
+            try {
+                process(dependency, repository.getRemoteAccess());
+            } catch (RuntimeException e) {
+                probeFailure = e;
+            }
+        }
+
         public boolean canMakeFurtherAttempts() {
             return !searchedRemotely;
         }
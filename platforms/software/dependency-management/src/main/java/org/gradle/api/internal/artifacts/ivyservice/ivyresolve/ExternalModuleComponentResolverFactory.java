@@ -41,6 +41,8 @@
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.Actions;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.component.external.model.ModuleComponentGraphResolveState;
 import org.gradle.internal.component.external.model.ModuleComponentGraphResolveStateFactory;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
@@ -50,6 +52,7 @@
 import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.model.CalculatedValueFactory;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resolve.caching.ComponentMetadataSupplierRuleExecutor;
 import org.gradle.internal.resolve.resolver.ArtifactResolver;
@@ -71,6 +74,11 @@ public class ExternalModuleComponentResolverFactory {
 
     private final static Logger LOGGER = Logging.getLogger(ExternalModuleComponentResolverFactory.class);
 
+    /**
+     * When enabled, repositories are searched remotely all at once instead of one at a time.
+     */
+    public static final InternalFlag CONCURRENT_REPOSITORY_PROBING = new InternalFlag("org.gradle.internal.dependency-resolution.concurrent-repository-probing");
+
     private final ModuleRepositoryCacheProvider cacheProvider;
     private final StartParameterResolutionOverride startParameterResolutionOverride;
     private final BuildCommencedTimeProvider timeProvider;
@@ -85,6 +93,8 @@ public class ExternalModuleComponentResolverFactory {
 
     private final DependencyVerificationOverride dependencyVerificationOverride;
     private final ChangingValueDependencyResolutionListener listener;
+    @Nullable
+    private final ConcurrentRepositoryProber repositoryProber;
 
     public ExternalModuleComponentResolverFactory(
         ModuleRepositoryCacheProvider cacheProvider,
@@ -99,7 +109,9 @@ public ExternalModuleComponentResolverFactory(
         ModuleComponentGraphResolveStateFactory moduleResolveStateFactory,
         CalculatedValueFactory calculatedValueFactory,
         ImmutableAttributesFactory attributesFactory,
-        ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor
+        ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor,
+        BuildOperationExecutor buildOperationExecutor,
+        InternalOptions internalOptions
     ) {
         this.cacheProvider = cacheProvider;
         this.startParameterResolutionOverride = startParameterResolutionOverride;
@@ -114,6 +126,7 @@ public ExternalModuleComponentResolverFactory(
         this.calculatedValueFactory = calculatedValueFactory;
         this.attributesFactory = attributesFactory;
         this.componentMetadataSupplierRuleExecutor = componentMetadataSupplierRuleExecutor;
+        this.repositoryProber = internalOptions.getOption(CONCURRENT_REPOSITORY_PROBING).get() ? new ConcurrentRepositoryProber(buildOperationExecutor) : null;
     }
 
     /**
@@ -132,7 +145,7 @@ public ComponentResolvers createResolvers(
             return new NoRepositoriesResolver();
         }
 
-        UserResolverChain moduleResolver = new UserResolverChain(versionComparator, componentSelectionRules, versionParser, consumerAttributes, consumerSchema, attributesFactory, metadataProcessor, componentMetadataSupplierRuleExecutor, calculatedValueFactory, cachePolicy);
+        UserResolverChain moduleResolver = new UserResolverChain(versionComparator, componentSelectionRules, versionParser, consumerAttributes, consumerSchema, attributesFactory, metadataProcessor, componentMetadataSupplierRuleExecutor, calculatedValueFactory, cachePolicy, repositoryProber);
         ParentModuleLookupResolver parentModuleResolver = new ParentModuleLookupResolver(versionComparator, moduleIdentifierFactory, versionParser, consumerAttributes, consumerSchema, attributesFactory, metadataProcessor, componentMetadataSupplierRuleExecutor, calculatedValueFactory, cachePolicy);
 
         for (ResolutionAwareRepository repository : repositories) {
@@ -218,7 +231,7 @@ public ParentModuleLookupResolver(
             CalculatedValueFactory calculatedValueFactory,
             CachePolicy cachePolicy
         ) {
-            this.delegate = new UserResolverChain(versionComparator, new DefaultComponentSelectionRules(moduleIdentifierFactory), versionParser, consumerAttributes, attributesSchema, attributesFactory, componentMetadataProcessorFactory, componentMetadataSupplierRuleExecutor, calculatedValueFactory, cachePolicy);
+            this.delegate = new UserResolverChain(versionComparator, new DefaultComponentSelectionRules(moduleIdentifierFactory), versionParser, consumerAttributes, attributesSchema, attributesFactory, componentMetadataProcessorFactory, componentMetadataSupplierRuleExecutor, calculatedValueFactory, cachePolicy, null);
         }
 
         public void add(ModuleComponentRepository<ModuleComponentGraphResolveState> moduleComponentRepository) {
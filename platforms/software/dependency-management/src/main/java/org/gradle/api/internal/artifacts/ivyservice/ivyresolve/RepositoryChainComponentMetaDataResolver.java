@@ -53,11 +53,21 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
     private final VersionedComponentChooser versionedComponentChooser;
     private final CalculatedValueFactory calculatedValueFactory;
     private final Cache<ModuleComponentIdentifier, CalculatedValue<BuildableComponentResolveResult>> metadataValueContainerCache;
+    @Nullable
+    private final ConcurrentRepositoryProber repositoryProber;
 
     public RepositoryChainComponentMetaDataResolver(VersionedComponentChooser componentChooser, CalculatedValueFactory calculatedValueFactory) {
+        this(componentChooser, calculatedValueFactory, null);
+    }
+
+    /**
+     * @param repositoryProber when not null, used to search all repositories remotely at the same time when nothing was found locally.
+     */
+    RepositoryChainComponentMetaDataResolver(VersionedComponentChooser componentChooser, CalculatedValueFactory calculatedValueFactory, @Nullable ConcurrentRepositoryProber repositoryProber) {
         this.versionedComponentChooser = componentChooser;
         this.calculatedValueFactory = calculatedValueFactory;
         this.metadataValueContainerCache = CacheBuilder.newBuilder().weakValues().build();
+        this.repositoryProber = repositoryProber;
     }
 
     public void add(ModuleComponentRepository<ModuleComponentGraphResolveState> repository) {
@@ -112,7 +122,7 @@ private BuildableComponentResolveResult resolveModule(ModuleComponentIdentifier
             resolveStates.add(new ComponentMetaDataResolveState(identifier, componentOverrideMetadata, repository, versionedComponentChooser));
         }
 
-        final RepositoryChainModuleResolution latestResolved = findBestMatch(resolveStates, errors);
+        final RepositoryChainModuleResolution latestResolved = findBestMatch(identifier, resolveStates, errors);
         if (latestResolved != null) {
             LOGGER.debug("Using {} from {}", latestResolved.component.getId(), latestResolved.repository);
             for (Throwable error : errors) {
@@ -136,7 +146,7 @@ private BuildableComponentResolveResult resolveModule(ModuleComponentIdentifier
     }
 
     @Nullable
-    private RepositoryChainModuleResolution findBestMatch(List<ComponentMetaDataResolveState> resolveStates, Collection<Throwable> failures) {
+    private RepositoryChainModuleResolution findBestMatch(ModuleComponentIdentifier identifier, List<ComponentMetaDataResolveState> resolveStates, Collection<Throwable> failures) {
         LinkedList<ComponentMetaDataResolveState> queue = new LinkedList<>(resolveStates);
 
         LinkedList<ComponentMetaDataResolveState> missing = new LinkedList<>();
@@ -153,6 +163,10 @@ private RepositoryChainModuleResolution findBestMatch(List<ComponentMetaDataReso
         // Nothing found locally - try a remote search for all resolve states that were not yet searched remotely
         queue.addAll(missing);
         missing.clear();
+        if (repositoryProber != null && queue.size() > 1) {
+            // Search all repositories at once, the results are still considered in declaration order
+            repositoryProber.probe(queue, state -> state.repository.getName(), identifier.getDisplayName(), ComponentMetaDataResolveState::probeRemotely);
+        }
         return findBestMatch(queue, failures, missing);
     }
 
@@ -31,6 +31,8 @@
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
 
+import javax.annotation.Nullable;
+
 public class UserResolverChain implements ComponentResolvers {
     private final RepositoryChainDependencyToComponentIdResolver componentIdResolver;
     private final RepositoryChainComponentMetaDataResolver componentResolver;
@@ -46,12 +48,13 @@ public UserResolverChain(VersionComparator versionComparator,
                              ComponentMetadataProcessorFactory componentMetadataProcessor,
                              ComponentMetadataSupplierRuleExecutor componentMetadataSupplierRuleExecutor,
                              CalculatedValueFactory calculatedValueFactory,
-                             CachePolicy cachePolicy
+                             CachePolicy cachePolicy,
+                             @Nullable ConcurrentRepositoryProber repositoryProber
     ) {
         this.componentSelectionRules = componentSelectionRules;
         VersionedComponentChooser componentChooser = new DefaultVersionedComponentChooser(versionComparator, versionParser, componentSelectionRules, attributesSchema);
-        componentIdResolver = new RepositoryChainDependencyToComponentIdResolver(componentChooser, versionParser, consumerAttributes, attributesFactory, componentMetadataProcessor, componentMetadataSupplierRuleExecutor, cachePolicy);
-        componentResolver = new RepositoryChainComponentMetaDataResolver(componentChooser, calculatedValueFactory);
+        componentIdResolver = new RepositoryChainDependencyToComponentIdResolver(componentChooser, versionParser, consumerAttributes, attributesFactory, componentMetadataProcessor, componentMetadataSupplierRuleExecutor, cachePolicy, repositoryProber);
+        componentResolver = new RepositoryChainComponentMetaDataResolver(componentChooser, calculatedValueFactory, repositoryProber);
         artifactResolver = new RepositoryChainArtifactResolver(calculatedValueFactory);
     }
 
@@ -64,15 +64,18 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
     private final VersionSelectorScheme mavenVersionSelectorScheme;
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
     private final MavenMutableModuleMetadataFactory metadataFactory;
+    private final PomDocumentCache pomDocumentCache;
 
     public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme,
                                            ImmutableModuleIdentifierFactory moduleIdentifierFactory,
-                                           FileResourceRepository fileResourceRepository, MavenMutableModuleMetadataFactory metadataFactory) {
+                                           FileResourceRepository fileResourceRepository, MavenMutableModuleMetadataFactory metadataFactory,
+                                           PomDocumentCache pomDocumentCache) {
         super(fileResourceRepository);
         this.gradleVersionSelectorScheme = gradleVersionSelectorScheme;
         mavenVersionSelectorScheme = new MavenVersionSelectorScheme(gradleVersionSelectorScheme);
         this.moduleIdentifierFactory = moduleIdentifierFactory;
         this.metadataFactory = metadataFactory;
+        this.pomDocumentCache = pomDocumentCache;
     }
 
     @Override
@@ -225,22 +228,26 @@ private boolean isDependencyImportScoped(PomDependencyMgt dependencyMgt) {
     }
 
     private PomReader parsePomForId(DescriptorParseContext parseContext, ModuleComponentIdentifier identifier, Map<String, String> childProperties) throws IOException, SAXException {
-        return parsePomResource(parseContext, parseContext.getMetaDataArtifact(identifier, ArtifactType.MAVEN_POM), childProperties);
+        LocallyAvailableExternalResource localResource = parseContext.getMetaDataArtifact(identifier, ArtifactType.MAVEN_POM);
+        return parsePom(parseContext, new PomReader(localResource, moduleIdentifierFactory, childProperties));
     }
 
+    /**
+     * Parses a POM that is referenced as a parent or imported as a BOM.
+     */
     private PomReader parsePomForSelector(DescriptorParseContext parseContext, ModuleComponentSelector selector, Map<String, String> childProperties) throws IOException, SAXException {
         ModuleDependencyMetadata moduleDependencyMetadata = toDependencyMetadata(selector);
         VersionSelector acceptor = mavenVersionSelectorScheme.parseSelector(selector.getVersion());
         LocallyAvailableExternalResource localResource = parseContext.getMetaDataArtifact(moduleDependencyMetadata, acceptor, ArtifactType.MAVEN_POM);
-        return parsePomResource(parseContext, localResource, childProperties);
+        // Parent POMs and BOMs are usually shared by many modules, so reuse their parsed content
+        return parsePom(parseContext, new PomReader(localResource, pomDocumentCache.parse(localResource), moduleIdentifierFactory, childProperties));
     }
 
     private ModuleDependencyMetadata toDependencyMetadata(ModuleComponentSelector selector) {
         return new GradleDependencyMetadata(selector, Collections.emptyList(), false, false, null, false, null);
     }
 
-    private PomReader parsePomResource(DescriptorParseContext parseContext, LocallyAvailableExternalResource localResource, Map<String, String> childProperties) throws SAXException, IOException {
-        PomReader pomReader = new PomReader(localResource, moduleIdentifierFactory, childProperties);
+    private PomReader parsePom(DescriptorParseContext parseContext, PomReader pomReader) throws SAXException, IOException {
         GradlePomModuleDescriptorBuilder mdBuilder = new GradlePomModuleDescriptorBuilder(pomReader, gradleVersionSelectorScheme, mavenVersionSelectorScheme);
         doParsePom(parseContext, mdBuilder, pomReader);
         return pomReader;
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomStaxParser.PomDocument;
+import org.gradle.cache.internal.CrossBuildInMemoryCache;
+import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Caches parsed POMs by the hash of their content, so that POMs referenced by many modules, such as parent POMs and imported BOMs,
+ * are parsed once per daemon rather than once per referencing module.
+ */
+@ServiceScope(Scope.Global.class)
+public class PomDocumentCache {
+    private final CrossBuildInMemoryCache<HashCode, PomDocument> documents;
+
+    public PomDocumentCache(CrossBuildInMemoryCacheFactory cacheFactory) {
+        this.documents = cacheFactory.newCache();
+    }
+
+    /**
+     * Returns the parsed content of the given POM, reusing the result of parsing a POM with the same content when available.
+     */
+    public PomDocument parse(LocallyAvailableExternalResource resource) {
+        byte[] content = resource.withContent(inputStream -> {
+            return IOUtils.toByteArray(inputStream);
+        }).getResult();
+        return documents.get(Hashing.hashBytes(content), hash -> PomReader.parse(resource, new ByteArrayInputStream(content)));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * An element of a parsed POM. Holds the element name, the character content directly contained in the element and its child elements.
+ *
+ * <p>Instances are immutable, so that a parsed POM can be shared by all the modules that reference it.</p>
+ */
+public final class PomElement {
+    private final String name;
+    private final String text;
+    private final List<PomElement> children;
+
+    PomElement(String name, String text, List<PomElement> children) {
+        this.name = name;
+        this.text = text;
+        this.children = ImmutableList.copyOf(children);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the text and CDATA content directly contained in this element, excluding the content of child elements.
+     */
+    public String getText() {
+        return text;
+    }
+
+    public List<PomElement> getChildren() {
+        return children;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.IOUtils;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.xml.XmlFactories;
+
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a POM into a tree of {@link PomElement}s, retaining only the parts of the POM that are used to build module metadata.
+ *
+ * <p>The HTML entities that Maven accepts in POMs are resolved from the same entity definitions that Ivy uses, without processing any DTD.</p>
+ */
+public final class PomStaxParser {
+    private static final Set<String> RETAINED_PROJECT_CHILDREN = ImmutableSet.of(
+        "groupId", "artifactId", "version", "packaging", "parent", "properties",
+        "dependencies", "dependencyManagement", "distributionManagement", "profiles"
+    );
+    private static final Set<String> RETAINED_PROFILE_CHILDREN = ImmutableSet.of(
+        "id", "activation", "properties", "dependencies", "dependencyManagement"
+    );
+    private static final Pattern ENTITY_DECLARATION = Pattern.compile("<!ENTITY\\s+(\\w+)\\s+\"&#(\\d+);\">");
+    private static final Map<String, String> M2_ENTITIES;
+    private static final XMLInputFactory INPUT_FACTORY;
+
+    static {
+        String declarations;
+        try {
+            declarations = new String(IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent")), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        ImmutableMap.Builder<String, String> entities = ImmutableMap.builder();
+        Matcher matcher = ENTITY_DECLARATION.matcher(declarations);
+        while (matcher.find()) {
+            entities.put(matcher.group(1), new String(Character.toChars(Integer.parseInt(matcher.group(2)))));
+        }
+        M2_ENTITIES = entities.build();
+
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            INPUT_FACTORY = XmlFactories.newXMLInputFactory();
+            INPUT_FACTORY.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private PomStaxParser() {}
+
+    public static PomDocument parse(InputStream inputStream, String systemId) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(systemId, inputStream);
+        try {
+            return parse(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static PomDocument parse(XMLStreamReader reader) throws XMLStreamException {
+        Deque<ElementBuilder> openElements = new ArrayDeque<>();
+        PomElement root = null;
+        boolean gradleMetadataMarker = false;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = getQualifiedName(reader);
+                    ElementBuilder parent = openElements.peek();
+                    if (parent == null) {
+                        openElements.push(new ElementBuilder(name, RETAINED_PROJECT_CHILDREN));
+                    } else if (!parent.retains(name)) {
+                        skipElement(reader);
+                    } else if (openElements.size() == 2 && name.equals("profile") && parent.name.equals("profiles")) {
+                        openElements.push(new ElementBuilder(name, RETAINED_PROFILE_CHILDREN));
+                    } else {
+                        openElements.push(new ElementBuilder(name, null));
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!openElements.isEmpty()) {
+                        openElements.peek().appendText(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    if (!openElements.isEmpty()) {
+                        openElements.peek().appendText(resolveEntity(reader));
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    if (openElements.size() == 1 && isGradleMetadataMarker(reader.getText())) {
+                        gradleMetadataMarker = true;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    PomElement element = openElements.pop().build();
+                    if (openElements.isEmpty()) {
+                        root = element;
+                    } else {
+                        openElements.peek().children.add(element);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (root == null) {
+            throw new XMLStreamException("Premature end of file.", reader.getLocation());
+        }
+        return new PomDocument(root, gradleMetadataMarker);
+    }
+
+    private static String getQualifiedName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static String resolveEntity(XMLStreamReader reader) throws XMLStreamException {
+        String text = reader.getText();
+        if (text != null) {
+            return text;
+        }
+        String value = M2_ENTITIES.get(reader.getLocalName());
+        if (value == null) {
+            throw new XMLStreamException("The entity \"" + reader.getLocalName() + "\" was referenced, but not declared.", reader.getLocation());
+        }
+        return value;
+    }
+
+    private static boolean isGradleMetadataMarker(String comment) {
+        return comment.contains(MetaDataParser.GRADLE_6_METADATA_MARKER) || comment.contains(MetaDataParser.GRADLE_METADATA_MARKER);
+    }
+
+    public static String getTextContent(PomElement element) {
+        return element.getText();
+    }
+
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
+        if (node != null) {
+            return getTextContent(node);
+        } else {
+            return null;
+        }
+    }
+
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
+        if (parentElem == null) {
+            return null;
+        }
+        for (PomElement child : parentElem.getChildren()) {
+            if (name.equals(child.getName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.getChildren();
+    }
+
+    /**
+     * The result of parsing a POM. Instances are immutable and do not reference the resource they were parsed from.
+     */
+    public static final class PomDocument {
+        private final PomElement projectElement;
+        private final boolean gradleMetadataMarker;
+
+        PomDocument(PomElement projectElement, boolean gradleMetadataMarker) {
+            this.projectElement = projectElement;
+            this.gradleMetadataMarker = gradleMetadataMarker;
+        }
+
+        public PomElement getProjectElement() {
+            return projectElement;
+        }
+
+        /**
+         * Returns whether the root element contains a comment that marks the module as published with Gradle module metadata.
+         */
+        public boolean hasGradleMetadataMarker() {
+            return gradleMetadataMarker;
+        }
+    }
+
+    private static final class ElementBuilder {
+        private final String name;
+        @Nullable
+        private final Set<String> retainedChildren;
+        private final List<PomElement> children = new ArrayList<>();
+        private String text;
+        private StringBuilder textBuilder;
+
+        ElementBuilder(String name, @Nullable Set<String> retainedChildren) {
+            this.name = name;
+            this.retainedChildren = retainedChildren;
+        }
+
+        boolean retains(String childName) {
+            return retainedChildren == null || retainedChildren.contains(childName);
+        }
+
+        void appendText(String value) {
+            if (textBuilder != null) {
+                textBuilder.append(value);
+            } else if (text == null) {
+                text = value;
+            } else {
+                textBuilder = new StringBuilder(text).append(value);
+            }
+        }
+
+        PomElement build() {
+            String content = textBuilder != null ? textBuilder.toString() : text != null ? text : "";
+            return new PomElement(name, content, children);
+        }
+    }
+}
@@ -24,13 +24,18 @@
 import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 import org.gradle.internal.resource.local.PathKeyFileStore;
-import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
-import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedEncoder;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.util.HashMap;
 
+/**
+ * Stores module metadata as one file per module and repository.
+ *
+ * <p>Descriptors are written with each distinct string stored once.</p>
+ */
 public class ModuleMetadataStore {
 
     private static final Joiner PATH_JOINER = Joiner.on("/");
@@ -54,7 +59,7 @@ public MutableModuleComponentResolveMetadata getModuleDescriptor(ModuleComponent
         LocallyAvailableResource resource = metaDataStore.get(filePath);
         if (resource != null) {
             try {
-                try (StringDeduplicatingDecoder decoder = new StringDeduplicatingDecoder(new KryoBackedDecoder(new FileInputStream(resource.getFile())), stringInterner)) {
+                try (StringDeduplicatingDecoder decoder = new StringDeduplicatingDecoder(new StringDeduplicatingKryoBackedDecoder(new FileInputStream(resource.getFile())), stringInterner)) {
                     return moduleMetadataSerializer.read(decoder, moduleIdentifierFactory, new HashMap<>());
                 }
             } catch (Exception e) {
@@ -68,7 +73,7 @@ public LocallyAvailableResource putModuleDescriptor(ModuleComponentAtRepositoryK
         String[] filePath = getFilePath(component);
         return metaDataStore.add(PATH_JOINER.join(filePath), moduleDescriptorFile -> {
             try {
-                try (KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(moduleDescriptorFile))) {
+                try (StringDeduplicatingKryoBackedEncoder encoder = new StringDeduplicatingKryoBackedEncoder(new FileOutputStream(moduleDescriptorFile))) {
                     moduleMetadataSerializer.write(encoder, metadata, new HashMap<>());
                 }
             } catch (Exception e) {
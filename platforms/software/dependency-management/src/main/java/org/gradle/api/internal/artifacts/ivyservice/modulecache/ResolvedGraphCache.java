@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheLockingAccessCoordinator;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectionDescriptorFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolvedGraphSerializer;
+import org.gradle.internal.file.FileAccessTimeJournal;
+import org.gradle.internal.file.FileAccessTracker;
+import org.gradle.internal.file.impl.SingleDepthFileAccessTracker;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedEncoder;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A cross-build cache of resolved dependency graphs, keyed by a fingerprint of the inputs the graph was resolved from.
+ *
+ * <p>Each graph is stored together with a hash of the module metadata its components were resolved from, so that a graph
+ * can be discarded when the metadata in the module cache no longer matches it.</p>
+ *
+ * <p>Graphs are stored as one file per key in the writable artifact cache, next to the module metadata they were resolved from.
+ * Reads are recorded in the file access journal, so that graphs which have not been used for a while are removed by the
+ * artifact cache cleanup.</p>
+ */
+@ServiceScope(Scope.BuildTree.class)
+public class ResolvedGraphCache {
+    public static final int FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP = 1;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolvedGraphCache.class);
+
+    private final File baseDir;
+    private final ArtifactCacheLockingAccessCoordinator cacheAccessCoordinator;
+    private final FileAccessTracker fileAccessTracker;
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    private final AttributeContainerSerializer attributeContainerSerializer;
+    private final ComponentSelectionDescriptorFactory componentSelectionDescriptorFactory;
+
+    public ResolvedGraphCache(
+        File baseDir,
+        ArtifactCacheLockingAccessCoordinator cacheAccessCoordinator,
+        FileAccessTimeJournal fileAccessTimeJournal,
+        ImmutableModuleIdentifierFactory moduleIdentifierFactory,
+        AttributeContainerSerializer attributeContainerSerializer,
+        ComponentSelectionDescriptorFactory componentSelectionDescriptorFactory
+    ) {
+        this.baseDir = baseDir;
+        this.cacheAccessCoordinator = cacheAccessCoordinator;
+        this.fileAccessTracker = new SingleDepthFileAccessTracker(fileAccessTimeJournal, baseDir, FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
+        this.moduleIdentifierFactory = moduleIdentifierFactory;
+        this.attributeContainerSerializer = attributeContainerSerializer;
+        this.componentSelectionDescriptorFactory = componentSelectionDescriptorFactory;
+    }
+
+    /**
+     * Returns the graph stored for the given key, or {@code null} when there is no usable entry.
+     */
+    @Nullable
+    public CachedGraph get(HashCode key) {
+        File file = fileFor(key);
+        return cacheAccessCoordinator.useCache(() -> {
+            if (!file.isFile()) {
+                return null;
+            }
+            CachedGraph graph;
+            try (StringDeduplicatingKryoBackedDecoder decoder = new StringDeduplicatingKryoBackedDecoder(new FileInputStream(file))) {
+                HashCode metadataState = HashCode.fromBytes(decoder.readBinary());
+                graph = new CachedGraph(newSerializer().read(decoder), metadataState);
+            } catch (Exception e) {
+                // Treat an unreadable entry as a miss, it is replaced once the graph has been resolved again
+                LOGGER.debug("Could not read cached dependency graph {}.", key, e);
+                return null;
+            }
+            fileAccessTracker.markAccessed(file);
+            return graph;
+        });
+    }
+
+    public void put(HashCode key, ResolvedComponentResult root, HashCode metadataState) {
+        File file = fileFor(key);
+        cacheAccessCoordinator.useCache(() -> {
+            File tempFile = null;
+            try {
+                Files.createDirectories(baseDir.toPath());
+                tempFile = File.createTempFile(key.toString(), ".tmp", baseDir);
+                try (StringDeduplicatingKryoBackedEncoder encoder = new StringDeduplicatingKryoBackedEncoder(new FileOutputStream(tempFile))) {
+                    encoder.writeBinary(metadataState.toByteArray());
+                    newSerializer().write(encoder, root);
+                }
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                fileAccessTracker.markAccessed(file);
+            } catch (Exception e) {
+                LOGGER.debug("Could not cache dependency graph {}.", key, e);
+                if (tempFile != null) {
+                    tempFile.delete();
+                }
+            }
+        });
+    }
+
+    private File fileFor(HashCode key) {
+        return new File(baseDir, key + ".bin");
+    }
+
+    private ResolvedGraphSerializer newSerializer() {
+        return new ResolvedGraphSerializer(moduleIdentifierFactory, attributeContainerSerializer, componentSelectionDescriptorFactory);
+    }
+
+    public static class CachedGraph {
+        private final ResolvedComponentResult root;
+        private final HashCode metadataState;
+
+        public CachedGraph(ResolvedComponentResult root, HashCode metadataState) {
+            this.root = root;
+            this.metadataState = metadataState;
+        }
+
+        public ResolvedComponentResult getRoot() {
+            return root;
+        }
+
+        /**
+         * The hash of the module metadata the components of the graph were resolved from.
+         */
+        public HashCode getMetadataState() {
+            return metadataState;
+        }
+    }
+}
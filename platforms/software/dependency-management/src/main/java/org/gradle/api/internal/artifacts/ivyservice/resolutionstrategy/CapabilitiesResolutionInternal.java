@@ -20,4 +20,9 @@
 
 public interface CapabilitiesResolutionInternal extends CapabilitiesResolution {
     void apply(CapabilitiesConflictHandler.ResolutionDetails details);
+
+    /**
+     * Returns true if no capability resolution rules have been declared.
+     */
+    boolean isEmpty();
 }
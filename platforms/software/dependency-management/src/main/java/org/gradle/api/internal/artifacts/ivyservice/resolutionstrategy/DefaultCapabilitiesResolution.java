@@ -79,6 +79,11 @@ private void withCapability(Provider<? extends Capability> capability, Action<?
         actions.add(new CapabilityAction(new CapabilitySpec(capability), action));
     }
 
+    @Override
+    public boolean isEmpty() {
+        return actions.isEmpty();
+    }
+
     @Override
     public void apply(CapabilitiesConflictHandler.ResolutionDetails details) {
         details.getCapabilityVersions().stream()
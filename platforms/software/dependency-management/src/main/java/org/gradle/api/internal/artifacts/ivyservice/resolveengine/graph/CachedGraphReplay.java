@@ -0,0 +1,697 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.artifacts.result.ResolvedVariantResult;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleDescriptorHashModuleSource;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChainModuleSource;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.RootComponentMetadataBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeSpec;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.ResolveOptimizations;
+import org.gradle.api.internal.artifacts.result.ResolvedComponentResultInternal;
+import org.gradle.api.internal.attributes.AttributeContainerInternal;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.local.model.LocalFileDependencyMetadata;
+import org.gradle.internal.component.local.model.LocalVariantGraphResolveMetadata;
+import org.gradle.internal.component.local.model.ProjectComponentSelectorInternal;
+import org.gradle.internal.component.model.ComponentGraphResolveMetadata;
+import org.gradle.internal.component.model.ComponentGraphResolveState;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.gradle.internal.component.model.GraphSelectionCandidates;
+import org.gradle.internal.component.model.ModuleSources;
+import org.gradle.internal.component.model.VariantGraphResolveMetadata;
+import org.gradle.internal.component.model.VariantGraphResolveState;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Visits a dependency graph resolved by a previous build as if the graph had just been resolved.
+ *
+ * <p>The graph is rebuilt from the cached resolution result and the current metadata of its components, so that the
+ * artifacts and the legacy results of the graph can be calculated without resolving the graph again. Each cached edge
+ * is matched with the dependency declared by the current metadata of its source variant.</p>
+ *
+ * <p>Nothing is visited when the cached graph cannot be replayed exactly, for example because a variant or a dependency
+ * no longer exists, or because a dependency modifies the artifacts of its target. The graph must then be resolved again.</p>
+ *
+ * <p>The same happens when the module metadata of the components differs from the metadata the graph was resolved from.
+ * That state is captured by {@link #calculateMetadataState(ResolvedComponentResult)} when the graph is cached. It covers
+ * the descriptor of each module, so that refreshed or re-published metadata is noticed, and the repository each module
+ * was found in, so that a module which is no longer missing from a repository earlier in the chain is noticed too.</p>
+ */
+public class CachedGraphReplay {
+    private final ComponentMetaDataResolver componentResolver;
+    private final ExcludeSpec nothing;
+
+    public CachedGraphReplay(ComponentMetaDataResolver componentResolver, ModuleExclusions moduleExclusions) {
+        this.componentResolver = componentResolver;
+        this.nothing = moduleExclusions.nothing();
+    }
+
+    /**
+     * Visits the cached graph with the given visitor.
+     *
+     * @param metadataState the state of the module metadata the graph was resolved from, as calculated by {@link #calculateMetadataState(ResolvedComponentResult)}.
+     * @return {@code false} when the graph cannot be replayed, in which case the visitor has not been called.
+     */
+    public boolean replay(
+        RootComponentMetadataBuilder.RootComponentState rootComponent,
+        List<? extends DependencyMetadata> syntheticDependencies,
+        ResolvedComponentResult cachedRoot,
+        HashCode metadataState,
+        DependencyGraphVisitor visitor
+    ) {
+        ReplayedGraph graph = rebuild(rootComponent, syntheticDependencies, cachedRoot);
+        if (graph == null) {
+            return false;
+        }
+        List<ComponentGraphResolveState> states = new ArrayList<>(graph.components.size());
+        for (ReplayedComponent component : graph.components.values()) {
+            states.add(component.state);
+        }
+        if (!metadataState.equals(hashMetadataState(states))) {
+            return false;
+        }
+        visit(graph, visitor);
+        return true;
+    }
+
+    /**
+     * Calculates the state of the module metadata that the components of the given graph are currently resolved from.
+     *
+     * @return {@code null} when the graph contains a module whose metadata may change without its descriptor changing,
+     * such as a changing module, in which case the graph must not be cached.
+     */
+    @Nullable
+    public HashCode calculateMetadataState(ResolvedComponentResult root) {
+        List<ComponentGraphResolveState> states = new ArrayList<>();
+        Set<ComponentIdentifier> seen = new HashSet<>();
+        Deque<ResolvedComponentResult> queue = new ArrayDeque<>();
+        seen.add(root.getId());
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            ResolvedComponentResult component = queue.removeFirst();
+            if (component.getId() instanceof ModuleComponentIdentifier) {
+                ComponentGraphResolveState state = resolveComponent(component.getId());
+                if (state == null) {
+                    return null;
+                }
+                states.add(state);
+            }
+            for (DependencyResult dependency : component.getDependencies()) {
+                if (!(dependency instanceof ResolvedDependencyResult)) {
+                    return null;
+                }
+                ResolvedComponentResult selected = ((ResolvedDependencyResult) dependency).getSelected();
+                if (seen.add(selected.getId())) {
+                    queue.add(selected);
+                }
+            }
+        }
+        return hashMetadataState(states);
+    }
+
+    /**
+     * Hashes the descriptor and the source repository of each module component, ignoring local components.
+     */
+    @Nullable
+    private static HashCode hashMetadataState(Collection<ComponentGraphResolveState> components) {
+        Map<String, ComponentGraphResolveState> modules = new TreeMap<>();
+        for (ComponentGraphResolveState component : components) {
+            if (component.getId() instanceof ModuleComponentIdentifier) {
+                modules.put(component.getId().getDisplayName(), component);
+            }
+        }
+        Hasher hasher = Hashing.newHasher();
+        hasher.putInt(modules.size());
+        for (Map.Entry<String, ComponentGraphResolveState> entry : modules.entrySet()) {
+            ComponentGraphResolveState component = entry.getValue();
+            if (component.getMetadata().isChanging()) {
+                return null;
+            }
+            ModuleSources sources = component.prepareForArtifactResolution().getArtifactMetadata().getSources();
+            Optional<ModuleDescriptorHashModuleSource> descriptor = sources.getSource(ModuleDescriptorHashModuleSource.class);
+            Optional<RepositoryChainModuleSource> repository = sources.getSource(RepositoryChainModuleSource.class);
+            if (!descriptor.isPresent() || descriptor.get().isChangingModule() || !repository.isPresent()) {
+                return null;
+            }
+            hasher.putString(entry.getKey());
+            hasher.putString(repository.get().getRepositoryId());
+            hasher.putHash(descriptor.get().getDescriptorHash());
+        }
+        return hasher.hash();
+    }
+
+    @Nullable
+    private ReplayedGraph rebuild(RootComponentMetadataBuilder.RootComponentState rootComponent, List<? extends DependencyMetadata> syntheticDependencies, ResolvedComponentResult cachedRoot) {
+        if (!cachedRoot.getId().equals(rootComponent.getComponentIdentifier()) || cachedRoot.getVariants().size() != 1) {
+            return null;
+        }
+        ReplayedGraph graph = new ReplayedGraph();
+        ReplayedComponent rootOwner = graph.addComponent(cachedRoot, rootComponent.getRootComponent());
+        VariantGraphResolveState rootVariant = rootComponent.getRootVariant();
+        ImmutableList<DependencyMetadata> rootDependencies = ImmutableList.<DependencyMetadata>builder()
+            .addAll(rootVariant.getMetadata().getDependencies())
+            .addAll(syntheticDependencies)
+            .build();
+        ReplayedRootNode root = new ReplayedRootNode(graph.nextNodeId++, rootOwner, rootVariant, rootDependencies);
+        rootOwner.nodes.put(rootVariant.getName(), root);
+        graph.root = root;
+        graph.nodes.add(root);
+
+        Deque<ReplayedNode> queue = new ArrayDeque<>();
+        Map<ReplayedNode, ResolvedVariantResult> cachedVariants = new HashMap<>();
+        cachedVariants.put(root, cachedRoot.getVariants().get(0));
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            ReplayedNode node = queue.removeFirst();
+            if (node.metadata.isExternalVariant() || mayExcludeArtifacts(node.metadata.getExcludes())) {
+                return null;
+            }
+            Map<Object, DependencyMetadata> declaredDependencies = new HashMap<>();
+            for (DependencyMetadata dependency : node.dependencies) {
+                Object key = keyOf(dependency.isConstraint(), dependency.getSelector());
+                if (key == null || declaredDependencies.put(key, dependency) != null) {
+                    return null;
+                }
+            }
+
+            ResolvedComponentResult cachedComponent = node.owner.cached;
+            for (DependencyResult cachedDependency : cachedComponent.getDependenciesForVariant(cachedVariants.get(node))) {
+                if (!(cachedDependency instanceof ResolvedDependencyResult)) {
+                    return null;
+                }
+                DependencyMetadata dependency = declaredDependencies.get(keyOf(cachedDependency.isConstraint(), cachedDependency.getRequested()));
+                if (dependency == null
+                    || !dependency.getArtifacts().isEmpty()
+                    || mayExcludeArtifacts(dependency.getExcludes())
+                    || (dependency.isConstraint() && !dependency.getSelector().getAttributes().isEmpty())) {
+                    return null;
+                }
+
+                ResolvedDependencyResult resolvedDependency = (ResolvedDependencyResult) cachedDependency;
+                ResolvedComponentResult cachedTarget = resolvedDependency.getSelected();
+                ResolvedVariantResult cachedTargetVariant = resolvedDependency.getResolvedVariant();
+                ReplayedComponent target = graph.components.get(cachedTarget.getId());
+                if (target == null) {
+                    ComponentGraphResolveState state = resolveComponent(cachedTarget.getId());
+                    if (state == null) {
+                        return null;
+                    }
+                    target = graph.addComponent(cachedTarget, state);
+                }
+                ReplayedNode targetNode = target.nodes.get(cachedTargetVariant.getDisplayName());
+                if (targetNode == null) {
+                    VariantGraphResolveState variant = findVariant(target.state, cachedTargetVariant.getDisplayName());
+                    if (variant == null) {
+                        return null;
+                    }
+                    targetNode = new ReplayedNode(graph.nextNodeId++, target, variant, variant.getMetadata().getDependencies());
+                    target.nodes.put(variant.getName(), targetNode);
+                    graph.nodes.add(targetNode);
+                    cachedVariants.put(targetNode, cachedTargetVariant);
+                    queue.add(targetNode);
+                }
+
+                ReplayedEdge edge = new ReplayedEdge(node, targetNode, dependency, new ReplayedSelector(graph.nextSelectorId++, dependency.getSelector()), nothing);
+                node.outgoingEdges.add(edge);
+                targetNode.incomingEdges.add(edge);
+                graph.selectors.add(edge.selector);
+            }
+        }
+        return graph;
+    }
+
+    @Nullable
+    private ComponentGraphResolveState resolveComponent(ComponentIdentifier id) {
+        DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+        componentResolver.resolve(id, DefaultComponentOverrideMetadata.EMPTY, result);
+        if (result.getFailure() != null) {
+            return null;
+        }
+        return result.getState();
+    }
+
+    @Nullable
+    private static VariantGraphResolveState findVariant(ComponentGraphResolveState component, String name) {
+        GraphSelectionCandidates candidates = component.getCandidatesForGraphVariantSelection();
+        for (VariantGraphResolveState variant : candidates.getVariantsForAttributeMatching()) {
+            if (variant.getName().equals(name)) {
+                return variant;
+            }
+        }
+        return candidates.getVariantByConfigurationName(name);
+    }
+
+    private static boolean mayExcludeArtifacts(List<? extends ExcludeMetadata> excludes) {
+        for (ExcludeMetadata exclude : excludes) {
+            if (exclude.getArtifact() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Identifies the dependency of a variant that an edge of the cached graph was created for.
+     */
+    @Nullable
+    private static Object keyOf(boolean constraint, ComponentSelector selector) {
+        if (selector instanceof ModuleComponentSelector) {
+            ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+            return ImmutableList.of(constraint, moduleSelector.getGroup(), moduleSelector.getModule());
+        }
+        if (selector instanceof ProjectComponentSelectorInternal) {
+            return ImmutableList.of(constraint, ((ProjectComponentSelectorInternal) selector).getIdentityPath());
+        }
+        return null;
+    }
+
+    /**
+     * Visits the graph in the same order as the graph builder does, visiting the edges of a component only
+     * once the edges of all its consumers have been visited.
+     */
+    private static void visit(ReplayedGraph graph, DependencyGraphVisitor visitor) {
+        visitor.start(graph.root);
+        for (ReplayedSelector selector : graph.selectors) {
+            visitor.visitSelector(selector);
+        }
+        for (ReplayedNode node : graph.nodes) {
+            visitor.visitNode(node);
+        }
+
+        Map<ReplayedComponent, Boolean> visitState = new HashMap<>();
+        LinkedList<ReplayedComponent> queue = new LinkedList<>(graph.components.values());
+        while (!queue.isEmpty()) {
+            ReplayedComponent component = queue.peekFirst();
+            Boolean visited = visitState.get(component);
+            if (visited == null) {
+                visitState.put(component, false);
+                int pos = 0;
+                for (ReplayedNode node : component.nodes.values()) {
+                    for (ReplayedEdge edge : node.incomingEdges) {
+                        ReplayedComponent owner = edge.from.owner;
+                        if (!visitState.containsKey(owner)) {
+                            queue.add(pos, owner);
+                            pos++;
+                        }
+                    }
+                }
+                if (pos == 0) {
+                    visitState.put(component, true);
+                    queue.removeFirst();
+                    visitEdges(component, visitor);
+                }
+            } else if (!visited) {
+                visitState.put(component, true);
+                queue.removeFirst();
+                visitEdges(component, visitor);
+            } else {
+                queue.removeFirst();
+            }
+        }
+
+        visitor.finish(graph.root);
+    }
+
+    private static void visitEdges(ReplayedComponent component, DependencyGraphVisitor visitor) {
+        for (ReplayedNode node : component.nodes.values()) {
+            visitor.visitEdges(node);
+        }
+    }
+
+    private static class ReplayedGraph {
+        private final Map<ComponentIdentifier, ReplayedComponent> components = new LinkedHashMap<>();
+        private final List<ReplayedNode> nodes = new ArrayList<>();
+        private final List<ReplayedSelector> selectors = new ArrayList<>();
+        private ReplayedRootNode root;
+        private long nextComponentId;
+        private long nextNodeId;
+        private long nextSelectorId;
+
+        ReplayedComponent addComponent(ResolvedComponentResult cached, ComponentGraphResolveState state) {
+            ReplayedComponent component = new ReplayedComponent(nextComponentId++, cached, state);
+            components.put(cached.getId(), component);
+            return component;
+        }
+    }
+
+    private static class ReplayedComponent implements DependencyGraphComponent {
+        private final Long resultId;
+        private final ResolvedComponentResult cached;
+        private final ComponentGraphResolveState state;
+        private final Map<String, ReplayedNode> nodes = new LinkedHashMap<>();
+
+        ReplayedComponent(long resultId, ResolvedComponentResult cached, ComponentGraphResolveState state) {
+            this.resultId = resultId;
+            this.cached = cached;
+            this.state = state;
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ComponentGraphResolveState getResolveState() {
+            return state;
+        }
+
+        @Nullable
+        @Override
+        public String getRepositoryName() {
+            return cached instanceof ResolvedComponentResultInternal ? ((ResolvedComponentResultInternal) cached).getRepositoryName() : null;
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return state.getId();
+        }
+
+        @Override
+        public ModuleVersionIdentifier getModuleVersion() {
+            return state.getMetadata().getModuleVersionId();
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return cached.getSelectionReason();
+        }
+
+        @Override
+        public List<ResolvedGraphVariant> getSelectedVariants() {
+            return ImmutableList.copyOf(nodes.values());
+        }
+
+        @Override
+        public ComponentGraphResolveMetadata getMetadataOrNull() {
+            return state.getMetadata();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphComponent> getDependents() {
+            Set<ReplayedComponent> dependents = new LinkedHashSet<>();
+            for (ReplayedNode node : nodes.values()) {
+                for (ReplayedEdge edge : node.incomingEdges) {
+                    dependents.add(edge.from.owner);
+                }
+            }
+            return dependents;
+        }
+
+        @Override
+        public Collection<? extends ModuleVersionIdentifier> getAllVersions() {
+            return Collections.singleton(getModuleVersion());
+        }
+
+        @Override
+        public boolean isRejected() {
+            // Only graphs whose edges all resolved successfully are replayed
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return getComponentId().getDisplayName();
+        }
+    }
+
+    private static class ReplayedNode implements DependencyGraphNode {
+        private final Long nodeId;
+        private final ReplayedComponent owner;
+        private final VariantGraphResolveState variant;
+        private final VariantGraphResolveMetadata metadata;
+        private final List<? extends DependencyMetadata> dependencies;
+        private final List<ReplayedEdge> incomingEdges = new ArrayList<>();
+        private final List<ReplayedEdge> outgoingEdges = new ArrayList<>();
+
+        ReplayedNode(long nodeId, ReplayedComponent owner, VariantGraphResolveState variant, List<? extends DependencyMetadata> dependencies) {
+            this.nodeId = nodeId;
+            this.owner = owner;
+            this.variant = variant;
+            this.metadata = variant.getMetadata();
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public Long getNodeId() {
+            return nodeId;
+        }
+
+        @Override
+        public VariantGraphResolveState getResolveState() {
+            return variant;
+        }
+
+        @Nullable
+        @Override
+        public ResolvedGraphVariant getExternalVariant() {
+            return null;
+        }
+
+        @Override
+        public boolean isRoot() {
+            return false;
+        }
+
+        @Override
+        public ReplayedComponent getOwner() {
+            return owner;
+        }
+
+        @Override
+        public Collection<ReplayedEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Collection<ReplayedEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            if (metadata instanceof LocalVariantGraphResolveMetadata) {
+                return ((LocalVariantGraphResolveMetadata) metadata).getFiles();
+            }
+            return Collections.emptySet();
+        }
+
+        @Override
+        public VariantGraphResolveMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public boolean isSelected() {
+            return true;
+        }
+
+        boolean isTransitive() {
+            return metadata.isTransitive();
+        }
+
+        @Override
+        public String toString() {
+            return owner + "(" + metadata.getName() + ")";
+        }
+    }
+
+    private static class ReplayedRootNode extends ReplayedNode implements RootGraphNode {
+        private final ResolveOptimizations resolveOptimizations = new ResolveOptimizations();
+
+        ReplayedRootNode(long nodeId, ReplayedComponent owner, VariantGraphResolveState variant, List<? extends DependencyMetadata> dependencies) {
+            super(nodeId, owner, variant, dependencies);
+        }
+
+        @Override
+        public boolean isRoot() {
+            return true;
+        }
+
+        @Override
+        public LocalVariantGraphResolveMetadata getMetadata() {
+            return (LocalVariantGraphResolveMetadata) super.getMetadata();
+        }
+
+        @Override
+        public ResolveOptimizations getResolveOptimizations() {
+            return resolveOptimizations;
+        }
+    }
+
+    private static class ReplayedSelector implements DependencyGraphSelector {
+        private final Long resultId;
+        private final ComponentSelector requested;
+
+        ReplayedSelector(long resultId, ComponentSelector requested) {
+            this.resultId = resultId;
+            this.requested = requested;
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return requested;
+        }
+    }
+
+    private static class ReplayedEdge implements DependencyGraphEdge {
+        private final ReplayedNode from;
+        private final ReplayedNode to;
+        private final DependencyMetadata dependency;
+        private final ReplayedSelector selector;
+        private final ExcludeSpec exclusions;
+        private final boolean transitive;
+
+        ReplayedEdge(ReplayedNode from, ReplayedNode to, DependencyMetadata dependency, ReplayedSelector selector, ExcludeSpec exclusions) {
+            this.from = from;
+            this.to = to;
+            this.dependency = dependency;
+            this.selector = selector;
+            this.exclusions = exclusions;
+            this.transitive = from.isTransitive() && dependency.isTransitive();
+        }
+
+        @Override
+        public ReplayedNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public DependencyGraphSelector getSelector() {
+            return selector;
+        }
+
+        @Override
+        public boolean isTransitive() {
+            return transitive;
+        }
+
+        @Override
+        public ExcludeSpec getExclusions() {
+            // Only module exclusions are allowed in a replayed graph, and those have already been applied to the graph itself
+            return exclusions;
+        }
+
+        @Override
+        public boolean contributesArtifacts() {
+            return !dependency.isConstraint();
+        }
+
+        @Override
+        public DependencyMetadata getDependencyMetadata() {
+            return dependency;
+        }
+
+        @Override
+        public ImmutableAttributes getAttributes() {
+            return ((AttributeContainerInternal) dependency.getSelector().getAttributes()).asImmutable();
+        }
+
+        @Nullable
+        @Override
+        public Dependency getOriginalDependency() {
+            if (dependency instanceof DslOriginDependencyMetadata) {
+                return ((DslOriginDependencyMetadata) dependency).getSource();
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isTargetVirtualPlatform() {
+            return false;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return dependency.getSelector();
+        }
+
+        @Nullable
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return null;
+        }
+
+        @Override
+        public Long getSelected() {
+            return to.owner.getResultId();
+        }
+
+        @Override
+        public ComponentSelectionReason getReason() {
+            return to.owner.getSelectionReason();
+        }
+
+        @Override
+        public boolean isConstraint() {
+            return dependency.isConstraint();
+        }
+
+        @Override
+        public Long getFromVariant() {
+            return from.getNodeId();
+        }
+
+        @Override
+        public Long getSelectedVariant() {
+            return to.getNodeId();
+        }
+    }
+}
@@ -42,4 +42,9 @@ public interface DependencyGraphComponent extends ResolvedGraphComponent {
      * resolution.
      */
     Collection<? extends ModuleVersionIdentifier> getAllVersions();
+
+    /**
+     * Returns true when this component was selected, but its selection violates a constraint (reject or strictly).
+     */
+    boolean isRejected();
 }
@@ -151,7 +151,6 @@ NodeState dequeue() {
         return this;
     }
 
-    @Override
     public ComponentState getComponent() {
         return component;
     }
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.result;
+
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.artifacts.result.ResolvedVariantResult;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolvedGraphDependency;
+import org.gradle.api.internal.artifacts.result.DefaultResolvedComponentResult;
+import org.gradle.api.internal.artifacts.result.ResolvedComponentResultInternal;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A serializer for a complete resolution result graph, reachable from its root {@link ResolvedComponentResult}.
+ *
+ * <p>Unlike {@link StreamingResolutionResultBuilder}, the serialized form does not refer to any state of the
+ * current build, so it can be read back in a later build. Graphs containing unresolved dependencies are not supported.</p>
+ *
+ * <p>This serializer is not thread safe and not reusable.</p>
+ */
+@NotThreadSafe
+public class ResolvedGraphSerializer implements Serializer<ResolvedComponentResult> {
+    private final static byte SUCCESSFUL = 0;
+    private final static byte SUCCESSFUL_NOTHING_SELECTED = 1;
+
+    private final ComponentSelectionReasonSerializer reasonSerializer;
+    private final ComponentIdentifierSerializer componentIdSerializer;
+    private final ModuleVersionIdentifierSerializer moduleVersionIdSerializer;
+    private final ComponentSelectorSerializer componentSelectorSerializer;
+    private final ResolvedVariantResultSerializer variantSerializer;
+
+    public ResolvedGraphSerializer(
+        ImmutableModuleIdentifierFactory moduleIdentifierFactory,
+        AttributeContainerSerializer attributeContainerSerializer,
+        ComponentSelectionDescriptorFactory componentSelectionDescriptorFactory
+    ) {
+        this.reasonSerializer = new ComponentSelectionReasonSerializer(componentSelectionDescriptorFactory);
+        this.componentIdSerializer = new ComponentIdentifierSerializer();
+        this.moduleVersionIdSerializer = new ModuleVersionIdentifierSerializer(moduleIdentifierFactory);
+        this.componentSelectorSerializer = new ComponentSelectorSerializer(attributeContainerSerializer);
+        this.variantSerializer = new ResolvedVariantResultSerializer(componentIdSerializer, attributeContainerSerializer);
+    }
+
+    @Override
+    public ResolvedComponentResult read(Decoder decoder) throws Exception {
+        ResolutionResultGraphBuilder builder = new ResolutionResultGraphBuilder();
+        int componentCount = decoder.readSmallInt();
+        long nextVariantId = 0;
+        for (long componentId = 0; componentId < componentCount; componentId++) {
+            ComponentSelectionReason reason = reasonSerializer.read(decoder);
+            String repositoryId = decoder.readNullableString();
+            ComponentIdentifier id = componentIdSerializer.read(decoder);
+            ModuleVersionIdentifier moduleVersion = moduleVersionIdSerializer.read(decoder);
+            builder.startVisitComponent(componentId, reason, repositoryId);
+            builder.visitComponentDetails(id, moduleVersion);
+            int selectedCount = decoder.readSmallInt();
+            for (int i = 0; i < selectedCount; i++) {
+                builder.visitSelectedVariant(nextVariantId++, variantSerializer.read(decoder));
+            }
+            int availableCount = decoder.readSmallInt();
+            List<ResolvedVariantResult> availableVariants = new ArrayList<>(availableCount);
+            for (int i = 0; i < availableCount; i++) {
+                availableVariants.add(variantSerializer.read(decoder));
+            }
+            builder.visitComponentVariants(availableVariants);
+            builder.endVisitComponent();
+        }
+        for (long componentId = 0; componentId < componentCount; componentId++) {
+            int edgeCount = decoder.readSmallInt();
+            if (edgeCount > 0) {
+                List<ResolvedGraphDependency> edges = new ArrayList<>(edgeCount);
+                for (int i = 0; i < edgeCount; i++) {
+                    edges.add(readEdge(decoder));
+                }
+                builder.visitOutgoingEdges(componentId, edges);
+            }
+        }
+        return builder.getRoot(0L);
+    }
+
+    private ResolvedGraphDependency readEdge(Decoder decoder) throws IOException {
+        ComponentSelector requested = componentSelectorSerializer.read(decoder);
+        boolean constraint = decoder.readBoolean();
+        long fromVariant = decoder.readSmallLong();
+        long selected = decoder.readSmallLong();
+        byte resultByte = decoder.readByte();
+        if (resultByte == SUCCESSFUL) {
+            long selectedVariant = decoder.readSmallLong();
+            return new DetachedResolvedGraphDependency(requested, selected, null, null, constraint, fromVariant, selectedVariant);
+        } else if (resultByte == SUCCESSFUL_NOTHING_SELECTED) {
+            return new DetachedResolvedGraphDependency(requested, selected, null, null, constraint, fromVariant, null);
+        } else {
+            throw new IllegalArgumentException("Unknown result type: " + resultByte);
+        }
+    }
+
+    @Override
+    public void write(Encoder encoder, ResolvedComponentResult root) throws Exception {
+        Map<ResolvedComponentResult, Long> componentIds = new IdentityHashMap<>();
+        Map<ResolvedVariantResult, Long> variantIds = new IdentityHashMap<>();
+        List<ResolvedComponentResult> components = collectComponents(root, componentIds);
+
+        encoder.writeSmallInt(components.size());
+        for (ResolvedComponentResult component : components) {
+            reasonSerializer.write(encoder, component.getSelectionReason());
+            encoder.writeNullableString(((ResolvedComponentResultInternal) component).getRepositoryId());
+            componentIdSerializer.write(encoder, component.getId());
+            moduleVersionIdSerializer.write(encoder, component.getModuleVersion());
+            List<ResolvedVariantResult> selectedVariants = component.getVariants();
+            encoder.writeSmallInt(selectedVariants.size());
+            for (ResolvedVariantResult variant : selectedVariants) {
+                variantSerializer.write(encoder, variant);
+                variantIds.put(variant, (long) variantIds.size());
+            }
+            List<ResolvedVariantResult> availableVariants = ((ResolvedComponentResultInternal) component).getAvailableVariants();
+            encoder.writeSmallInt(availableVariants.size());
+            for (ResolvedVariantResult variant : availableVariants) {
+                variantSerializer.write(encoder, variant);
+            }
+        }
+        for (ResolvedComponentResult component : components) {
+            List<Edge> edges = collectEdges((DefaultResolvedComponentResult) component);
+            encoder.writeSmallInt(edges.size());
+            for (Edge edge : edges) {
+                writeEdge(encoder, edge, componentIds, variantIds);
+            }
+        }
+    }
+
+    private void writeEdge(Encoder encoder, Edge edge, Map<ResolvedComponentResult, Long> componentIds, Map<ResolvedVariantResult, Long> variantIds) throws IOException {
+        if (!(edge.dependency instanceof ResolvedDependencyResult)) {
+            throw new IllegalArgumentException("Cannot serialize unresolved dependency " + edge.dependency);
+        }
+        ResolvedDependencyResult dependency = (ResolvedDependencyResult) edge.dependency;
+        componentSelectorSerializer.write(encoder, dependency.getRequested());
+        encoder.writeBoolean(dependency.isConstraint());
+        encoder.writeSmallLong(variantIds.get(edge.fromVariant));
+        encoder.writeSmallLong(componentIds.get(dependency.getSelected()));
+        Long selectedVariant = dependency.getResolvedVariant() == null ? null : variantIds.get(dependency.getResolvedVariant());
+        if (selectedVariant != null) {
+            encoder.writeByte(SUCCESSFUL);
+            encoder.writeSmallLong(selectedVariant);
+        } else {
+            encoder.writeByte(SUCCESSFUL_NOTHING_SELECTED);
+        }
+    }
+
+    private static List<ResolvedComponentResult> collectComponents(ResolvedComponentResult root, Map<ResolvedComponentResult, Long> componentIds) {
+        List<ResolvedComponentResult> components = new ArrayList<>();
+        Deque<ResolvedComponentResult> queue = new ArrayDeque<>();
+        queue.add(root);
+        componentIds.put(root, 0L);
+        while (!queue.isEmpty()) {
+            ResolvedComponentResult component = queue.removeFirst();
+            components.add(component);
+            for (DependencyResult dependency : component.getDependencies()) {
+                if (dependency instanceof ResolvedDependencyResult) {
+                    ResolvedComponentResult selected = ((ResolvedDependencyResult) dependency).getSelected();
+                    if (!componentIds.containsKey(selected)) {
+                        componentIds.put(selected, (long) componentIds.size());
+                        queue.add(selected);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Lists the outgoing edges of the given component in their original order, once for each variant the edge originates from.
+     */
+    private static List<Edge> collectEdges(DefaultResolvedComponentResult component) {
+        Map<DependencyResult, List<ResolvedVariantResult>> fromVariants = new IdentityHashMap<>();
+        for (ResolvedVariantResult variant : component.getVariants()) {
+            for (DependencyResult dependency : component.getDependenciesForVariant(variant)) {
+                fromVariants.computeIfAbsent(dependency, d -> new ArrayList<>(1)).add(variant);
+            }
+        }
+        List<Edge> edges = new ArrayList<>();
+        for (DependencyResult dependency : component.getDependencies()) {
+            List<ResolvedVariantResult> variants = fromVariants.get(dependency);
+            if (variants == null) {
+                throw new IllegalStateException("Dependency " + dependency + " is not associated with any variant of " + component);
+            }
+            for (ResolvedVariantResult variant : variants) {
+                edges.add(new Edge(dependency, variant));
+            }
+        }
+        return edges;
+    }
+
+    private static class Edge {
+        private final DependencyResult dependency;
+        private final ResolvedVariantResult fromVariant;
+
+        private Edge(DependencyResult dependency, ResolvedVariantResult fromVariant) {
+            this.dependency = dependency;
+            this.fromVariant = fromVariant;
+        }
+    }
+}
@@ -28,6 +28,7 @@
 import org.gradle.model.internal.type.ModelType;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -65,6 +66,13 @@ public void add(final Class<? extends AttributeCompatibilityRule<T>> rule) {
             instantiator, new ExceptionHandler<>(rule)));
     }
 
+    /**
+     * Returns the rules of this chain, in the order they are applied.
+     */
+    public List<Action<? super CompatibilityCheckDetails<T>>> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
     @Override
     public void execute(CompatibilityCheckResult<T> result) {
         for (Action<? super CompatibilityCheckDetails<T>> rule : rules) {
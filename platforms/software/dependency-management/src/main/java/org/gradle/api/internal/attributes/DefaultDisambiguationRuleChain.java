@@ -31,6 +31,7 @@
 import org.gradle.model.internal.type.ModelType;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
@@ -69,6 +70,13 @@ public void pickLast(Comparator<? super T> comparator) {
         rules.add(rule);
     }
 
+    /**
+     * Returns the rules of this chain, in the order they are applied.
+     */
+    public List<Action<? super MultipleCandidatesDetails<T>>> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
     @Override
     public void execute(MultipleCandidatesResult<T> details) {
         for (Action<? super MultipleCandidatesDetails<T>> rule : rules) {
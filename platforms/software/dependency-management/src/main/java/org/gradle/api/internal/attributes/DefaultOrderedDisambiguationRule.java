@@ -30,6 +30,14 @@ public DefaultOrderedDisambiguationRule(Comparator<? super T> comparator, boolea
         this.pickFirst = pickFirst;
     }
 
+    public Comparator<? super T> getComparator() {
+        return comparator;
+    }
+
+    public boolean isPickFirst() {
+        return pickFirst;
+    }
+
     @Override
     public void execute(MultipleCandidatesDetails<T> details) {
         Set<T> candidateValues = details.getCandidateValues();
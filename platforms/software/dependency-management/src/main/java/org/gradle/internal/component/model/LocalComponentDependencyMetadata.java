@@ -91,6 +91,12 @@ public ComponentSelector getSelector() {
         return selector;
     }
 
+    @Nullable
+    @Override
+    public String getDependencyConfiguration() {
+        return dependencyConfiguration;
+    }
+
     @Override
     public GraphVariantSelectionResult selectVariants(
         GraphVariantSelector variantSelector,
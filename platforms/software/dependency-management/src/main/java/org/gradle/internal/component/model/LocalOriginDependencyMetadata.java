@@ -18,6 +18,7 @@
 
 import org.gradle.api.artifacts.component.ComponentSelector;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 /**
@@ -39,4 +40,11 @@ public interface LocalOriginDependencyMetadata extends ForcingDependencyMetadata
      * Is this a dependency constraint created for a dependency lock?
      */
     boolean isFromLock();
+
+    /**
+     * Returns the name of the configuration of the target component this dependency points to, or {@code null} when the
+     * variant of the target component is selected using attribute matching.
+     */
+    @Nullable
+    String getDependencyConfiguration();
 }
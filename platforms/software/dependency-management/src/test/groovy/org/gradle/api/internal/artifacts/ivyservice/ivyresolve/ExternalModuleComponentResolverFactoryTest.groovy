@@ -44,6 +44,7 @@ import org.gradle.api.internal.attributes.EmptySchema
 import org.gradle.api.internal.attributes.ImmutableAttributes
 import org.gradle.api.internal.properties.GradleProperties
 import org.gradle.internal.action.InstantiatingAction
+import org.gradle.internal.buildoption.DefaultInternalOptions
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetadata
 import org.gradle.internal.event.ListenerManager
 import org.gradle.internal.model.CalculatedValueContainerFactory
@@ -102,7 +103,9 @@ class ExternalModuleComponentResolverFactoryTest extends Specification {
             resolveStateFactory,
             Stub(CalculatedValueContainerFactory),
             AttributeTestUtil.attributesFactory(),
-            Stub(ComponentMetadataSupplierRuleExecutor)
+            Stub(ComponentMetadataSupplierRuleExecutor),
+            Mock(BuildOperationExecutor),
+            new DefaultInternalOptions([:])
         )
     }
 
@@ -27,6 +27,7 @@ import org.gradle.internal.component.model.ComponentGraphResolveState
 import org.gradle.internal.component.model.ComponentGraphSpecificResolveState
 import org.gradle.internal.component.model.ComponentOverrideMetadata
 import org.gradle.internal.model.CalculatedValueContainerFactory
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.resolve.ModuleVersionNotFoundException
 import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.result.BuildableComponentResolveResult
@@ -515,6 +516,51 @@ class RepositoryChainComponentMetaDataResolverTest extends Specification {
         0 * result._
     }
 
+    def "searches remote repositories concurrently and uses the first declared repository that has the module"() {
+        given:
+        def buildOperationExecutor = new TestBuildOperationExecutor()
+        def probingResolver = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, calculatedValueContainerFactory, new ConcurrentRepositoryProber(buildOperationExecutor))
+        def repo1 = Stub(ModuleComponentRepository) {
+            getLocalAccess() >> localAccess
+            getRemoteAccess() >> remoteAccess
+            getName() >> "repo1"
+        }
+        def repo2 = Stub(ModuleComponentRepository) {
+            getLocalAccess() >> localAccess2
+            getRemoteAccess() >> remoteAccess2
+            getName() >> "repo2"
+        }
+        probingResolver.add(repo1)
+        probingResolver.add(repo2)
+
+        when:
+        probingResolver.resolve(moduleComponentId, componentRequestMetaData, result)
+
+        then:
+        1 * localAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * localAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * remoteAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.resolved(componentState)
+        }
+        1 * remoteAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.resolved(Stub(ModuleComponentGraphResolveState))
+        }
+        1 * result.resolved(_, _) >> { ComponentGraphResolveState state, ComponentGraphSpecificResolveState graphState ->
+            assert state == componentState
+            assert graphState.repositoryName == repo1.name
+        }
+
+        and:
+        0 * localAccess._
+        0 * remoteAccess._
+        0 * localAccess2._
+        0 * remoteAccess2._
+        0 * result._
+
+        and:
+        buildOperationExecutor.operations*.displayName == ["Search repo1 for group:project:1.0", "Search repo2 for group:project:1.0"]
+    }
+
     def metaData(String version) {
         return Stub(ModuleComponentResolveMetadata) {
             toString() >> version
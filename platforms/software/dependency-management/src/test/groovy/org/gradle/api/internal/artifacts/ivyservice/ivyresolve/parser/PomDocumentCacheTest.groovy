@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.cache.internal.TestCrossBuildInMemoryCacheFactory
+import org.gradle.internal.resource.local.LocalFileStandInExternalResource
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class PomDocumentCacheTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def cache = new PomDocumentCache(new TestCrossBuildInMemoryCacheFactory())
+
+    def "reuses parsed POM for resources with the same content"() {
+        given:
+        def first = resource('first.pom', pom('1.0'))
+        def second = resource('second.pom', pom('1.0'))
+        def other = resource('other.pom', pom('2.0'))
+
+        when:
+        def document = cache.parse(first)
+
+        then:
+        cache.parse(second).is(document)
+        !cache.parse(other).is(document)
+        PomStaxParser.getFirstChildText(cache.parse(other).projectElement, 'version') == '2.0'
+    }
+
+    def "retains only the parts of the POM used to build module metadata"() {
+        when:
+        def document = cache.parse(resource('pom.xml', """
+<project>
+    <!-- do_not_remove: published-with-gradle-metadata -->
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>1.0</version>
+    <build>
+        <plugins><plugin><artifactId>plugin</artifactId></plugin></plugins>
+    </build>
+    <profiles>
+        <profile>
+            <id>profile-one</id>
+            <build/>
+        </profile>
+    </profiles>
+</project>
+"""))
+
+        then:
+        document.hasGradleMetadataMarker()
+        document.projectElement.children*.name == ['groupId', 'artifactId', 'version', 'profiles']
+        document.projectElement.children[3].children[0].children*.name == ['id']
+    }
+
+    def resource(String name, String content) {
+        def file = tmpDir.file(name)
+        file.text = content
+        return new LocalFileStandInExternalResource(file, TestFiles.fileSystem())
+    }
+
+    static String pom(String version) {
+        """
+<project>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>${version}</version>
+</project>
+"""
+    }
+}
@@ -87,7 +87,26 @@ class PomReaderTest extends AbstractPomReaderTest {
         then:
         def e = thrown(MetaDataParseException)
         e.message.startsWith("Could not parse POM")
-        e.cause.message.contains("Already seen doctype")
+        e.cause.message.contains('The entity "file" was referenced, but not declared.')
+    }
+
+    def "resolves HTML entities that Maven accepts in POMs"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group&#45;one</groupId>
+    <artifactId>artifact&amp;one</artifactId>
+    <version>version&nbsp;one</version>
+    <description>Caf&eacute;</description>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+
+        then:
+        pomReader.groupId == 'group-one'
+        pomReader.artifactId == 'artifact&one'
+        pomReader.version == 'version\u00A0one'
     }
 
     def "parse simple POM"() {
@@ -20,6 +20,7 @@ import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.DependencyManagementTestUtil
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata
 import org.gradle.internal.resource.local.LocallyAvailableResource
 import org.gradle.internal.resource.local.PathKeyFileStore
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -69,4 +70,42 @@ class ModuleMetadataStoreTest extends Specification {
         };
         1 * serializer.write(_, descriptor, _)
     }
+
+    def "reads strings written with putModuleDescriptor"() {
+        setup:
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        def descriptor = mavenMetadataFactory.create(moduleComponentIdentifier, []).asImmutable()
+        def metadata = Mock(MutableModuleComponentResolveMetadata)
+        def key = new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier)
+        def strings = []
+        pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { path, action ->
+            action.execute(descriptorFile); fileStoreEntry
+        }
+        pathKeyFileStore.get("org.test", "testArtifact", "1.0", "repositoryId", "descriptor.bin") >> fileStoreEntry
+        fileStoreEntry.file >> descriptorFile
+
+        when:
+        store.putModuleDescriptor(key, descriptor)
+        def result = store.getModuleDescriptor(key)
+
+        then:
+        1 * serializer.write(_, descriptor, _) >> { encoder, md, cache ->
+            encoder.writeString("compile")
+            encoder.writeSmallInt(12)
+            encoder.writeNullableString(null)
+            encoder.writeString("runtime")
+            encoder.writeNullableString("compile")
+        }
+        1 * serializer.read(_, moduleIdentifierFactory, _) >> { decoder, factory, cache ->
+            strings << decoder.readString()
+            strings << decoder.readSmallInt()
+            strings << decoder.readNullableString()
+            strings << decoder.readString()
+            strings << decoder.readNullableString()
+            metadata
+        }
+        result == metadata
+        strings == ["compile", 12, null, "runtime", "compile"]
+        strings[0].is(strings[4])
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.DependencyManagementTestUtil
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheLockingAccessCoordinator
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectionReasons
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DesugaredAttributeContainerSerializer
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultGraphBuilder
+import org.gradle.api.internal.artifacts.result.DefaultResolvedVariantResult
+import org.gradle.api.internal.attributes.ImmutableAttributes
+import org.gradle.internal.Describables
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.ImmutableCapabilities
+import org.gradle.internal.file.FileAccessTimeJournal
+import org.gradle.internal.hash.TestHashCodes
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.AttributeTestUtil
+import org.gradle.util.TestUtil
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.function.Supplier
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+
+class ResolvedGraphCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def baseDir = temporaryFolder.file("resolved-graphs")
+    def cacheAccessCoordinator = Stub(ArtifactCacheLockingAccessCoordinator) {
+        useCache(_ as Supplier) >> { Supplier action -> action.get() }
+        useCache(_ as Runnable) >> { Runnable action -> action.run() }
+    }
+    def fileAccessTimeJournal = Mock(FileAccessTimeJournal)
+    def cache = new ResolvedGraphCache(
+        baseDir,
+        cacheAccessCoordinator,
+        fileAccessTimeJournal,
+        new DefaultImmutableModuleIdentifierFactory(),
+        new DesugaredAttributeContainerSerializer(AttributeTestUtil.attributesFactory(), TestUtil.objectInstantiator()),
+        DependencyManagementTestUtil.componentSelectionDescriptorFactory()
+    )
+
+    def "stores graph as a file per key and records its use"() {
+        def key = TestHashCodes.hashCodeFrom(1)
+        def metadataState = TestHashCodes.hashCodeFrom(2)
+
+        when:
+        cache.put(key, graph(), metadataState)
+
+        then:
+        baseDir.file("${key}.bin").assertIsFile()
+        baseDir.listFiles().length == 1
+        1 * fileAccessTimeJournal.setLastAccessTime(baseDir.file("${key}.bin"), _)
+
+        when:
+        def entry = cache.get(key)
+
+        then:
+        entry.root.id.displayName == "x:root:1"
+        entry.root.variants*.displayName == ["root-runtime"]
+        entry.metadataState == metadataState
+        1 * fileAccessTimeJournal.setLastAccessTime(baseDir.file("${key}.bin"), _)
+    }
+
+    def "returns null for missing entry"() {
+        when:
+        def root = cache.get(TestHashCodes.hashCodeFrom(1))
+
+        then:
+        root == null
+        0 * fileAccessTimeJournal._
+    }
+
+    def "treats unreadable entry as missing"() {
+        def key = TestHashCodes.hashCodeFrom(1)
+        baseDir.file("${key}.bin").text = "broken"
+
+        when:
+        def root = cache.get(key)
+
+        then:
+        root == null
+        0 * fileAccessTimeJournal._
+    }
+
+    private static graph() {
+        def builder = new ResolutionResultGraphBuilder()
+        def componentId = new DefaultModuleComponentIdentifier(DefaultModuleIdentifier.newId("x", "root"), "1")
+        builder.startVisitComponent(1L, ComponentSelectionReasons.requested(), "repo")
+        builder.visitComponentDetails(componentId, newId(DefaultModuleIdentifier.newId("x", "root"), "1"))
+        builder.visitSelectedVariant(1L, new DefaultResolvedVariantResult(componentId, Describables.of("root-runtime"), ImmutableAttributes.EMPTY, ImmutableCapabilities.EMPTY, null))
+        builder.visitComponentVariants([])
+        builder.endVisitComponent()
+        builder.visitOutgoingEdges(1L, [])
+        return builder.getRoot(1L)
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph
+
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.dependencies.DefaultImmutableVersionConstraint
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleDescriptorHashModuleSource
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChainModuleSource
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectionReasons
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultGraphBuilder
+import org.gradle.api.internal.artifacts.result.DefaultResolvedVariantResult
+import org.gradle.api.internal.attributes.ImmutableAttributes
+import org.gradle.internal.Describables
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.external.model.ImmutableCapabilities
+import org.gradle.internal.component.model.ComponentArtifactResolveMetadata
+import org.gradle.internal.component.model.ComponentArtifactResolveState
+import org.gradle.internal.component.model.ComponentGraphResolveMetadata
+import org.gradle.internal.component.model.ComponentGraphResolveState
+import org.gradle.internal.component.model.ImmutableModuleSources
+import org.gradle.internal.hash.TestHashCodes
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import spock.lang.Specification
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionSelector.newSelector
+
+class CachedGraphReplayTest extends Specification {
+    def componentResolver = Mock(ComponentMetaDataResolver)
+    def replay = new CachedGraphReplay(componentResolver, new ModuleExclusions())
+    def builder = new ResolutionResultGraphBuilder()
+
+    def "metadata state is stable while the module metadata does not change"() {
+        def root = graph()
+        def modules = [root: module("root"), a: module("a"), b: module("b")]
+        resolvesTo(modules)
+
+        expect:
+        replay.calculateMetadataState(root) != null
+        replay.calculateMetadataState(root) == replay.calculateMetadataState(root)
+    }
+
+    def "metadata state changes when the descriptor of a module changes"() {
+        def root = graph()
+        def modules = [root: module("root"), a: module("a"), b: module("b")]
+        resolvesTo(modules)
+        def before = replay.calculateMetadataState(root)
+
+        when:
+        modules.b = module("b", 2)
+        def after = replay.calculateMetadataState(root)
+
+        then:
+        after != null
+        after != before
+    }
+
+    def "metadata state changes when a module is found in another repository"() {
+        def root = graph()
+        def modules = [root: module("root"), a: module("a"), b: module("b", 1, "repo2")]
+        resolvesTo(modules)
+        def before = replay.calculateMetadataState(root)
+
+        when:
+        // The module was missing from the first repository when the graph was cached, and has been published there since
+        modules.b = module("b", 1, "repo1")
+        def after = replay.calculateMetadataState(root)
+
+        then:
+        after != null
+        after != before
+    }
+
+    def "graph with a changing module has no metadata state"() {
+        def root = graph()
+        resolvesTo([root: module("root"), a: module("a", 1, "repo1", true), b: module("b")])
+
+        expect:
+        replay.calculateMetadataState(root) == null
+    }
+
+    def "graph with a module whose descriptor is changing has no metadata state"() {
+        def root = graph()
+        resolvesTo([root: module("root"), a: module("a"), b: module("b", 1, "repo1", false, true)])
+
+        expect:
+        replay.calculateMetadataState(root) == null
+    }
+
+    def "graph with a module that can no longer be resolved has no metadata state"() {
+        def root = graph()
+        resolvesTo([root: module("root"), a: module("a")])
+
+        expect:
+        replay.calculateMetadataState(root) == null
+    }
+
+    private void resolvesTo(Map<String, ComponentGraphResolveState> modules) {
+        componentResolver.resolve(_, _, _) >> { ComponentIdentifier id, overrides, BuildableComponentResolveResult result ->
+            def module = modules[id.module]
+            if (module == null) {
+                result.failed(new ModuleVersionResolveException(newSelector(DefaultModuleIdentifier.newId("x", id.module), "1"), new RuntimeException("missing")))
+            } else {
+                result.resolved(module, null)
+            }
+        }
+    }
+
+    private ComponentGraphResolveState module(String name, int descriptor = 1, String repository = "repo1", boolean changing = false, boolean changingDescriptor = false) {
+        def repo = Stub(ModuleComponentRepository) {
+            getId() >> repository
+        }
+        def sources = ImmutableModuleSources.of(new ModuleDescriptorHashModuleSource(TestHashCodes.hashCodeFrom(descriptor), changingDescriptor), new RepositoryChainModuleSource(repo))
+        def artifactMetadata = Stub(ComponentArtifactResolveMetadata) {
+            getSources() >> sources
+        }
+        def artifactState = Stub(ComponentArtifactResolveState) {
+            getArtifactMetadata() >> artifactMetadata
+        }
+        def metadata = Stub(ComponentGraphResolveMetadata) {
+            isChanging() >> changing
+        }
+        return Stub(ComponentGraphResolveState) {
+            getId() >> componentId(name)
+            getMetadata() >> metadata
+            prepareForArtifactResolution() >> artifactState
+        }
+    }
+
+    private graph() {
+        node("root")
+        node("a")
+        node("b")
+        builder.visitOutgoingEdges(id("root"), [dep("root", "a")])
+        builder.visitOutgoingEdges(id("a"), [dep("a", "b")])
+        builder.visitOutgoingEdges(id("b"), [])
+        return builder.getRoot(id("root"))
+    }
+
+    private void node(String module) {
+        def componentId = componentId(module)
+        builder.startVisitComponent(id(module), ComponentSelectionReasons.requested(), "repo1")
+        builder.visitComponentDetails(componentId, newId(DefaultModuleIdentifier.newId("x", module), "1"))
+        builder.visitSelectedVariant(id(module), new DefaultResolvedVariantResult(componentId, Describables.of("${module}-runtime"), ImmutableAttributes.EMPTY, ImmutableCapabilities.EMPTY, null))
+        builder.visitComponentVariants([])
+        builder.endVisitComponent()
+    }
+
+    private ResolvedGraphDependency dep(String from, String requested) {
+        def selector = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("x", requested), DefaultImmutableVersionConstraint.of("1"))
+        return Stub(ResolvedGraphDependency) {
+            getRequested() >> selector
+            getFromVariant() >> id(from)
+            getSelected() >> id(requested)
+            getSelectedVariant() >> id(requested)
+        }
+    }
+
+    private static DefaultModuleComponentIdentifier componentId(String module) {
+        return new DefaultModuleComponentIdentifier(DefaultModuleIdentifier.newId("x", module), "1")
+    }
+
+    private static Long id(String module) {
+        return module.hashCode()
+    }
+}
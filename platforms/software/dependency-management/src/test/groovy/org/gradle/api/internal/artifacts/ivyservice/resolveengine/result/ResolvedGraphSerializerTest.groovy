@@ -0,0 +1,143 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.result
+
+import org.gradle.api.artifacts.result.ComponentSelectionReason
+import org.gradle.api.artifacts.result.ResolvedDependencyResult
+import org.gradle.api.artifacts.result.ResolvedVariantResult
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.DependencyManagementTestUtil
+import org.gradle.api.internal.artifacts.dependencies.DefaultImmutableVersionConstraint
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolvedGraphDependency
+import org.gradle.api.internal.artifacts.result.DefaultResolvedVariantResult
+import org.gradle.api.internal.artifacts.result.ResolvedComponentResultInternal
+import org.gradle.api.internal.attributes.ImmutableAttributes
+import org.gradle.internal.Describables
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.external.model.ImmutableCapabilities
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.serialize.SerializerSpec
+import org.gradle.util.AttributeTestUtil
+import org.gradle.util.TestUtil
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionSelector.newSelector
+import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultPrinter.printGraph
+
+class ResolvedGraphSerializerTest extends SerializerSpec {
+    def builder = new ResolutionResultGraphBuilder()
+    def serializer = new ResolvedGraphSerializer(
+        new DefaultImmutableModuleIdentifierFactory(),
+        new DesugaredAttributeContainerSerializer(AttributeTestUtil.attributesFactory(), TestUtil.objectInstantiator()),
+        DependencyManagementTestUtil.componentSelectionDescriptorFactory()
+    )
+
+    def "serializes graph"() {
+        given:
+        node("root")
+        node("a")
+        node("b", ComponentSelectionReasons.of(ComponentSelectionReasons.CONFLICT_RESOLUTION))
+        node("c")
+        resolvedConf("root", [dep("root", "a"), dep("root", "b")])
+        resolvedConf("a", [dep("a", "b"), dep("a", "c")])
+        resolvedConf("b", [dep("b", "c")])
+
+        def root = builder.getRoot(id("root"))
+
+        when:
+        def result = serialize(root, serializer)
+
+        then:
+        printGraph(result) == printGraph(root)
+        def b = result.dependencies.find { it.requested.module == 'b' }.selected
+        b.selectionReason.conflictResolution
+        (b as ResolvedComponentResultInternal).repositoryId == "repo"
+        b.variants*.displayName == ["b-runtime"]
+        b.variants*.owner == [b.id]
+        (result.dependencies.first() as ResolvedDependencyResult).resolvedVariant.displayName == "a-runtime"
+    }
+
+    def "serializes graph with cycles"() {
+        given:
+        node("a")
+        node("b")
+        resolvedConf("a", [dep("a", "b")])
+        resolvedConf("b", [dep("b", "a")])
+
+        def root = builder.getRoot(id("a"))
+
+        when:
+        def result = serialize(root, serializer)
+
+        then:
+        printGraph(result) == """x:a:1
+  x:b:1 [a]
+    x:a:1 [b]
+"""
+        def b = result.dependencies.first().selected
+        b.dependencies.first().selected.is(result)
+    }
+
+    def "does not serialize graph with unresolved dependencies"() {
+        given:
+        node("a")
+        node("b")
+        resolvedConf("a", [dep("a", "b", new RuntimeException("Boo!"))])
+
+        when:
+        toBytes(builder.getRoot(id("a")), serializer)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private void node(String module, ComponentSelectionReason reason = ComponentSelectionReasons.requested()) {
+        def componentId = new DefaultModuleComponentIdentifier(DefaultModuleIdentifier.newId("x", module), "1")
+        builder.startVisitComponent(id(module), reason, "repo")
+        builder.visitComponentDetails(componentId, newId(DefaultModuleIdentifier.newId("x", module), "1"))
+        builder.visitSelectedVariant(id(module), variant(componentId, "${module}-runtime"))
+        builder.visitComponentVariants([])
+        builder.endVisitComponent()
+    }
+
+    private static ResolvedVariantResult variant(DefaultModuleComponentIdentifier owner, String name) {
+        return new DefaultResolvedVariantResult(owner, Describables.of(name), ImmutableAttributes.EMPTY, ImmutableCapabilities.EMPTY, null)
+    }
+
+    private void resolvedConf(String module, List<ResolvedGraphDependency> deps) {
+        builder.visitOutgoingEdges(id(module), deps)
+    }
+
+    private ResolvedGraphDependency dep(String from, String requested, Exception failure = null) {
+        def selector = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("x", requested), DefaultImmutableVersionConstraint.of("1"))
+        def moduleVersionSelector = newSelector(DefaultModuleIdentifier.newId("x", requested), "1")
+        failure = failure == null ? null : new ModuleVersionResolveException(moduleVersionSelector, failure)
+        return Stub(ResolvedGraphDependency) {
+            getRequested() >> selector
+            getFromVariant() >> id(from)
+            getSelected() >> id(requested)
+            getSelectedVariant() >> id(requested)
+            getFailure() >> failure
+        }
+    }
+
+    private static Long id(String module) {
+        return module.hashCode()
+    }
+}
@@ -23,7 +23,6 @@ import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.dsl.dependencies.DependencyLockingProvider
 import org.gradle.api.internal.artifacts.dsl.dependencies.DependencyLockingState
 import org.gradle.api.internal.artifacts.dsl.dependencies.LockEntryFilter
-import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ComponentResolutionState
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode
@@ -252,9 +251,7 @@ class DependencyLockingGraphVisitorTest extends Specification {
     private void addVisitedNode(ModuleComponentIdentifier module) {
         DependencyGraphNode node = Mock()
         DependencyGraphComponent owner = Mock()
-        ComponentResolutionState component = Mock()
         node.owner >> owner
-        node.component >> component
         owner.componentId >> module
 
         visitor.visitNode(node)
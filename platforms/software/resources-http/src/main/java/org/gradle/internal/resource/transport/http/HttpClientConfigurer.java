@@ -74,6 +74,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.net.ssl.HostnameVerifier;
 import java.net.ProxySelector;
 import java.util.Arrays;
@@ -125,9 +126,16 @@ Collection<String> supportedTlsVersions() {
 
     private final String[] sslProtocols;
     private final HttpSettings httpSettings;
+    @Nullable
+    private final HttpConnectionPools connectionPools;
 
     public HttpClientConfigurer(HttpSettings httpSettings) {
+        this(httpSettings, null);
+    }
+
+    public HttpClientConfigurer(HttpSettings httpSettings, @Nullable HttpConnectionPools connectionPools) {
         this.httpSettings = httpSettings;
+        this.connectionPools = connectionPools;
         this.sslProtocols = determineHttpsProtocols();
     }
 
@@ -146,6 +154,16 @@ public void configure(HttpClientBuilder builder) {
         builder.setMaxConnTotal(httpSettings.getMaxConnTotal());
         builder.setMaxConnPerRoute(httpSettings.getMaxConnPerRoute());
         builder.setConnectionTimeToLive(httpSettings.getTimeoutSettings().getIdleConnectionTimeoutMs(), TimeUnit.MILLISECONDS);
+        configureSharedConnectionPool(builder);
+    }
+
+    private void configureSharedConnectionPool(HttpClientBuilder builder) {
+        if (connectionPools != null) {
+            // The shared pool takes over the socket factories, connection limits and time to live configured above
+            // Closing the client releases its use of the shared pool
+            builder.setConnectionManager(connectionPools.getConnectionManager(httpSettings, sslProtocols));
+            builder.setRequestExecutor(connectionPools.createRequestExecutor());
+        }
     }
 
     private void configureSslSocketConnectionFactory(HttpClientBuilder builder, SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier) {
@@ -287,7 +305,11 @@ private void configureRequestConfig(HttpClientBuilder builder) {
 
     private void configureSocketConfig(HttpClientBuilder builder) {
         HttpTimeoutSettings timeoutSettings = httpSettings.getTimeoutSettings();
-        builder.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(timeoutSettings.getSocketTimeoutMs()).setSoKeepAlive(true).build());
+        builder.setDefaultSocketConfig(createSocketConfig(timeoutSettings.getSocketTimeoutMs()));
+    }
+
+    static SocketConfig createSocketConfig(int socketTimeoutMs) {
+        return SocketConfig.custom().setSoTimeout(socketTimeoutMs).setSoKeepAlive(true).build();
     }
 
     private void configureRedirectStrategy(HttpClientBuilder builder) {
@@ -62,6 +62,8 @@ public class HttpClientHelper implements Closeable {
     private CloseableHttpClient client;
     private final DocumentationRegistry documentationRegistry;
     private final HttpSettings settings;
+    @Nullable
+    private final HttpConnectionPools connectionPools;
 
     private Collection<String> supportedTlsVersions;
 
@@ -79,8 +81,14 @@ public class HttpClientHelper implements Closeable {
      */
     @VisibleForTesting
     HttpClientHelper(DocumentationRegistry documentationRegistry, HttpSettings settings) {
+        this(documentationRegistry, settings, null);
+    }
+
+    @VisibleForTesting
+    HttpClientHelper(DocumentationRegistry documentationRegistry, HttpSettings settings, @Nullable HttpConnectionPools connectionPools) {
         this.documentationRegistry = documentationRegistry;
         this.settings = settings;
+        this.connectionPools = connectionPools;
         if (!settings.getAuthenticationSettings().isEmpty()) {
             sharedContext = new ConcurrentLinkedQueue<HttpContext>();
         } else {
@@ -254,7 +262,7 @@ private HttpClientResponse processResponse(HttpClientResponse response) {
     private synchronized CloseableHttpClient getClient() {
         if (client == null) {
             HttpClientBuilder builder = HttpClientBuilder.create();
-            HttpClientConfigurer configurer = new HttpClientConfigurer(settings);
+            HttpClientConfigurer configurer = new HttpClientConfigurer(settings, connectionPools);
             configurer.configure(builder);
             this.supportedTlsVersions = configurer.supportedTlsVersions();
             this.client = builder.build();
@@ -317,6 +325,13 @@ public interface Factory {
         static Factory createFactory(DocumentationRegistry documentationRegistry) {
             return settings -> new HttpClientHelper(documentationRegistry, settings);
         }
+
+        /**
+         * Creates a factory whose clients share connections through the given pools.
+         */
+        static Factory createFactory(DocumentationRegistry documentationRegistry, HttpConnectionPools connectionPools) {
+            return settings -> new HttpClientHelper(documentationRegistry, settings, connectionPools);
+        }
     }
 
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+public interface HttpConnectionPoolStatistics {
+    /**
+     * Number of connections opened to HTTP servers and proxies.
+     */
+    long getOpenedConnectionCount();
+
+    /**
+     * Number of requests sent over a connection that was already used by an earlier request.
+     */
+    long getReusedConnectionCount();
+
+    /**
+     * Number of TLS handshakes performed when opening connections.
+     */
+    long getTlsHandshakeCount();
+
+    class Collector {
+        private final AtomicLong openedConnectionCount = new AtomicLong();
+        private final AtomicLong reusedConnectionCount = new AtomicLong();
+        private final AtomicLong tlsHandshakeCount = new AtomicLong();
+
+        public void reportConnectionOpened() {
+            openedConnectionCount.incrementAndGet();
+        }
+
+        public void reportConnectionReused() {
+            reusedConnectionCount.incrementAndGet();
+        }
+
+        public void reportTlsHandshake() {
+            tlsHandshakeCount.incrementAndGet();
+        }
+
+        public HttpConnectionPoolStatistics collect() {
+            long openedConnectionCount = this.openedConnectionCount.getAndSet(0);
+            long reusedConnectionCount = this.reusedConnectionCount.getAndSet(0);
+            long tlsHandshakeCount = this.tlsHandshakeCount.getAndSet(0);
+            return new HttpConnectionPoolStatistics() {
+                @Override
+                public long getOpenedConnectionCount() {
+                    return openedConnectionCount;
+                }
+
+                @Override
+                public long getReusedConnectionCount() {
+                    return reusedConnectionCount;
+                }
+
+                @Override
+                public long getTlsHandshakeCount() {
+                    return tlsHandshakeCount;
+                }
+
+                @Override
+                public String toString() {
+                    return MessageFormat.format("Opened {0,number,integer} connections ({1,number,integer} TLS handshakes), reused connections for {2,number,integer} requests",
+                        openedConnectionCount, tlsHandshakeCount, reusedConnectionCount
+                    );
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+import org.gradle.internal.session.BuildSessionLifecycleListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection pools shared by the {@link HttpClientHelper} instances of a build session.
+ *
+ * <p>Clients with the same connection settings use the same pool, so requests to the same host from different repositories
+ * reuse connections instead of each opening and handshaking their own. The pools are discarded at the end of the build session,
+ * when the connection statistics of the session are logged, and are shut down once the last client using them is closed.</p>
+ *
+ * <p>The total connection limit of a pool is the limit of a single client multiplied by the number of clients using the pool,
+ * so sharing a pool does not reduce the number of connections the clients can open together. The per-route limit is not scaled,
+ * so clients with the same settings together open at most that many connections to the same host.</p>
+ */
+@ServiceScope(Scope.Global.class)
+public class HttpConnectionPools implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpConnectionPools.class);
+
+    private final HttpConnectionPoolStatistics.Collector statisticsCollector = new HttpConnectionPoolStatistics.Collector();
+    private final Map<PoolKey, SharedPool> pools = new HashMap<>();
+    private final Set<SharedPool> discardedPools = new HashSet<>();
+
+    public HttpConnectionPools(ListenerManager listenerManager) {
+        listenerManager.addListener(new BuildSessionLifecycleListener() {
+            @Override
+            public void beforeComplete() {
+                sessionCompleted();
+            }
+        });
+    }
+
+    /**
+     * Returns the connection manager to use for a client with the given settings.
+     * Shutting down the returned connection manager, which the client does when it is closed, releases the client's use of the shared pool.
+     */
+    public synchronized HttpClientConnectionManager getConnectionManager(HttpSettings settings, String[] sslProtocols) {
+        HttpTimeoutSettings timeoutSettings = settings.getTimeoutSettings();
+        PoolKey key = new PoolKey(
+            settings.getSslContextFactory().createSslContext(),
+            sslProtocols,
+            settings.getHostnameVerifier(),
+            timeoutSettings.getSocketTimeoutMs(),
+            timeoutSettings.getIdleConnectionTimeoutMs(),
+            settings.getMaxConnTotal(),
+            settings.getMaxConnPerRoute()
+        );
+        SharedPool pool = pools.computeIfAbsent(key, k -> new SharedPool(k, createConnectionManager(k)));
+        pool.acquire();
+        return new ClientConnectionManager(pool);
+    }
+
+    /**
+     * Creates a request executor that records how often requests reuse a pooled connection.
+     */
+    public HttpRequestExecutor createRequestExecutor() {
+        return new StatisticsCollectingRequestExecutor(statisticsCollector);
+    }
+
+    public HttpConnectionPoolStatistics.Collector getStatisticsCollector() {
+        return statisticsCollector;
+    }
+
+    private PoolingHttpClientConnectionManager createConnectionManager(PoolKey key) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+            RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", new StatisticsCollectingPlainSocketFactory(statisticsCollector))
+                .register("https", new StatisticsCollectingSslSocketFactory(key.sslContext, key.sslProtocols, key.hostnameVerifier, statisticsCollector))
+                .build(),
+            null,
+            null,
+            null,
+            key.idleConnectionTimeoutMs,
+            TimeUnit.MILLISECONDS
+        );
+        connectionManager.setDefaultSocketConfig(HttpClientConfigurer.createSocketConfig(key.socketTimeoutMs));
+        connectionManager.setMaxTotal(key.maxConnTotal);
+        connectionManager.setDefaultMaxPerRoute(key.maxConnPerRoute);
+        return connectionManager;
+    }
+
+    private void release(SharedPool pool) {
+        boolean shutDown;
+        synchronized (this) {
+            pool.release();
+            shutDown = pool.isUnused() && discardedPools.remove(pool);
+        }
+        if (shutDown) {
+            pool.connectionManager.shutdown();
+        }
+    }
+
+    private void sessionCompleted() {
+        HttpConnectionPoolStatistics statistics = statisticsCollector.collect();
+        if (statistics.getOpenedConnectionCount() > 0) {
+            LOGGER.info("HTTP connection pools: {}", statistics);
+        }
+        // Pools still used by clients created during the session are only shut down once those clients are closed, so the clients keep working until then
+        List<SharedPool> unusedPools = new ArrayList<>();
+        List<SharedPool> usedPools = new ArrayList<>();
+        synchronized (this) {
+            for (SharedPool pool : pools.values()) {
+                if (pool.isUnused()) {
+                    unusedPools.add(pool);
+                } else {
+                    usedPools.add(pool);
+                    discardedPools.add(pool);
+                }
+            }
+            pools.clear();
+        }
+        for (SharedPool pool : unusedPools) {
+            pool.connectionManager.shutdown();
+        }
+        for (SharedPool pool : usedPools) {
+            pool.connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<SharedPool> allPools;
+        synchronized (this) {
+            allPools = new ArrayList<>(pools.values());
+            allPools.addAll(discardedPools);
+            pools.clear();
+            discardedPools.clear();
+        }
+        for (SharedPool pool : allPools) {
+            pool.connectionManager.shutdown();
+        }
+    }
+
+    /**
+     * A pool and the number of clients using it. Guarded by the {@link HttpConnectionPools} instance.
+     */
+    private static final class SharedPool {
+        private final PoolKey key;
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private int clientCount;
+
+        SharedPool(PoolKey key, PoolingHttpClientConnectionManager connectionManager) {
+            this.key = key;
+            this.connectionManager = connectionManager;
+        }
+
+        void acquire() {
+            clientCount++;
+            updateMaxTotal();
+        }
+
+        void release() {
+            clientCount--;
+            updateMaxTotal();
+        }
+
+        boolean isUnused() {
+            return clientCount == 0;
+        }
+
+        private void updateMaxTotal() {
+            connectionManager.setMaxTotal(key.maxConnTotal * Math.max(1, clientCount));
+        }
+    }
+
+    /**
+     * The connection manager of a single client, which releases the client's use of the shared pool instead of shutting the pool down.
+     */
+    private final class ClientConnectionManager implements HttpClientConnectionManager {
+        private final SharedPool pool;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ClientConnectionManager(SharedPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            return pool.connectionManager.requestConnection(route, state);
+        }
+
+        @Override
+        public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration, TimeUnit timeUnit) {
+            pool.connectionManager.releaseConnection(conn, newState, validDuration, timeUnit);
+        }
+
+        @Override
+        public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context) throws IOException {
+            pool.connectionManager.connect(conn, route, connectTimeout, context);
+        }
+
+        @Override
+        public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+            pool.connectionManager.upgrade(conn, route, context);
+        }
+
+        @Override
+        public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+            pool.connectionManager.routeComplete(conn, route, context);
+        }
+
+        @Override
+        public void closeIdleConnections(long idletime, TimeUnit timeUnit) {
+            pool.connectionManager.closeIdleConnections(idletime, timeUnit);
+        }
+
+        @Override
+        public void closeExpiredConnections() {
+            pool.connectionManager.closeExpiredConnections();
+        }
+
+        @Override
+        public void shutdown() {
+            if (released.compareAndSet(false, true)) {
+                release(pool);
+            }
+        }
+    }
+
+    private static final class PoolKey {
+        private final SSLContext sslContext;
+        private final String[] sslProtocols;
+        private final HostnameVerifier hostnameVerifier;
+        private final int socketTimeoutMs;
+        private final int idleConnectionTimeoutMs;
+        private final int maxConnTotal;
+        private final int maxConnPerRoute;
+        private final int hashCode;
+
+        PoolKey(SSLContext sslContext, String[] sslProtocols, HostnameVerifier hostnameVerifier, int socketTimeoutMs, int idleConnectionTimeoutMs, int maxConnTotal, int maxConnPerRoute) {
+            this.sslContext = sslContext;
+            this.sslProtocols = sslProtocols;
+            this.hostnameVerifier = hostnameVerifier;
+            this.socketTimeoutMs = socketTimeoutMs;
+            this.idleConnectionTimeoutMs = idleConnectionTimeoutMs;
+            this.maxConnTotal = maxConnTotal;
+            this.maxConnPerRoute = maxConnPerRoute;
+            this.hashCode = Objects.hash(sslContext, Arrays.hashCode(sslProtocols), hostnameVerifier, socketTimeoutMs, idleConnectionTimeoutMs, maxConnTotal, maxConnPerRoute);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PoolKey other = (PoolKey) o;
+            return sslContext.equals(other.sslContext)
+                && Arrays.equals(sslProtocols, other.sslProtocols)
+                && hostnameVerifier.equals(other.hostnameVerifier)
+                && socketTimeoutMs == other.socketTimeoutMs
+                && idleConnectionTimeoutMs == other.idleConnectionTimeoutMs
+                && maxConnTotal == other.maxConnTotal
+                && maxConnPerRoute == other.maxConnPerRoute;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class StatisticsCollectingPlainSocketFactory extends PlainConnectionSocketFactory {
+        private final HttpConnectionPoolStatistics.Collector statisticsCollector;
+
+        StatisticsCollectingPlainSocketFactory(HttpConnectionPoolStatistics.Collector statisticsCollector) {
+            this.statisticsCollector = statisticsCollector;
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context) throws IOException {
+            Socket connectedSocket = super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            statisticsCollector.reportConnectionOpened();
+            return connectedSocket;
+        }
+    }
+
+    private static class StatisticsCollectingSslSocketFactory extends SSLConnectionSocketFactory {
+        private final HttpConnectionPoolStatistics.Collector statisticsCollector;
+
+        StatisticsCollectingSslSocketFactory(SSLContext sslContext, String[] sslProtocols, HostnameVerifier hostnameVerifier, HttpConnectionPoolStatistics.Collector statisticsCollector) {
+            super(sslContext, sslProtocols, null, hostnameVerifier);
+            this.statisticsCollector = statisticsCollector;
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context) throws IOException {
+            Socket connectedSocket = super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            statisticsCollector.reportConnectionOpened();
+            return connectedSocket;
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            // Performs the handshake, both for direct connections and for connections tunnelled through a proxy
+            Socket layeredSocket = super.createLayeredSocket(socket, target, port, context);
+            statisticsCollector.reportTlsHandshake();
+            return layeredSocket;
+        }
+    }
+
+    private static class StatisticsCollectingRequestExecutor extends HttpRequestExecutor {
+        private final HttpConnectionPoolStatistics.Collector statisticsCollector;
+
+        StatisticsCollectingRequestExecutor(HttpConnectionPoolStatistics.Collector statisticsCollector) {
+            this.statisticsCollector = statisticsCollector;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException {
+            if (conn.getMetrics().getRequestCount() > 0) {
+                statisticsCollector.reportConnectionReused();
+            }
+            return super.execute(request, conn, context);
+        }
+    }
+}
@@ -24,6 +24,7 @@
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
 import org.gradle.internal.authentication.DefaultDigestAuthentication;
 import org.gradle.internal.authentication.DefaultHttpHeaderAuthentication;
+import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
 import org.gradle.internal.service.Provides;
 import org.gradle.internal.service.ServiceRegistration;
@@ -48,8 +49,13 @@ SslContextFactory createSslContextFactory() {
         }
 
         @Provides
-        HttpClientHelper.Factory createHttpClientHelperFactory(DocumentationRegistry documentationRegistry) {
-            return HttpClientHelper.Factory.createFactory(documentationRegistry);
+        HttpConnectionPools createHttpConnectionPools(ListenerManager listenerManager) {
+            return new HttpConnectionPools(listenerManager);
+        }
+
+        @Provides
+        HttpClientHelper.Factory createHttpClientHelperFactory(DocumentationRegistry documentationRegistry, HttpConnectionPools connectionPools) {
+            return HttpClientHelper.Factory.createFactory(documentationRegistry, connectionPools);
         }
 
         @Provides
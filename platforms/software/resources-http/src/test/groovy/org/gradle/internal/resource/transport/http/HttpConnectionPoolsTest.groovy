@@ -0,0 +1,166 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import org.gradle.api.internal.DocumentationRegistry
+import org.gradle.internal.event.DefaultListenerManager
+import org.gradle.internal.service.scopes.Scope
+import org.gradle.internal.session.BuildSessionLifecycleListener
+import org.gradle.test.fixtures.server.http.HttpServer
+import org.junit.Rule
+import spock.lang.Specification
+
+class HttpConnectionPoolsTest extends Specification {
+    @Rule HttpServer httpServer = new HttpServer()
+    def listenerManager = new DefaultListenerManager(Scope.Global)
+    def connectionPools = new HttpConnectionPools(listenerManager)
+    def sslContextFactory = new DefaultSslContextFactory()
+
+    def cleanup() {
+        connectionPools.close()
+    }
+
+    def "clients with the same settings share connections"() {
+        given:
+        httpServer.expectGetEmptyOk("/repo1/a")
+        httpServer.expectGetEmptyOk("/repo2/b")
+        httpServer.start()
+        def repo1 = client(settings())
+        def repo2 = client(settings())
+
+        when:
+        get(repo1, "/repo1/a")
+        get(repo2, "/repo2/b")
+        def statistics = connectionPools.statisticsCollector.collect()
+
+        then:
+        statistics.openedConnectionCount == 1
+        statistics.reusedConnectionCount == 1
+        statistics.tlsHandshakeCount == 0
+    }
+
+    def "clients with different connection settings do not share connections"() {
+        given:
+        httpServer.expectGetEmptyOk("/repo1/a")
+        httpServer.expectGetEmptyOk("/repo2/b")
+        httpServer.start()
+        def repo1 = client(settings())
+        def repo2 = client(DefaultHttpSettings.builder()
+            .withAuthenticationSettings([])
+            .withSslContextFactory(sslContextFactory)
+            .withRedirectVerifier({})
+            .maxConnPerRoute(5)
+            .build())
+
+        when:
+        get(repo1, "/repo1/a")
+        get(repo2, "/repo2/b")
+        def statistics = connectionPools.statisticsCollector.collect()
+
+        then:
+        statistics.openedConnectionCount == 2
+        statistics.reusedConnectionCount == 0
+    }
+
+    def "closes idle connections and resets statistics when the build session completes"() {
+        given:
+        httpServer.expectGetEmptyOk("/repo/a")
+        httpServer.expectGetEmptyOk("/repo/b")
+        httpServer.start()
+        def repo = client(settings())
+        get(repo, "/repo/a")
+
+        when:
+        completeSession()
+        get(client(settings()), "/repo/b")
+        def statistics = connectionPools.statisticsCollector.collect()
+
+        then:
+        statistics.openedConnectionCount == 1
+        statistics.reusedConnectionCount == 0
+    }
+
+    def "scales the total connection limit of a shared pool with the number of clients using it"() {
+        given:
+        httpServer.expectGetEmptyOk("/repo1/a")
+        httpServer.expectGetEmptyOk("/repo2/b")
+        httpServer.start()
+        def repo1 = client(settings())
+        def repo2 = client(settings())
+
+        when:
+        get(repo1, "/repo1/a")
+        get(repo2, "/repo2/b")
+
+        then:
+        sharedPool().maxTotal == 2 * settings().maxConnTotal
+        sharedPool().defaultMaxPerRoute == settings().maxConnPerRoute
+
+        when:
+        repo2.close()
+
+        then:
+        sharedPool().maxTotal == settings().maxConnTotal
+    }
+
+    def "shuts down a pool discarded at the end of the build session once its clients are closed"() {
+        given:
+        httpServer.expectGetEmptyOk("/repo/a")
+        httpServer.expectGetEmptyOk("/repo/b")
+        httpServer.start()
+        def repo = client(settings())
+        get(repo, "/repo/a")
+
+        when:
+        completeSession()
+        get(repo, "/repo/b")
+
+        then:
+        connectionPools.@pools.isEmpty()
+        connectionPools.@discardedPools.size() == 1
+
+        when:
+        repo.close()
+
+        then:
+        connectionPools.@discardedPools.isEmpty()
+    }
+
+    private HttpSettings settings() {
+        DefaultHttpSettings.builder()
+            .withAuthenticationSettings([])
+            .withSslContextFactory(sslContextFactory)
+            .withRedirectVerifier({})
+            .build()
+    }
+
+    private HttpClientHelper client(HttpSettings settings) {
+        new HttpClientHelper(new DocumentationRegistry(), settings, connectionPools)
+    }
+
+    private void get(HttpClientHelper client, String path) {
+        client.performGet("${httpServer.uri}${path}", false).close()
+    }
+
+    private def sharedPool() {
+        connectionPools.@pools.values().first().connectionManager
+    }
+
+    private void completeSession() {
+        listenerManager.createChild(Scope.BuildSession).getBroadcaster(BuildSessionLifecycleListener).beforeComplete()
+    }
+}
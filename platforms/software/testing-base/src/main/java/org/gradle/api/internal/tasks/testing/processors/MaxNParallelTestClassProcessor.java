@@ -27,16 +27,28 @@
 import org.gradle.internal.dispatch.DispatchException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
  * processors.
+ *
+ * <p>When durations of test classes from a previous run are available, each test class is instead assigned as soon as it is received
+ * to the processor with the least estimated work, using its previous duration, or the mean previous duration for a new test class.
+ * Test classes are not reordered, so previously failed test classes that are received first still run first.</p>
+ *
+ * <p>Test classes are assigned up front rather than taken by idle processors. The JUnit Platform and TestNG processors only start running
+ * their test classes once they are stopped, so no processor becomes idle before every test class has been assigned.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousTestClassDurations;
+    private final long unknownTestClassDuration;
+    private final long[] estimatedLoads;
     private TestResultProcessor resultProcessor;
     private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
@@ -46,9 +58,27 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private volatile boolean stoppedNow;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, Collections.<String, Long>emptyMap());
+    }
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, Map<String, Long> previousTestClassDurations) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.unknownTestClassDuration = meanDuration(previousTestClassDurations);
+        this.estimatedLoads = new long[maxProcessors];
+    }
+
+    private static long meanDuration(Map<String, Long> durations) {
+        if (durations.isEmpty()) {
+            return 1;
+        }
+        long total = 0;
+        for (Long duration : durations.values()) {
+            total += duration;
+        }
+        return Math.max(1, total / durations.size());
     }
 
     @Override
@@ -64,15 +94,14 @@ public void processTestClass(TestClassRunInfo testClass) {
             return;
         }
 
+        if (isBalancingByDuration()) {
+            dispatchToLeastLoaded(testClass);
+            return;
+        }
+
         TestClassProcessor processor;
         if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            rawProcessors.add(processor);
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
+            processor = startProcessor();
         } else {
             processor = processors.get(pos);
             pos = (pos + 1) % processors.size();
@@ -80,6 +109,34 @@ public void processTestClass(TestClassRunInfo testClass) {
         processor.processTestClass(testClass);
     }
 
+    private boolean isBalancingByDuration() {
+        return maxProcessors > 1 && !previousTestClassDurations.isEmpty();
+    }
+
+    private TestClassProcessor startProcessor() {
+        TestClassProcessor processor = factory.create();
+        rawProcessors.add(processor);
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        processor.startProcessing(resultProcessor);
+        return processor;
+    }
+
+    private void dispatchToLeastLoaded(TestClassRunInfo testClass) {
+        Long previousDuration = previousTestClassDurations.get(testClass.getTestClassName());
+        int target = 0;
+        for (int i = 1; i < estimatedLoads.length; i++) {
+            if (estimatedLoads[i] < estimatedLoads[target]) {
+                target = i;
+            }
+        }
+        estimatedLoads[target] += previousDuration == null ? unknownTestClassDuration : Math.max(1, previousDuration);
+        TestClassProcessor processor = target < processors.size() ? processors.get(target) : startProcessor();
+        processor.processTestClass(testClass);
+    }
+
     @Override
     public void stop() {
         try {
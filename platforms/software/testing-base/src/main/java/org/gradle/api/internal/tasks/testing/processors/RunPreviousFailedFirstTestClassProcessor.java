@@ -20,22 +20,29 @@
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
  * In order to speed up the development feedback cycle, this class guarantee previous failed test classes
  * to be passed to its delegate first.
+ *
+ * <p>Previous failed test classes are passed on as soon as they are received. Other test classes are held back only until
+ * every previous failed test class has been received, or until {@link #stop()} if some of them no longer exist.</p>
  */
 public class RunPreviousFailedFirstTestClassProcessor implements TestClassProcessor {
     private final Set<String> previousFailedTestClasses;
     private final TestClassProcessor delegate;
-    private final LinkedHashSet<TestClassRunInfo> prioritizedTestClasses = new LinkedHashSet<TestClassRunInfo>();
-    private final LinkedHashSet<TestClassRunInfo> otherTestClasses = new LinkedHashSet<TestClassRunInfo>();
+    private final Set<String> pendingPreviousFailedTestClasses;
+    private final Set<TestClassRunInfo> receivedTestClasses = new HashSet<TestClassRunInfo>();
+    private final List<TestClassRunInfo> deferredTestClasses = new ArrayList<TestClassRunInfo>();
 
     public RunPreviousFailedFirstTestClassProcessor(Set<String> previousFailedTestClasses, TestClassProcessor delegate) {
         this.previousFailedTestClasses = previousFailedTestClasses;
         this.delegate = delegate;
+        this.pendingPreviousFailedTestClasses = new HashSet<String>(previousFailedTestClasses);
     }
 
     @Override
@@ -45,21 +52,32 @@ public void startProcessing(TestResultProcessor resultProcessor) {
 
     @Override
     public void processTestClass(TestClassRunInfo testClass) {
+        if (!receivedTestClasses.add(testClass)) {
+            return;
+        }
         if (previousFailedTestClasses.contains(testClass.getTestClassName())) {
-            prioritizedTestClasses.add(testClass);
+            delegate.processTestClass(testClass);
+            pendingPreviousFailedTestClasses.remove(testClass.getTestClassName());
+            if (pendingPreviousFailedTestClasses.isEmpty()) {
+                dispatchDeferredTestClasses();
+            }
+        } else if (pendingPreviousFailedTestClasses.isEmpty()) {
+            delegate.processTestClass(testClass);
         } else {
-            otherTestClasses.add(testClass);
+            deferredTestClasses.add(testClass);
         }
     }
 
-    @Override
-    public void stop() {
-        for (TestClassRunInfo test : prioritizedTestClasses) {
-            delegate.processTestClass(test);
-        }
-        for (TestClassRunInfo test : otherTestClasses) {
+    private void dispatchDeferredTestClasses() {
+        for (TestClassRunInfo test : deferredTestClasses) {
             delegate.processTestClass(test);
         }
+        deferredTestClasses.clear();
+    }
+
+    @Override
+    public void stop() {
+        dispatchDeferredTestClasses();
         delegate.stop();
     }
 
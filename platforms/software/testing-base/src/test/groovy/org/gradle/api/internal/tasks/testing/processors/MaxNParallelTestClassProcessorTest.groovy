@@ -202,4 +202,96 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * processor1.stopNow()
         1 * processor2.stopNow()
     }
+
+    def "assigns each test class to least loaded processor as soon as it is received when previous durations are known"() {
+        def balancingProcessor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [A: 100L, B: 60L, C: 50L, D: 10L])
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+        def a = testClass("A")
+        def b = testClass("B")
+        def c = testClass("C")
+        def d = testClass("D")
+        def e = testClass("E")
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        balancingProcessor.startProcessing(resultProcessor)
+
+        when:
+        balancingProcessor.processTestClass(a)
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.processTestClass(a)
+
+        when:
+        balancingProcessor.processTestClass(b)
+
+        then:
+        1 * factory.create() >> processor2
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor2.processTestClass(b)
+
+        when:
+        balancingProcessor.processTestClass(c)
+
+        then:
+        1 * asyncProcessor2.processTestClass(c)
+
+        when:
+        balancingProcessor.processTestClass(d)
+
+        then:
+        1 * asyncProcessor1.processTestClass(d)
+
+        when:
+        // E has no previous duration, so it is estimated at the mean previous duration
+        balancingProcessor.processTestClass(e)
+
+        then:
+        1 * asyncProcessor1.processTestClass(e)
+        0 * asyncProcessor2.processTestClass(_)
+
+        when:
+        balancingProcessor.stop()
+
+        then:
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+        0 * _.processTestClass(_)
+    }
+
+    def "uses round robin when no previous durations are known"() {
+        def balancingProcessor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [:])
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        Actor actor1 = Mock()
+        def a = testClass("A")
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        balancingProcessor.startProcessing(resultProcessor)
+
+        when:
+        balancingProcessor.processTestClass(a)
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.processTestClass(a)
+    }
+
+    private TestClassRunInfo testClass(String name) {
+        TestClassRunInfo testClass = Mock()
+        _ * testClass.testClassName >> name
+        return testClass
+    }
 }
@@ -46,4 +46,52 @@ class RunPreviousFailedFirstTestClassProcessorTest extends Specification {
         then:
         1 * delegate.stop()
     }
+
+    def 'test classes are passed to delegate without waiting for stop once all previous failed test classes are received'() {
+        given:
+        processor = new RunPreviousFailedFirstTestClassProcessor(['Class2'] as Set, delegate)
+        processor.startProcessing(testResultProcessor)
+
+        when:
+        processor.processTestClass(new DefaultTestClassRunInfo('Class1'))
+
+        then:
+        0 * delegate.processTestClass(_)
+
+        when:
+        processor.processTestClass(new DefaultTestClassRunInfo('Class2'))
+
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class2'))
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class1'))
+
+        when:
+        processor.processTestClass(new DefaultTestClassRunInfo('Class3'))
+        processor.processTestClass(new DefaultTestClassRunInfo('Class3'))
+
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class3'))
+        0 * delegate.stop()
+    }
+
+    def 'test classes are held back until stop when a previous failed test class is not received'() {
+        given:
+        processor = new RunPreviousFailedFirstTestClassProcessor(['Removed'] as Set, delegate)
+        processor.startProcessing(testResultProcessor)
+
+        when:
+        processor.processTestClass(new DefaultTestClassRunInfo('Class1'))
+
+        then:
+        0 * delegate.processTestClass(_)
+
+        when:
+        processor.stop()
+
+        then:
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Class1'))
+        then:
+        1 * delegate.stop()
+    }
 }
@@ -51,7 +51,7 @@
 import org.gradle.tooling.internal.protocol.events.InternalTaskResult;
 
 import java.io.Closeable;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -62,6 +62,9 @@
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Subscriptions can be added from several threads, for example when the configuration cache loads the state of included builds in parallel.
+ */
 public class DefaultBuildEventsListenerRegistry implements BuildEventsListenerRegistry, BuildEventListenerRegistryInternal {
     private final BuildEventListenerFactory factory;
     private final ListenerManager listenerManager;
@@ -84,7 +87,9 @@ public DefaultBuildEventsListenerRegistry(
 
     @Override
     public List<Provider<?>> getSubscriptions() {
-        return ImmutableList.copyOf(subscriptions.keySet());
+        synchronized (subscriptions) {
+            return ImmutableList.copyOf(subscriptions.keySet());
+        }
     }
 
     @Override
@@ -99,30 +104,34 @@ public void subscribe(Provider<?> provider) {
 
     @Override
     public void onOperationCompletion(Provider<? extends BuildOperationListener> listenerProvider) {
-        if (subscriptions.containsKey(listenerProvider)) {
-            return;
-        }
+        synchronized (subscriptions) {
+            if (subscriptions.containsKey(listenerProvider)) {
+                return;
+            }
 
-        ForwardingBuildOperationListener subscription = new ForwardingBuildOperationListener(listenerProvider, executorFactory);
-        processIfBuildService(listenerProvider);
-        subscriptions.put(listenerProvider, subscription);
-        buildOperationListenerManager.addListener(subscription);
+            ForwardingBuildOperationListener subscription = new ForwardingBuildOperationListener(listenerProvider, executorFactory);
+            processIfBuildService(listenerProvider);
+            subscriptions.put(listenerProvider, subscription);
+            buildOperationListenerManager.addListener(subscription);
+        }
     }
 
     @Override
     public void onTaskCompletion(Provider<? extends OperationCompletionListener> listenerProvider) {
-        if (subscriptions.containsKey(listenerProvider)) {
-            return;
-        }
+        synchronized (subscriptions) {
+            if (subscriptions.containsKey(listenerProvider)) {
+                return;
+            }
 
-        ForwardingBuildEventConsumer subscription = new ForwardingBuildEventConsumer(listenerProvider, executorFactory);
-        processIfBuildService(listenerProvider);
-        subscriptions.put(listenerProvider, subscription);
+            ForwardingBuildEventConsumer subscription = new ForwardingBuildEventConsumer(listenerProvider, executorFactory);
+            processIfBuildService(listenerProvider);
+            subscriptions.put(listenerProvider, subscription);
 
-        for (Object listener : subscription.getListeners()) {
-            listenerManager.addListener(listener);
-            if (listener instanceof BuildOperationListener) {
-                buildOperationListenerManager.addListener((BuildOperationListener) listener);
+            for (Object listener : subscription.getListeners()) {
+                listenerManager.addListener(listener);
+                if (listener instanceof BuildOperationListener) {
+                    buildOperationListenerManager.addListener((BuildOperationListener) listener);
+                }
             }
         }
     }
@@ -136,7 +145,10 @@ private void processIfBuildService(Provider<?> listenerProvider) {
     }
 
     private void unsubscribeProvider(Provider<?> listenerProvider) {
-        AbstractListener<?> subscription = subscriptions.remove(listenerProvider);
+        AbstractListener<?> subscription;
+        synchronized (subscriptions) {
+            subscription = subscriptions.remove(listenerProvider);
+        }
         if (subscription != null) {
             subscription.getListeners().forEach(this::unsubscribe);
             subscription.close();
@@ -144,15 +156,15 @@ private void unsubscribeProvider(Provider<?> listenerProvider) {
     }
 
     private void unsubscribeAll() {
-        try {
-            Collection<AbstractListener<?>> subscribed = subscriptions.values();
-            subscribed.stream()
-                .flatMap(it -> it.getListeners().stream())
-                .forEach(this::unsubscribe);
-            CompositeStoppable.stoppable(subscribed).stop();
-        } finally {
+        List<AbstractListener<?>> subscribed;
+        synchronized (subscriptions) {
+            subscribed = new ArrayList<>(subscriptions.values());
             subscriptions.clear();
         }
+        subscribed.stream()
+            .flatMap(it -> it.getListeners().stream())
+            .forEach(this::unsubscribe);
+        CompositeStoppable.stoppable(subscribed).stop();
     }
 
     private void unsubscribe(Object listener) {
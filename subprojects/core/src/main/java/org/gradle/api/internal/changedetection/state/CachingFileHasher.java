@@ -30,6 +30,7 @@
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.InterningStringSerializer;
 
+import javax.annotation.Nullable;
 import java.io.File;
 
 public class CachingFileHasher implements FileHasher {
@@ -39,6 +40,8 @@ public class CachingFileHasher implements FileHasher {
     private final StringInterner stringInterner;
     private final FileTimeStampInspector timestampInspector;
     private final FileHasherStatistics.Collector statisticsCollector;
+    @Nullable
+    private final CompactFileHashCache compactCache;
 
     public CachingFileHasher(
         FileHasher delegate,
@@ -49,6 +52,24 @@ public CachingFileHasher(
         FileSystem fileSystem,
         int inMemorySize,
         FileHasherStatistics.Collector statisticsCollector
+    ) {
+        this(delegate, store, stringInterner, timestampInspector, cacheName, fileSystem, inMemorySize, 0, statisticsCollector);
+    }
+
+    /**
+     * Creates a hasher which keeps up to {@code compactInMemorySize} hashes in a compact in-memory tier in front of the persistent cache.
+     * The compact tier is disabled when {@code compactInMemorySize} is zero.
+     */
+    public CachingFileHasher(
+        FileHasher delegate,
+        CrossBuildFileHashCache store,
+        StringInterner stringInterner,
+        FileTimeStampInspector timestampInspector,
+        String cacheName,
+        FileSystem fileSystem,
+        int inMemorySize,
+        int compactInMemorySize,
+        FileHasherStatistics.Collector statisticsCollector
     ) {
         this.delegate = delegate;
         this.fileSystem = fileSystem;
@@ -59,6 +80,7 @@ public CachingFileHasher(
         this.stringInterner = stringInterner;
         this.timestampInspector = timestampInspector;
         this.statisticsCollector = statisticsCollector;
+        this.compactCache = compactInMemorySize > 0 ? new CompactFileHashCache(compactInMemorySize) : null;
     }
 
     @Override
@@ -84,22 +106,42 @@ private FileInfo snapshot(File file) {
     private FileInfo snapshot(File file, long length, long timestamp) {
         String absolutePath = file.getAbsolutePath();
         if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, timestamp)) {
+            if (compactCache != null) {
+                HashCode hash = compactCache.get(absolutePath, length, timestamp);
+                if (hash != null) {
+                    statisticsCollector.reportInMemoryHit();
+                    return new FileInfo(hash, length, timestamp);
+                }
+                statisticsCollector.reportInMemoryMiss();
+            }
+
             FileInfo info = cache.getIfPresent(absolutePath);
 
             if (info != null && length == info.length && timestamp == info.timestamp) {
+                storeInCompactCache(absolutePath, info);
                 return info;
             }
         }
 
-        HashCode hash = delegate.hash(file);
+        HashCode hash = delegate.hash(file, length, timestamp);
         FileInfo info = new FileInfo(hash, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
+        storeInCompactCache(absolutePath, info);
         statisticsCollector.reportFileHashed(length);
         return info;
     }
 
+    private void storeInCompactCache(String absolutePath, FileInfo info) {
+        if (compactCache != null && compactCache.put(absolutePath, info.length, info.timestamp, info.hash)) {
+            statisticsCollector.reportInMemoryEviction();
+        }
+    }
+
     public void discard(String path) {
         cache.remove(path);
+        if (compactCache != null) {
+            compactCache.remove(path);
+        }
     }
 
     @VisibleForTesting
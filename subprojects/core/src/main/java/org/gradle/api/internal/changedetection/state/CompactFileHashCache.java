@@ -0,0 +1,344 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * A bounded, in-memory map from absolute file path to file hash, stored in primitive arrays.
+ *
+ * <p>Paths are not retained. Each path is reduced to a 128-bit Murmur3 key, and the entry holds the
+ * length, timestamp and 16-byte content hash of the file. This takes roughly a third of the heap of the
+ * equivalent {@code String -> FileInfo} map and puts no per-entry objects on the heap for the garbage collector to trace.</p>
+ *
+ * <p>The map is split into segments which are locked independently. Each segment evicts its least recently used entry once it is full.</p>
+ */
+class CompactFileHashCache {
+    private static final HashFunction PATH_HASH_FUNCTION = Hashing.murmur3_128();
+    private static final int SEGMENT_COUNT = 16;
+    private static final int INITIAL_SEGMENT_CAPACITY = 256;
+    /**
+     * Length of the content hashes which can be stored.
+     */
+    static final int HASH_LENGTH = 16;
+
+    private final Segment[] segments;
+
+    CompactFileHashCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum number of entries must be positive, but was " + maxEntries);
+        }
+        int segmentCapacity = Math.max(1, (maxEntries + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Returns the cached hash of the file with the given path, if it is present and was recorded for the given length and timestamp.
+     */
+    @Nullable
+    HashCode get(String absolutePath, long length, long timestamp) {
+        long[] key = keyOf(absolutePath);
+        return segmentFor(key[0]).get(key[0], key[1], length, timestamp);
+    }
+
+    /**
+     * Records the hash of the file with the given path, replacing any previous entry.
+     *
+     * @return {@code true} if another entry had to be evicted to make room.
+     */
+    boolean put(String absolutePath, long length, long timestamp, HashCode hash) {
+        if (hash.length() != HASH_LENGTH) {
+            return false;
+        }
+        byte[] bytes = hash.toByteArray();
+        long[] key = keyOf(absolutePath);
+        return segmentFor(key[0]).put(key[0], key[1], length, timestamp, bytesToLong(bytes, 0), bytesToLong(bytes, 8));
+    }
+
+    void remove(String absolutePath) {
+        long[] key = keyOf(absolutePath);
+        segmentFor(key[0]).remove(key[0], key[1]);
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentFor(long keyHi) {
+        return segments[(int) (keyHi >>> 60) & (SEGMENT_COUNT - 1)];
+    }
+
+    private static long[] keyOf(String absolutePath) {
+        byte[] bytes = PATH_HASH_FUNCTION.hashString(absolutePath).toByteArray();
+        return new long[]{bytesToLong(bytes, 0), bytesToLong(bytes, 8)};
+    }
+
+    private static long bytesToLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void longToBytes(long value, byte[] bytes, int offset) {
+        for (int i = offset + 7; i >= offset; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * An open addressing hash table with linear probing, whose slots point into parallel entry arrays.
+     * The entries are linked into a doubly linked list in access order, with the most recently used entry at the head.
+     */
+    private static class Segment {
+        private static final int NONE = -1;
+
+        private final int maxEntries;
+        // Entry index + 1, or 0 for an empty slot
+        private int[] table;
+        private long[] keysHi;
+        private long[] keysLo;
+        private long[] lengths;
+        private long[] timestamps;
+        private long[] hashesHi;
+        private long[] hashesLo;
+        private int[] previous;
+        private int[] next;
+        private int head = NONE;
+        private int tail = NONE;
+        private int size;
+
+        Segment(int maxEntries) {
+            this.maxEntries = maxEntries;
+            allocate(Math.min(maxEntries, INITIAL_SEGMENT_CAPACITY));
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        @Nullable
+        synchronized HashCode get(long keyHi, long keyLo, long length, long timestamp) {
+            int slot = findSlot(keyHi, keyLo);
+            if (slot < 0) {
+                return null;
+            }
+            int entry = table[slot] - 1;
+            if (lengths[entry] != length || timestamps[entry] != timestamp) {
+                return null;
+            }
+            moveToHead(entry);
+            byte[] bytes = new byte[HASH_LENGTH];
+            longToBytes(hashesHi[entry], bytes, 0);
+            longToBytes(hashesLo[entry], bytes, 8);
+            return HashCode.fromBytes(bytes);
+        }
+
+        synchronized boolean put(long keyHi, long keyLo, long length, long timestamp, long hashHi, long hashLo) {
+            int slot = findSlot(keyHi, keyLo);
+            int entry;
+            boolean evicted = false;
+            if (slot >= 0) {
+                entry = table[slot] - 1;
+                moveToHead(entry);
+            } else {
+                if (size == maxEntries) {
+                    entry = tail;
+                    removeSlot(findSlot(keysHi[entry], keysLo[entry]));
+                    unlink(entry);
+                    evicted = true;
+                } else {
+                    if (size == keysHi.length) {
+                        allocate(Math.min(maxEntries, size * 2));
+                    }
+                    entry = size++;
+                }
+                keysHi[entry] = keyHi;
+                keysLo[entry] = keyLo;
+                table[insertionSlot(keyLo)] = entry + 1;
+                linkAtHead(entry);
+            }
+            lengths[entry] = length;
+            timestamps[entry] = timestamp;
+            hashesHi[entry] = hashHi;
+            hashesLo[entry] = hashLo;
+            return evicted;
+        }
+
+        synchronized void remove(long keyHi, long keyLo) {
+            int slot = findSlot(keyHi, keyLo);
+            if (slot < 0) {
+                return;
+            }
+            int entry = table[slot] - 1;
+            removeSlot(slot);
+            unlink(entry);
+            // Keep the entries dense by moving the last entry into the freed position
+            int last = --size;
+            if (entry != last) {
+                moveEntry(last, entry);
+            }
+        }
+
+        private int findSlot(long keyHi, long keyLo) {
+            int mask = table.length - 1;
+            for (int slot = homeSlot(keyLo); ; slot = (slot + 1) & mask) {
+                int value = table[slot];
+                if (value == 0) {
+                    return -1;
+                }
+                int entry = value - 1;
+                if (keysLo[entry] == keyLo && keysHi[entry] == keyHi) {
+                    return slot;
+                }
+            }
+        }
+
+        private int insertionSlot(long keyLo) {
+            int mask = table.length - 1;
+            int slot = homeSlot(keyLo);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private int homeSlot(long keyLo) {
+            return (int) (keyLo ^ (keyLo >>> 32)) & (table.length - 1);
+        }
+
+        /**
+         * Clears the given slot, shifting back later slots of the same probe sequence so lookups never stop early.
+         */
+        private void removeSlot(int slot) {
+            int mask = table.length - 1;
+            int free = slot;
+            table[free] = 0;
+            for (int current = (free + 1) & mask; table[current] != 0; current = (current + 1) & mask) {
+                int home = homeSlot(keysLo[table[current] - 1]);
+                boolean reachableFromHome = free <= current
+                    ? free < home && home <= current
+                    : free < home || home <= current;
+                if (!reachableFromHome) {
+                    table[free] = table[current];
+                    table[current] = 0;
+                    free = current;
+                }
+            }
+        }
+
+        private void moveEntry(int from, int to) {
+            int slot = findSlot(keysHi[from], keysLo[from]);
+            table[slot] = to + 1;
+            keysHi[to] = keysHi[from];
+            keysLo[to] = keysLo[from];
+            lengths[to] = lengths[from];
+            timestamps[to] = timestamps[from];
+            hashesHi[to] = hashesHi[from];
+            hashesLo[to] = hashesLo[from];
+            int previousEntry = previous[from];
+            int nextEntry = next[from];
+            previous[to] = previousEntry;
+            next[to] = nextEntry;
+            if (previousEntry == NONE) {
+                head = to;
+            } else {
+                next[previousEntry] = to;
+            }
+            if (nextEntry == NONE) {
+                tail = to;
+            } else {
+                previous[nextEntry] = to;
+            }
+        }
+
+        private void moveToHead(int entry) {
+            if (head != entry) {
+                unlink(entry);
+                linkAtHead(entry);
+            }
+        }
+
+        private void linkAtHead(int entry) {
+            previous[entry] = NONE;
+            next[entry] = head;
+            if (head != NONE) {
+                previous[head] = entry;
+            }
+            head = entry;
+            if (tail == NONE) {
+                tail = entry;
+            }
+        }
+
+        private void unlink(int entry) {
+            int previousEntry = previous[entry];
+            int nextEntry = next[entry];
+            if (previousEntry == NONE) {
+                head = nextEntry;
+            } else {
+                next[previousEntry] = nextEntry;
+            }
+            if (nextEntry == NONE) {
+                tail = previousEntry;
+            } else {
+                previous[nextEntry] = previousEntry;
+            }
+        }
+
+        private void allocate(int capacity) {
+            if (keysHi == null) {
+                keysHi = new long[capacity];
+                keysLo = new long[capacity];
+                lengths = new long[capacity];
+                timestamps = new long[capacity];
+                hashesHi = new long[capacity];
+                hashesLo = new long[capacity];
+                previous = new int[capacity];
+                next = new int[capacity];
+            } else {
+                keysHi = Arrays.copyOf(keysHi, capacity);
+                keysLo = Arrays.copyOf(keysLo, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                hashesHi = Arrays.copyOf(hashesHi, capacity);
+                hashesLo = Arrays.copyOf(hashesLo, capacity);
+                previous = Arrays.copyOf(previous, capacity);
+                next = Arrays.copyOf(next, capacity);
+            }
+            // Keep the table at most half full
+            table = new int[Integer.highestOneBit(Math.max(1, capacity) * 2 - 1) << 1];
+            for (int entry = 0; entry < size; entry++) {
+                table[insertionSlot(keysLo[entry])] = entry + 1;
+            }
+        }
+    }
+}
@@ -33,19 +33,52 @@ public interface FileHasherStatistics {
      */
     long getHashedContentLength();
 
+    /**
+     * Number of hashes served from the compact in-memory cache.
+     */
+    long getInMemoryHitCount();
+
+    /**
+     * Number of lookups which missed the compact in-memory cache.
+     */
+    long getInMemoryMissCount();
+
+    /**
+     * Number of hashes evicted from the compact in-memory cache.
+     */
+    long getInMemoryEvictionCount();
+
     @ServiceScope(Scope.Global.class)
     class Collector {
         private final AtomicLong hashedFileCount = new AtomicLong();
         private final AtomicLong hashedContentLength = new AtomicLong();
+        private final AtomicLong inMemoryHitCount = new AtomicLong();
+        private final AtomicLong inMemoryMissCount = new AtomicLong();
+        private final AtomicLong inMemoryEvictionCount = new AtomicLong();
 
         public void reportFileHashed(long length) {
             hashedFileCount.incrementAndGet();
             hashedContentLength.addAndGet(length);
         }
 
+        public void reportInMemoryHit() {
+            inMemoryHitCount.incrementAndGet();
+        }
+
+        public void reportInMemoryMiss() {
+            inMemoryMissCount.incrementAndGet();
+        }
+
+        public void reportInMemoryEviction() {
+            inMemoryEvictionCount.incrementAndGet();
+        }
+
         public FileHasherStatistics collect() {
             long hashedFileCount = this.hashedFileCount.getAndSet(0);
             long hashedContentLength = this.hashedContentLength.getAndSet(0);
+            long inMemoryHitCount = this.inMemoryHitCount.getAndSet(0);
+            long inMemoryMissCount = this.inMemoryMissCount.getAndSet(0);
+            long inMemoryEvictionCount = this.inMemoryEvictionCount.getAndSet(0);
             return new FileHasherStatistics() {
                 @Override
                 public long getHashedFileCount() {
@@ -57,11 +90,32 @@ public long getHashedContentLength() {
                     return hashedContentLength;
                 }
 
+                @Override
+                public long getInMemoryHitCount() {
+                    return inMemoryHitCount;
+                }
+
+                @Override
+                public long getInMemoryMissCount() {
+                    return inMemoryMissCount;
+                }
+
+                @Override
+                public long getInMemoryEvictionCount() {
+                    return inMemoryEvictionCount;
+                }
+
                 @Override
                 public String toString() {
-                    return MessageFormat.format("Hashed {0,number,integer} files ({1,number,integer} bytes)",
+                    String hashed = MessageFormat.format("Hashed {0,number,integer} files ({1,number,integer} bytes)",
                         hashedFileCount, hashedContentLength
                     );
+                    if (inMemoryHitCount == 0 && inMemoryMissCount == 0) {
+                        return hashed;
+                    }
+                    return hashed + MessageFormat.format(", in-memory hash cache: {0,number,integer} hits, {1,number,integer} misses, {2,number,integer} evictions",
+                        inMemoryHitCount, inMemoryMissCount, inMemoryEvictionCount
+                    );
                 }
             };
         }
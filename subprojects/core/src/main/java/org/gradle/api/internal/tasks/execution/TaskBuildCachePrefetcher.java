@@ -0,0 +1,168 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.TaskExecutionMode;
+import org.gradle.api.internal.changedetection.TaskExecutionModeResolver;
+import org.gradle.api.internal.file.FileCollectionFactory;
+import org.gradle.api.internal.tasks.TaskDependencyFactory;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.properties.DefaultTaskProperties;
+import org.gradle.api.internal.tasks.properties.TaskProperties;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.internal.BuildCacheKeyInternal;
+import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.execution.plan.LocalTaskNode;
+import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.execution.InputFingerprinter;
+import org.gradle.internal.execution.caching.impl.SpeculativeCacheKeyCalculator;
+import org.gradle.internal.execution.history.ExecutionHistoryStore;
+import org.gradle.internal.execution.history.PreviousExecutionState;
+import org.gradle.internal.file.PathToFileResolver;
+import org.gradle.internal.file.ReservedFileSystemLocationRegistry;
+import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.properties.bean.PropertyWalker;
+import org.gradle.internal.work.AsyncWorkTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/**
+ * Asks the build cache to download the entry of a task ahead of time, once all the dependencies of the task have completed.
+ *
+ * <p>The cache key is calculated from the current inputs of the task, like the execution engine calculates it when the task runs.
+ * Tasks that are not allowed to load from the cache, and tasks whose key did not change since their last execution,
+ * which are most likely up-to-date, are not prefetched.</p>
+ */
+@SuppressWarnings("deprecation")
+public class TaskBuildCachePrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskBuildCachePrefetcher.class);
+
+    private final BuildCacheController buildCacheController;
+    private final SpeculativeCacheKeyCalculator cacheKeyCalculator;
+    private final TaskExecutionModeResolver executionModeResolver;
+    private final PropertyWalker propertyWalker;
+    private final ExecutionHistoryStore executionHistoryStore;
+    private final BuildOperationRunner buildOperationRunner;
+    private final AsyncWorkTracker asyncWorkTracker;
+    private final org.gradle.api.execution.TaskActionListener actionListener;
+    private final TaskCacheabilityResolver taskCacheabilityResolver;
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private final InputFingerprinter inputFingerprinter;
+    private final ListenerManager listenerManager;
+    private final ReservedFileSystemLocationRegistry reservedFileSystemLocationRegistry;
+    private final FileCollectionFactory fileCollectionFactory;
+    private final TaskDependencyFactory taskDependencyFactory;
+    private final PathToFileResolver fileResolver;
+
+    public TaskBuildCachePrefetcher(
+        BuildCacheController buildCacheController,
+        TaskExecutionModeResolver executionModeResolver,
+        PropertyWalker propertyWalker,
+        ExecutionHistoryStore executionHistoryStore,
+        BuildOperationRunner buildOperationRunner,
+        AsyncWorkTracker asyncWorkTracker,
+        org.gradle.api.execution.TaskActionListener actionListener,
+        TaskCacheabilityResolver taskCacheabilityResolver,
+        ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
+        InputFingerprinter inputFingerprinter,
+        ListenerManager listenerManager,
+        ReservedFileSystemLocationRegistry reservedFileSystemLocationRegistry,
+        FileCollectionFactory fileCollectionFactory,
+        TaskDependencyFactory taskDependencyFactory,
+        PathToFileResolver fileResolver
+    ) {
+        this.buildCacheController = buildCacheController;
+        this.cacheKeyCalculator = new SpeculativeCacheKeyCalculator(classLoaderHierarchyHasher);
+        this.executionModeResolver = executionModeResolver;
+        this.propertyWalker = propertyWalker;
+        this.executionHistoryStore = executionHistoryStore;
+        this.buildOperationRunner = buildOperationRunner;
+        this.asyncWorkTracker = asyncWorkTracker;
+        this.actionListener = actionListener;
+        this.taskCacheabilityResolver = taskCacheabilityResolver;
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+        this.inputFingerprinter = inputFingerprinter;
+        this.listenerManager = listenerManager;
+        this.reservedFileSystemLocationRegistry = reservedFileSystemLocationRegistry;
+        this.fileCollectionFactory = fileCollectionFactory;
+        this.taskDependencyFactory = taskDependencyFactory;
+        this.fileResolver = fileResolver;
+    }
+
+    /**
+     * Requests the cache entry of the given task to be downloaded. Must be called while holding the lock of the project that owns the task.
+     *
+     * <p>Any failure is ignored, the task reports it when it runs.</p>
+     */
+    public void prefetch(LocalTaskNode node) {
+        if (!buildCacheController.isEnabled()) {
+            return;
+        }
+        TaskInternal task = node.getTask();
+        try {
+            calculateCacheKey(node, task).ifPresent(cacheKey -> {
+                LOGGER.debug("Prefetching build cache entry {} for {}", cacheKey.getHashCode(), task);
+                buildCacheController.prefetch(ImmutableList.of(cacheKey));
+            });
+        } catch (Exception e) {
+            LOGGER.debug("Could not calculate the build cache key of {} ahead of its execution", task, e);
+        }
+    }
+
+    private Optional<BuildCacheKey> calculateCacheKey(LocalTaskNode node, TaskInternal task) {
+        TaskProperties taskProperties = DefaultTaskProperties.resolve(propertyWalker, fileCollectionFactory, task);
+        TaskExecutionMode executionMode = executionModeResolver.getExecutionMode(task, taskProperties);
+        if (!executionMode.isAllowedToUseCachedResults()) {
+            return Optional.empty();
+        }
+        TaskExecutionContext context = new DefaultTaskExecutionContext(node, taskProperties, node.getValidationContext(), validationContext -> {});
+        context.setTaskExecutionMode(executionMode);
+        TaskExecution work = new TaskExecution(
+            task,
+            context,
+            actionListener,
+            asyncWorkTracker,
+            buildOperationRunner,
+            classLoaderHierarchyHasher,
+            executionHistoryStore,
+            fileCollectionFactory,
+            fileResolver,
+            inputFingerprinter,
+            listenerManager,
+            reservedFileSystemLocationRegistry,
+            taskCacheabilityResolver,
+            taskDependencyFactory
+        );
+        return cacheKeyCalculator.calculateCacheKey(work, null)
+            .filter(cacheKey -> !isKeyOfPreviousExecution(task, executionMode, cacheKey));
+    }
+
+    private boolean isKeyOfPreviousExecution(TaskInternal task, TaskExecutionMode executionMode, BuildCacheKey cacheKey) {
+        if (!executionMode.isTaskHistoryMaintained()) {
+            return false;
+        }
+        return executionHistoryStore.load(task.getPath())
+            .map(PreviousExecutionState::getCacheKey)
+            .map(previousCacheKey -> previousCacheKey.equals(((BuildCacheKeyInternal) cacheKey).getHashCodeInternal()))
+            .orElse(false);
+    }
+}
@@ -27,17 +27,24 @@
 import org.gradle.caching.internal.controller.impl.LifecycleAwareBuildCacheControllerFactory;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression;
+import org.gradle.caching.internal.packaging.impl.CompressingBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.DefaultTarPackerFileSystemSupport;
 import org.gradle.caching.internal.packaging.impl.FilePermissionAccess;
-import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport;
+import org.gradle.caching.internal.packaging.impl.TarPackerFileWriteExecutor;
 import org.gradle.caching.internal.services.BuildCacheControllerFactory;
 import org.gradle.caching.internal.services.DefaultBuildCacheControllerFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.caching.local.internal.DirectoryBuildCacheServiceFactory;
 import org.gradle.internal.build.BuildState;
 import org.gradle.internal.build.RootBuildState;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.buildoption.StringInternalOption;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.file.BufferProvider;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.FileException;
@@ -64,6 +71,21 @@
  * Build scoped services for build cache usage.
  */
 public final class BuildCacheServices extends AbstractGradleModuleServices {
+    /**
+     * The compression used for new build cache entries. Entries are always read using the compression they were written with.
+     */
+    private static final StringInternalOption COMPRESSION_OPTION = new StringInternalOption("org.gradle.caching.internal.compression", "gzip");
+
+    /**
+     * How many megabytes of remote build cache entries may be downloaded into the local build cache ahead of time. Prefetching is disabled by default.
+     */
+    public static final IntegerInternalOption PREFETCH_BUDGET_OPTION = new IntegerInternalOption("org.gradle.caching.internal.prefetch-budget-mb", 0);
+
+    /**
+     * Whether files unpacked from build cache entries are written on a thread pool while the entry is being decompressed. Disabled by default.
+     */
+    private static final InternalFlag PARALLEL_UNPACK_OPTION = new InternalFlag("org.gradle.caching.internal.parallel-unpack");
+
     @Override
     public void registerGlobalServices(ServiceRegistration registration) {
         registration.addProvider(new ServiceRegistrationProvider() {
@@ -72,6 +94,11 @@ BufferProvider createBufferProvider() {
                 // TODO Make buffer size configurable
                 return new ThreadLocalBufferProvider(64 * 1024);
             }
+
+            @Provides
+            TarPackerFileWriteExecutor createTarPackerFileWriteExecutor(ExecutorFactory executorFactory) {
+                return new TarPackerFileWriteExecutor(executorFactory);
+            }
         });
     }
 
@@ -125,10 +152,16 @@ BuildCacheEntryPacker createResultPacker(
                 FileSystem fileSystem,
                 StreamHasher fileHasher,
                 StringInterner stringInterner,
-                BufferProvider bufferProvider
+                BufferProvider bufferProvider,
+                TarPackerFileWriteExecutor fileWriteExecutor,
+                InternalOptions internalOptions
             ) {
-                return new GZipBuildCacheEntryPacker(
-                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner, bufferProvider));
+                BuildCacheEntryCompression compression = BuildCacheEntryCompression.forName(internalOptions.getOption(COMPRESSION_OPTION).get());
+                FilePermissionsAccessAdapter filePermissionAccess = new FilePermissionsAccessAdapter(fileSystem);
+                TarBuildCacheEntryPacker tarPacker = internalOptions.getOption(PARALLEL_UNPACK_OPTION).get()
+                    ? new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, fileHasher, stringInterner, bufferProvider, fileWriteExecutor, fileWriteExecutor.getPendingFileWriteBytes())
+                    : new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, fileHasher, stringInterner, bufferProvider);
+                return new CompressingBuildCacheEntryPacker(tarPacker, compression);
             }
 
             @Provides
@@ -155,7 +188,9 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                 TemporaryFileProvider temporaryFileProvider,
                 BuildCacheEntryPacker packer,
                 OriginMetadataFactory originMetadataFactory,
-                StringInterner stringInterner
+                StringInterner stringInterner,
+                ExecutorFactory executorFactory,
+                InternalOptions internalOptions
             ) {
                 return new DefaultBuildCacheControllerFactory(
                     startParameter,
@@ -164,7 +199,9 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                     originMetadataFactory,
                     stringInterner,
                     temporaryFileProvider,
-                    packer
+                    packer,
+                    executorFactory,
+                    internalOptions.getOption(PREFETCH_BUDGET_OPTION).get() * 1024L * 1024L
                 );
             }
         });
@@ -32,6 +32,7 @@
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
@@ -77,6 +78,11 @@ public Optional<BuildCacheLoadResult> load(BuildCacheKey cacheKey, CacheableEnti
             return getDelegate().load(cacheKey, cacheableEntity);
         }
 
+        @Override
+        public void prefetch(Collection<BuildCacheKey> cacheKeys) {
+            getDelegate().prefetch(cacheKeys);
+        }
+
         @Override
         public void store(BuildCacheKey cacheKey, CacheableEntity entity, Map<String, FileSystemSnapshot> snapshots, Duration executionTime) {
             getDelegate().store(cacheKey, entity, snapshots, executionTime);
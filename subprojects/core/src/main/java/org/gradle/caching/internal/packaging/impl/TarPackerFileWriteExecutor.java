@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executes the writes of files unpacked from build cache entries. Shared by all builds run by the process.
+ */
+@ServiceScope(Scope.Global.class)
+public class TarPackerFileWriteExecutor implements Executor, Stoppable {
+    private final ManagedExecutor executor;
+    private final Semaphore pendingFileWriteBytes;
+
+    public TarPackerFileWriteExecutor(ExecutorFactory executorFactory) {
+        int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.executor = executorFactory.create("Build cache entry unpacking", parallelism);
+        // Allow files to queue up while all threads are busy, but bound the memory held by the file contents of all concurrent unpack operations
+        this.pendingFileWriteBytes = new Semaphore(parallelism * 4 * 1024 * 1024);
+    }
+
+    /**
+     * Bounds the number of bytes that all unpack operations together have waiting to be written.
+     */
+    public Semaphore getPendingFileWriteBytes() {
+        return pendingFileWriteBytes;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+}
@@ -29,17 +29,24 @@
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.caching.local.internal.DirectoryBuildCacheService;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.util.Path;
 
 import javax.annotation.Nullable;
+import java.util.concurrent.ExecutorService;
 
 public class DefaultBuildCacheControllerFactory extends AbstractBuildCacheControllerFactory<DirectoryBuildCacheService> {
 
+    private static final int PREFETCH_THREADS = 4;
+
     private final TemporaryFileProvider temporaryFileProvider;
     private final BuildCacheEntryPacker packer;
     private final BuildOperationProgressEventEmitter buildOperationProgressEmitter;
+    @Nullable
+    private final ExecutorFactory executorFactory;
+    private final long prefetchBudgetInBytes;
 
     public DefaultBuildCacheControllerFactory(
         StartParameter startParameter,
@@ -49,6 +56,23 @@ public DefaultBuildCacheControllerFactory(
         StringInterner stringInterner,
         TemporaryFileProvider temporaryFileProvider,
         BuildCacheEntryPacker packer
+    ) {
+        this(startParameter, buildOperationRunner, buildOperationProgressEmitter, originMetadataFactory, stringInterner, temporaryFileProvider, packer, null, 0);
+    }
+
+    /**
+     * Creates a factory for controllers that download up to {@code prefetchBudgetInBytes} of requested entries from the remote cache ahead of time.
+     */
+    public DefaultBuildCacheControllerFactory(
+        StartParameter startParameter,
+        BuildOperationRunner buildOperationRunner,
+        BuildOperationProgressEventEmitter buildOperationProgressEmitter,
+        OriginMetadataFactory originMetadataFactory,
+        StringInterner stringInterner,
+        TemporaryFileProvider temporaryFileProvider,
+        BuildCacheEntryPacker packer,
+        @Nullable ExecutorFactory executorFactory,
+        long prefetchBudgetInBytes
     ) {
         super(
             startParameter,
@@ -59,6 +83,8 @@ public DefaultBuildCacheControllerFactory(
         this.temporaryFileProvider = temporaryFileProvider;
         this.packer = packer;
         this.buildOperationProgressEmitter = buildOperationProgressEmitter;
+        this.executorFactory = executorFactory;
+        this.prefetchBudgetInBytes = prefetchBudgetInBytes;
     }
 
     @Override
@@ -74,6 +100,9 @@ protected BuildCacheController doCreateController(
         );
 
         boolean logStackTraces = startParameter.getShowStacktrace() != ShowStacktrace.INTERNAL_EXCEPTIONS;
+        ExecutorService prefetchExecutor = isPrefetchEnabled(config)
+            ? executorFactory.create("Build cache prefetch", PREFETCH_THREADS)
+            : null;
 
         return new DefaultBuildCacheController(
             config,
@@ -84,10 +113,19 @@ protected BuildCacheController doCreateController(
             !Boolean.getBoolean(REMOTE_CONTINUE_ON_ERROR_PROPERTY),
             packer,
             originMetadataFactory,
-            stringInterner
+            stringInterner,
+            prefetchExecutor,
+            prefetchBudgetInBytes
         );
     }
 
+    private boolean isPrefetchEnabled(BuildCacheServicesConfiguration config) {
+        return executorFactory != null
+            && prefetchBudgetInBytes > 0
+            && config.getLocal() != null && config.isLocalPush()
+            && config.getRemote() != null;
+    }
+
     private static BuildCacheServicesConfiguration toConfiguration(
         Path buildPath,
         @Nullable DescribedBuildCacheService<DirectoryBuildCache, DirectoryBuildCacheService> local,
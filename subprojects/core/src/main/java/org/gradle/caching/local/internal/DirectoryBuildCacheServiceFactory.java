@@ -19,15 +19,21 @@
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.cache.CacheConfigurationsInternal;
 import org.gradle.cache.CacheCleanupStrategy;
+import org.gradle.cache.CleanupAction;
 import org.gradle.cache.DefaultCacheCleanupStrategy;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.UnscopedCacheBuilderFactory;
+import org.gradle.cache.internal.CompositeCleanupAction;
 import org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup;
 import org.gradle.cache.internal.SingleDepthFilesFinder;
 import org.gradle.cache.scopes.GlobalScopedCacheBuilderFactory;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.file.FileAccessTracker;
 import org.gradle.internal.file.PathToFileResolver;
@@ -36,6 +42,7 @@
 
 import javax.inject.Inject;
 import java.io.File;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
 
 import static org.gradle.cache.FileLockManager.LockMode.OnDemand;
@@ -47,12 +54,22 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
     private static final String BUILD_CACHE_KEY = "build-cache-" + BUILD_CACHE_VERSION;
     private static final String DIRECTORY_BUILD_CACHE_TYPE = "directory";
     private static final int FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP = 1;
+    /**
+     * When set, entries are evicted in the background in least recently used order to keep the local build cache below this size.
+     */
+    private static final IntegerInternalOption MAX_SIZE_OPTION = new IntegerInternalOption("org.gradle.caching.local.internal.max-size-mb", 0);
+    /**
+     * When set, large entries are split into content-defined chunks that are shared between entries.
+     */
+    private static final InternalFlag CHUNKED_STORAGE_OPTION = new InternalFlag("org.gradle.caching.local.internal.chunked-storage");
 
     private final UnscopedCacheBuilderFactory unscopedCacheBuilderFactory;
     private final GlobalScopedCacheBuilderFactory cacheBuilderFactory;
     private final PathToFileResolver resolver;
     private final FileAccessTimeJournal fileAccessTimeJournal;
     private final CacheConfigurationsInternal cacheConfigurations;
+    private final ExecutorFactory executorFactory;
+    private final InternalOptions internalOptions;
 
     @Inject
     public DirectoryBuildCacheServiceFactory(
@@ -60,13 +77,17 @@ public DirectoryBuildCacheServiceFactory(
         GlobalScopedCacheBuilderFactory cacheBuilderFactory,
         PathToFileResolver resolver,
         FileAccessTimeJournal fileAccessTimeJournal,
-        CacheConfigurationsInternal cacheConfigurations
+        CacheConfigurationsInternal cacheConfigurations,
+        ExecutorFactory executorFactory,
+        InternalOptions internalOptions
     ) {
         this.unscopedCacheBuilderFactory = unscopedCacheBuilderFactory;
         this.cacheBuilderFactory = cacheBuilderFactory;
         this.resolver = resolver;
         this.fileAccessTimeJournal = fileAccessTimeJournal;
         this.cacheConfigurations = cacheConfigurations;
+        this.executorFactory = executorFactory;
+        this.internalOptions = internalOptions;
     }
 
     @Override
@@ -87,6 +108,15 @@ public BuildCacheService createBuildCacheService(DirectoryBuildCache configurati
             config("location", target.getAbsolutePath()).
             config("removeUnusedEntriesAfter", removeUnusedEntriesAfterDays + " days");
 
+        long maxSizeInMegabytes = internalOptions.getOption(MAX_SIZE_OPTION).get();
+        if (maxSizeInMegabytes > 0) {
+            describer.config("maxSize", maxSizeInMegabytes + " MB");
+        }
+        boolean chunkedStorage = internalOptions.getOption(CHUNKED_STORAGE_OPTION).get();
+        if (chunkedStorage) {
+            describer.config("chunkedStorage", "true");
+        }
+
         // Use the deprecated retention period if configured on `DirectoryBuildCache`, or use the central 'buildCache' cleanup config if not.
         // If the deprecated property remains at the default, we can safely use the central value (which has the same default).
         Supplier<Long> removeUnusedEntriesOlderThan = removeUnusedEntriesAfterDays == CacheConfigurationsInternal.DEFAULT_MAX_AGE_IN_DAYS_FOR_BUILD_CACHE_ENTRIES
@@ -101,7 +131,8 @@ public BuildCacheService createBuildCacheService(DirectoryBuildCache configurati
             .open();
         FileAccessTracker fileAccessTracker = new SingleDepthFileAccessTracker(fileAccessTimeJournal, target, FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
 
-        return new DirectoryBuildCacheService(persistentCache, fileAccessTracker, FAILED_READ_SUFFIX);
+        ExecutorService evictionExecutor = maxSizeInMegabytes > 0 ? executorFactory.create("Build cache eviction", 1) : null;
+        return new DirectoryBuildCacheService(persistentCache, fileAccessTracker, fileAccessTimeJournal, FAILED_READ_SUFFIX, maxSizeInMegabytes * 1024 * 1024, evictionExecutor, chunkedStorage);
     }
 
     private CacheCleanupStrategy createCacheCleanupStrategy(Supplier<Long> removeUnusedEntriesTimestamp) {
@@ -111,8 +142,13 @@ private CacheCleanupStrategy createCacheCleanupStrategy(Supplier<Long> removeUnu
         );
     }
 
-    private LeastRecentlyUsedCacheCleanup createCleanupAction(Supplier<Long> removeUnusedEntriesTimestamp) {
-        return new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesTimestamp);
+    private CleanupAction createCleanupAction(Supplier<Long> removeUnusedEntriesTimestamp) {
+        LeastRecentlyUsedCacheCleanup entryCleanup = new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesTimestamp);
+        // Chunks are shared between entries, so they can only be removed once no remaining entry references them
+        return CompositeCleanupAction.builder()
+            .add(entryCleanup)
+            .add(DirectoryBuildCacheService.createChunkCleanupAction())
+            .build();
     }
 
     private static void checkDirectory(File directory) {
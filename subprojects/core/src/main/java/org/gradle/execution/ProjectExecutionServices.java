@@ -34,7 +34,9 @@
 import org.gradle.api.internal.tasks.execution.ResolveTaskExecutionModeExecuter;
 import org.gradle.api.internal.tasks.execution.SkipOnlyIfTaskExecuter;
 import org.gradle.api.internal.tasks.execution.SkipTaskWithNoActionsExecuter;
+import org.gradle.api.internal.tasks.execution.TaskBuildCachePrefetcher;
 import org.gradle.api.internal.tasks.execution.TaskCacheabilityResolver;
+import org.gradle.caching.internal.controller.BuildCacheController;
 import org.gradle.execution.plan.ExecutionNodeAccessHierarchies;
 import org.gradle.execution.plan.MissingTaskDependencyDetector;
 import org.gradle.execution.taskgraph.TaskExecutionGraphInternal;
@@ -54,6 +56,7 @@
 import org.gradle.internal.fingerprint.impl.FileCollectionFingerprinterRegistrations;
 import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
 import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.properties.bean.PropertyWalker;
 import org.gradle.internal.service.CloseableServiceRegistry;
 import org.gradle.internal.service.Provides;
 import org.gradle.internal.service.ServiceRegistrationProvider;
@@ -140,6 +143,43 @@ TaskExecuter createTaskExecuter(
         return executer;
     }
 
+    @Provides
+    TaskBuildCachePrefetcher createTaskBuildCachePrefetcher(
+        BuildCacheController buildCacheController,
+        TaskExecutionModeResolver executionModeResolver,
+        PropertyWalker propertyWalker,
+        ExecutionHistoryStore executionHistoryStore,
+        BuildOperationRunner buildOperationRunner,
+        AsyncWorkTracker asyncWorkTracker,
+        org.gradle.api.execution.TaskActionListener actionListener,
+        TaskCacheabilityResolver taskCacheabilityResolver,
+        ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
+        InputFingerprinter inputFingerprinter,
+        ListenerManager listenerManager,
+        ReservedFileSystemLocationRegistry reservedFileSystemLocationRegistry,
+        FileCollectionFactory fileCollectionFactory,
+        TaskDependencyFactory taskDependencyFactory,
+        FileOperations fileOperations
+    ) {
+        return new TaskBuildCachePrefetcher(
+            buildCacheController,
+            executionModeResolver,
+            propertyWalker,
+            executionHistoryStore,
+            buildOperationRunner,
+            asyncWorkTracker,
+            actionListener,
+            taskCacheabilityResolver,
+            classLoaderHierarchyHasher,
+            inputFingerprinter,
+            listenerManager,
+            reservedFileSystemLocationRegistry,
+            fileCollectionFactory,
+            taskDependencyFactory,
+            fileOperations.getFileResolver()
+        );
+    }
+
     @Provides
     FileCollectionFingerprinterRegistrations createFileCollectionFingerprinterRegistrations(
         StringInterner stringInterner,
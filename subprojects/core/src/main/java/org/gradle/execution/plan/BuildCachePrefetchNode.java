@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.tasks.NodeExecutionContext;
+import org.gradle.api.internal.tasks.execution.TaskBuildCachePrefetcher;
+import org.gradle.internal.resources.ResourceLock;
+
+import javax.annotation.Nullable;
+
+/**
+ * Calculates the build cache key of a task whose dependencies have completed and starts downloading its cache entry,
+ * so that the entry is available locally by the time the task gets to run.
+ *
+ * <p>The node is scheduled when the task becomes ready, and is not a dependency of the task. It never fails.</p>
+ */
+public class BuildCachePrefetchNode extends Node implements SelfExecutingNode {
+    private final LocalTaskNode node;
+
+    public BuildCachePrefetchNode(LocalTaskNode node) {
+        this.node = node;
+    }
+
+    public LocalTaskNode getNode() {
+        return node;
+    }
+
+    @Override
+    public String toString() {
+        return "Prefetch build cache entry for " + node;
+    }
+
+    @Nullable
+    @Override
+    public Throwable getNodeFailure() {
+        return null;
+    }
+
+    @Override
+    public boolean isPriority() {
+        // Start the download while the task waits for a worker
+        return true;
+    }
+
+    @Override
+    public void resolveDependencies(TaskDependencyResolver dependencyResolver) {
+    }
+
+    @Nullable
+    @Override
+    public ResourceLock getProjectToLock() {
+        return node.getProjectToLock();
+    }
+
+    @Nullable
+    @Override
+    public ProjectInternal getOwningProject() {
+        return node.getOwningProject();
+    }
+
+    @Override
+    public void execute(NodeExecutionContext context) {
+        context.getService(TaskBuildCachePrefetcher.class).prefetch(node);
+    }
+}
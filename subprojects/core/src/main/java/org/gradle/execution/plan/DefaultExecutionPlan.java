@@ -57,6 +57,7 @@ public class DefaultExecutionPlan implements ExecutionPlan, QueryableExecutionPl
     private Spec<? super Task> filter = Specs.satisfyAll();
     private int order = 0;
     private boolean continueOnFailure;
+    private boolean prefetchBuildCacheEntries;
 
     private final Set<Node> filteredNodes = newIdentityHashSet();
     private final Set<Node> finalizers = new LinkedHashSet<>();
@@ -233,7 +234,7 @@ public FinalizedExecutionPlan finalizePlan() {
         if (finalizedPlan == null) {
             dependencyResolver.clear();
             // Should make an immutable copy of the contents to pass to the finalized plan and also to use in this instance
-            finalizedPlan = new DefaultFinalizedExecutionPlan(displayName, ordinalNodeAccess, outputHierarchy, destroyableHierarchy, lockCoordinator, scheduledNodes, continueOnFailure, this, completionHandler);
+            finalizedPlan = new DefaultFinalizedExecutionPlan(displayName, ordinalNodeAccess, outputHierarchy, destroyableHierarchy, lockCoordinator, scheduledNodes, continueOnFailure, prefetchBuildCacheEntries, this, completionHandler);
         }
         return finalizedPlan;
     }
@@ -324,6 +325,11 @@ public void setContinueOnFailure(boolean continueOnFailure) {
         this.continueOnFailure = continueOnFailure;
     }
 
+    @Override
+    public void setPrefetchBuildCacheEntries(boolean prefetchBuildCacheEntries) {
+        this.prefetchBuildCacheEntries = prefetchBuildCacheEntries;
+    }
+
     @Override
     public int size() {
         return nodeMapping.getNumberOfPublicNodes();
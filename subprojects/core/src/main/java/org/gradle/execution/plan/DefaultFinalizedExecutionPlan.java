@@ -78,6 +78,7 @@ public int compare(Node node1, Node node2) {
 
     private boolean invalidNodeRunning;
     private final boolean continueOnFailure;
+    private final boolean prefetchBuildCacheEntries;
     private final QueryableExecutionPlan contents;
 
     private final Set<Node> runningNodes = newIdentityHashSet();
@@ -99,6 +100,7 @@ public DefaultFinalizedExecutionPlan(
         ResourceLockCoordinationService lockCoordinator,
         List<Node> scheduledNodes,
         boolean continueOnFailure,
+        boolean prefetchBuildCacheEntries,
         QueryableExecutionPlan contents,
         Consumer<LocalTaskNode> completionHandler
     ) {
@@ -108,6 +110,7 @@ public DefaultFinalizedExecutionPlan(
         this.lockCoordinator = lockCoordinator;
         this.ordinalNodeAccess = ordinalNodeAccess;
         this.continueOnFailure = continueOnFailure;
+        this.prefetchBuildCacheEntries = prefetchBuildCacheEntries;
         this.contents = contents;
         this.completionHandler = completionHandler;
 
@@ -590,6 +593,26 @@ private void maybeNodeReady(Node node) {
         if (node.allDependenciesComplete()) {
             maybeNodesSelectable = true;
             readyNodes.insert(node);
+            if (prefetchBuildCacheEntries) {
+                maybeSchedulePrefetch(node);
+            }
+        }
+    }
+
+    /**
+     * The inputs of a task are final once its dependencies have completed, so its cache key can be calculated
+     * and its cache entry downloaded while the task waits for a worker and for its own pre-execution nodes.
+     */
+    private void maybeSchedulePrefetch(Node node) {
+        if (!(node instanceof LocalTaskNode) || !node.isRequired() || !node.allDependenciesSuccessful()) {
+            return;
+        }
+        BuildCachePrefetchNode prefetchNode = ((LocalTaskNode) node).createPrefetchNodeOnce();
+        if (prefetchNode != null) {
+            prefetchNode.setIndex(node.getIndex());
+            prefetchNode.require();
+            prefetchNode.updateAllDependenciesComplete();
+            addNodeToPlan(prefetchNode);
         }
     }
 
@@ -47,11 +47,13 @@
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.ToLongFunction;
 
@@ -388,6 +390,9 @@ public void run() {
          * Selects an item that's ready to execute and executes the provided action against it. If no item is ready, blocks until some
          * can be executed.
          *
+         * <p>Selection happens under the state lock, because starting an item acquires its project, shared resource and mutation locks,
+         * which that lock guards. Finishing an item takes the same lock, so selection is only part of the contention on it.</p>
+         *
          * @return The next item to execute or {@code null} when there are no items remaining
          */
         @Nullable
@@ -396,7 +401,9 @@ private WorkItem getNextItem(final WorkerLease workerLease) {
             stats.startSelect();
             try {
                 selected = MutableReference.empty();
+                stats.startWaitingForStateLock();
                 coordinationService.withStateLock(resourceLockState -> {
+                    stats.finishWaitingForStateLock();
                     stats.finishWaitingForNextItem();
                     if (cancellationToken.isCancellationRequested()) {
                         queue.cancelExecution();
@@ -470,7 +477,9 @@ private void execute(Object selected, WorkSource<Object> executionPlan, Action<O
         private void markFinished(Object selected, WorkSource<Object> executionPlan, @Nullable Throwable failure) {
             stats.startMarkFinished();
             try {
+                stats.startWaitingForStateLock();
                 coordinationService.withStateLock(() -> {
+                    stats.finishWaitingForStateLock();
                     try {
                         executionPlan.finishedExecuting(selected, failure);
                     } catch (Throwable t) {
@@ -520,6 +529,17 @@ private interface WorkerStats extends WorkerState {
 
         void finishMarkFinished();
 
+        /**
+         * Called before the worker attempts to acquire the state lock.
+         */
+        void startWaitingForStateLock();
+
+        /**
+         * Called each time the worker runs an action while holding the state lock. Only the first call after {@link #startWaitingForStateLock()} ends the wait,
+         * as later calls happen after the worker has been woken up to retry.
+         */
+        void finishWaitingForStateLock();
+
         void finish();
     }
 
@@ -626,6 +646,14 @@ public void startMarkFinished() {
             public void finishMarkFinished() {
             }
 
+            @Override
+            public void startWaitingForStateLock() {
+            }
+
+            @Override
+            public void finishWaitingForStateLock() {
+            }
+
             @Override
             public void finish() {
                 state.set(ExecutionState.Stopped);
@@ -650,6 +678,7 @@ public void finishWaitingForNextItem() {
 
     private static class CollectingExecutorStats implements ExecutorStats {
         private final List<CollectingWorkerStats> completedWorkers = new CopyOnWriteArrayList<>();
+        private final AtomicInteger startedWorkers = new AtomicInteger();
         private final ExecutorState delegate;
 
         public CollectingExecutorStats(ExecutorState delegate) {
@@ -658,7 +687,7 @@ public CollectingExecutorStats(ExecutorState delegate) {
 
         @Override
         public WorkerStats startWorker() {
-            return new CollectingWorkerStats(this, delegate.startWorker());
+            return new CollectingWorkerStats(this, startedWorkers.incrementAndGet(), delegate.startWorker());
         }
 
         void workerFinished(CollectingWorkerStats stats) {
@@ -674,18 +703,28 @@ public void report() {
                 LOGGER.lifecycle("average select time: " + format(stats -> stats.totalSelectTime));
                 LOGGER.lifecycle("average execute time: " + format(stats -> stats.totalExecuteTime));
                 LOGGER.lifecycle("average finish time: " + format(stats -> stats.totalMarkFinishedTime));
+                LOGGER.lifecycle("average state lock wait time: " + format(stats -> stats.totalStateLockWaitTime));
+                LOGGER.lifecycle("longest single state lock wait: " + formatMillis(completedWorkers.stream().mapToLong(stats -> stats.maxStateLockWaitTime).max().getAsLong()));
+                completedWorkers.stream().sorted(Comparator.comparingInt(stats -> stats.workerId)).forEach(stats ->
+                    LOGGER.lifecycle("worker " + stats.workerId + " (" + stats.threadName + "): total state lock wait time: " + formatMillis(stats.totalStateLockWaitTime)
+                        + ", longest state lock wait: " + formatMillis(stats.maxStateLockWaitTime) + ", state lock acquisitions: " + stats.stateLockAcquisitions)
+                );
             }
             completedWorkers.clear();
         }
 
         private String format(ToLongFunction<CollectingWorkerStats> statsProperty) {
-            BigDecimal averageNanos = BigDecimal.valueOf(completedWorkers.stream().mapToLong(statsProperty).sum() / completedWorkers.size());
-            return DecimalFormat.getNumberInstance().format(averageNanos.divide(BigDecimal.valueOf(1000000), RoundingMode.HALF_UP)) + "ms";
+            return formatMillis(completedWorkers.stream().mapToLong(statsProperty).sum() / completedWorkers.size());
+        }
+
+        private static String formatMillis(long nanos) {
+            return DecimalFormat.getNumberInstance().format(BigDecimal.valueOf(nanos).divide(BigDecimal.valueOf(1000000), RoundingMode.HALF_UP)) + "ms";
         }
     }
 
     private static class CollectingWorkerStats implements WorkerStats {
         final long startTime;
+        final int workerId;
         private final CollectingExecutorStats owner;
         private final WorkerState delegate;
         long finishTime;
@@ -693,9 +732,16 @@ private static class CollectingWorkerStats implements WorkerStats {
         long totalSelectTime;
         long totalExecuteTime;
         long totalMarkFinishedTime;
-
-        public CollectingWorkerStats(CollectingExecutorStats owner, WorkerState delegate) {
+        boolean waitingForStateLock;
+        long startWaitingForStateLock;
+        long totalStateLockWaitTime;
+        long maxStateLockWaitTime;
+        long stateLockAcquisitions;
+        String threadName;
+
+        public CollectingWorkerStats(CollectingExecutorStats owner, int workerId, WorkerState delegate) {
             this.owner = owner;
+            this.workerId = workerId;
             this.delegate = delegate;
             startTime = System.nanoTime();
         }
@@ -703,6 +749,8 @@ public CollectingWorkerStats(CollectingExecutorStats owner, WorkerState delegate
         @Override
         public void finish() {
             finishTime = System.nanoTime();
+            // Called on the thread that ran the worker
+            threadName = Thread.currentThread().getName();
             owner.workerFinished(this);
         }
 
@@ -745,6 +793,26 @@ public void finishMarkFinished() {
             }
         }
 
+        @Override
+        public void startWaitingForStateLock() {
+            waitingForStateLock = true;
+            startWaitingForStateLock = System.nanoTime();
+        }
+
+        @Override
+        public void finishWaitingForStateLock() {
+            if (!waitingForStateLock) {
+                return;
+            }
+            long duration = System.nanoTime() - startWaitingForStateLock;
+            if (duration > 0) {
+                totalStateLockWaitTime += duration;
+                maxStateLockWaitTime = Math.max(maxStateLockWaitTime, duration);
+            }
+            stateLockAcquisitions++;
+            waitingForStateLock = false;
+        }
+
         @Override
         public void startWaitingForNextItem() {
             delegate.startWaitingForNextItem();
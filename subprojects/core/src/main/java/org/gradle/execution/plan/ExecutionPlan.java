@@ -36,6 +36,11 @@ public interface ExecutionPlan extends Describable, Closeable {
 
     void setContinueOnFailure(boolean continueOnFailure);
 
+    /**
+     * When enabled, the build cache entry of each task is requested to be downloaded ahead of time, as soon as the dependencies of the task have completed.
+     */
+    void setPrefetchBuildCacheEntries(boolean prefetchBuildCacheEntries);
+
     void setScheduledWork(ScheduledWork work);
 
     /**
@@ -44,6 +44,7 @@ public class LocalTaskNode extends TaskNode {
     private final WorkValidationContext validationContext;
     private final ResolveMutationsNode resolveMutationsNode;
     private boolean hasVisitedMutationsNode;
+    private boolean hasCreatedPrefetchNode;
     private Set<Node> lifecycleSuccessors;
 
     private boolean isolated;
@@ -204,6 +205,18 @@ public Node getPrepareNode() {
         return resolveMutationsNode;
     }
 
+    /**
+     * Creates the node that prefetches the build cache entry of this task, or returns {@code null} if it has been created before.
+     */
+    @Nullable
+    public BuildCachePrefetchNode createPrefetchNodeOnce() {
+        if (hasCreatedPrefetchNode) {
+            return null;
+        }
+        hasCreatedPrefetchNode = true;
+        return new BuildCachePrefetchNode(this);
+    }
+
     @Override
     public void markFailedDueToDependencies(Consumer<Node> completionAction) {
         super.markFailedDueToDependencies(completionAction);
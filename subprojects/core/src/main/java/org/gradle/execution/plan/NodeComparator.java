@@ -21,7 +21,7 @@
 /**
  * Sorts {@link Node}s to execute in the following order:
  * <ol>
- *    <li>{@link OrdinalNode} and {@link ResolveMutationsNode}</li>
+ *    <li>{@link OrdinalNode}, {@link ResolveMutationsNode} and {@link BuildCachePrefetchNode}</li>
  *    <li>{@link CreationOrderedNode} (a.k.a. transform nodes)</li>
  *    <li>{@link LocalTaskNode}</li>
  *    <li>{@link ActionNode}</li>
@@ -39,14 +39,14 @@ private NodeComparator() {
     @Override
     public int compare(Node o1, Node o2) {
 
-        if (o1 instanceof OrdinalNode || o1 instanceof ResolveMutationsNode) {
+        if (o1 instanceof OrdinalNode || o1 instanceof ResolveMutationsNode || o1 instanceof BuildCachePrefetchNode) {
             if (o1.equals(o2)) {
                 return 0;
             } else {
                 return -1;
             }
         }
-        if (o2 instanceof OrdinalNode || o2 instanceof ResolveMutationsNode) {
+        if (o2 instanceof OrdinalNode || o2 instanceof ResolveMutationsNode || o2 instanceof BuildCachePrefetchNode) {
             return 1;
         }
 
@@ -17,19 +17,23 @@
 package org.gradle.internal.build;
 
 import org.gradle.api.internal.GradleInternal;
+import org.gradle.caching.internal.BuildCacheServices;
 import org.gradle.execution.plan.ExecutionPlan;
 import org.gradle.execution.plan.ExecutionPlanFactory;
 import org.gradle.execution.plan.FinalizedExecutionPlan;
 import org.gradle.execution.taskgraph.TaskExecutionGraphInternal;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.execution.BuildOutputCleanupRegistry;
 
 import java.util.function.Consumer;
 
 public class DefaultBuildWorkPreparer implements BuildWorkPreparer {
     private final ExecutionPlanFactory executionPlanFactory;
+    private final boolean prefetchBuildCacheEntries;
 
-    public DefaultBuildWorkPreparer(ExecutionPlanFactory executionPlanFactory) {
+    public DefaultBuildWorkPreparer(ExecutionPlanFactory executionPlanFactory, InternalOptions internalOptions) {
         this.executionPlanFactory = executionPlanFactory;
+        this.prefetchBuildCacheEntries = internalOptions.getOption(BuildCacheServices.PREFETCH_BUDGET_OPTION).get() > 0;
     }
 
     @Override
@@ -49,6 +53,9 @@ public FinalizedExecutionPlan finalizeWorkGraph(GradleInternal gradle, Execution
         if (gradle.getStartParameter().isContinueOnFailure()) {
             plan.setContinueOnFailure(true);
         }
+        if (prefetchBuildCacheEntries && gradle.getStartParameter().isBuildCacheEnabled()) {
+            plan.setPrefetchBuildCacheEntries(true);
+        }
         FinalizedExecutionPlan finalizedExecutionPlan = plan.finalizePlan();
         taskGraph.populate(finalizedExecutionPlan);
         BuildOutputCleanupRegistry buildOutputCleanupRegistry = gradle.getServices().get(BuildOutputCleanupRegistry.class);
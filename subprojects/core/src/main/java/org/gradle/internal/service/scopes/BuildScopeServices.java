@@ -171,6 +171,7 @@
 import org.gradle.internal.build.PublicBuildPath;
 import org.gradle.internal.buildevents.BuildStartedTime;
 import org.gradle.internal.buildoption.FeatureFlags;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.buildtree.BuildInclusionCoordinator;
 import org.gradle.internal.buildtree.BuildModelParameters;
 import org.gradle.internal.classloader.ClassLoaderFactory;
@@ -655,11 +656,12 @@ protected ProjectsPreparer createBuildConfigurer(
     }
 
     @Provides
-    protected BuildWorkPreparer createWorkPreparer(BuildOperationRunner buildOperationRunner, ExecutionPlanFactory executionPlanFactory, ToPlannedNodeConverterRegistry converterRegistry) {
+    protected BuildWorkPreparer createWorkPreparer(BuildOperationRunner buildOperationRunner, ExecutionPlanFactory executionPlanFactory, ToPlannedNodeConverterRegistry converterRegistry, InternalOptions internalOptions) {
         return new BuildOperationFiringBuildWorkPreparer(
             buildOperationRunner,
             new DefaultBuildWorkPreparer(
-                executionPlanFactory
+                executionPlanFactory,
+                internalOptions
             ),
             converterRegistry
         );
@@ -21,12 +21,14 @@
 import net.rubygrapefruit.platform.file.FileSystems;
 import org.apache.tools.ant.DirectoryScanner;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.StartParameterInternal;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.BuildSessionScopeFileTimeStampInspector;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
 import org.gradle.api.internal.changedetection.state.CrossBuildFileHashCache;
 import org.gradle.api.internal.changedetection.state.DefaultResourceSnapshotterCacheService;
 import org.gradle.api.internal.changedetection.state.FileHasherStatistics;
+import org.gradle.api.internal.changedetection.state.FileTimeStampInspector;
 import org.gradle.api.internal.changedetection.state.GradleUserHomeScopeFileTimeStampInspector;
 import org.gradle.api.internal.changedetection.state.PropertiesFileFilter;
 import org.gradle.api.internal.changedetection.state.ResourceEntryFilter;
@@ -44,10 +46,16 @@
 import org.gradle.cache.scopes.GlobalScopedCacheBuilderFactory;
 import org.gradle.initialization.RootBuildLifecycleListener;
 import org.gradle.internal.build.BuildAddedListener;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
 import org.gradle.internal.buildoption.IntegerInternalOption;
 import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.classloader.ClasspathHasher;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ExecutorPolicy;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.ManagedScheduledExecutorImpl;
+import org.gradle.internal.concurrent.ThreadFactoryImpl;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.FileCollectionFingerprinterRegistry;
 import org.gradle.internal.execution.FileCollectionSnapshotter;
@@ -69,6 +77,7 @@
 import org.gradle.internal.hash.DefaultFileHasher;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeintegration.NativeCapabilities;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -93,16 +102,24 @@
 import org.gradle.internal.watch.registry.impl.WindowsFileWatcherRegistryFactory;
 import org.gradle.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem;
 import org.gradle.internal.watch.vfs.FileChangeListeners;
+import org.gradle.internal.watch.vfs.VirtualFileSystemIdleListener;
 import org.gradle.internal.watch.vfs.WatchableFileSystemDetector;
+import org.gradle.internal.watch.vfs.WatchableHierarchyStateStore;
+import org.gradle.internal.watch.vfs.impl.BackgroundVirtualFileSystemWarmer;
 import org.gradle.internal.watch.vfs.impl.DefaultWatchableFileSystemDetector;
 import org.gradle.internal.watch.vfs.impl.FileWatchingFilter;
+import org.gradle.internal.watch.vfs.impl.PersistentWatchableHierarchyStateStore;
 import org.gradle.internal.watch.vfs.impl.WatchingNotSupportedVirtualFileSystem;
 import org.gradle.internal.watch.vfs.impl.WatchingVirtualFileSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Predicate;
 
 import static org.gradle.internal.snapshot.CaseSensitivity.CASE_INSENSITIVE;
@@ -121,6 +138,26 @@ public class VirtualFileSystemServices extends AbstractGradleModuleServices {
     private static final int DEFAULT_MAX_HIERARCHIES_TO_WATCH = 50;
     public static final IntegerInternalOption MAX_HIERARCHIES_TO_WATCH_PROPERTY = new IntegerInternalOption("org.gradle.vfs.watch.hierarchies.max", DEFAULT_MAX_HIERARCHIES_TO_WATCH);
     private static final int FILE_HASHER_MEMORY_CACHE_SIZE = 400000;
+    /**
+     * When set, directories are snapshotted in parallel down to this many levels of subdirectories.
+     */
+    private static final IntegerInternalOption PARALLEL_SNAPSHOT_DEPTH_PROPERTY = new IntegerInternalOption("org.gradle.vfs.internal.parallel-snapshot-depth", 0);
+    /**
+     * When set, directory snapshots with at least this many regular files keep them in a compact form.
+     */
+    private static final IntegerInternalOption COMPACT_CHILDREN_THRESHOLD_PROPERTY = new IntegerInternalOption("org.gradle.vfs.internal.compact-children-threshold", 0);
+    /**
+     * When set, up to this many file hashes are kept in a compact in-memory cache, and far fewer in the on-heap cache of the persistent file hash store.
+     */
+    private static final IntegerInternalOption COMPACT_FILE_HASH_CACHE_SIZE_PROPERTY = new IntegerInternalOption("org.gradle.internal.file-hash-cache.compact-size", 0);
+    /**
+     * When set, the content of the VFS for watched hierarchies is stored after each build and restored by the next daemon watching them.
+     */
+    private static final InternalFlag PERSIST_VFS_STATE_PROPERTY = new InternalFlag("org.gradle.vfs.internal.persist-state");
+    /**
+     * When set, locations changed between builds are snapshotted in the background while the daemon is idle.
+     */
+    private static final InternalFlag WARM_VFS_WHILE_IDLE_PROPERTY = new InternalFlag("org.gradle.vfs.internal.warm-while-idle");
 
     public static boolean isDropVfs(InternalOptions options) {
         return options.getOption(VFS_DROP_PROPERTY).get();
@@ -130,6 +167,36 @@ public static int getMaximumNumberOfWatchedHierarchies(InternalOptions options)
         return options.getOption(MAX_HIERARCHIES_TO_WATCH_PROPERTY).get();
     }
 
+    private static ManagedExecutor newDirectorySnapshotExecutor(ExecutorFactory executorFactory) {
+        // Threads are only started once a snapshot forks subdirectories
+        return executorFactory.create("Directory snapshotter", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Keeps persisted state that holds content hashes apart for different hash functions.
+     */
+    private static String contentHashCacheName(String baseName, StreamHasher streamHasher) {
+        String algorithm = streamHasher.getHashAlgorithm();
+        return algorithm.equals(Hashing.defaultFunction().getAlgorithm())
+            ? baseName
+            : baseName + "-" + algorithm.toLowerCase(Locale.ROOT);
+    }
+
+    private static CachingFileHasher newCachingFileHasher(
+        StreamHasher streamHasher,
+        CrossBuildFileHashCache fileStore,
+        StringInterner stringInterner,
+        FileTimeStampInspector fileTimeStampInspector,
+        FileSystem fileSystem,
+        FileHasherStatistics.Collector statisticsCollector,
+        InternalOptions internalOptions
+    ) {
+        int compactInMemorySize = internalOptions.getOption(COMPACT_FILE_HASH_CACHE_SIZE_PROPERTY).get();
+        // The compact cache takes over from the on-heap cache, which then only needs to absorb bursts of writes
+        int inMemorySize = compactInMemorySize > 0 ? FILE_HASHER_MEMORY_CACHE_SIZE / 16 : FILE_HASHER_MEMORY_CACHE_SIZE;
+        return new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, contentHashCacheName("fileHashes", streamHasher), fileSystem, inMemorySize, compactInMemorySize, statisticsCollector);
+    }
+
     @Override
     public void registerGlobalServices(ServiceRegistration registration) {
         registration.addProvider(new GlobalScopeServices());
@@ -173,13 +240,34 @@ FileHasher createCachingFileHasher(
             FileSystem fileSystem,
             GradleUserHomeScopeFileTimeStampInspector fileTimeStampInspector,
             StreamHasher streamHasher,
-            StringInterner stringInterner
+            StringInterner stringInterner,
+            InternalOptions internalOptions
         ) {
-            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            CachingFileHasher fileHasher = newCachingFileHasher(streamHasher, fileStore, stringInterner, fileTimeStampInspector, fileSystem, statisticsCollector, internalOptions);
             fileTimeStampInspector.attach(fileHasher);
             return fileHasher;
         }
 
+        @Provides
+        @PrivateService
+        ManagedExecutor createDirectorySnapshotExecutor(ExecutorFactory executorFactory) {
+            return newDirectorySnapshotExecutor(executorFactory);
+        }
+
+        @Provides
+        @PrivateService
+        ScheduledExecutorService createVirtualFileSystemWarmingExecutor() {
+            // Warming runs while the user is working between builds, so it yields to everything else running on the machine
+            ThreadFactory defaultThreadFactory = new ThreadFactoryImpl("VFS warming", Thread.currentThread().getContextClassLoader());
+            ThreadFactory lowPriorityThreadFactory = runnable -> {
+                Thread thread = defaultThreadFactory.newThread(runnable);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            };
+            // No thread is started unless the virtual file system is warmed, the executor is stopped together with the services
+            return new ManagedScheduledExecutorImpl(new ScheduledThreadPoolExecutor(1, lowPriorityThreadFactory), new ExecutorPolicy.CatchAndRecordFailures());
+        }
+
         @Provides
         FileWatchingFilter createFileWatchingFilter(GlobalCacheLocations globalCacheLocations, ListenerManager listenerManager) {
             // All the changes in global caches should be done by Gradle itself, so in order
@@ -212,7 +300,12 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
             ListenerManager listenerManager,
             FileChangeListeners fileChangeListeners,
             FileSystem fileSystem,
-            WatchableFileSystemDetector watchableFileSystemDetector
+            WatchableFileSystemDetector watchableFileSystemDetector,
+            GlobalScopedCacheBuilderFactory cacheBuilderFactory,
+            FileMetadataAccessor fileMetadataAccessor,
+            StreamHasher streamHasher,
+            ExecutorFactory executorFactory,
+            InternalOptions internalOptions
         ) {
             CaseSensitivity caseSensitivity = fileSystem.isCaseSensitive() ? CASE_SENSITIVE : CASE_INSENSITIVE;
             SnapshotHierarchy root = DefaultSnapshotHierarchy.empty(caseSensitivity);
@@ -227,7 +320,15 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
                     sectionId -> documentationRegistry.getDocumentationRecommendationFor("details", "file_system_watching", sectionId),
                     fileWatchingFilter,
                     watchableFileSystemDetector,
-                    fileChangeListeners
+                    fileChangeListeners,
+                    internalOptions.getOption(PERSIST_VFS_STATE_PROPERTY).get()
+                        ? new PersistentWatchableHierarchyStateStore(
+                            cacheBuilderFactory.baseDirForCache(contentHashCacheName("vfs-state", streamHasher)),
+                            fileMetadataAccessor,
+                            // A single thread keeps the writes in order, the executor is stopped together with the executor factory
+                            executorFactory.create("VFS state storing", 1))
+                        : WatchableHierarchyStateStore.NONE,
+                    listenerManager.getBroadcaster(VirtualFileSystemIdleListener.class)
                 ))
                 .orElse(new WatchingNotSupportedVirtualFileSystem(root));
             listenerManager.addListener((BuildAddedListener) buildState -> {
@@ -246,7 +347,10 @@ FileSystemAccess createFileSystemAccess(
             StringInterner stringInterner,
             FileSystemAccess.WriteListener writeListener,
             DirectorySnapshotterStatistics.Collector statisticsCollector,
-            ListenerManager listenerManager
+            ListenerManager listenerManager,
+            ManagedExecutor directorySnapshotExecutor,
+            ScheduledExecutorService virtualFileSystemWarmingExecutor,
+            InternalOptions internalOptions
         ) {
             DefaultFileSystemAccess defaultFileSystemAccess = new DefaultFileSystemAccess(
                 hasher,
@@ -255,9 +359,15 @@ FileSystemAccess createFileSystemAccess(
                 virtualFileSystem,
                 writeListener,
                 statisticsCollector,
+                internalOptions.getOption(PARALLEL_SNAPSHOT_DEPTH_PROPERTY).get(),
+                directorySnapshotExecutor,
+                internalOptions.getOption(COMPACT_CHILDREN_THRESHOLD_PROPERTY).get(),
                 DirectoryScanner.getDefaultExcludes()
             );
             listenerManager.addListener(defaultFileSystemAccess);
+            if (internalOptions.getOption(WARM_VFS_WHILE_IDLE_PROPERTY).get()) {
+                listenerManager.addListener(new BackgroundVirtualFileSystemWarmer(defaultFileSystemAccess, virtualFileSystemWarmingExecutor));
+            }
 
             return defaultFileSystemAccess;
         }
@@ -316,6 +426,12 @@ FileChangeListeners createFileChangeListeners(ListenerManager listenerManager) {
     @VisibleForTesting
     static class BuildSessionServices implements ServiceRegistrationProvider {
 
+        @Provides
+        @PrivateService
+        ManagedExecutor createDirectorySnapshotExecutor(ExecutorFactory executorFactory) {
+            return newDirectorySnapshotExecutor(executorFactory);
+        }
+
         @Provides
         FileSystemDefaultExcludesProvider createFileSystemDefaultExcludesProvider(ListenerManager listenerManager) {
             return new DefaultFileSystemDefaultExcludesProvider(listenerManager);
@@ -336,9 +452,11 @@ FileHasher createFileHasher(
             FileSystem fileSystem,
             StreamHasher streamHasher,
             StringInterner stringInterner,
-            FileHasherStatistics.Collector statisticsCollector
+            FileHasherStatistics.Collector statisticsCollector,
+            StartParameterInternal startParameter
         ) {
-            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            InternalOptions internalOptions = new DefaultInternalOptions(startParameter.getSystemPropertiesArgs());
+            CachingFileHasher localHasher = newCachingFileHasher(streamHasher, cacheAccess, stringInterner, fileTimeStampInspector, fileSystem, statisticsCollector, internalOptions);
             return new SplitFileHasher(globalHasher, localHasher, globalCacheLocations);
         }
 
@@ -350,8 +468,11 @@ FileSystemAccess createFileSystemAccess(
             StringInterner stringInterner,
             VirtualFileSystem root,
             FileSystemAccess.WriteListener writeListener,
-            DirectorySnapshotterStatistics.Collector statisticsCollector
+            DirectorySnapshotterStatistics.Collector statisticsCollector,
+            StartParameterInternal startParameter,
+            ManagedExecutor directorySnapshotExecutor
         ) {
+            InternalOptions internalOptions = new DefaultInternalOptions(startParameter.getSystemPropertiesArgs());
             DefaultFileSystemAccess buildSessionsScopedVirtualFileSystem = new DefaultFileSystemAccess(
                 hasher,
                 stringInterner,
@@ -359,6 +480,9 @@ FileSystemAccess createFileSystemAccess(
                 root,
                 writeListener,
                 statisticsCollector,
+                internalOptions.getOption(PARALLEL_SNAPSHOT_DEPTH_PROPERTY).get(),
+                directorySnapshotExecutor,
+                internalOptions.getOption(COMPACT_CHILDREN_THRESHOLD_PROPERTY).get(),
                 DirectoryScanner.getDefaultExcludes()
             );
 
@@ -34,10 +34,14 @@
 import org.gradle.cache.GlobalCache;
 import org.gradle.cache.internal.CacheFactory;
 import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
+import org.gradle.cache.internal.DefaultCacheCoordinator;
 import org.gradle.cache.internal.DefaultCacheFactory;
 import org.gradle.cache.internal.DefaultCrossBuildInMemoryCacheFactory;
 import org.gradle.initialization.DefaultLegacyTypesSupport;
 import org.gradle.initialization.LegacyTypesSupport;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.buildoption.StringInternalOption;
 import org.gradle.internal.classloader.ClassLoaderFactory;
 import org.gradle.internal.classloader.DefaultClassLoaderFactory;
 import org.gradle.internal.classpath.ClassPath;
@@ -46,6 +50,8 @@
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.impl.DefaultDeleter;
 import org.gradle.internal.hash.DefaultStreamHasher;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.installation.CurrentGradleInstallation;
 import org.gradle.internal.instantiation.InstantiatorFactory;
@@ -70,6 +76,8 @@
 import org.gradle.internal.time.Clock;
 import org.gradle.internal.time.Time;
 
+import java.util.Collections;
+
 import static org.gradle.api.internal.file.ManagedFactories.DirectoryManagedFactory;
 import static org.gradle.api.internal.file.ManagedFactories.DirectoryPropertyManagedFactory;
 import static org.gradle.api.internal.file.ManagedFactories.RegularFileManagedFactory;
@@ -83,15 +91,33 @@
 
 public class WorkerSharedGlobalScopeServices extends BasicGlobalScopeServices {
 
+    /**
+     * Selects the hash function for file contents, either {@code md5} (the default) or the faster, non-cryptographic {@code murmur3}.
+     * The option is read from the system properties of the daemon, so it applies to all builds run by the daemon and is set through {@code org.gradle.jvmargs}.
+     * Worker daemons use the function of the daemon that starts them.
+     */
+    public static final StringInternalOption CONTENT_HASH_FUNCTION = new StringInternalOption("org.gradle.internal.content-hash-function", "md5");
+
     protected final ClassPath additionalModuleClassPath;
 
     public WorkerSharedGlobalScopeServices(ClassPath additionalModuleClassPath) {
         this.additionalModuleClassPath = additionalModuleClassPath;
     }
 
+    /**
+     * Internal options of the services that live as long as the process, read from the system properties of the process.
+     * Each build tree overrides them with options that also take the system properties of its start parameter into account.
+     */
+    @Provides
+    InternalOptions createInternalOptions() {
+        return new DefaultInternalOptions(Collections.emptyMap());
+    }
+
     @Provides
-    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner) {
-        return new DefaultCacheFactory(fileLockManager, executorFactory, buildOperationRunner);
+    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner, InternalOptions internalOptions) {
+        // A mapped file cannot be truncated or deleted on Windows until the mapping has been garbage collected
+        boolean memoryMappedReads = internalOptions.getOption(DefaultCacheCoordinator.MEMORY_MAPPED_READS).get() && !OperatingSystem.current().isWindows();
+        return new DefaultCacheFactory(fileLockManager, executorFactory, buildOperationRunner, memoryMappedReads);
     }
 
     @Provides
@@ -135,8 +161,26 @@ DefaultFilePropertyFactory createFilePropertyFactory(PropertyHost propertyHost,
     }
 
     @Provides
-    StreamHasher createStreamHasher() {
-        return new DefaultStreamHasher();
+    StreamHasher createStreamHasher(InternalOptions internalOptions) {
+        return new DefaultStreamHasher(contentHashFunction(internalOptions.getOption(CONTENT_HASH_FUNCTION).get()));
+    }
+
+    /**
+     * Returns the value of {@link #CONTENT_HASH_FUNCTION} that selects the content hash function of the given stream hasher.
+     */
+    public static String contentHashFunctionName(StreamHasher streamHasher) {
+        return streamHasher.getHashAlgorithm().equals(Hashing.murmur3_128().getAlgorithm()) ? "murmur3" : "md5";
+    }
+
+    private static HashFunction contentHashFunction(String name) {
+        switch (name) {
+            case "md5":
+                return Hashing.md5();
+            case "murmur3":
+                return Hashing.murmur3_128();
+            default:
+                throw new IllegalArgumentException(String.format("Unknown content hash function '%s', supported values are: md5, murmur3.", name));
+        }
     }
 
     @Provides
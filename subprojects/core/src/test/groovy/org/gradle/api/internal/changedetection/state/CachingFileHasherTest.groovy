@@ -60,7 +60,7 @@ class CachingFileHasherTest extends Specification {
         and:
         1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
         1 * cache.getIfPresent(file.absolutePath) >> null
-        1 * target.hash(file) >> hash
+        1 * target.hash(file, stat.length, stat.lastModified) >> hash
         1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
             assert fileInfo.hash == hash
             assert fileInfo.length == stat.length
@@ -82,7 +82,7 @@ class CachingFileHasherTest extends Specification {
         and:
         1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
         1 * cache.getIfPresent(file.absolutePath) >> new FileInfo(oldHash, 1024, stat.lastModified)
-        1 * target.hash(file) >> hash
+        1 * target.hash(file, stat.length, stat.lastModified) >> hash
         1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
             assert fileInfo.hash == hash
             assert fileInfo.length == stat.length
@@ -104,7 +104,7 @@ class CachingFileHasherTest extends Specification {
         and:
         1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
         1 * cache.getIfPresent(file.absolutePath) >> new FileInfo(oldHash, file.length(), 124)
-        1 * target.hash(file) >> hash
+        1 * target.hash(file, stat.length, stat.lastModified) >> hash
         1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
             assert fileInfo.hash == hash
             assert fileInfo.length == stat.length
@@ -140,7 +140,7 @@ class CachingFileHasherTest extends Specification {
 
         and:
         1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> false
-        1 * target.hash(file) >> hash
+        1 * target.hash(file, stat.length, stat.lastModified) >> hash
         1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
             assert fileInfo.hash == hash
             assert fileInfo.length == stat.length
@@ -164,7 +164,7 @@ class CachingFileHasherTest extends Specification {
         and:
         1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, lastModified) >> true
         1 * cache.getIfPresent(file.absolutePath) >> null
-        1 * target.hash(file) >> hash
+        1 * target.hash(file, length, lastModified) >> hash
         1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
             assert fileInfo.hash == hash
             assert fileInfo.length == length
@@ -173,4 +173,50 @@ class CachingFileHasherTest extends Specification {
         1 * statisticsCollector.reportFileHashed(length)
         0 * _
     }
+
+    def "serves repeated lookups from compact in-memory cache"() {
+        def stat = fileSystem.stat(file)
+
+        when:
+        def compactHasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, 1000, 10, statisticsCollector)
+        def first = compactHasher.hash(file)
+
+        then:
+        first == hash
+
+        and:
+        1 * cacheAccess.createIndexedCache({ it.cacheName == "fileHashes" }, _, _) >> cache
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        1 * statisticsCollector.reportInMemoryMiss()
+        1 * cache.getIfPresent(file.absolutePath) >> null
+        1 * target.hash(file, stat.length, stat.lastModified) >> hash
+        1 * cache.put(file.absolutePath, _)
+        1 * statisticsCollector.reportFileHashed(stat.length)
+        0 * _
+
+        when:
+        def second = compactHasher.hash(file)
+
+        then:
+        second == hash
+
+        and:
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        1 * statisticsCollector.reportInMemoryHit()
+        0 * _
+
+        when:
+        compactHasher.discard(file.absolutePath)
+        def third = compactHasher.hash(file)
+
+        then:
+        third == hash
+
+        and:
+        1 * cache.remove(file.absolutePath)
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        1 * statisticsCollector.reportInMemoryMiss()
+        1 * cache.getIfPresent(file.absolutePath) >> new FileInfo(hash, stat.length, stat.lastModified)
+        0 * _
+    }
 }
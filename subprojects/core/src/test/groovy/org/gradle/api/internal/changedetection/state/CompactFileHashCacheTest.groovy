@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.hash.TestHashCodes
+import spock.lang.Specification
+
+class CompactFileHashCacheTest extends Specification {
+    def hash = TestHashCodes.hashCodeFrom(0x0123)
+    def otherHash = TestHashCodes.hashCodeFrom(0x0321)
+
+    def "returns stored hash only for matching length and timestamp"() {
+        def cache = new CompactFileHashCache(100)
+
+        when:
+        cache.put("/some/file", 10, 20, hash)
+
+        then:
+        cache.get("/some/file", 10, 20) == hash
+        cache.get("/some/file", 11, 20) == null
+        cache.get("/some/file", 10, 21) == null
+        cache.get("/other/file", 10, 20) == null
+    }
+
+    def "replaces and removes entries"() {
+        def cache = new CompactFileHashCache(100)
+        cache.put("/some/file", 10, 20, hash)
+
+        when:
+        def evicted = cache.put("/some/file", 11, 21, otherHash)
+
+        then:
+        !evicted
+        cache.size() == 1
+        cache.get("/some/file", 11, 21) == otherHash
+
+        when:
+        cache.remove("/some/file")
+
+        then:
+        cache.size() == 0
+        cache.get("/some/file", 11, 21) == null
+    }
+
+    def "does not store hashes of other lengths"() {
+        def cache = new CompactFileHashCache(100)
+
+        when:
+        cache.put("/some/file", 10, 20, HashCode.fromString("0123456789abcdef0123456789abcdef01234567"))
+
+        then:
+        cache.size() == 0
+    }
+
+    def "evicts least recently used entries when full"() {
+        def cache = new CompactFileHashCache(64)
+        cache.put("/hot/file", 1, 1, hash)
+        int evictions = 0
+
+        when:
+        1000.times { i ->
+            assert cache.get("/hot/file", 1, 1) == hash
+            if (cache.put("/cold/file" + i, 1, 1, Hashing.murmur3_128().hashString("cold" + i))) {
+                evictions++
+            }
+        }
+
+        then:
+        cache.size() <= 64
+        evictions >= 1000 - 64
+        cache.get("/hot/file", 1, 1) == hash
+    }
+
+    def "keeps entries consistent under removal and reinsertion"() {
+        def cache = new CompactFileHashCache(256)
+        def random = new Random(1)
+        Map<String, HashCode> expected = [:]
+
+        when:
+        20000.times { i ->
+            def path = "/file" + random.nextInt(500)
+            switch (random.nextInt(3)) {
+                case 0:
+                    def value = Hashing.murmur3_128().hashString(path + i)
+                    cache.put(path, 1, 1, value)
+                    expected[path] = value
+                    break
+                case 1:
+                    def actual = cache.get(path, 1, 1)
+                    assert actual == null || actual == expected[path]
+                    break
+                default:
+                    cache.remove(path)
+                    expected.remove(path)
+            }
+        }
+
+        then:
+        cache.size() <= 256
+    }
+}
@@ -1830,6 +1830,74 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
         assertAllWorkComplete()
     }
 
+    def "prefetches build cache entry of task once its dependencies have completed"() {
+        def a = task("a")
+        def b = task("b", dependsOn: [a])
+
+        when:
+        executionPlan.setPrefetchBuildCacheEntries(true)
+        addToGraphAndPopulate(b)
+
+        def prefetchA = selectNextNode()
+
+        then:
+        prefetchA instanceof BuildCachePrefetchNode
+        prefetchA.node.task == a
+        assertNoWorkReadyToStartAfterSelect()
+
+        when:
+        finishedExecuting(prefetchA)
+        def nodeA = selectNextTaskNode()
+
+        then:
+        nodeA.task == a
+        assertNoWorkReadyToStart()
+
+        when:
+        finishedExecuting(nodeA)
+        def prefetchB = selectNextNode()
+
+        then:
+        prefetchB instanceof BuildCachePrefetchNode
+        prefetchB.node.task == b
+
+        when:
+        finishedExecuting(prefetchB)
+        def nodeB = selectNextTaskNode()
+
+        then:
+        nodeB.task == b
+
+        when:
+        finishedExecuting(nodeB)
+
+        then:
+        assertAllWorkComplete()
+    }
+
+    def "does not prefetch build cache entry of task whose dependencies have failed"() {
+        def broken = task("broken", failure: new RuntimeException())
+        def task = task("task", dependsOn: [broken])
+
+        when:
+        executionPlan.setPrefetchBuildCacheEntries(true)
+        executionPlan.setContinueOnFailure(true)
+        addToGraphAndPopulate(task)
+
+        def prefetch = selectNextNode()
+
+        then:
+        prefetch instanceof BuildCachePrefetchNode
+        prefetch.node.task == broken
+
+        when:
+        finishedExecuting(prefetch)
+
+        then:
+        assertTaskReady(broken)
+        assertAllWorkComplete(true)
+    }
+
     @Issue("https://github.com/gradle/gradle/issues/20508")
     def "stops executing nodes after failure when priority node has already executed"() {
         def node = priorityNode()